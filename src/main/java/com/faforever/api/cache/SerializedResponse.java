@@ -0,0 +1,91 @@
+package com.faforever.api.cache;
+
+import com.google.common.hash.Hashing;
+import lombok.Value;
+import org.jetbrains.annotations.Nullable;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.Arrays;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * A JSON response body that has been serialized once so that it can be written as is. Bodies of at least
+ * {@link #GZIP_THRESHOLD} bytes are kept gzipped as well. Each representation has its own strong ETag.
+ */
+@Value
+public class SerializedResponse {
+
+  static final int GZIP_THRESHOLD = 1024;
+
+  byte[] body;
+  @Nullable
+  byte[] gzippedBody;
+  String etag;
+  String gzipEtag;
+
+  public static SerializedResponse of(byte[] body) {
+    String hash = Hashing.sha256().hashBytes(body).toString();
+    return new SerializedResponse(body, body.length >= GZIP_THRESHOLD ? gzip(body) : null,
+      "\"" + hash + "\"", "\"" + hash + "-gzip\"");
+  }
+
+  /**
+   * @param ifNoneMatch the request's {@code If-None-Match} header
+   * @param acceptEncoding the request's {@code Accept-Encoding} header
+   * @return a 304 response if the client's copy is current, otherwise the body, gzipped if the client accepts it
+   */
+  public ResponseEntity<byte[]> toResponseEntity(@Nullable String ifNoneMatch, @Nullable String acceptEncoding) {
+    boolean gzip = gzippedBody != null && acceptsGzip(acceptEncoding);
+    String responseEtag = gzip ? gzipEtag : etag;
+
+    HttpHeaders headers = new HttpHeaders();
+    headers.setETag(responseEtag);
+    headers.set(HttpHeaders.VARY, HttpHeaders.ACCEPT_ENCODING);
+    if (matches(ifNoneMatch)) {
+      return ResponseEntity.status(HttpStatus.NOT_MODIFIED).headers(headers).build();
+    }
+    if (gzip) {
+      headers.set(HttpHeaders.CONTENT_ENCODING, "gzip");
+    }
+    headers.setContentType(MediaType.APPLICATION_JSON);
+    return ResponseEntity.ok().headers(headers).body(gzip ? gzippedBody : body);
+  }
+
+  /**
+   * Either representation matches, since both have the same content.
+   */
+  private boolean matches(@Nullable String ifNoneMatch) {
+    if (ifNoneMatch == null) {
+      return false;
+    }
+    return Arrays.stream(ifNoneMatch.split(","))
+      .map(String::trim)
+      .map(tag -> tag.startsWith("W/") ? tag.substring(2) : tag)
+      .anyMatch(tag -> tag.equals("*") || tag.equals(etag) || tag.equals(gzipEtag));
+  }
+
+  private static boolean acceptsGzip(@Nullable String acceptEncoding) {
+    if (acceptEncoding == null) {
+      return false;
+    }
+    return Arrays.stream(acceptEncoding.split(","))
+      .map(String::trim)
+      .anyMatch(coding -> coding.startsWith("gzip") && !coding.replace(" ", "").matches(".*;q=0(\\.0*)?$"));
+  }
+
+  private static byte[] gzip(byte[] body) {
+    ByteArrayOutputStream outputStream = new ByteArrayOutputStream(body.length / 4);
+    try (GZIPOutputStream gzipOutputStream = new GZIPOutputStream(outputStream)) {
+      gzipOutputStream.write(body);
+    } catch (IOException e) {
+      throw new UncheckedIOException(e);
+    }
+    return outputStream.toByteArray();
+  }
+}
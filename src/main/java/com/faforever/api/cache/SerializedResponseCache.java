@@ -0,0 +1,52 @@
+package com.faforever.api.cache;
+
+import com.faforever.api.config.FafApiProperties;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import org.springframework.stereotype.Component;
+
+import java.io.UncheckedIOException;
+import java.util.function.Predicate;
+import java.util.function.Supplier;
+
+/**
+ * Caches hot responses of custom endpoints as {@link SerializedResponse}s, so that neither the response objects nor
+ * the JSON have to be built again. Where possible, keys should include a version of the underlying data so that
+ * outdated responses are never served; otherwise they are served for up to {@code maxAge}.
+ */
+@Component
+public class SerializedResponseCache {
+
+  private final ObjectMapper objectMapper;
+  private final Cache<Object, SerializedResponse> cache;
+
+  public SerializedResponseCache(ObjectMapper objectMapper, FafApiProperties fafApiProperties) {
+    this.objectMapper = objectMapper;
+    this.cache = Caffeine.newBuilder()
+      .maximumSize(fafApiProperties.getResponseCache().getMaximumSize())
+      .expireAfterWrite(fafApiProperties.getResponseCache().getMaxAge())
+      .build();
+  }
+
+  /**
+   * @param key identifies the response, must implement {@code equals} and {@code hashCode}
+   * @param documentSupplier builds the response, its result must be serializable by Jackson
+   */
+  public SerializedResponse get(Object key, Supplier<?> documentSupplier) {
+    return cache.get(key, ignored -> SerializedResponse.of(serialize(documentSupplier.get())));
+  }
+
+  public void invalidateIf(Predicate<Object> keyPredicate) {
+    cache.asMap().keySet().removeIf(keyPredicate);
+  }
+
+  private byte[] serialize(Object document) {
+    try {
+      return objectMapper.writeValueAsBytes(document);
+    } catch (JsonProcessingException e) {
+      throw new UncheckedIOException(e);
+    }
+  }
+}
@@ -0,0 +1,68 @@
+package com.faforever.api.config;
+
+import com.faforever.api.config.FafApiProperties.Replica;
+import com.faforever.api.db.ReplicaLagGuard;
+import com.faforever.api.db.ReplicaRoutingDataSource;
+import com.zaxxer.hikari.HikariDataSource;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Primary;
+import org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy;
+import org.springframework.util.StringUtils;
+
+import javax.sql.DataSource;
+
+/**
+ * Sets up the primary connection pool as configured in {@code spring.datasource} and, if configured, routes read-only
+ * transactions to a replica.
+ */
+@Configuration
+@Slf4j
+public class DataSourceConfig {
+
+  @Bean
+  @ConfigurationProperties("spring.datasource.hikari")
+  public HikariDataSource primaryDataSource(DataSourceProperties dataSourceProperties) {
+    return dataSourceProperties.initializeDataSourceBuilder().type(HikariDataSource.class).build();
+  }
+
+  @Bean
+  public ReplicaRoutingDataSource replicaRoutingDataSource(HikariDataSource primaryDataSource,
+                                                           DataSourceProperties dataSourceProperties,
+                                                           FafApiProperties fafApiProperties,
+                                                           ReplicaLagGuard replicaLagGuard) {
+    Replica replica = fafApiProperties.getDatabase().getReplica();
+    if (!StringUtils.hasText(replica.getUrl())) {
+      log.info("No database replica configured, all transactions use the primary");
+      return new ReplicaRoutingDataSource(primaryDataSource, null, replicaLagGuard, replica.getRetryInterval());
+    }
+
+    // The pool is initialized lazily, so an unavailable replica doesn't prevent startup
+    HikariDataSource replicaDataSource = new HikariDataSource();
+    replicaDataSource.setPoolName("replica");
+    replicaDataSource.setJdbcUrl(replica.getUrl());
+    replicaDataSource.setDriverClassName(dataSourceProperties.determineDriverClassName());
+    replicaDataSource.setUsername(StringUtils.hasText(replica.getUsername()) ? replica.getUsername() : dataSourceProperties.determineUsername());
+    replicaDataSource.setPassword(StringUtils.hasText(replica.getPassword()) ? replica.getPassword() : dataSourceProperties.determinePassword());
+    replicaDataSource.setMaximumPoolSize(replica.getMaximumPoolSize());
+    replicaDataSource.setMinimumIdle(primaryDataSource.getMinimumIdle());
+    replicaDataSource.setConnectionTestQuery(primaryDataSource.getConnectionTestQuery());
+    replicaDataSource.setConnectionTimeout(replica.getConnectionTimeout().toMillis());
+    replicaDataSource.setReadOnly(true);
+
+    log.info("Routing read-only transactions to database replica '{}'", replica.getUrl());
+    return new ReplicaRoutingDataSource(primaryDataSource, replicaDataSource, replicaLagGuard, replica.getRetryInterval());
+  }
+
+  @Bean
+  @Primary
+  public DataSource dataSource(HikariDataSource primaryDataSource, ReplicaRoutingDataSource replicaRoutingDataSource) {
+    if (!replicaRoutingDataSource.hasReplica()) {
+      return primaryDataSource;
+    }
+    return new LazyConnectionDataSourceProxy(replicaRoutingDataSource);
+  }
+}
@@ -2,6 +2,7 @@ package com.faforever.api.config;
 
 import lombok.Data;
 import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.util.unit.DataSize;
 
 import java.nio.file.Path;
 import java.nio.file.Paths;
@@ -40,6 +41,15 @@ public class FafApiProperties {
   private Tutorial tutorial = new Tutorial();
   private Nodebb nodebb = new Nodebb();
   private Recaptcha recaptcha = new Recaptcha();
+  private DataCache dataCache = new DataCache();
+  private DataStream dataStream = new DataStream();
+  private DataStatistics dataStatistics = new DataStatistics();
+  private Leaderboard leaderboard = new Leaderboard();
+  private ResponseCache responseCache = new ResponseCache();
+  private Upload upload = new Upload();
+  private Download download = new Download();
+  private Search search = new Search();
+  private Statistics statistics = new Statistics();
 
   @Data
   public static class OAuth2 {
@@ -72,6 +82,11 @@ public class FafApiProperties {
      * For instance {@code http://content.faforever.com/faf/vault/map_previews/mini/%s}
      */
     private String previewsUrlFormat;
+    /**
+     * The URL of the scaled previews, formatted with the size directory and the file name. For instance
+     * {@code http://content.faforever.com/faf/vault/map_previews/%s/%s}. Unless set, the unscaled preview is linked.
+     */
+    private String scaledPreviewsUrlFormat;
     /**
      * For instance {@code http://content.faforever.com/faf/vault/maps/%s}
      */
@@ -85,13 +100,56 @@ public class FafApiProperties {
      */
     private Path directoryPreviewPath = Paths.get("static/map_previews/mini");
     /**
-     * The size (in pixels) of map previews.
+     * The size (in pixels) of map previews. Scaled previews are rendered next to the directory of the uploaded previews,
+     * at this size and at fractions of it.
      */
     private int previewSize = 512;
+    /**
+     * The number of threads that render scaled previews in the background.
+     */
+    private int previewRenderThreads = 2;
+    /**
+     * The number of previews that may wait to be rendered, further previews are skipped.
+     */
+    private int previewRenderQueueCapacity = 100;
+    /**
+     * Previews with more pixels aren't rendered, since an image is decoded into memory as a whole.
+     */
+    private int previewMaxPixels = 4096 * 4096;
+    /**
+     * How often previews are rendered whose scaled versions are missing, for instance because they were uploaded before
+     * scaled previews existed or because they were skipped.
+     */
+    private Duration previewBackfillInterval = Duration.ofHours(6);
     /**
      * Allowed file extensions of uploaded maps.
      */
     private Set<String> allowedExtensions = Set.of("zip", "tar");
+    /**
+     * How often map archives that are no longer linked from the target directory are removed from the archive store.
+     */
+    private Duration archiveCleanupInterval = Duration.ofHours(1);
+    /**
+     * Maximum number of map summaries (latest version, archive names and CRCs) to keep in memory for validating map
+     * names and uploads.
+     */
+    private long summaryCacheSize = 1_000;
+    /**
+     * Map summaries are evicted whenever a map or map version is committed, and otherwise after this long.
+     */
+    private Duration summaryCacheExpiry = Duration.ofMinutes(10);
+    /**
+     * Maximum number of evaluated scenario files to keep in memory, by the hash of their content.
+     */
+    private long scenarioCacheSize = 1_000;
+    /**
+     * The number of threads that read map archives in parallel when importing the map target directory.
+     */
+    private int importThreads = Runtime.getRuntime().availableProcessors();
+    /**
+     * The number of archives whose maps are imported in one transaction.
+     */
+    private int importBatchSize = 100;
   }
 
   @Data
@@ -219,6 +277,37 @@ public class FafApiProperties {
      * The database schema version required to run this application.
      */
     private String schemaVersion;
+    private Replica replica = new Replica();
+  }
+
+  @Data
+  public static class Replica {
+    /**
+     * JDBC URL of a read replica. Read-only transactions are routed to it if set, all others go to the primary.
+     */
+    private String url;
+    /**
+     * Defaults to the username of the primary.
+     */
+    private String username;
+    /**
+     * Defaults to the password of the primary.
+     */
+    private String password;
+    private int maximumPoolSize = 12;
+    /**
+     * Kept short since a request falls back to the primary if the replica doesn't hand out a connection in time.
+     */
+    private Duration connectionTimeout = Duration.ofSeconds(2);
+    /**
+     * How long the replica is bypassed after it failed to hand out a connection.
+     */
+    private Duration retryInterval = Duration.ofSeconds(30);
+    /**
+     * How long the reads of a user are served by the primary after they committed a change, so that replication lag
+     * doesn't hide their own writes from them.
+     */
+    private Duration lagGuard = Duration.ofSeconds(5);
   }
 
   @Data
@@ -268,4 +357,179 @@ public class FafApiProperties {
     private boolean enabled;
     private String secret;
   }
+
+  @Data
+  public static class DataCache {
+    /**
+     * Whether successful GET responses of the JSON-API data endpoint are cached.
+     */
+    private boolean enabled;
+    /**
+     * Whether concurrent identical GET requests share a single computation, regardless of {@link #enabled}.
+     */
+    private boolean coalesceRequests = true;
+    /**
+     * How long a coalesced request waits for the request it joined before it loads the response itself.
+     */
+    private Duration coalesceTimeout = Duration.ofSeconds(10);
+    /**
+     * The maximum number of cached responses.
+     */
+    private long maximumSize = 10_000;
+    /**
+     * Upper bound for the age of a cached response. Changes made through this API invalidate responses immediately.
+     */
+    private Duration maxAge = Duration.ofHours(1);
+    /**
+     * Upper bound for the age of a cached response that renders any of {@link #externallyWrittenTypes}.
+     */
+    private Duration externalMaxAge = Duration.ofMinutes(1);
+    /**
+     * JSON-API types whose rows are written by other services (e.g. the lobby server) or computed by database views,
+     * so that this API never sees them change.
+     */
+    private Set<String> externallyWrittenTypes = Set.of(
+      "player", "game", "gamePlayerStats", "gameReviewsSummary", "globalRating", "ladder1v1Rating",
+      "leaderboardRating", "leaderboardRatingJournal", "mapStatistics", "mapVersionStatistics", "mapReviewsSummary",
+      "mapVersionReviewsSummary", "modReviewsSummary", "modVersionReviewsSummary", "playerAchievement", "playerEvent",
+      "coopResult", "teamkill", "playerDivisionInfo");
+  }
+
+  @Data
+  public static class DataStream {
+    /**
+     * Number of resources that are loaded through Elide at once when a collection is streamed.
+     */
+    private int chunkSize = 500;
+    /**
+     * Maximum number of resources that are streamed by a request, which is also the default if it doesn't specify a
+     * page.
+     */
+    private int maxResources = 100_000;
+    /**
+     * Number of bytes of included resources that are buffered in memory before spilling to a temporary file.
+     */
+    private int includedBufferSize = 1024 * 1024;
+  }
+
+  @Data
+  public static class DataStatistics {
+    /**
+     * Whether the database work of data API requests is published as metrics.
+     */
+    private boolean enabled = true;
+    /**
+     * Requests that take longer than this are logged.
+     */
+    private Duration slowRequestThreshold = Duration.ofSeconds(1);
+    /**
+     * Requests that execute more statements than this are logged, which usually indicates an N+1 problem.
+     */
+    private int slowRequestStatements = 50;
+  }
+
+  @Data
+  public static class Leaderboard {
+    /**
+     * How often the in-memory leaderboards are brought up to date with the database. Legacy leaderboards are only loaded
+     * again when they are read after this long.
+     */
+    private Duration refreshInterval = Duration.ofMinutes(1);
+    /**
+     * How often the rankings of all leaderboards are reloaded completely. In between, only ratings updated since the
+     * last refresh are loaded, which doesn't notice deleted ratings.
+     */
+    private Duration fullRefreshInterval = Duration.ofHours(1);
+    /**
+     * Ratings updated up to this long before the newest update time seen are loaded again on every refresh, since the
+     * lobby server may commit a rating after one with a later update time.
+     */
+    private Duration updateTimeOverlap = Duration.ofSeconds(10);
+    /**
+     * Maximum number of rating histories (per player and leaderboard) to keep in memory.
+     */
+    private long historyCacheSize = 10_000;
+    /**
+     * Cached rating histories are loaded again from scratch after this long.
+     */
+    private Duration historyCacheExpiry = Duration.ofHours(1);
+    /**
+     * Journal entries of a player less than this many ids below their newest one are read again on every request,
+     * since the lobby server may commit a journal entry after one with a higher id.
+     */
+    private int historyRecheckedJournalIds = 10_000;
+  }
+
+  @Data
+  public static class ResponseCache {
+    /**
+     * Maximum number of serialized responses to keep in memory.
+     */
+    private long maximumSize = 1_000;
+    /**
+     * Serialized responses are evicted after this time, even if they are still up to date.
+     */
+    private Duration maxAge = Duration.ofMinutes(5);
+  }
+
+  @Data
+  public static class Upload {
+    /**
+     * The directory in which the chunks of resumable uploads are collected.
+     */
+    private Path stagingDirectory = Paths.get(System.getProperty("java.io.tmpdir"), "faf-api-uploads");
+    /**
+     * Maximum size of a file uploaded in chunks.
+     */
+    private DataSize maxFileSize = DataSize.ofGigabytes(2);
+    /**
+     * Maximum size of a single chunk.
+     */
+    private DataSize maxChunkSize = DataSize.ofMegabytes(64);
+    /**
+     * Maximum number of uploads a player may have in progress at once.
+     */
+    private int maxSessionsPerPlayer = 5;
+    /**
+     * Uploads that didn't receive a chunk for this long are discarded.
+     */
+    private Duration sessionExpiry = Duration.ofHours(24);
+    /**
+     * How often expired uploads are discarded.
+     */
+    private Duration cleanupInterval = Duration.ofMinutes(10);
+  }
+
+  @Data
+  public static class Download {
+    /**
+     * How long the ids of the maps and mods stored in a downloaded file are cached.
+     */
+    private Duration fileIdCacheExpiry = Duration.ofMinutes(10);
+    /**
+     * How many downloaded files the ids of their maps and mods are cached of.
+     */
+    private int fileIdCacheSize = 10_000;
+  }
+
+  @Data
+  public static class Statistics {
+    /**
+     * How often the counts collected in memory are added to the statistics in the database.
+     */
+    private Duration flushInterval = Duration.ofMinutes(1);
+  }
+
+  @Data
+  public static class Search {
+    /**
+     * How often maps and mods changed since the last refresh are brought up to date in the search indices.
+     */
+    private Duration refreshInterval = Duration.ofSeconds(5);
+    /**
+     * How often the search indices are rebuilt completely. In between, only maps and mods known to have changed are
+     * reloaded, which doesn't notice changes made by other services.
+     */
+    private Duration fullRefreshInterval = Duration.ofHours(1);
+  }
 }
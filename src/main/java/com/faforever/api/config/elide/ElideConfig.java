@@ -27,8 +27,6 @@ import java.util.Collections;
 @Configuration
 public class ElideConfig {
 
-  public static final String DEFAULT_CACHE_NAME = "Elide.defaultCache";
-
   @Bean
   public Elide elide(SpringHibernateDataStore springHibernateDataStore, ObjectMapper objectMapper, EntityDictionary entityDictionary, ExtendedAuditLogger extendedAuditLogger) {
     RSQLFilterDialect rsqlFilterDialect = new RSQLFilterDialect(entityDictionary, new CaseSensitivityStrategy.UseColumnCollation());
@@ -114,10 +114,23 @@ public class SpringHibernateDataStore implements DataStore {
 
   @Override
   public DataStoreTransaction beginTransaction() {
+    return beginTransaction(false);
+  }
+
+  /**
+   * Read transactions are marked as read-only, which allows them to be routed to a database replica.
+   */
+  @Override
+  public DataStoreTransaction beginReadTransaction() {
+    return beginTransaction(true);
+  }
+
+  private DataStoreTransaction beginTransaction(boolean readOnly) {
     // begin a spring transaction
     DefaultTransactionDefinition def = new DefaultTransactionDefinition();
-    def.setName("elide transaction");
+    def.setName(readOnly ? "elide read transaction" : "elide transaction");
     def.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRED);
+    def.setReadOnly(readOnly);
     TransactionStatus txStatus = txManager.getTransaction(def);
 
     Session session = entityManager.unwrap(Session.class);
@@ -56,6 +56,7 @@ public class SwaggerConfig {
       .or(regex("/exe/.*"))
       .or(regex("/leaderboards/.*"))
       .or(regex("/featuredMods/.*"))
+      .or(regex("/search/.*"))
       .or(regex("/voting/.*"));
   }
 }
@@ -1,16 +1,19 @@
 package com.faforever.api.data;
 
+import com.faforever.api.data.cache.ElideCacheKeyFactory;
+import com.faforever.api.data.cache.ElideRequestCoalescer;
+import com.faforever.api.data.cache.ElideResponseCache;
+import com.faforever.api.data.KeysetPaginator.KeysetPage;
+import com.faforever.api.db.ReplicaLagGuard;
 import com.faforever.api.security.ElideUser;
 import com.yahoo.elide.Elide;
 import com.yahoo.elide.ElideResponse;
 import com.yahoo.elide.core.security.User;
-import org.springframework.cache.annotation.Cacheable;
-import org.springframework.cache.interceptor.KeyGenerator;
 import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.security.core.Authentication;
-import org.springframework.stereotype.Component;
+import org.springframework.util.StringUtils;
 import org.springframework.web.bind.annotation.DeleteMapping;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.PatchMapping;
@@ -23,10 +26,13 @@ import org.springframework.web.servlet.HandlerMapping;
 import org.springframework.web.servlet.support.ServletUriComponentsBuilder;
 
 import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
 import javax.ws.rs.core.MultivaluedHashMap;
-import java.lang.reflect.Method;
+import java.io.IOException;
 import java.util.Map;
+import java.util.Optional;
 import java.util.UUID;
+import java.util.function.Supplier;
 
 import static com.faforever.api.data.JsonApiMediaType.JSON_API_MEDIA_TYPE;
 import static com.faforever.api.data.JsonApiMediaType.JSON_API_PATCH_MEDIA_TYPE;
@@ -42,9 +48,23 @@ public class DataController {
   public static final String API_VERSION = "";
 
   private final Elide elide;
-
-  public DataController(Elide elide) {
+  private final ElideCacheKeyFactory cacheKeyFactory;
+  private final ElideResponseCache responseCache;
+  private final ElideRequestCoalescer requestCoalescer;
+  private final JsonApiStreamWriter streamWriter;
+  private final KeysetPaginator keysetPaginator;
+  private final ReplicaLagGuard replicaLagGuard;
+
+  public DataController(Elide elide, ElideCacheKeyFactory cacheKeyFactory, ElideResponseCache responseCache,
+                        ElideRequestCoalescer requestCoalescer, JsonApiStreamWriter streamWriter,
+                        KeysetPaginator keysetPaginator, ReplicaLagGuard replicaLagGuard) {
     this.elide = elide;
+    this.cacheKeyFactory = cacheKeyFactory;
+    this.responseCache = responseCache;
+    this.requestCoalescer = requestCoalescer;
+    this.streamWriter = streamWriter;
+    this.keysetPaginator = keysetPaginator;
+    this.replicaLagGuard = replicaLagGuard;
   }
 
   private static User getPrincipal(final Authentication authentication) {
@@ -53,18 +73,57 @@ public class DataController {
 
   //!!! No @Transactional - transactions are being handled by Elide
   @GetMapping(value = {"/{entity}", "/{entity}/**"}, produces = JSON_API_MEDIA_TYPE)
-  @Cacheable(cacheResolver = "elideCacheResolver", keyGenerator = GetCacheKeyGenerator.NAME)
   public ResponseEntity<String> get(@RequestParam final Map<String, String> allRequestParams,
                                     final HttpServletRequest request,
                                     final Authentication authentication) {
-    ElideResponse response = elide.get(
-      getBaseUrlEndpoint(),
-      getJsonApiPath(request),
-      new MultivaluedHashMap<>(allRequestParams),
-      getPrincipal(authentication),
+    String jsonApiPath = getJsonApiPath(request);
+    String baseUrlEndpoint = getBaseUrlEndpoint();
+    Optional<KeysetPage> keysetPage = keysetPaginator.prepare(jsonApiPath, allRequestParams);
+    Map<String, String> elideParams = keysetPage.map(KeysetPage::getElideParameters).orElse(allRequestParams);
+
+    Supplier<ResponseEntity<String>> loader = () -> {
+      ElideResponse response = elide.get(
+        baseUrlEndpoint,
+        jsonApiPath,
+        new MultivaluedHashMap<>(elideParams),
+        getPrincipal(authentication),
+        API_VERSION
+      );
+      return wrapResponse(keysetPage
+        .map(page -> keysetPaginator.addNextLink(response, page, baseUrlEndpoint + StringUtils.trimLeadingCharacter(jsonApiPath, '/'), allRequestParams))
+        .orElse(response));
+    };
+
+    // Recent writers read from the primary, neither a cached response nor one read by others may hide their writes
+    if (replicaLagGuard.isCurrentUserRecentWriter()) {
+      return loader.get();
+    }
+    return cacheKeyFactory.createKey(jsonApiPath, allRequestParams, authentication)
+      .map(key -> requestCoalescer.execute(key, () -> responseCache.get(key, loader)))
+      .orElseGet(loader);
+  }
+
+  /**
+   * Like {@link #get(Map, HttpServletRequest, Authentication)}, but writes collections to the client while they are
+   * being loaded. Intended for large pages, which are neither cached nor held in memory as a whole.
+   */
+  //!!! No @Transactional - transactions are being handled by Elide
+  @GetMapping(value = {"/{entity}", "/{entity}/**"}, params = JsonApiStreamWriter.STREAM_PARAMETER, produces = JSON_API_MEDIA_TYPE)
+  public void getStreamed(@RequestParam final Map<String, String> allRequestParams,
+                          final HttpServletRequest request,
+                          final HttpServletResponse response,
+                          final Authentication authentication) throws IOException {
+    String jsonApiPath = getJsonApiPath(request);
+    String baseUrlEndpoint = getBaseUrlEndpoint();
+    User principal = getPrincipal(authentication);
+
+    streamWriter.write(jsonApiPath, allRequestParams, chunkParams -> elide.get(
+      baseUrlEndpoint,
+      jsonApiPath,
+      new MultivaluedHashMap<>(chunkParams),
+      principal,
       API_VERSION
-    );
-    return wrapResponse(response);
+    ), response);
   }
 
   //!!! No @Transactional - transactions are being handled by Elide
@@ -163,18 +222,4 @@ public class DataController {
     return ServletUriComponentsBuilder.fromCurrentContextPath().build().toUriString()
       + PATH_PREFIX + "/";
   }
-
-  @Component(GetCacheKeyGenerator.NAME)
-  class GetCacheKeyGenerator implements KeyGenerator {
-    static final String NAME = "elideGetCacheKeyGenerator";
-
-    @Override
-    public Object generate(Object target, Method method, Object... params) {
-      @SuppressWarnings("unchecked")
-      Map<String, String> allRequestParams = (Map<String, String>) params[0];
-      final HttpServletRequest request = (HttpServletRequest) params[1];
-
-      return method.getName() + getJsonApiPath(request) + allRequestParams;
-    }
-  }
 }
@@ -0,0 +1,220 @@
+package com.faforever.api.data;
+
+import com.faforever.api.config.FafApiProperties;
+import com.faforever.api.config.FafApiProperties.DataStream;
+import com.faforever.api.data.KeysetPaginator.KeysetPage;
+import com.faforever.api.error.ApiException;
+import com.faforever.api.error.ErrorCode;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.MappingIterator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.google.common.io.FileBackedOutputStream;
+import com.yahoo.elide.ElideResponse;
+import lombok.Value;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Component;
+
+import javax.servlet.http.HttpServletResponse;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Function;
+
+import static com.faforever.api.data.JsonApiMediaType.JSON_API_MEDIA_TYPE;
+
+/**
+ * Writes large JSON-API collections to the client while they are being loaded. Elide renders a whole document into a
+ * single string, so instead of asking Elide for all requested resources at once, the requested window is loaded in
+ * chunks of {@link DataStream#getChunkSize()} resources, each of which passes Elide's permission checks as usual. The
+ * resources of every chunk are written to the response as soon as it has been loaded, which keeps the memory
+ * footprint independent of the requested page size. Included resources are de-duplicated across chunks and buffered
+ * (spilling to disk if necessary) until all primary data has been written.
+ *
+ * <p>Only the first chunk is addressed by offset, every further chunk continues behind the last resource of the
+ * previous one like {@link KeysetPaginator cursor pagination} does. So deep chunks cost the same as the first one,
+ * and resources that are inserted or deleted while streaming don't shift the remaining chunks.</p>
+ */
+@Component
+@Slf4j
+public class JsonApiStreamWriter {
+
+  public static final String STREAM_PARAMETER = "stream";
+
+  private static final String PAGE_OFFSET = "page[offset]";
+  private static final String PAGE_LIMIT = "page[limit]";
+  private static final String PAGE_NUMBER = "page[number]";
+  private static final String PAGE_SIZE = "page[size]";
+  private static final String PAGE_TOTALS = "page[totals]";
+  /**
+   * Elide's page size if a page number is specified without a size.
+   */
+  private static final int DEFAULT_PAGE_SIZE = 500;
+
+  private final ObjectMapper objectMapper;
+  private final KeysetPaginator keysetPaginator;
+  private final DataStream properties;
+
+  public JsonApiStreamWriter(ObjectMapper objectMapper, KeysetPaginator keysetPaginator, FafApiProperties fafApiProperties) {
+    this.objectMapper = objectMapper;
+    this.keysetPaginator = keysetPaginator;
+    this.properties = fafApiProperties.getDataStream();
+  }
+
+  /**
+   * @param jsonApiPath the path of the streamed root collection
+   * @param requestParams the parameters of the original request, page parameters specify the overall window
+   * @param chunkLoader loads a single chunk through Elide for the given request parameters
+   */
+  public void write(String jsonApiPath,
+                    Map<String, String> requestParams,
+                    Function<Map<String, String>, ElideResponse> chunkLoader,
+                    HttpServletResponse response) throws IOException {
+    Map<String, String> params = new HashMap<>(requestParams);
+    params.remove(STREAM_PARAMETER);
+    params.remove(PAGE_TOTALS);
+    Window window = extractWindow(params);
+
+    int requested = Math.min(properties.getChunkSize(), window.getLimit());
+    KeysetPage page = prepareChunk(jsonApiPath, params, "", requested);
+    Map<String, String> firstChunkParams = new HashMap<>(page.getElideParameters());
+    if (window.getOffset() > 0) {
+      firstChunkParams.put(PAGE_OFFSET, String.valueOf(window.getOffset()));
+    }
+    ElideResponse chunk = chunkLoader.apply(firstChunkParams);
+    if (chunk.getResponseCode() != HttpStatus.OK.value()) {
+      writeVerbatim(chunk, response);
+      return;
+    }
+
+    JsonNode document = objectMapper.readTree(chunk.getBody());
+    if (!document.path("data").isArray()) {
+      writeVerbatim(chunk, response);
+      return;
+    }
+
+    response.setStatus(HttpStatus.OK.value());
+    response.setContentType(JSON_API_MEDIA_TYPE);
+    response.setCharacterEncoding(StandardCharsets.UTF_8.name());
+
+    try (FileBackedOutputStream includedBuffer = new FileBackedOutputStream(properties.getIncludedBufferSize(), true);
+         JsonGenerator generator = objectMapper.getFactory().createGenerator(response.getOutputStream());
+         JsonGenerator includedGenerator = objectMapper.getFactory().createGenerator(includedBuffer)) {
+      // An aborted stream must not be completed into a well-formed document
+      generator.disable(JsonGenerator.Feature.AUTO_CLOSE_JSON_CONTENT);
+      Set<String> includedKeys = new HashSet<>();
+      long written = 0;
+
+      generator.writeStartObject();
+      generator.writeArrayFieldStart("data");
+      while (true) {
+        for (JsonNode resource : document.path("data")) {
+          generator.writeTree(resource);
+        }
+        for (JsonNode resource : document.path("included")) {
+          if (includedKeys.add(resource.path("type").asText() + "/" + resource.path("id").asText())) {
+            includedGenerator.writeTree(resource);
+          }
+        }
+        generator.flush();
+
+        JsonNode data = document.path("data");
+        written += data.size();
+        // Permission checks may hide some resources of a chunk, so only an empty chunk proves the end of the collection
+        if (data.size() == 0 || written >= window.getLimit()) {
+          break;
+        }
+
+        requested = (int) Math.min(properties.getChunkSize(), window.getLimit() - written);
+        page = prepareChunk(jsonApiPath, params, keysetPaginator.cursorAfter(page, data.get(data.size() - 1)), requested);
+        chunk = chunkLoader.apply(page.getElideParameters());
+        if (chunk.getResponseCode() != HttpStatus.OK.value()) {
+          // The status has already been sent, aborting is the only way to not hand out a truncated document
+          throw new IOException("Loading chunk after " + written + " resources failed with status "
+            + chunk.getResponseCode() + ": " + chunk.getBody());
+        }
+        document = objectMapper.readTree(chunk.getBody());
+      }
+      generator.writeEndArray();
+
+      includedGenerator.flush();
+      if (!includedKeys.isEmpty()) {
+        generator.writeArrayFieldStart("included");
+        try (InputStream inputStream = includedBuffer.asByteSource().openStream();
+             MappingIterator<JsonNode> iterator = objectMapper.readerFor(JsonNode.class).readValues(inputStream)) {
+          while (iterator.hasNext()) {
+            generator.writeTree(iterator.next());
+          }
+        }
+        generator.writeEndArray();
+      }
+      generator.writeEndObject();
+      log.debug("Streamed {} resources and {} included resources", written, includedKeys.size());
+    }
+  }
+
+  private Window extractWindow(Map<String, String> params) {
+    Integer offset = parsePageParameter(params, PAGE_OFFSET);
+    Integer limit = parsePageParameter(params, PAGE_LIMIT);
+    Integer number = parsePageParameter(params, PAGE_NUMBER);
+    Integer size = parsePageParameter(params, PAGE_SIZE);
+
+    if (number != null || size != null) {
+      int pageSize = size != null ? size : DEFAULT_PAGE_SIZE;
+      int pageNumber = number != null ? number : 1;
+      if (pageSize < 1) {
+        throw ApiException.of(ErrorCode.QUERY_INVALID_PAGE_SIZE, pageSize);
+      }
+      if (pageNumber < 1) {
+        throw ApiException.of(ErrorCode.QUERY_INVALID_PAGE_NUMBER, pageNumber);
+      }
+      return new Window((long) (pageNumber - 1) * pageSize, Math.min(pageSize, properties.getMaxResources()));
+    }
+
+    int windowLimit = limit != null ? limit : properties.getMaxResources();
+    if (windowLimit < 1) {
+      throw ApiException.of(ErrorCode.QUERY_INVALID_PAGE_SIZE, windowLimit);
+    }
+    return new Window(offset != null ? Math.max(offset, 0) : 0, Math.min(windowLimit, properties.getMaxResources()));
+  }
+
+  private static Integer parsePageParameter(Map<String, String> params, String name) {
+    String value = params.remove(name);
+    if (value == null) {
+      return null;
+    }
+    try {
+      return Integer.parseInt(value.trim());
+    } catch (NumberFormatException e) {
+      throw ApiException.of(ErrorCode.QUERY_INVALID_PAGE_PARAMETER, name, value);
+    }
+  }
+
+  /**
+   * The sort order and the filter that continues behind the cursor are added by the {@link KeysetPaginator}.
+   */
+  private KeysetPage prepareChunk(String jsonApiPath, Map<String, String> params, String cursor, int limit) {
+    Map<String, String> chunkParams = new HashMap<>(params);
+    chunkParams.put(KeysetPaginator.AFTER_PARAMETER, cursor);
+    chunkParams.put(PAGE_LIMIT, String.valueOf(limit));
+    return keysetPaginator.prepare(jsonApiPath, chunkParams).orElseThrow();
+  }
+
+  private static void writeVerbatim(ElideResponse elideResponse, HttpServletResponse response) throws IOException {
+    response.setStatus(elideResponse.getResponseCode());
+    response.setContentType(JSON_API_MEDIA_TYPE);
+    response.setCharacterEncoding(StandardCharsets.UTF_8.name());
+    response.getWriter().write(elideResponse.getBody());
+  }
+
+  @Value
+  private static class Window {
+    long offset;
+    int limit;
+  }
+}
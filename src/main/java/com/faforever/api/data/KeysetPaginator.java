@@ -0,0 +1,302 @@
+package com.faforever.api.data;
+
+import com.faforever.api.error.ApiException;
+import com.faforever.api.error.ErrorCode;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import com.yahoo.elide.ElideResponse;
+import com.yahoo.elide.core.dictionary.EntityDictionary;
+import com.yahoo.elide.core.type.Type;
+import lombok.Value;
+import lombok.extern.slf4j.Slf4j;
+import org.jetbrains.annotations.Nullable;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Component;
+import org.springframework.util.StringUtils;
+
+import java.io.IOException;
+import java.net.URLEncoder;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.stream.Collectors;
+
+/**
+ * Implements cursor based ("keyset") pagination for root collections. Instead of skipping {@code OFFSET} rows, the
+ * database seeks directly behind the last resource of the previous page, so that deep pages cost the same as the
+ * first one.
+ * <p>
+ * Clients opt in by passing {@value #AFTER_PARAMETER} (empty for the first page) and follow the {@code next} link of
+ * each response. The cursor holds the sort values and the id of the last returned resource; it is translated into an
+ * RSQL filter so that Elide's usual filter and permission handling apply. Elide itself rejects unknown page
+ * parameters, which is why the translation happens before the request is handed over.
+ * <p>
+ * The seek filter follows MySQL's ordering, which sorts {@code NULL} before any other value.
+ */
+@Component
+@Slf4j
+public class KeysetPaginator {
+
+  public static final String AFTER_PARAMETER = "page[after]";
+
+  private static final String PAGE_SIZE = "page[size]";
+  private static final String PAGE_LIMIT = "page[limit]";
+  private static final String PAGE_NUMBER = "page[number]";
+  private static final String PAGE_OFFSET = "page[offset]";
+  private static final String SORT_PARAMETER = "sort";
+  private static final String FILTER_PARAMETER = "filter";
+  private static final String ID = "id";
+  /**
+   * Elide's page size if none is specified.
+   */
+  private static final int DEFAULT_PAGE_SIZE = 500;
+
+  private final EntityDictionary entityDictionary;
+  private final ObjectMapper objectMapper;
+
+  public KeysetPaginator(EntityDictionary entityDictionary, ObjectMapper objectMapper) {
+    this.entityDictionary = entityDictionary;
+    this.objectMapper = objectMapper;
+  }
+
+  /**
+   * @return the page to request from Elide, or empty if the request doesn't ask for keyset pagination
+   */
+  public Optional<KeysetPage> prepare(String jsonApiPath, Map<String, String> requestParams) {
+    if (!requestParams.containsKey(AFTER_PARAMETER)) {
+      return Optional.empty();
+    }
+
+    String[] segments = StringUtils.trimLeadingCharacter(jsonApiPath, '/').split("/");
+    Type<?> type = entityDictionary.getEntityClass(segments[0], DataController.API_VERSION);
+    if (segments.length != 1 || type == null) {
+      throw ApiException.of(ErrorCode.QUERY_CURSOR_NOT_SUPPORTED, jsonApiPath);
+    }
+    String typeName = segments[0];
+
+    Map<String, String> elideParams = new HashMap<>(requestParams);
+    String cursor = elideParams.remove(AFTER_PARAMETER);
+    elideParams.remove(PAGE_NUMBER);
+    elideParams.remove(PAGE_OFFSET);
+    if (!elideParams.containsKey(PAGE_SIZE) && !elideParams.containsKey(PAGE_LIMIT)) {
+      elideParams.put(PAGE_SIZE, String.valueOf(DEFAULT_PAGE_SIZE));
+    }
+    int pageSize = parsePageSize(elideParams);
+
+    List<SortKey> sortKeys = parseSort(type, elideParams.get(SORT_PARAMETER));
+    String sort = sortKeys.stream().map(SortKey::toString).collect(Collectors.joining(","));
+    elideParams.put(SORT_PARAMETER, sort);
+
+    String fieldsParameter = "fields[" + typeName + "]";
+    String fields = elideParams.get(fieldsParameter);
+    if (StringUtils.hasText(fields)) {
+      // The sort values of the last resource must be rendered to build the next cursor
+      List<String> renderedFields = new ArrayList<>(List.of(fields.split(",")));
+      sortKeys.stream()
+        .map(SortKey::getField)
+        .filter(field -> !ID.equals(field) && !renderedFields.contains(field))
+        .forEach(renderedFields::add);
+      elideParams.put(fieldsParameter, String.join(",", renderedFields));
+    }
+
+    if (StringUtils.hasText(cursor)) {
+      List<String> values = decodeCursor(cursor, sort, sortKeys.size());
+      addFilter(elideParams, typeName, buildSeekFilter(sortKeys, values));
+    }
+
+    return Optional.of(new KeysetPage(elideParams, sortKeys, sort, pageSize));
+  }
+
+  /**
+   * Adds a {@code next} link to a successful response if there may be more resources behind it.
+   *
+   * @param selfUrl the URL of the requested collection, without query
+   */
+  public ElideResponse addNextLink(ElideResponse response, KeysetPage page, String selfUrl, Map<String, String> requestParams) {
+    if (response.getResponseCode() != HttpStatus.OK.value()) {
+      return response;
+    }
+
+    try {
+      ObjectNode document = (ObjectNode) objectMapper.readTree(response.getBody());
+      JsonNode data = document.path("data");
+      if (data.size() < page.getPageSize()) {
+        return response;
+      }
+
+      Map<String, String> nextParams = new HashMap<>(requestParams);
+      nextParams.remove(PAGE_NUMBER);
+      nextParams.remove(PAGE_OFFSET);
+      nextParams.put(AFTER_PARAMETER, cursorAfter(page, data.get(data.size() - 1)));
+
+      ObjectNode links = document.has("links") ? (ObjectNode) document.get("links") : document.putObject("links");
+      links.put("next", selfUrl + "?" + toQueryString(nextParams));
+      return new ElideResponse(response.getResponseCode(), objectMapper.writeValueAsString(document));
+    } catch (IOException | ClassCastException e) {
+      log.warn("Could not add next link to response", e);
+      return response;
+    }
+  }
+
+  /**
+   * @return the cursor that continues behind the specified resource of the page
+   */
+  String cursorAfter(KeysetPage page, JsonNode resource) throws IOException {
+    List<String> values = new ArrayList<>();
+    for (SortKey sortKey : page.getSortKeys()) {
+      JsonNode value = ID.equals(sortKey.getField())
+        ? resource.path(ID)
+        : resource.path("attributes").path(sortKey.getField());
+      values.add(value.isNull() || value.isMissingNode() ? null : value.asText());
+    }
+    return encodeCursor(page.getSort(), values);
+  }
+
+  private List<SortKey> parseSort(Type<?> type, @Nullable String sort) {
+    List<SortKey> sortKeys = new ArrayList<>();
+    if (StringUtils.hasText(sort)) {
+      List<String> attributes = entityDictionary.getAttributes(type);
+      for (String field : sort.split(",")) {
+        String trimmed = field.trim();
+        boolean descending = trimmed.startsWith("-");
+        String name = trimmed.startsWith("-") || trimmed.startsWith("+") ? trimmed.substring(1) : trimmed;
+        if (!ID.equals(name) && !attributes.contains(name)) {
+          throw ApiException.of(ErrorCode.QUERY_INVALID_SORT_FIELD, name);
+        }
+        sortKeys.add(new SortKey(name, descending));
+        if (ID.equals(name)) {
+          // The id is unique, any further sort key is irrelevant
+          return sortKeys;
+        }
+      }
+    }
+    sortKeys.add(new SortKey(ID, false));
+    return sortKeys;
+  }
+
+  /**
+   * Builds the lexicographic "comes after" condition: for each sort key, all previous keys are equal and the key
+   * itself comes after the cursor value.
+   */
+  static String buildSeekFilter(List<SortKey> sortKeys, List<String> values) {
+    List<String> alternatives = new ArrayList<>();
+    List<String> equalities = new ArrayList<>();
+    for (int i = 0; i < sortKeys.size(); i++) {
+      SortKey sortKey = sortKeys.get(i);
+      String value = values.get(i);
+
+      Optional<String> after = after(sortKey, value);
+      if (after.isPresent()) {
+        List<String> conjunction = new ArrayList<>(equalities);
+        conjunction.add(after.get());
+        alternatives.add(String.join(";", conjunction));
+      }
+      equalities.add(equalTo(sortKey.getField(), value));
+    }
+    return alternatives.stream()
+      .map(alternative -> "(" + alternative + ")")
+      .collect(Collectors.joining(","));
+  }
+
+  private static Optional<String> after(SortKey sortKey, @Nullable String value) {
+    String field = sortKey.getField();
+    if (!sortKey.isDescending()) {
+      return Optional.of(value == null
+        ? field + "=isnull=false"
+        : field + "=gt=" + quote(value));
+    }
+    return value == null
+      ? Optional.empty()
+      : Optional.of("(" + field + "=lt=" + quote(value) + "," + field + "=isnull=true)");
+  }
+
+  private static String equalTo(String field, @Nullable String value) {
+    if (value == null) {
+      return field + "=isnull=true";
+    }
+    // Not "==", which treats asterisks as wildcards
+    return field + "=ge=" + quote(value) + ";" + field + "=le=" + quote(value);
+  }
+
+  private static String quote(String value) {
+    return "\"" + value.replace("\\", "\\\\").replace("\"", "\\\"") + "\"";
+  }
+
+  private static void addFilter(Map<String, String> params, String typeName, String filter) {
+    String key = params.containsKey(FILTER_PARAMETER) ? FILTER_PARAMETER : FILTER_PARAMETER + "[" + typeName + "]";
+    String existing = params.get(key);
+    params.put(key, StringUtils.hasText(existing) ? "(" + existing + ");(" + filter + ")" : filter);
+  }
+
+  private static int parsePageSize(Map<String, String> params) {
+    String key = params.containsKey(PAGE_SIZE) ? PAGE_SIZE : PAGE_LIMIT;
+    String value = params.get(key);
+    try {
+      return Integer.parseInt(value.trim());
+    } catch (NumberFormatException e) {
+      throw ApiException.of(ErrorCode.QUERY_INVALID_PAGE_PARAMETER, key, value);
+    }
+  }
+
+  private String encodeCursor(String sort, List<String> values) throws IOException {
+    byte[] json = objectMapper.writeValueAsBytes(new Cursor(sort, values));
+    return Base64.getUrlEncoder().withoutPadding().encodeToString(json);
+  }
+
+  private List<String> decodeCursor(String cursor, String sort, int expectedValues) {
+    try {
+      JsonNode node = objectMapper.readTree(Base64.getUrlDecoder().decode(cursor));
+      JsonNode values = node.path("values");
+      if (!sort.equals(node.path("sort").asText()) || !(values instanceof ArrayNode) || values.size() != expectedValues) {
+        throw ApiException.of(ErrorCode.QUERY_INVALID_CURSOR);
+      }
+      List<String> result = new ArrayList<>();
+      values.forEach(value -> result.add(value.isNull() ? null : value.asText()));
+      return result;
+    } catch (IllegalArgumentException | IOException e) {
+      throw ApiException.of(ErrorCode.QUERY_INVALID_CURSOR);
+    }
+  }
+
+  private static String toQueryString(Map<String, String> params) {
+    return params.entrySet().stream()
+      .sorted(Map.Entry.comparingByKey())
+      .map(entry -> URLEncoder.encode(entry.getKey(), StandardCharsets.UTF_8) + "="
+        + URLEncoder.encode(entry.getValue(), StandardCharsets.UTF_8))
+      .collect(Collectors.joining("&"));
+  }
+
+  @Value
+  public static class KeysetPage {
+    /**
+     * The request parameters to hand over to Elide.
+     */
+    Map<String, String> elideParameters;
+    List<SortKey> sortKeys;
+    String sort;
+    int pageSize;
+  }
+
+  @Value
+  static class SortKey {
+    String field;
+    boolean descending;
+
+    @Override
+    public String toString() {
+      return descending ? "-" + field : field;
+    }
+  }
+
+  @Value
+  private static class Cursor {
+    String sort;
+    List<String> values;
+  }
+}
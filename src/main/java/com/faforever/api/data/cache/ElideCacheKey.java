@@ -0,0 +1,42 @@
+package com.faforever.api.data.cache;
+
+import lombok.EqualsAndHashCode;
+import lombok.Value;
+
+import java.util.Set;
+import java.util.SortedMap;
+
+/**
+ * Identifies a cacheable JSON-API GET request. Two requests share a response only if they address the same path with
+ * the same parameters and are subject to the same outcome of all Elide read permission checks.
+ */
+@Value
+public class ElideCacheKey {
+
+  String path;
+
+  SortedMap<String, String> parameters;
+
+  /**
+   * Condensed form of everything about the caller that influences {@code @ReadPermission} checks.
+   */
+  String permissionFingerprint;
+
+  /**
+   * JSON-API types whose attributes are rendered in the response, i.e. the addressed type and all included types.
+   */
+  @EqualsAndHashCode.Exclude
+  Set<String> contentTypes;
+
+  /**
+   * JSON-API types that are only referenced through relationship linkage in the response.
+   */
+  @EqualsAndHashCode.Exclude
+  Set<String> linkedTypes;
+
+  /**
+   * JSON-API types that filter and sort paths traverse, which decide the rendered entities and their order.
+   */
+  @EqualsAndHashCode.Exclude
+  Set<String> queriedTypes;
+}
@@ -0,0 +1,257 @@
+package com.faforever.api.data.cache;
+
+import com.faforever.api.data.DataController;
+import com.faforever.api.data.checks.IsEntityOwner;
+import com.faforever.api.data.checks.IsGameHostedByCaller;
+import com.faforever.api.data.checks.IsGameParticipatedByCaller;
+import com.faforever.api.security.FafUserDetails;
+import com.yahoo.elide.annotation.ReadPermission;
+import com.yahoo.elide.core.dictionary.EntityDictionary;
+import com.yahoo.elide.core.type.Type;
+import org.jetbrains.annotations.Nullable;
+import org.springframework.security.authentication.AnonymousAuthenticationToken;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.GrantedAuthority;
+import org.springframework.security.oauth2.provider.OAuth2Authentication;
+import org.springframework.stereotype.Component;
+import org.springframework.util.StringUtils;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * Builds {@link ElideCacheKey}s for JSON-API GET requests. The permission fingerprint consists of the caller's
+ * authorities and OAuth scopes, which is all that {@code UserCheck}s look at. The caller's id is only added if one of
+ * the rendered types is guarded by a check that compares data against the caller, so anonymous and ordinary users
+ * share responses wherever possible.
+ */
+@Component
+public class ElideCacheKeyFactory {
+
+  static final String ANONYMOUS_FINGERPRINT = "anonymous";
+  private static final String INCLUDE_PARAMETER = "include";
+  private static final String SORT_PARAMETER = "sort";
+  private static final String FILTER_PARAMETER = "filter";
+  private static final Pattern TYPED_FILTER_PARAMETER = Pattern.compile("filter\\[(\\w+)]");
+  /** Quoted RSQL arguments, which may contain anything that looks like a selector. */
+  private static final Pattern RSQL_QUOTED_ARGUMENT = Pattern.compile("'(?:[^'\\\\]|\\\\.)*'|\"(?:[^\"\\\\]|\\\\.)*\"");
+  /** An RSQL selector, i.e. the path in front of a comparison operator. */
+  private static final Pattern RSQL_SELECTOR = Pattern.compile("([A-Za-z_][\\w.]*)\\s*(?:==|!=|=[a-z]*=|<=|>=|<|>)");
+  private static final String RELATIONSHIPS_SEGMENT = "relationships";
+  private static final Set<String> CALLER_DEPENDENT_CHECKS = Set.of(
+    IsEntityOwner.EXPRESSION,
+    IsGameParticipatedByCaller.EXPRESSION,
+    IsGameHostedByCaller.EXPRESSION
+  );
+
+  private final EntityDictionary entityDictionary;
+  private final ConcurrentMap<Type<?>, Boolean> callerDependentTypes = new ConcurrentHashMap<>();
+
+  public ElideCacheKeyFactory(EntityDictionary entityDictionary) {
+    this.entityDictionary = entityDictionary;
+  }
+
+  /**
+   * @return the cache key, or empty if the request addresses something that can not be resolved to Elide types (in
+   * which case Elide will answer with an error anyway)
+   */
+  public Optional<ElideCacheKey> createKey(String jsonApiPath, Map<String, String> parameters, @Nullable Authentication authentication) {
+    Set<Type<?>> pathTypes = new LinkedHashSet<>();
+    Optional<Type<?>> addressedType = resolvePath(jsonApiPath, pathTypes);
+    if (addressedType.isEmpty()) {
+      return Optional.empty();
+    }
+
+    Set<Type<?>> contentTypes = new LinkedHashSet<>();
+    contentTypes.add(addressedType.get());
+    String include = parameters.get(INCLUDE_PARAMETER);
+    if (StringUtils.hasText(include)) {
+      for (String includePath : include.split(",")) {
+        if (!resolveInclude(addressedType.get(), includePath.trim(), contentTypes)) {
+          return Optional.empty();
+        }
+      }
+    }
+
+    Set<Type<?>> queriedTypes = new LinkedHashSet<>();
+    if (!resolveQueriedTypes(addressedType.get(), parameters, queriedTypes)) {
+      return Optional.empty();
+    }
+
+    Set<Type<?>> linkedTypes = new LinkedHashSet<>(pathTypes);
+    contentTypes.forEach(type -> entityDictionary.getRelationships(type)
+      .forEach(relationship -> linkedTypes.add(entityDictionary.getParameterizedType(type, relationship))));
+    linkedTypes.removeAll(contentTypes);
+
+    boolean callerDependent = contentTypes.stream().anyMatch(this::isCallerDependent);
+
+    return Optional.of(new ElideCacheKey(
+      jsonApiPath,
+      new TreeMap<>(parameters),
+      buildPermissionFingerprint(authentication, callerDependent),
+      toTypeNames(contentTypes),
+      toTypeNames(linkedTypes),
+      toTypeNames(queriedTypes)
+    ));
+  }
+
+  /**
+   * Walks a path like {@code /map/1/versions} or {@code /map/1/relationships/versions} and returns the addressed type.
+   */
+  private Optional<Type<?>> resolvePath(String jsonApiPath, Set<Type<?>> visitedTypes) {
+    String[] segments = StringUtils.trimLeadingCharacter(jsonApiPath, '/').split("/");
+    Type<?> type = entityDictionary.getEntityClass(segments[0], DataController.API_VERSION);
+    if (type == null) {
+      return Optional.empty();
+    }
+
+    for (int i = 2; i < segments.length; i += 2) {
+      visitedTypes.add(type);
+      String relationship = segments[i];
+      if (RELATIONSHIPS_SEGMENT.equals(relationship) && i + 1 < segments.length) {
+        relationship = segments[++i];
+      }
+      if (!entityDictionary.getRelationships(type).contains(relationship)) {
+        return Optional.empty();
+      }
+      type = entityDictionary.getParameterizedType(type, relationship);
+    }
+    return Optional.of(type);
+  }
+
+  private boolean resolveInclude(Type<?> rootType, String includePath, Set<Type<?>> contentTypes) {
+    Type<?> type = rootType;
+    for (String relationship : includePath.split("\\.")) {
+      if (!entityDictionary.getRelationships(type).contains(relationship)) {
+        return false;
+      }
+      type = entityDictionary.getParameterizedType(type, relationship);
+      contentTypes.add(type);
+    }
+    return true;
+  }
+
+  /**
+   * Collects the types that filter and sort paths like {@code versions.ranked} traverse, since they decide which
+   * entities are rendered even if none of their attributes is.
+   *
+   * @return false if a typed filter addresses an unknown type
+   */
+  private boolean resolveQueriedTypes(Type<?> rootType, Map<String, String> parameters, Set<Type<?>> queriedTypes) {
+    for (Map.Entry<String, String> parameter : parameters.entrySet()) {
+      String value = parameter.getValue();
+      if (!StringUtils.hasText(value)) {
+        continue;
+      }
+
+      if (SORT_PARAMETER.equals(parameter.getKey())) {
+        for (String sortPath : value.split(",")) {
+          resolveQueryPath(rootType, StringUtils.trimLeadingCharacter(sortPath.trim(), '-'), queriedTypes);
+        }
+        continue;
+      }
+
+      Type<?> filteredType;
+      Matcher typedFilter = TYPED_FILTER_PARAMETER.matcher(parameter.getKey());
+      if (FILTER_PARAMETER.equals(parameter.getKey())) {
+        filteredType = rootType;
+      } else if (typedFilter.matches()) {
+        filteredType = entityDictionary.getEntityClass(typedFilter.group(1), DataController.API_VERSION);
+        if (filteredType == null) {
+          return false;
+        }
+        queriedTypes.add(filteredType);
+      } else {
+        continue;
+      }
+
+      Matcher selector = RSQL_SELECTOR.matcher(RSQL_QUOTED_ARGUMENT.matcher(value).replaceAll("''"));
+      while (selector.find()) {
+        resolveQueryPath(filteredType, selector.group(1), queriedTypes);
+      }
+    }
+    return true;
+  }
+
+  /**
+   * Follows the relationships of the path up to its first attribute. Unknown fields are left to Elide to reject.
+   */
+  private void resolveQueryPath(Type<?> rootType, String path, Set<Type<?>> queriedTypes) {
+    Type<?> type = rootType;
+    for (String field : path.split("\\.")) {
+      if (!entityDictionary.getRelationships(type).contains(field)) {
+        return;
+      }
+      type = entityDictionary.getParameterizedType(type, field);
+      queriedTypes.add(type);
+    }
+  }
+
+  private String buildPermissionFingerprint(@Nullable Authentication authentication, boolean callerDependent) {
+    if (authentication == null || !authentication.isAuthenticated() || authentication instanceof AnonymousAuthenticationToken) {
+      return ANONYMOUS_FINGERPRINT;
+    }
+
+    List<String> parts = new ArrayList<>();
+    parts.add(sortedJoin(authentication.getAuthorities().stream().map(GrantedAuthority::getAuthority)));
+    if (authentication instanceof OAuth2Authentication) {
+      parts.add(sortedJoin(((OAuth2Authentication) authentication).getOAuth2Request().getScope().stream()));
+    }
+    if (callerDependent && authentication.getPrincipal() instanceof FafUserDetails) {
+      parts.add(String.valueOf(((FafUserDetails) authentication.getPrincipal()).getId()));
+    }
+    return String.join("|", parts);
+  }
+
+  private boolean isCallerDependent(Type<?> type) {
+    return callerDependentTypes.computeIfAbsent(type, this::computeCallerDependent);
+  }
+
+  /**
+   * A type is caller dependent if reading it or one of its fields is guarded by a caller dependent check, or if it
+   * links to a type whose instances are filtered by such a check (which changes the rendered relationship ids).
+   */
+  private boolean computeCallerDependent(Type<?> type) {
+    if (hasCallerDependentCheck(entityDictionary.getAnnotation(type, ReadPermission.class))) {
+      return true;
+    }
+
+    boolean dependentField = Stream.concat(entityDictionary.getAttributes(type).stream(), entityDictionary.getRelationships(type).stream())
+      .map(field -> entityDictionary.getAttributeOrRelationAnnotation(type, ReadPermission.class, field))
+      .anyMatch(this::hasCallerDependentCheck);
+    if (dependentField) {
+      return true;
+    }
+
+    return entityDictionary.getRelationships(type).stream()
+      .map(relationship -> entityDictionary.getParameterizedType(type, relationship))
+      .anyMatch(relatedType -> hasCallerDependentCheck(entityDictionary.getAnnotation(relatedType, ReadPermission.class)));
+  }
+
+  private boolean hasCallerDependentCheck(@Nullable ReadPermission readPermission) {
+    return readPermission != null
+      && CALLER_DEPENDENT_CHECKS.stream().anyMatch(check -> readPermission.expression().contains(check));
+  }
+
+  private Set<String> toTypeNames(Collection<Type<?>> types) {
+    return types.stream()
+      .map(entityDictionary::getJsonAliasFor)
+      .collect(Collectors.toUnmodifiableSet());
+  }
+
+  private static String sortedJoin(Stream<String> values) {
+    return values.sorted().collect(Collectors.joining(","));
+  }
+}
@@ -0,0 +1,93 @@
+package com.faforever.api.data.cache;
+
+import com.faforever.api.config.FafApiProperties;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.http.ResponseEntity;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.function.Supplier;
+
+/**
+ * Lets concurrent identical JSON-API GET requests share a single computation. The first request for an
+ * {@link ElideCacheKey} loads the response, all requests for the same key that arrive while it is loading wait for
+ * and share its result. Since the key contains the permission fingerprint, only requests that are guaranteed to
+ * produce the same response are coalesced. A request that waits longer than {@code coalesceTimeout} stops waiting and
+ * loads the response itself, so a hanging request can't hold up the requests that joined it.
+ */
+@Component
+@Slf4j
+public class ElideRequestCoalescer {
+
+  private final boolean enabled;
+  private final Duration timeout;
+  private final ConcurrentMap<ElideCacheKey, CompletableFuture<ResponseEntity<String>>> inFlight = new ConcurrentHashMap<>();
+
+  public ElideRequestCoalescer(FafApiProperties fafApiProperties) {
+    this.enabled = fafApiProperties.getDataCache().isCoalesceRequests();
+    this.timeout = fafApiProperties.getDataCache().getCoalesceTimeout();
+  }
+
+  public ResponseEntity<String> execute(ElideCacheKey key, Supplier<ResponseEntity<String>> loader) {
+    if (!enabled) {
+      return loader.get();
+    }
+
+    CompletableFuture<ResponseEntity<String>> future = new CompletableFuture<>();
+    CompletableFuture<ResponseEntity<String>> existing = inFlight.putIfAbsent(key, future);
+    if (existing != null) {
+      onJoin(key);
+      return join(existing).orElseGet(() -> {
+        log.debug("In-flight request for '{}' took longer than {}, loading separately", key.getPath(), timeout);
+        return loader.get();
+      });
+    }
+
+    try {
+      ResponseEntity<String> response = loader.get();
+      future.complete(response);
+      return response;
+    } catch (RuntimeException | Error e) {
+      future.completeExceptionally(e);
+      throw e;
+    } finally {
+      inFlight.remove(key, future);
+    }
+  }
+
+  /**
+   * Called before a request waits for the in-flight request it joined.
+   */
+  void onJoin(ElideCacheKey key) {
+    log.trace("Joining in-flight request for '{}'", key.getPath());
+  }
+
+  /**
+   * @return the response of the joined request, or empty if it didn't complete in time
+   */
+  private Optional<ResponseEntity<String>> join(CompletableFuture<ResponseEntity<String>> future) {
+    try {
+      return Optional.of(future.get(timeout.toMillis(), TimeUnit.MILLISECONDS));
+    } catch (TimeoutException e) {
+      return Optional.empty();
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new IllegalStateException("Interrupted while waiting for in-flight request", e);
+    } catch (ExecutionException e) {
+      if (e.getCause() instanceof RuntimeException) {
+        throw (RuntimeException) e.getCause();
+      }
+      if (e.getCause() instanceof Error) {
+        throw (Error) e.getCause();
+      }
+      throw new IllegalStateException(e.getCause());
+    }
+  }
+}
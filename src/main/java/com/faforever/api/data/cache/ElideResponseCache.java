@@ -0,0 +1,169 @@
+package com.faforever.api.data.cache;
+
+import com.faforever.api.config.FafApiProperties;
+import com.faforever.api.config.FafApiProperties.DataCache;
+import com.faforever.api.config.FafApiProperties.Replica;
+import com.faforever.api.data.listeners.EntityChangedEvent;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Expiry;
+import com.google.common.annotations.VisibleForTesting;
+import com.yahoo.elide.annotation.Include;
+import lombok.Value;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.context.event.EventListener;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.stereotype.Component;
+import org.springframework.util.StringUtils;
+
+import javax.inject.Inject;
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+import java.util.stream.Stream;
+
+/**
+ * Caches successful JSON-API GET responses by {@link ElideCacheKey}. Instead of relying on short expiry times, every
+ * JSON-API type carries a generation counter which is incremented whenever an entity of that type has been committed.
+ * A cached response is only served as long as the generations of all types it was rendered from are unchanged.
+ * Types which are written by other services bypass Hibernate and are bounded by
+ * {@link DataCache#getExternalMaxAge()} instead.
+ *
+ * <p>If read-only transactions are routed to a replica, a response that is loaded shortly after a commit may have
+ * been read from a replica that hasn't caught up with the commit yet. Such responses are not cached until the
+ * {@linkplain Replica#getLagGuard() lag guard} of all its types has passed, or they would be served as current until
+ * the next commit.</p>
+ */
+@Component
+@Slf4j
+public class ElideResponseCache {
+
+  private final DataCache properties;
+  private final Duration replicaLag;
+  private final Clock clock;
+  private final ConcurrentMap<String, AtomicLong> generations = new ConcurrentHashMap<>();
+  private final ConcurrentMap<String, Instant> lastInvalidations = new ConcurrentHashMap<>();
+  private final Cache<ElideCacheKey, CachedResponse> cache;
+
+  @Inject
+  public ElideResponseCache(FafApiProperties fafApiProperties) {
+    this(fafApiProperties, Clock.systemUTC());
+  }
+
+  @VisibleForTesting
+  ElideResponseCache(FafApiProperties fafApiProperties, Clock clock) {
+    this.properties = fafApiProperties.getDataCache();
+    Replica replica = fafApiProperties.getDatabase().getReplica();
+    this.replicaLag = StringUtils.hasText(replica.getUrl()) ? replica.getLagGuard() : Duration.ZERO;
+    this.clock = clock;
+    this.cache = Caffeine.newBuilder()
+      .maximumSize(properties.getMaximumSize())
+      .expireAfter(new MaxAgeExpiry())
+      .build();
+  }
+
+  public ResponseEntity<String> get(ElideCacheKey key, Supplier<ResponseEntity<String>> loader) {
+    if (!properties.isEnabled()) {
+      return loader.get();
+    }
+
+    CachedResponse cachedResponse = cache.getIfPresent(key);
+    if (cachedResponse != null && isCurrent(cachedResponse)) {
+      return ResponseEntity.ok(cachedResponse.getBody());
+    }
+
+    // Take the snapshot before loading so that a commit during loading renders the response stale right away
+    Map<String, Long> generationSnapshot = snapshotGenerations(key);
+    boolean replicaMayLag = mayLagBehindReplica(generationSnapshot);
+    ResponseEntity<String> response = loader.get();
+    if (response.getStatusCode() == HttpStatus.OK && !replicaMayLag) {
+      cache.put(key, new CachedResponse(response.getBody(), generationSnapshot, isExternallyWritten(key)));
+    }
+    return response;
+  }
+
+  /**
+   * Marks all cached responses that contain or link to the specified JSON-API type as stale.
+   */
+  public void invalidate(String type) {
+    log.trace("Invalidating cached responses depending on type '{}'", type);
+    if (!replicaLag.isZero()) {
+      lastInvalidations.put(type, clock.instant());
+    }
+    getGeneration(type).incrementAndGet();
+  }
+
+  @EventListener
+  public void onEntityChanged(EntityChangedEvent event) {
+    getTypeName(event.getEntityClass()).ifPresent(this::invalidate);
+  }
+
+  private boolean isCurrent(CachedResponse cachedResponse) {
+    return cachedResponse.getGenerations().entrySet().stream()
+      .allMatch(entry -> getGeneration(entry.getKey()).get() == entry.getValue());
+  }
+
+  private boolean mayLagBehindReplica(Map<String, Long> generationSnapshot) {
+    if (replicaLag.isZero()) {
+      return false;
+    }
+    Instant laggingSince = clock.instant().minus(replicaLag);
+    return generationSnapshot.keySet().stream()
+      .map(lastInvalidations::get)
+      .anyMatch(lastInvalidation -> lastInvalidation != null && lastInvalidation.isAfter(laggingSince));
+  }
+
+  private Map<String, Long> snapshotGenerations(ElideCacheKey key) {
+    Map<String, Long> snapshot = new HashMap<>();
+    key.getContentTypes().forEach(type -> snapshot.put(type, getGeneration(type).get()));
+    key.getLinkedTypes().forEach(type -> snapshot.put(type, getGeneration(type).get()));
+    key.getQueriedTypes().forEach(type -> snapshot.put(type, getGeneration(type).get()));
+    return snapshot;
+  }
+
+  private boolean isExternallyWritten(ElideCacheKey key) {
+    return Stream.concat(key.getContentTypes().stream(), key.getQueriedTypes().stream())
+      .anyMatch(properties.getExternallyWrittenTypes()::contains);
+  }
+
+  private AtomicLong getGeneration(String type) {
+    return generations.computeIfAbsent(type, t -> new AtomicLong());
+  }
+
+  private static Optional<String> getTypeName(Class<?> entityClass) {
+    return Optional.ofNullable(entityClass.getAnnotation(Include.class))
+      .map(include -> StringUtils.hasText(include.type()) ? include.type() : StringUtils.uncapitalize(entityClass.getSimpleName()));
+  }
+
+  @Value
+  private static class CachedResponse {
+    String body;
+    Map<String, Long> generations;
+    boolean externallyWritten;
+  }
+
+  private class MaxAgeExpiry implements Expiry<ElideCacheKey, CachedResponse> {
+    @Override
+    public long expireAfterCreate(ElideCacheKey key, CachedResponse value, long currentTime) {
+      return value.isExternallyWritten() ? properties.getExternalMaxAge().toNanos() : properties.getMaxAge().toNanos();
+    }
+
+    @Override
+    public long expireAfterUpdate(ElideCacheKey key, CachedResponse value, long currentTime, long currentDuration) {
+      return expireAfterCreate(key, value, currentTime);
+    }
+
+    @Override
+    public long expireAfterRead(ElideCacheKey key, CachedResponse value, long currentTime, long currentDuration) {
+      return currentDuration;
+    }
+  }
+}
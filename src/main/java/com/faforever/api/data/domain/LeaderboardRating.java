@@ -1,10 +1,13 @@
 package com.faforever.api.data.domain;
 
+import com.faforever.api.data.listeners.LeaderboardRatingEnricher;
+import com.yahoo.elide.annotation.ComputedAttribute;
 import com.yahoo.elide.annotation.Include;
 import lombok.Setter;
 
 import javax.persistence.Column;
 import javax.persistence.Entity;
+import javax.persistence.EntityListeners;
 import javax.persistence.JoinColumn;
 import javax.persistence.ManyToOne;
 import javax.persistence.Table;
@@ -14,6 +17,7 @@ import javax.persistence.Transient;
 @Setter
 @Table(name = "leaderboard_rating")
 @Include(rootLevel = true, type = LeaderboardRating.TYPE_NAME)
+@EntityListeners(LeaderboardRatingEnricher.class)
 public class LeaderboardRating extends AbstractEntity implements OwnableEntity {
 
   public static final String TYPE_NAME = "leaderboardRating";
@@ -31,6 +35,9 @@ public class LeaderboardRating extends AbstractEntity implements OwnableEntity {
   private int bestStreak;
   private String recentScores;
   private String recentMod;
+  private Integer rank;
+  private Integer total;
+  private Double percentile;
 
   @ManyToOne
   @JoinColumn(name = "login_id")
@@ -92,6 +99,27 @@ public class LeaderboardRating extends AbstractEntity implements OwnableEntity {
   @Column(name = "recent_mod")
   public String getRecentMod() { return recentMod; }
 
+  /**
+   * The position on the leaderboard, {@code null} if the rankings haven't been loaded yet.
+   */
+  @Transient
+  @ComputedAttribute
+  public Integer getRank() {
+    return rank;
+  }
+
+  @Transient
+  @ComputedAttribute
+  public Integer getTotal() {
+    return total;
+  }
+
+  @Transient
+  @ComputedAttribute
+  public Double getPercentile() {
+    return percentile;
+  }
+
   @Override
   @Transient
   public Login getEntityOwner() {
@@ -1,7 +1,6 @@
 package com.faforever.api.data.domain;
 
 import com.faforever.api.data.checks.Prefab;
-import com.faforever.api.data.listeners.MapChangeListener;
 import com.yahoo.elide.annotation.Include;
 import com.yahoo.elide.annotation.UpdatePermission;
 import lombok.Setter;
@@ -15,7 +14,6 @@ import org.jetbrains.annotations.Nullable;
 import javax.persistence.CascadeType;
 import javax.persistence.Column;
 import javax.persistence.Entity;
-import javax.persistence.EntityListeners;
 import javax.persistence.FetchType;
 import javax.persistence.JoinColumn;
 import javax.persistence.ManyToOne;
@@ -35,7 +33,6 @@ import java.util.List;
 @Table(name = "map")
 @Include(rootLevel = true, type = Map.TYPE_NAME)
 @Immutable
-@EntityListeners(MapChangeListener.class)
 public class Map extends AbstractEntity implements OwnableEntity {
 
   public static final String TYPE_NAME = "map";
@@ -50,6 +50,9 @@ public class MapVersion extends AbstractEntity implements OwnableEntity {
   private Map map;
   private MapVersionStatistics statistics;
   private String thumbnailUrl;
+  private String thumbnailUrlSmall;
+  private String thumbnailUrlMedium;
+  private String thumbnailUrlLarge;
   private String downloadUrl;
   private List<MapVersionReview> reviews;
   private MapVersionReviewsSummary reviewsSummary;
@@ -128,16 +131,31 @@ public class MapVersion extends AbstractEntity implements OwnableEntity {
     return thumbnailUrl;
   }
 
+  /**
+   * The preview scaled for map details.
+   */
   @Transient
   @ComputedAttribute
   public String getThumbnailUrlLarge() {
-    return thumbnailUrl;
+    return thumbnailUrlLarge;
+  }
+
+  /**
+   * The preview scaled for map cards.
+   */
+  @Transient
+  @ComputedAttribute
+  public String getThumbnailUrlMedium() {
+    return thumbnailUrlMedium;
   }
 
+  /**
+   * The preview scaled for map lists.
+   */
   @Transient
   @ComputedAttribute
   public String getThumbnailUrlSmall() {
-    return thumbnailUrl;
+    return thumbnailUrlSmall;
   }
 
   @Transient
@@ -1,5 +1,6 @@
 package com.faforever.api.data.domain;
 
+import com.faforever.api.data.listeners.MapVersionStatisticsEnricher;
 import com.yahoo.elide.annotation.Include;
 import lombok.Setter;
 import org.hibernate.annotations.BatchSize;
@@ -7,6 +8,7 @@ import org.hibernate.annotations.Immutable;
 
 import javax.persistence.Column;
 import javax.persistence.Entity;
+import javax.persistence.EntityListeners;
 import javax.persistence.FetchType;
 import javax.persistence.Id;
 import javax.persistence.JoinColumn;
@@ -18,6 +20,7 @@ import javax.persistence.Table;
 @Table(name = "map_version_statistics")
 @Include(rootLevel = true, type = "mapVersionStatistics")
 @Immutable
+@EntityListeners(MapVersionStatisticsEnricher.class)
 public class MapVersionStatistics {
   private int id;
   private int downloads;
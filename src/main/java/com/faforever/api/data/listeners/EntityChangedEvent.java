@@ -0,0 +1,43 @@
+package com.faforever.api.data.listeners;
+
+import lombok.EqualsAndHashCode;
+import lombok.Value;
+import org.jetbrains.annotations.NotNull;
+import org.springframework.context.ApplicationEvent;
+
+import java.io.Serializable;
+
+/**
+ * Published after a transaction that inserted, updated or deleted an entity has been committed successfully.
+ */
+@Value
+@EqualsAndHashCode(callSuper = true)
+public class EntityChangedEvent extends ApplicationEvent {
+
+  @NotNull
+  Class<?> entityClass;
+
+  @NotNull
+  Serializable entityId;
+
+  @NotNull
+  ChangeType changeType;
+
+  public EntityChangedEvent(@NotNull Object source,
+                            @NotNull Class<?> entityClass,
+                            @NotNull Serializable entityId,
+                            @NotNull ChangeType changeType) {
+    super(source);
+    this.entityClass = entityClass;
+    this.entityId = entityId;
+    this.changeType = changeType;
+  }
+
+  public boolean concerns(Class<?> type) {
+    return type.isAssignableFrom(entityClass);
+  }
+
+  public enum ChangeType {
+    CREATED, UPDATED, DELETED
+  }
+}
@@ -0,0 +1,86 @@
+package com.faforever.api.data.listeners;
+
+import com.faforever.api.data.listeners.EntityChangedEvent.ChangeType;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.hibernate.engine.spi.SessionFactoryImplementor;
+import org.hibernate.event.service.spi.EventListenerRegistry;
+import org.hibernate.event.spi.EventType;
+import org.hibernate.event.spi.PostCommitDeleteEventListener;
+import org.hibernate.event.spi.PostCommitInsertEventListener;
+import org.hibernate.event.spi.PostCommitUpdateEventListener;
+import org.hibernate.event.spi.PostDeleteEvent;
+import org.hibernate.event.spi.PostInsertEvent;
+import org.hibernate.event.spi.PostUpdateEvent;
+import org.hibernate.persister.entity.EntityPersister;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PostConstruct;
+import javax.persistence.EntityManagerFactory;
+import java.io.Serializable;
+
+/**
+ * Translates Hibernate's post-commit events into {@link EntityChangedEvent}s so that in-memory caches and indices can
+ * react to changes that are guaranteed to be visible in the database.
+ */
+@Component
+@Slf4j
+@RequiredArgsConstructor
+public class EntityCommitEventPublisher implements PostCommitInsertEventListener, PostCommitUpdateEventListener, PostCommitDeleteEventListener {
+
+  private final EntityManagerFactory entityManagerFactory;
+  private final ApplicationEventPublisher eventPublisher;
+
+  @PostConstruct
+  public void register() {
+    EventListenerRegistry registry = entityManagerFactory.unwrap(SessionFactoryImplementor.class)
+      .getServiceRegistry()
+      .getService(EventListenerRegistry.class);
+
+    registry.appendListeners(EventType.POST_COMMIT_INSERT, this);
+    registry.appendListeners(EventType.POST_COMMIT_UPDATE, this);
+    registry.appendListeners(EventType.POST_COMMIT_DELETE, this);
+  }
+
+  @Override
+  public void onPostInsert(PostInsertEvent event) {
+    publish(event.getEntity(), event.getPersister(), event.getId(), ChangeType.CREATED);
+  }
+
+  @Override
+  public void onPostUpdate(PostUpdateEvent event) {
+    publish(event.getEntity(), event.getPersister(), event.getId(), ChangeType.UPDATED);
+  }
+
+  @Override
+  public void onPostDelete(PostDeleteEvent event) {
+    publish(event.getEntity(), event.getPersister(), event.getId(), ChangeType.DELETED);
+  }
+
+  @Override
+  public void onPostInsertCommitFailed(PostInsertEvent event) {
+    log.debug("Insert of '{}' with id '{}' was not committed", event.getPersister().getEntityName(), event.getId());
+  }
+
+  @Override
+  public void onPostUpdateCommitFailed(PostUpdateEvent event) {
+    log.debug("Update of '{}' with id '{}' was not committed", event.getPersister().getEntityName(), event.getId());
+  }
+
+  @Override
+  public void onPostDeleteCommitFailed(PostDeleteEvent event) {
+    log.debug("Deletion of '{}' with id '{}' was not committed", event.getPersister().getEntityName(), event.getId());
+  }
+
+  @Override
+  public boolean requiresPostCommitHanding(EntityPersister persister) {
+    return true;
+  }
+
+  private void publish(Object entity, EntityPersister persister, Serializable id, ChangeType changeType) {
+    Class<?> entityClass = persister.getMappedClass();
+    log.trace("Publishing {} of '{}' with id '{}'", changeType, entityClass.getSimpleName(), id);
+    eventPublisher.publishEvent(new EntityChangedEvent(entity, entityClass, id, changeType));
+  }
+}
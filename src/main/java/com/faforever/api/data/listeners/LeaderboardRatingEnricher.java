@@ -0,0 +1,28 @@
+package com.faforever.api.data.listeners;
+
+import com.faforever.api.data.domain.LeaderboardRating;
+import com.faforever.api.leaderboard.LeaderboardRankingService;
+import org.springframework.stereotype.Component;
+
+import javax.inject.Inject;
+import javax.persistence.PostLoad;
+
+@Component
+public class LeaderboardRatingEnricher {
+
+  private static LeaderboardRankingService leaderboardRankingService;
+
+  @Inject
+  public void init(LeaderboardRankingService leaderboardRankingService) {
+    LeaderboardRatingEnricher.leaderboardRankingService = leaderboardRankingService;
+  }
+
+  @PostLoad
+  public void enhance(LeaderboardRating leaderboardRating) {
+    leaderboardRankingService.findLoadedRank(leaderboardRating.getLeaderboard().getTechnicalName(), leaderboardRating.getPlayer().getId())
+      .ifPresent(rank -> leaderboardRating
+        .setRank(rank.getRank())
+        .setTotal(rank.getTotal())
+        .setPercentile(rank.getPercentile()));
+  }
+}
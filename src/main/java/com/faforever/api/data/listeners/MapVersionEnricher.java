@@ -1,19 +1,14 @@
 package com.faforever.api.data.listeners;
 
 import com.faforever.api.config.FafApiProperties;
-import com.faforever.api.data.domain.Map;
 import com.faforever.api.data.domain.MapVersion;
-import lombok.extern.slf4j.Slf4j;
-import org.springframework.cache.annotation.CacheEvict;
+import com.faforever.api.map.MapPreviewSize;
 import org.springframework.stereotype.Component;
 
 import javax.inject.Inject;
 import javax.persistence.PostLoad;
-import javax.persistence.PostRemove;
-import javax.persistence.PostUpdate;
 
 @Component
-@Slf4j
 public class MapVersionEnricher {
 
   private static FafApiProperties apiProperties;
@@ -28,16 +23,21 @@ public class MapVersionEnricher {
     String filename = mapVersion.getFilename();
     String [] filenameParts = filename.split("/");
     mapVersion.setDownloadUrl(String.format(apiProperties.getMap().getDownloadUrlFormat(), filenameParts[0]));
-    mapVersion.setThumbnailUrl(String.format(apiProperties.getMap().getPreviewsUrlFormat(), filenameParts[1] + ".png"));
+    String previewFileName = filenameParts[1] + ".png";
+    mapVersion.setThumbnailUrl(String.format(apiProperties.getMap().getPreviewsUrlFormat(), previewFileName));
+    mapVersion.setThumbnailUrlSmall(getScaledPreviewUrl(MapPreviewSize.SMALL, previewFileName, mapVersion.getThumbnailUrl()));
+    mapVersion.setThumbnailUrlMedium(getScaledPreviewUrl(MapPreviewSize.MEDIUM, previewFileName, mapVersion.getThumbnailUrl()));
+    mapVersion.setThumbnailUrlLarge(getScaledPreviewUrl(MapPreviewSize.LARGE, previewFileName, mapVersion.getThumbnailUrl()));
     mapVersion.setArchiveName(filenameParts[0]);
     mapVersion.setName(filenameParts[1]);
     mapVersion.setCrc(filenameParts[2]);
   }
 
-  @CacheEvict(allEntries = true, cacheNames = {Map.TYPE_NAME, MapVersion.TYPE_NAME})
-  @PostUpdate
-  @PostRemove
-  public void mapVersionChanged(MapVersion mapVersion) {
-    log.debug("Map and MapVersion cache evicted, due to change on MapVersion with id: {}", mapVersion.getId());
+  private static String getScaledPreviewUrl(MapPreviewSize size, String previewFileName, String unscaledPreviewUrl) {
+    String urlFormat = apiProperties.getMap().getScaledPreviewsUrlFormat();
+    if (urlFormat == null) {
+      return unscaledPreviewUrl;
+    }
+    return String.format(urlFormat, size.getDirectoryName(), previewFileName);
   }
 }
@@ -0,0 +1,29 @@
+package com.faforever.api.data.listeners;
+
+import com.faforever.api.data.domain.MapVersionStatistics;
+import com.faforever.api.statistics.StatisticsCounter;
+import com.faforever.api.statistics.StatisticsCounterService;
+import org.springframework.stereotype.Component;
+
+import javax.inject.Inject;
+import javax.persistence.PostLoad;
+
+/**
+ * Adds the downloads that haven't been written to the database yet, so clients see their own download right away.
+ */
+@Component
+public class MapVersionStatisticsEnricher {
+
+  private static StatisticsCounterService statisticsCounterService;
+
+  @Inject
+  public void init(StatisticsCounterService statisticsCounterService) {
+    MapVersionStatisticsEnricher.statisticsCounterService = statisticsCounterService;
+  }
+
+  @PostLoad
+  public void enhance(MapVersionStatistics statistics) {
+    statistics.setDownloads((int) statisticsCounterService.getLiveCount(
+      StatisticsCounter.MAP_VERSION_DOWNLOADS, statistics.getId(), statistics.getDownloads()));
+  }
+}
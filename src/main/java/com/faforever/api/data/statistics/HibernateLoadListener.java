@@ -0,0 +1,47 @@
+package com.faforever.api.data.statistics;
+
+import lombok.RequiredArgsConstructor;
+import org.hibernate.HibernateException;
+import org.hibernate.engine.spi.SessionFactoryImplementor;
+import org.hibernate.event.service.spi.EventListenerRegistry;
+import org.hibernate.event.spi.EventType;
+import org.hibernate.event.spi.InitializeCollectionEvent;
+import org.hibernate.event.spi.InitializeCollectionEventListener;
+import org.hibernate.event.spi.PostLoadEvent;
+import org.hibernate.event.spi.PostLoadEventListener;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PostConstruct;
+import javax.persistence.EntityManagerFactory;
+
+/**
+ * Counts hydrated entities and lazily initialized collections. The latter reveals whether {@code @BatchSize} takes
+ * effect: with working batch fetching, there are considerably fewer statements than collection fetches.
+ */
+@Component
+@RequiredArgsConstructor
+public class HibernateLoadListener implements PostLoadEventListener, InitializeCollectionEventListener {
+
+  private final EntityManagerFactory entityManagerFactory;
+
+  @PostConstruct
+  public void register() {
+    EventListenerRegistry registry = entityManagerFactory.unwrap(SessionFactoryImplementor.class)
+      .getServiceRegistry()
+      .getService(EventListenerRegistry.class);
+
+    registry.appendListeners(EventType.POST_LOAD, this);
+    // Appended listeners run after the default listener, which does the actual fetching
+    registry.appendListeners(EventType.INIT_COLLECTION, this);
+  }
+
+  @Override
+  public void onPostLoad(PostLoadEvent event) {
+    RequestQueryStatistics.current().ifPresent(RequestQueryStatistics::entityLoaded);
+  }
+
+  @Override
+  public void onInitializeCollection(InitializeCollectionEvent event) throws HibernateException {
+    RequestQueryStatistics.current().ifPresent(RequestQueryStatistics::collectionFetched);
+  }
+}
@@ -0,0 +1,164 @@
+package com.faforever.api.data.statistics;
+
+import com.faforever.api.config.FafApiProperties;
+import com.faforever.api.config.FafApiProperties.DataStatistics;
+import com.faforever.api.data.DataController;
+import com.faforever.api.logging.RequestIdFilter;
+import com.yahoo.elide.core.dictionary.EntityDictionary;
+import com.yahoo.elide.core.type.Type;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Tags;
+import io.micrometer.core.instrument.Timer;
+import lombok.extern.slf4j.Slf4j;
+import org.jetbrains.annotations.Nullable;
+import org.slf4j.MDC;
+import org.springframework.stereotype.Component;
+import org.springframework.util.StringUtils;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import javax.servlet.FilterChain;
+import javax.servlet.ServletException;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.io.IOException;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+/**
+ * Publishes the database work of every data API request, tagged by the addressed entity type and the included
+ * relationships, and logs requests that are slow or cause a lot of statements. Tags only take values that the
+ * {@link EntityDictionary} knows, anything else is tagged as {@value #OTHER}, so that clients can't create an unbounded
+ * number of time series.
+ */
+@Component
+@Slf4j
+public class QueryStatisticsFilter extends OncePerRequestFilter {
+
+  private static final String STATEMENTS_METRIC = "data.request.statements";
+  private static final String ENTITY_LOADS_METRIC = "data.request.entity.loads";
+  private static final String COLLECTION_FETCHES_METRIC = "data.request.collection.fetches";
+  private static final String JDBC_TIME_METRIC = "data.request.jdbc.time";
+  private static final String ENTITY_TAG = "entity";
+  private static final String INCLUDE_TAG = "include";
+  private static final String METHOD_TAG = "method";
+  private static final String NONE = "none";
+  private static final String OTHER = "other";
+  private static final Set<String> METHODS = Set.of("GET", "POST", "PATCH", "DELETE");
+  /** Relationships can be cyclic, so include paths are only told apart up to this many relationships. */
+  private static final int MAX_INCLUDE_DEPTH = 2;
+  private static final int MAX_INCLUDE_PATHS = 5;
+
+  private final MeterRegistry meterRegistry;
+  private final EntityDictionary entityDictionary;
+  private final DataStatistics properties;
+
+  public QueryStatisticsFilter(MeterRegistry meterRegistry, EntityDictionary entityDictionary, FafApiProperties fafApiProperties) {
+    this.meterRegistry = meterRegistry;
+    this.entityDictionary = entityDictionary;
+    this.properties = fafApiProperties.getDataStatistics();
+  }
+
+  @Override
+  protected boolean shouldNotFilter(HttpServletRequest request) {
+    return !properties.isEnabled() || !getPathWithinApplication(request).startsWith(DataController.PATH_PREFIX + "/");
+  }
+
+  @Override
+  protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain filterChain) throws ServletException, IOException {
+    RequestQueryStatistics statistics = RequestQueryStatistics.bind();
+    long start = System.nanoTime();
+    try {
+      filterChain.doFilter(request, response);
+    } finally {
+      RequestQueryStatistics.unbind();
+      record(request, statistics, Duration.ofNanos(System.nanoTime() - start));
+    }
+  }
+
+  private void record(HttpServletRequest request, RequestQueryStatistics statistics, Duration duration) {
+    String entityName = getEntity(request);
+    Type<?> entityType = entityDictionary.getEntityClass(entityName, DataController.API_VERSION);
+    String entity = entityType != null || NONE.equals(entityName) ? entityName : OTHER;
+    String include = getInclude(request, entityType);
+    String method = METHODS.contains(request.getMethod()) ? request.getMethod() : OTHER;
+    Tags tags = Tags.of(ENTITY_TAG, entity, INCLUDE_TAG, include, METHOD_TAG, method);
+
+    summary(STATEMENTS_METRIC, tags).record(statistics.getStatements());
+    summary(ENTITY_LOADS_METRIC, tags).record(statistics.getEntityLoads());
+    summary(COLLECTION_FETCHES_METRIC, tags).record(statistics.getCollectionFetches());
+    Timer.builder(JDBC_TIME_METRIC)
+      .tags(tags)
+      .publishPercentileHistogram()
+      .register(meterRegistry)
+      .record(statistics.getJdbcNanos(), TimeUnit.NANOSECONDS);
+
+    if (duration.compareTo(properties.getSlowRequestThreshold()) > 0
+      || statistics.getStatements() > properties.getSlowRequestStatements()) {
+      log.warn("Slow data request [{}] {} {}?{} took {} ms: {} statements ({} ms in JDBC), {} entity loads, {} collection fetches",
+        MDC.get(RequestIdFilter.REQUEST_ID_KEY), request.getMethod(), request.getRequestURI(), request.getQueryString(),
+        duration.toMillis(), statistics.getStatements(), TimeUnit.NANOSECONDS.toMillis(statistics.getJdbcNanos()),
+        statistics.getEntityLoads(), statistics.getCollectionFetches());
+    }
+  }
+
+  private DistributionSummary summary(String name, Tags tags) {
+    return DistributionSummary.builder(name)
+      .tags(tags)
+      .publishPercentileHistogram()
+      .register(meterRegistry);
+  }
+
+  /**
+   * The root type of {@code /data/map/1/versions} is {@code map}.
+   */
+  private static String getEntity(HttpServletRequest request) {
+    String path = getPathWithinApplication(request).substring(DataController.PATH_PREFIX.length() + 1);
+    int end = path.indexOf('/');
+    String entity = end == -1 ? path : path.substring(0, end);
+    return StringUtils.hasText(entity) ? entity : NONE;
+  }
+
+  /**
+   * Normalizes the include set so that the order of relationships doesn't produce separate time series. Paths that
+   * aren't relationships of the entity or are longer than {@value #MAX_INCLUDE_DEPTH} relationships are tagged as
+   * {@value #OTHER}, and so is the whole set if it has more than {@value #MAX_INCLUDE_PATHS} paths.
+   */
+  private String getInclude(HttpServletRequest request, @Nullable Type<?> entityType) {
+    String include = request.getParameter("include");
+    if (!StringUtils.hasText(include)) {
+      return NONE;
+    }
+    List<String> paths = Arrays.stream(include.split(","))
+      .map(String::trim)
+      .filter(StringUtils::hasText)
+      .map(path -> entityType != null && isRelationshipPath(entityType, path) ? path : OTHER)
+      .sorted()
+      .distinct()
+      .collect(Collectors.toList());
+    return paths.size() > MAX_INCLUDE_PATHS ? OTHER : String.join(",", paths);
+  }
+
+  private boolean isRelationshipPath(Type<?> entityType, String path) {
+    String[] relationships = path.split("\\.");
+    if (relationships.length > MAX_INCLUDE_DEPTH) {
+      return false;
+    }
+    Type<?> type = entityType;
+    for (String relationship : relationships) {
+      if (!entityDictionary.getRelationships(type).contains(relationship)) {
+        return false;
+      }
+      type = entityDictionary.getParameterizedType(type, relationship);
+    }
+    return true;
+  }
+
+  private static String getPathWithinApplication(HttpServletRequest request) {
+    return request.getRequestURI().substring(request.getContextPath().length());
+  }
+}
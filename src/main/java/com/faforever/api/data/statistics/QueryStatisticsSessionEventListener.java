@@ -0,0 +1,35 @@
+package com.faforever.api.data.statistics;
+
+import org.hibernate.BaseSessionEventListener;
+
+/**
+ * Measures JDBC statement executions. Instantiated by Hibernate for every session, see
+ * {@code hibernate.session.events.auto}.
+ */
+public class QueryStatisticsSessionEventListener extends BaseSessionEventListener {
+
+  private long executionStart;
+  private long batchStart;
+
+  @Override
+  public void jdbcExecuteStatementStart() {
+    executionStart = System.nanoTime();
+  }
+
+  @Override
+  public void jdbcExecuteStatementEnd() {
+    long nanos = System.nanoTime() - executionStart;
+    RequestQueryStatistics.current().ifPresent(statistics -> statistics.statementExecuted(nanos));
+  }
+
+  @Override
+  public void jdbcExecuteBatchStart() {
+    batchStart = System.nanoTime();
+  }
+
+  @Override
+  public void jdbcExecuteBatchEnd() {
+    long nanos = System.nanoTime() - batchStart;
+    RequestQueryStatistics.current().ifPresent(statistics -> statistics.statementExecuted(nanos));
+  }
+}
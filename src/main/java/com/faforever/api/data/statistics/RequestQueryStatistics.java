@@ -0,0 +1,60 @@
+package com.faforever.api.data.statistics;
+
+import java.util.Optional;
+
+/**
+ * Counts the database work caused by a single request. Bound to the request thread by {@link QueryStatisticsFilter}
+ * and fed by Hibernate listeners, which ignore threads that have no statistics bound.
+ */
+public class RequestQueryStatistics {
+
+  private static final ThreadLocal<RequestQueryStatistics> CURRENT = new ThreadLocal<>();
+
+  private int statements;
+  private int entityLoads;
+  private int collectionFetches;
+  private long jdbcNanos;
+
+  static Optional<RequestQueryStatistics> current() {
+    return Optional.ofNullable(CURRENT.get());
+  }
+
+  static RequestQueryStatistics bind() {
+    RequestQueryStatistics statistics = new RequestQueryStatistics();
+    CURRENT.set(statistics);
+    return statistics;
+  }
+
+  static void unbind() {
+    CURRENT.remove();
+  }
+
+  void statementExecuted(long nanos) {
+    statements++;
+    jdbcNanos += nanos;
+  }
+
+  void entityLoaded() {
+    entityLoads++;
+  }
+
+  void collectionFetched() {
+    collectionFetches++;
+  }
+
+  public int getStatements() {
+    return statements;
+  }
+
+  public int getEntityLoads() {
+    return entityLoads;
+  }
+
+  public int getCollectionFetches() {
+    return collectionFetches;
+  }
+
+  public long getJdbcNanos() {
+    return jdbcNanos;
+  }
+}
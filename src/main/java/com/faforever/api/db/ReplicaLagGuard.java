@@ -0,0 +1,50 @@
+package com.faforever.api.db;
+
+import com.faforever.api.config.FafApiProperties;
+import com.faforever.api.data.listeners.EntityChangedEvent;
+import com.faforever.api.security.FafUserDetails;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import org.springframework.context.event.EventListener;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.stereotype.Component;
+
+import java.util.Optional;
+
+/**
+ * Remembers which users recently committed changes. Their reads are served by the primary for a while, since the
+ * replica might not have caught up with their own writes yet.
+ */
+@Component
+public class ReplicaLagGuard {
+
+  private final Cache<Integer, Boolean> recentWriters;
+
+  public ReplicaLagGuard(FafApiProperties properties) {
+    recentWriters = Caffeine.newBuilder()
+      .expireAfterWrite(properties.getDatabase().getReplica().getLagGuard())
+      .build();
+  }
+
+  /**
+   * Called on the committing thread, which still carries the security context of the writing user.
+   */
+  @EventListener
+  public void onEntityChanged(EntityChangedEvent event) {
+    getCurrentUserId().ifPresent(userId -> recentWriters.put(userId, true));
+  }
+
+  public boolean isCurrentUserRecentWriter() {
+    return getCurrentUserId()
+      .map(userId -> recentWriters.getIfPresent(userId) != null)
+      .orElse(false);
+  }
+
+  private static Optional<Integer> getCurrentUserId() {
+    return Optional.ofNullable(SecurityContextHolder.getContext().getAuthentication())
+      .map(Authentication::getPrincipal)
+      .filter(FafUserDetails.class::isInstance)
+      .map(principal -> ((FafUserDetails) principal).getId());
+  }
+}
@@ -0,0 +1,98 @@
+package com.faforever.api.db;
+
+import lombok.extern.slf4j.Slf4j;
+import org.jetbrains.annotations.Nullable;
+import org.springframework.jdbc.datasource.AbstractDataSource;
+import org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import javax.sql.DataSource;
+import java.io.Closeable;
+import java.io.IOException;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+
+/**
+ * Hands out replica connections within read-only transactions and primary connections otherwise. If the replica fails
+ * to hand out a connection, it is bypassed for {@code retryInterval}. Needs to be wrapped in a
+ * {@link LazyConnectionDataSourceProxy} since the transaction manager acquires the connection before it marks the
+ * transaction as read-only. Without a replica, all connections are taken from the primary.
+ */
+@Slf4j
+public class ReplicaRoutingDataSource extends AbstractDataSource implements Closeable {
+
+  private final DataSource primary;
+  @Nullable
+  private final DataSource replica;
+  private final ReplicaLagGuard lagGuard;
+  private final Duration retryInterval;
+  private final Clock clock;
+  private volatile Instant replicaUnavailableUntil = Instant.MIN;
+
+  public ReplicaRoutingDataSource(DataSource primary, @Nullable DataSource replica, ReplicaLagGuard lagGuard, Duration retryInterval) {
+    this(primary, replica, lagGuard, retryInterval, Clock.systemUTC());
+  }
+
+  ReplicaRoutingDataSource(DataSource primary, @Nullable DataSource replica, ReplicaLagGuard lagGuard, Duration retryInterval, Clock clock) {
+    this.primary = primary;
+    this.replica = replica;
+    this.lagGuard = lagGuard;
+    this.retryInterval = retryInterval;
+    this.clock = clock;
+  }
+
+  public boolean hasReplica() {
+    return replica != null;
+  }
+
+  @Override
+  public Connection getConnection() throws SQLException {
+    if (!shouldUseReplica()) {
+      return primary.getConnection();
+    }
+    try {
+      return replica.getConnection();
+    } catch (SQLException e) {
+      markReplicaUnavailable(e);
+      return primary.getConnection();
+    }
+  }
+
+  @Override
+  public Connection getConnection(String username, String password) throws SQLException {
+    if (!shouldUseReplica()) {
+      return primary.getConnection(username, password);
+    }
+    try {
+      return replica.getConnection(username, password);
+    } catch (SQLException e) {
+      markReplicaUnavailable(e);
+      return primary.getConnection(username, password);
+    }
+  }
+
+  /**
+   * Closes the replica pool, the primary is managed separately.
+   */
+  @Override
+  public void close() throws IOException {
+    if (replica instanceof Closeable) {
+      ((Closeable) replica).close();
+    }
+  }
+
+  private boolean shouldUseReplica() {
+    return replica != null
+      && TransactionSynchronizationManager.isCurrentTransactionReadOnly()
+      && clock.instant().isAfter(replicaUnavailableUntil)
+      && !lagGuard.isCurrentUserRecentWriter();
+  }
+
+  private void markReplicaUnavailable(SQLException e) {
+    log.warn("Replica did not hand out a connection, falling back to primary for {}", retryInterval, e);
+    replicaUnavailableUntil = clock.instant().plus(retryInterval);
+  }
+}
@@ -10,7 +10,6 @@ import org.kohsuke.github.GHDeploymentState;
 import org.kohsuke.github.GHEventPayload.Deployment;
 import org.kohsuke.github.GHEventPayload.Push;
 import org.kohsuke.github.GHRepository;
-import org.springframework.cache.annotation.CacheEvict;
 import org.springframework.context.ApplicationContext;
 import org.springframework.scheduling.annotation.Async;
 import org.springframework.stereotype.Service;
@@ -62,7 +61,6 @@ public class GitHubDeploymentService {
   @Async
   @SneakyThrows
   @Transactional
-  @CacheEvict(value = FeaturedMod.TYPE_NAME, allEntries = true)
   public void deploy(Deployment deployment) {
     GHDeployment ghDeployment = deployment.getDeployment();
     String environment = ghDeployment.getEnvironment();
@@ -0,0 +1,69 @@
+package com.faforever.api.download;
+
+import io.swagger.annotations.ApiOperation;
+import io.swagger.annotations.ApiResponse;
+import io.swagger.annotations.ApiResponses;
+import lombok.RequiredArgsConstructor;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.io.IOException;
+
+/**
+ * Serves the files of the vault. Supports {@code Range} requests for resuming downloads, as well as conditional
+ * requests. Only requests that start at the beginning of a file count as a download.
+ */
+@RestController
+@RequestMapping(path = "/downloads")
+@RequiredArgsConstructor
+public class DownloadController {
+  private final DownloadService downloadService;
+
+  @ApiOperation("Download a map archive")
+  @ApiResponses(value = {
+    @ApiResponse(code = 200, message = "Success"),
+    @ApiResponse(code = 206, message = "Requested range"),
+    @ApiResponse(code = 304, message = "Not modified"),
+    @ApiResponse(code = 404, message = "No such file")})
+  @GetMapping("/maps/{fileName:.+}")
+  public void downloadMap(@PathVariable("fileName") String fileName,
+                          HttpServletRequest request,
+                          HttpServletResponse response) throws IOException {
+    if (FileSender.send(downloadService.getMapFile(fileName), request, response)) {
+      downloadService.countMapDownload(fileName);
+    }
+  }
+
+  @ApiOperation("Download a mod")
+  @ApiResponses(value = {
+    @ApiResponse(code = 200, message = "Success"),
+    @ApiResponse(code = 206, message = "Requested range"),
+    @ApiResponse(code = 304, message = "Not modified"),
+    @ApiResponse(code = 404, message = "No such file")})
+  @GetMapping("/mods/{fileName:.+}")
+  public void downloadMod(@PathVariable("fileName") String fileName,
+                          HttpServletRequest request,
+                          HttpServletResponse response) throws IOException {
+    if (FileSender.send(downloadService.getModFile(fileName), request, response)) {
+      downloadService.countModDownload(fileName);
+    }
+  }
+
+  @ApiOperation("Download a file of a featured mod")
+  @ApiResponses(value = {
+    @ApiResponse(code = 200, message = "Success"),
+    @ApiResponse(code = 206, message = "Requested range"),
+    @ApiResponse(code = 304, message = "Not modified"),
+    @ApiResponse(code = 404, message = "No such file")})
+  @GetMapping("/featuredMods/{modName}/{fileName:.+}")
+  public void downloadFeaturedModFile(@PathVariable("modName") String modName,
+                                      @PathVariable("fileName") String fileName,
+                                      HttpServletRequest request,
+                                      HttpServletResponse response) throws IOException {
+    FileSender.send(downloadService.getFeaturedModFile(modName, fileName), request, response);
+  }
+}
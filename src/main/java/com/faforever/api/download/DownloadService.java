@@ -0,0 +1,134 @@
+package com.faforever.api.download;
+
+import com.faforever.api.config.FafApiProperties;
+import com.faforever.api.config.FafApiProperties.Download;
+import com.faforever.api.error.Error;
+import com.faforever.api.error.ErrorCode;
+import com.faforever.api.error.NotFoundApiException;
+import com.faforever.api.map.MapRepository;
+import com.faforever.api.mod.ModVersionRepository;
+import com.faforever.api.statistics.StatisticsCounter;
+import com.faforever.api.statistics.StatisticsCounterService;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.LoadingCache;
+import lombok.extern.slf4j.Slf4j;
+import org.jetbrains.annotations.Nullable;
+import org.springframework.stereotype.Service;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.List;
+
+import static com.faforever.api.mod.ModService.MOD_PATH_PREFIX;
+
+/**
+ * Locates the vault files that can be downloaded and counts their downloads with the {@link StatisticsCounterService},
+ * so that a download doesn't cost a database write. The ids of the maps and mods stored in a file are cached, since
+ * popular files are downloaded over and over. Lookups that find no ids aren't cached, so that downloads of a file are
+ * counted as soon as its upload has been committed.
+ */
+@Service
+@Slf4j
+public class DownloadService {
+
+  private final FafApiProperties fafApiProperties;
+  private final StatisticsCounterService statisticsCounterService;
+  private final LoadingCache<String, List<Integer>> mapVersionIds;
+  private final LoadingCache<String, List<Integer>> modIds;
+
+  public DownloadService(FafApiProperties fafApiProperties, MapRepository mapRepository, ModVersionRepository modVersionRepository,
+                         StatisticsCounterService statisticsCounterService) {
+    this.fafApiProperties = fafApiProperties;
+    this.statisticsCounterService = statisticsCounterService;
+    Download download = fafApiProperties.getDownload();
+    mapVersionIds = Caffeine.newBuilder()
+      .maximumSize(download.getFileIdCacheSize())
+      .expireAfterWrite(download.getFileIdCacheExpiry())
+      .build(fileName -> emptyToNull(mapRepository.findVersionIdsByFilenameLike(escapeLikePattern(fileName) + "/%")));
+    modIds = Caffeine.newBuilder()
+      .maximumSize(download.getFileIdCacheSize())
+      .expireAfterWrite(download.getFileIdCacheExpiry())
+      .build(fileName -> emptyToNull(modVersionRepository.findModIdsByFilename(MOD_PATH_PREFIX + fileName)));
+  }
+
+  /**
+   * @throws NotFoundApiException if there is no such map archive
+   */
+  public Path getMapFile(String fileName) {
+    return resolve(fafApiProperties.getMap().getTargetDirectory(), fileName);
+  }
+
+  /**
+   * @throws NotFoundApiException if there is no such mod file
+   */
+  public Path getModFile(String fileName) {
+    return resolve(fafApiProperties.getMod().getTargetDirectory(), fileName);
+  }
+
+  /**
+   * @throws NotFoundApiException if there is no such file of the featured mod
+   */
+  public Path getFeaturedModFile(String modName, String fileName) {
+    FafApiProperties.Deployment deployment = fafApiProperties.getDeployment();
+    if (deployment.getFeaturedModsTargetDirectory() == null) {
+      throw new NotFoundApiException(new Error(ErrorCode.ENTITY_NOT_FOUND, fileName));
+    }
+    Path filesDirectory = resolveName(Paths.get(deployment.getFeaturedModsTargetDirectory()), String.format(deployment.getFilesDirectoryFormat(), modName));
+    return resolve(filesDirectory, fileName);
+  }
+
+  public void countMapDownload(String fileName) {
+    count(mapVersionIds, fileName, StatisticsCounter.MAP_VERSION_DOWNLOADS);
+  }
+
+  public void countModDownload(String fileName) {
+    count(modIds, fileName, StatisticsCounter.MOD_DOWNLOADS);
+  }
+
+  /**
+   * A download that can't be counted has been served anyway, so it is only logged.
+   */
+  private void count(LoadingCache<String, List<Integer>> ids, String fileName, StatisticsCounter counter) {
+    try {
+      List<Integer> fileIds = ids.get(fileName);
+      if (fileIds != null) {
+        fileIds.forEach(id -> statisticsCounterService.increment(counter, id));
+      }
+    } catch (RuntimeException e) {
+      log.warn("Could not count download of '{}'", fileName, e);
+    }
+  }
+
+  /**
+   * A loader returning {@code null} doesn't put anything into the cache.
+   */
+  @Nullable
+  private static List<Integer> emptyToNull(List<Integer> ids) {
+    return ids.isEmpty() ? null : ids;
+  }
+
+  /**
+   * Hidden files, like staging files of uploads in progress, are never served.
+   */
+  private static Path resolve(Path directory, String fileName) {
+    Path file = resolveName(directory, fileName);
+    if (!Files.isRegularFile(file)) {
+      throw new NotFoundApiException(new Error(ErrorCode.ENTITY_NOT_FOUND, fileName));
+    }
+    return file;
+  }
+
+  private static Path resolveName(Path directory, String name) {
+    Path base = directory.toAbsolutePath().normalize();
+    Path path = base.resolve(name).normalize();
+    if (name.startsWith(".") || !base.equals(path.getParent())) {
+      throw new NotFoundApiException(new Error(ErrorCode.ENTITY_NOT_FOUND, name));
+    }
+    return path;
+  }
+
+  private static String escapeLikePattern(String value) {
+    return value.replace("\\", "\\\\").replace("%", "\\%").replace("_", "\\_");
+  }
+}
@@ -0,0 +1,148 @@
+package com.faforever.api.download;
+
+import org.eclipse.jetty.server.HttpOutput;
+import org.eclipse.jetty.server.Request;
+import org.springframework.http.ContentDisposition;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.HttpRange;
+import org.springframework.http.HttpStatus;
+import org.springframework.web.context.request.ServletWebRequest;
+
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileChannel.MapMode;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.List;
+
+import static org.springframework.http.MediaType.APPLICATION_OCTET_STREAM_VALUE;
+
+/**
+ * Sends files with support for conditional requests and single byte ranges. Multiple ranges are answered with the
+ * whole file, since clients only use them to resume downloads.
+ *
+ * <p>The headers are committed through the servlet response, so that wrappers of the response, like the one adding
+ * the security headers, write theirs. On Jetty, the file is then memory mapped and written to the connector's output,
+ * so that its content is never copied to the heap. Other containers get the file through the response's output
+ * stream, which copies it.</p>
+ */
+final class FileSender {
+
+  private static final long MAPPED_CHUNK_SIZE = 16 * 1024 * 1024;
+
+  private FileSender() {
+    // Utility class
+  }
+
+  /**
+   * @return whether content starting at the beginning of the file has been sent, i.e. a new download started
+   */
+  static boolean send(Path file, HttpServletRequest request, HttpServletResponse response) throws IOException {
+    BasicFileAttributes attributes = Files.readAttributes(file, BasicFileAttributes.class);
+    long length = attributes.size();
+    long lastModified = attributes.lastModifiedTime().toMillis();
+    String etag = String.format("\"%x-%x\"", lastModified, length);
+
+    if (new ServletWebRequest(request, response).checkNotModified(etag, lastModified)) {
+      return false;
+    }
+
+    response.setHeader(HttpHeaders.ACCEPT_RANGES, "bytes");
+    response.setContentType(APPLICATION_OCTET_STREAM_VALUE);
+    response.setHeader(HttpHeaders.CONTENT_DISPOSITION, ContentDisposition.builder("attachment")
+      .filename(file.getFileName().toString(), StandardCharsets.UTF_8)
+      .build()
+      .toString());
+
+    long start = 0;
+    long end = length - 1;
+    List<HttpRange> ranges = parseRanges(request, etag, lastModified);
+    if (ranges.size() == 1) {
+      try {
+        start = ranges.get(0).getRangeStart(length);
+        end = ranges.get(0).getRangeEnd(length);
+      } catch (IllegalArgumentException e) {
+        response.setHeader(HttpHeaders.CONTENT_RANGE, "bytes */" + length);
+        response.setStatus(HttpStatus.REQUESTED_RANGE_NOT_SATISFIABLE.value());
+        return false;
+      }
+      response.setHeader(HttpHeaders.CONTENT_RANGE, String.format("bytes %d-%d/%d", start, end, length));
+      response.setStatus(HttpStatus.PARTIAL_CONTENT.value());
+    }
+
+    long count = end - start + 1;
+    response.setContentLengthLong(count);
+    if (HttpMethod.HEAD.matches(request.getMethod()) || count <= 0) {
+      return false;
+    }
+
+    try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+      Request baseRequest = Request.getBaseRequest(request);
+      if (baseRequest != null) {
+        response.flushBuffer();
+        sendMapped(channel, start, count, baseRequest.getResponse().getHttpOutput());
+      } else {
+        transfer(channel, start, count, Channels.newChannel(response.getOutputStream()));
+      }
+    }
+    return start == 0;
+  }
+
+  /**
+   * Ignores the range if it's invalid or, as requested by {@code If-Range}, if the file has changed.
+   */
+  private static List<HttpRange> parseRanges(HttpServletRequest request, String etag, long lastModified) {
+    String range = request.getHeader(HttpHeaders.RANGE);
+    if (range == null) {
+      return List.of();
+    }
+
+    String ifRange = request.getHeader(HttpHeaders.IF_RANGE);
+    if (ifRange != null) {
+      try {
+        boolean unchanged = ifRange.startsWith("\"") || ifRange.startsWith("W/")
+          ? ifRange.equals(etag)
+          : request.getDateHeader(HttpHeaders.IF_RANGE) == lastModified / 1000 * 1000;
+        if (!unchanged) {
+          return List.of();
+        }
+      } catch (IllegalArgumentException e) {
+        return List.of();
+      }
+    }
+
+    try {
+      return HttpRange.parseRanges(range);
+    } catch (IllegalArgumentException e) {
+      return List.of();
+    }
+  }
+
+  /**
+   * Writes to Jetty's output, below the wrappers of the servlet response, which would copy each buffer. Must only be
+   * called once the headers have been committed.
+   */
+  private static void sendMapped(FileChannel channel, long start, long count, HttpOutput output) throws IOException {
+    for (long position = start; position < start + count; position += MAPPED_CHUNK_SIZE) {
+      MappedByteBuffer buffer = channel.map(MapMode.READ_ONLY, position, Math.min(MAPPED_CHUNK_SIZE, start + count - position));
+      output.write(buffer);
+    }
+  }
+
+  private static void transfer(FileChannel channel, long start, long count, WritableByteChannel target) throws IOException {
+    long position = start;
+    long end = start + count;
+    while (position < end) {
+      position += channel.transferTo(position, end - position, target);
+    }
+  }
+}
@@ -0,0 +1,16 @@
+package com.faforever.api.error;
+
+import lombok.Getter;
+import lombok.ToString;
+
+@Getter
+@ToString
+public class ConflictApiException extends ApiException {
+  public ConflictApiException(Error error) {
+    super(error);
+  }
+
+  public ConflictApiException(Error[] errors) {
+    super(errors);
+  }
+}
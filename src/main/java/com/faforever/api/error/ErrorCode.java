@@ -109,7 +109,25 @@ public enum ErrorCode {
   SERVER_DISK_FULL(198, "Server Disk Full", "You guys have uploaded too much stuff server is bulging at the seams!"),
   MAP_ARCHIVE_OFFICIAL(199, "Upload Not Permitted", "Uploading official Cavedog map(s) ''{0}'' is not permitted!"),
   MAP_MISSING_PREVIEW(200, "Missing Map Preview", "Missing map preview ''{0}'' (and {1} other missing previews too)"),
-  RECAPTCHA_VALIDATION_FAILED(201, "Recaptcha validation failed", "The response code from the recaptcha did not pass the verification.")
+  RECAPTCHA_VALIDATION_FAILED(201, "Recaptcha validation failed", "The response code from the recaptcha did not pass the verification."),
+  QUERY_INVALID_PAGE_PARAMETER(202, "Invalid page parameter", "The value ''{1}'' of page parameter ''{0}'' is not a valid number."),
+  QUERY_INVALID_CURSOR(203, "Invalid cursor", "The cursor is not valid for this request. A cursor can only be used with the sort order it was issued for."),
+  QUERY_CURSOR_NOT_SUPPORTED(204, "Cursor not supported", "Cursor pagination and streaming are only supported on root collections, not on ''{0}''."),
+  LEADERBOARD_INVALID_RADIUS(205, "Invalid radius", "The radius must be between 0 and {0, number}, but was {1, number}."),
+  RATING_HISTORY_INVALID_MAX_POINTS(206, "Invalid number of points", "The number of points must be between {0, number} and {1, number}, but was {2, number}."),
+  LEADERBOARD_INVALID_BUCKET_WIDTH(207, "Invalid bucket width", "The bucket width must be at least {0, number}, but was {1, number}."),
+  MAP_ZIP_BOMB(208, "Suspicious archive", "The uploaded archive expands to more than {0, number} times its size."),
+  UPLOAD_OFFSET_MISMATCH(209, "Unexpected offset", "The chunk has to start at offset {0, number}, but starts at {1, number}."),
+  UPLOAD_CHECKSUM_MISMATCH(210, "Checksum mismatch", "The SHA-256 checksum of the received chunk is ''{0}''."),
+  UPLOAD_INCOMPLETE(211, "Upload incomplete", "Only {0, number} of {1, number} bytes have been uploaded."),
+  MAP_ARCHIVE_EXISTS(212, "Map archive exists", "This map archive has already been uploaded as ''{0}''."),
+  MAP_INVALID_ARCHIVE(213, "Invalid map archive", "''{0}'' is not a valid map archive: {1}"),
+  MAP_NOT_IN_ARCHIVE(214, "Map not in archive", "The map ''{0}'' is not contained in ''{1}''."),
+  SEARCH_INVALID_LIMIT(215, "Invalid limit", "The limit must be between 1 and {0, number}, but was {1, number}."),
+  MAP_IMPORT_RUNNING(216, "Map import running", "A map import is running already, it has processed {0, number} of {1, number} archives."),
+  UPLOAD_BUSY(217, "Upload busy", "Another request is writing to upload ''{0}'' at the moment."),
+  UPLOAD_TOO_MANY_SESSIONS(218, "Too many uploads", "No more than {0, number} uploads may be in progress at once."),
+  SEARCH_QUERY_TOO_LONG(219, "Query too long", "The query must not be longer than {0, number} characters, but was {1, number}.")
   ;
 
   private final int code;
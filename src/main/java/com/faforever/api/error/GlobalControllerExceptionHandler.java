@@ -67,6 +67,14 @@ class GlobalControllerExceptionHandler {
     return createResponseFromApiException(ex, HttpStatus.NOT_FOUND);
   }
 
+  @ExceptionHandler(ConflictApiException.class)
+  @ResponseStatus(HttpStatus.CONFLICT)
+  @ResponseBody
+  public ErrorResponse processConflictException(ConflictApiException ex) {
+    log.debug("Conflicting request", ex);
+    return createResponseFromApiException(ex, HttpStatus.CONFLICT);
+  }
+
   @ExceptionHandler(ApiException.class)
   @ResponseStatus(HttpStatus.UNPROCESSABLE_ENTITY)
   @ResponseBody
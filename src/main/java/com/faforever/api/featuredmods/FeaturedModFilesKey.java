@@ -0,0 +1,16 @@
+package com.faforever.api.featuredmods;
+
+import lombok.Value;
+
+/**
+ * Identifies a cached response of {@link FeaturedModsController#getFiles}.
+ */
+@Value
+class FeaturedModFilesKey {
+  int modId;
+  String version;
+  /**
+   * Pages after the first are always empty.
+   */
+  boolean emptyPage;
+}
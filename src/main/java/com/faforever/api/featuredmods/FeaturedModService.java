@@ -1,10 +1,16 @@
 package com.faforever.api.featuredmods;
 
+import com.faforever.api.cache.SerializedResponseCache;
 import com.faforever.api.data.domain.FeaturedMod;
 import org.jetbrains.annotations.Nullable;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
 import org.springframework.cache.annotation.Cacheable;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronizationAdapter;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
 
 import java.util.List;
 import java.util.Map;
@@ -16,21 +22,30 @@ public class FeaturedModService {
 
   private final FeaturedModRepository featuredModRepository;
   private final LegacyFeaturedModFileRepository legacyFeaturedModFileRepository;
+  private final SerializedResponseCache serializedResponseCache;
+  /** Only available if caching is enabled. */
+  private final ObjectProvider<CacheManager> cacheManager;
 
-  public FeaturedModService(FeaturedModRepository featuredModRepository, LegacyFeaturedModFileRepository legacyFeaturedModFileRepository) {
+  public FeaturedModService(FeaturedModRepository featuredModRepository, LegacyFeaturedModFileRepository legacyFeaturedModFileRepository,
+                            SerializedResponseCache serializedResponseCache, ObjectProvider<CacheManager> cacheManager) {
     this.featuredModRepository = featuredModRepository;
     this.legacyFeaturedModFileRepository = legacyFeaturedModFileRepository;
+    this.serializedResponseCache = serializedResponseCache;
+    this.cacheManager = cacheManager;
   }
 
+  @Transactional(readOnly = true)
   public FeaturedModFile getFile(String modName, Integer version, String fileName) {
     return legacyFeaturedModFileRepository.getFile(modName, version, fileName);
   }
 
   @Cacheable(FEATURED_MOD_FILES_CACHE_NAME)
+  @Transactional(readOnly = true)
   public List<FeaturedModFile> getFiles(String modName, @Nullable Integer version) {
     return legacyFeaturedModFileRepository.getFiles(modName, version);
   }
 
+  @Transactional(readOnly = true)
   public List<FeaturedMod> getFeaturedMods() {
     return featuredModRepository.findAll();
   }
@@ -38,6 +53,14 @@ public class FeaturedModService {
   @Transactional
   public void save(String modName, short version, List<FeaturedModFile> featuredModFiles) {
     legacyFeaturedModFileRepository.save(modName, version, featuredModFiles);
+    // Until the commit, requests would cache the files of before the save again
+    TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronizationAdapter() {
+      @Override
+      public void afterCommit() {
+        cacheManager.ifAvailable(manager -> Optional.ofNullable(manager.getCache(FEATURED_MOD_FILES_CACHE_NAME)).ifPresent(Cache::clear));
+        serializedResponseCache.invalidateIf(FeaturedModFilesKey.class::isInstance);
+      }
+    });
   }
 
   public Map<String, Short> getFileIds(String modName) {
@@ -1,13 +1,18 @@
 package com.faforever.api.featuredmods;
 
+import com.faforever.api.cache.SerializedResponse;
+import com.faforever.api.cache.SerializedResponseCache;
 import com.faforever.api.data.domain.FeaturedMod;
 import com.google.common.collect.Maps;
 import com.yahoo.elide.jsonapi.models.Data;
 import com.yahoo.elide.jsonapi.models.JsonApiDocument;
 import com.yahoo.elide.jsonapi.models.Resource;
 import io.swagger.annotations.ApiOperation;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.ResponseEntity;
 import org.springframework.scheduling.annotation.Async;
 import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.RequestHeader;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
@@ -25,32 +30,41 @@ import java.util.stream.Collectors;
 public class FeaturedModsController {
 
   private final FeaturedModService featuredModService;
+  private final SerializedResponseCache serializedResponseCache;
 
-  public FeaturedModsController(FeaturedModService featuredModService) {
+  public FeaturedModsController(FeaturedModService featuredModService, SerializedResponseCache serializedResponseCache) {
     this.featuredModService = featuredModService;
+    this.serializedResponseCache = serializedResponseCache;
   }
 
   @Async
   @RequestMapping(path = "/{modId}/files/{version}")
   @ApiOperation("Lists the required files for a specific featured mod version")
-  public CompletableFuture<JsonApiDocument> getFiles(@PathVariable("modId") int modId,
-                                                     @PathVariable("version") String version,
-                                                     @RequestParam(value = "page[number]", required = false) Integer page) {
+  public CompletableFuture<ResponseEntity<byte[]>> getFiles(@PathVariable("modId") int modId,
+                                                            @PathVariable("version") String version,
+                                                            @RequestParam(value = "page[number]", required = false) Integer page,
+                                                            @RequestHeader(value = HttpHeaders.IF_NONE_MATCH, required = false) String ifNoneMatch,
+                                                            @RequestHeader(value = HttpHeaders.ACCEPT_ENCODING, required = false) String acceptEncoding) {
     Integer innerPage = Optional.ofNullable(page).orElse(0);
-    if (innerPage > 1) {
-      return CompletableFuture.completedFuture(new JsonApiDocument(new Data<>(Collections.emptyList())));
-    }
+    FeaturedModFilesKey key = new FeaturedModFilesKey(modId, version, innerPage > 1);
+    SerializedResponse response = serializedResponseCache.get(key, () -> {
+      if (innerPage > 1) {
+        return new JsonApiDocument(new Data<>(Collections.emptyList()));
+      }
 
-    Map<Integer, FeaturedMod> mods = Maps.uniqueIndex(featuredModService.getFeaturedMods(), FeaturedMod::getId);
-    FeaturedMod featuredMod = mods.get(modId);
+      Map<Integer, FeaturedMod> mods = Maps.uniqueIndex(featuredModService.getFeaturedMods(), FeaturedMod::getId);
+      FeaturedMod featuredMod = mods.get(modId);
 
-    Integer innerVersion = "latest".equals(version) ? null : Integer.valueOf(version);
+      Integer innerVersion = "latest".equals(version) ? null : Integer.valueOf(version);
 
-    List<Resource> values = featuredModService.getFiles(featuredMod.getTechnicalName(), innerVersion).stream()
-      .map(modFileMapper())
-      .collect(Collectors.toList());
+      List<Resource> values = featuredModService.getFiles(featuredMod.getTechnicalName(), innerVersion).stream()
+        .map(modFileMapper())
+        .collect(Collectors.toList());
 
-    return CompletableFuture.completedFuture(new JsonApiDocument(new Data<>(values)));
+      return new JsonApiDocument(new Data<>(values));
+    });
+
+    return CompletableFuture.completedFuture(response.toResponseEntity(ifNoneMatch, acceptEncoding));
   }
 
   private Function<FeaturedModFile, Resource> modFileMapper() {
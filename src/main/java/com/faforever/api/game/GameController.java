@@ -6,6 +6,8 @@ import com.faforever.api.error.ApiException;
 import com.faforever.api.error.Error;
 import com.faforever.api.error.ErrorCode;
 import com.faforever.api.player.PlayerService;
+import com.faforever.api.upload.UploadSessionService;
+import com.faforever.api.upload.UploadType;
 import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.google.common.io.Files;
@@ -23,6 +25,7 @@ import org.springframework.web.multipart.MultipartFile;
 
 import javax.servlet.http.HttpServletResponse;
 import java.io.IOException;
+import java.io.InputStream;
 import java.time.Instant;
 
 import static org.springframework.http.MediaType.APPLICATION_JSON_UTF8_VALUE;
@@ -36,6 +39,7 @@ public class GameController {
   private final PlayerService playerService;
   private final FafApiProperties fafApiProperties;
   private final ObjectMapper objectMapper;
+  private final UploadSessionService uploadSessionService;
 
   @GetMapping("/{id}/replay")
   public void downloadReplay(HttpServletResponse httpServletResponse,
@@ -62,6 +66,28 @@ public class GameController {
       throw new ApiException(new Error(ErrorCode.UPLOAD_INVALID_FILE_EXTENSIONS, fafApiProperties.getGameLogs().getAllowedExtensions()));
     }
 
+    processLogsUpload(file.getInputStream(), jsonString, playerService.getPlayer(authentication));
+  }
+
+  @ApiOperation("Process game logs uploaded with a resumable upload of type GAME_LOGS")
+  @ApiResponses(value = {
+    @ApiResponse(code = 200, message = "Success"),
+    @ApiResponse(code = 401, message = "Unauthorized"),
+    @ApiResponse(code = 404, message = "Unknown or expired upload"),
+    @ApiResponse(code = 500, message = "Failure")})
+  @RequestMapping(path = "/logs_upload/{uploadId}", method = RequestMethod.POST, produces = APPLICATION_JSON_UTF8_VALUE)
+  public void completeLogsUpload(@PathVariable("uploadId") String uploadId,
+                                 @RequestParam("metadata") String jsonString,
+                                 Authentication authentication) throws IOException {
+    Player player = playerService.getPlayer(authentication);
+    uploadSessionService.complete(uploadId, UploadType.GAME_LOGS, player, stagingFile -> {
+      try (InputStream logDataInputStream = java.nio.file.Files.newInputStream(stagingFile)) {
+        processLogsUpload(logDataInputStream, jsonString, player);
+      }
+    });
+  }
+
+  private void processLogsUpload(InputStream logDataInputStream, String jsonString, Player player) {
     String context;
     int id;
     try {
@@ -73,7 +99,6 @@ public class GameController {
       throw new ApiException(new Error(ErrorCode.INVALID_METADATA, e.getMessage()));
     }
 
-    Player player = playerService.getPlayer(authentication);
-    gameService.uploadGameLogs(file.getInputStream(), player, context, id);
+    gameService.uploadGameLogs(logDataInputStream, player, context, id);
   }
 }
@@ -1,13 +1,18 @@
 package com.faforever.api.leaderboard;
 
-import org.springframework.data.domain.Page;
-import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.Repository;
-import org.springframework.data.repository.query.Param;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.List;
 
 public interface Ladder1v1LeaderboardRepository extends Repository<Ladder1v1LeaderboardEntry, Integer> {
 
+  /**
+   * Loads the whole leaderboard, unordered. {@link LeaderboardService} orders the entries by the ranking of the view,
+   * which is the one the lobby server computes.
+   */
+  @Transactional(readOnly = true)
   @Query(value = "SELECT" +
     "    rating.id," +
     "    login.login," +
@@ -16,20 +21,6 @@ public interface Ladder1v1LeaderboardRepository extends Repository<Ladder1v1Lead
     "    rating.num_games," +
     "    rating.win_games," +
     "    rating.ranking `rank`" +
-    "  FROM ladder1v1_rating_rank_view rating JOIN login on login.id = rating.id" +
-    "  ORDER BY rating.rating DESC LIMIT ?#{#pageable.offset},?#{#pageable.pageSize}",
-    countQuery = "SELECT count(*) FROM ladder1v1_rating_rank_view", nativeQuery = true)
-  Page<Ladder1v1LeaderboardEntry> getLeaderboardByPage(Pageable pageable);
-
-  @Query(value = "SELECT" +
-    "                 rating.id," +
-    "                 login.login," +
-    "                 rating.mean," +
-    "                 rating.deviation," +
-    "                 rating.num_games," +
-    "                 rating.win_games," +
-    "                 rating.ranking `rank`" +
-    "  FROM ladder1v1_rating_rank_view rating JOIN login on login.id = rating.id" +
-    "  WHERE login.id = :playerId", nativeQuery = true)
-  Ladder1v1LeaderboardEntry findByPlayerId(@Param("playerId") int playerId);
+    "  FROM ladder1v1_rating_rank_view rating JOIN login on login.id = rating.id", nativeQuery = true)
+  List<Ladder1v1LeaderboardEntry> findAllEntries();
 }
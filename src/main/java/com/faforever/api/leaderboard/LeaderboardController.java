@@ -1,19 +1,33 @@
 package com.faforever.api.leaderboard;
 
+import com.faforever.api.cache.SerializedResponse;
+import com.faforever.api.cache.SerializedResponseCache;
+import com.faforever.api.error.ApiException;
 import com.faforever.api.error.Error;
 import com.faforever.api.error.ErrorCode;
 import com.faforever.api.error.NotFoundApiException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SequenceWriter;
 import com.yahoo.elide.jsonapi.models.Data;
 import com.yahoo.elide.jsonapi.models.JsonApiDocument;
 import com.yahoo.elide.jsonapi.models.Resource;
 import io.swagger.annotations.ApiOperation;
+import lombok.Value;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.ResponseEntity;
 import org.springframework.scheduling.annotation.Async;
 import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.RequestHeader;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RequestMethod;
 import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
 
+import javax.servlet.http.HttpServletResponse;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.concurrent.CompletableFuture;
@@ -25,54 +39,85 @@ import java.util.stream.StreamSupport;
 public class LeaderboardController {
   private static final String GLOBAL_LEADERBOARD_ENTRY = "globalLeaderboardEntry";
   private static final String LADDER_1V1_LEADERBOARD_ENTRY = "ladder1v1LeaderboardEntry";
+  private static final String LEADERBOARD_ENTRY = "leaderboardEntry";
+  private static final String RATING_HISTORY = "ratingHistory";
+  private static final String RATING_DISTRIBUTION = "ratingDistribution";
+  private static final String NDJSON = "application/x-ndjson";
+  private static final int MAX_RADIUS = 100;
+  private static final int MIN_HISTORY_POINTS = 3;
+  private static final int MAX_HISTORY_POINTS = 10_000;
+  private static final double MIN_BUCKET_WIDTH = 10;
+  private static final int MAX_BUCKETS = 500;
+  private static final List<Integer> DISTRIBUTION_PERCENTILES = List.of(1, 5, 10, 25, 50, 75, 90, 95, 99);
 
   private final LeaderboardService leaderboardService;
+  private final LeaderboardRankingService leaderboardRankingService;
+  private final RatingHistoryService ratingHistoryService;
+  private final SerializedResponseCache serializedResponseCache;
+  private final ObjectMapper objectMapper;
 
-  public LeaderboardController(LeaderboardService leaderboardService) {
+  public LeaderboardController(LeaderboardService leaderboardService, LeaderboardRankingService leaderboardRankingService,
+                               RatingHistoryService ratingHistoryService, SerializedResponseCache serializedResponseCache,
+                               ObjectMapper objectMapper) {
     this.leaderboardService = leaderboardService;
+    this.leaderboardRankingService = leaderboardRankingService;
+    this.ratingHistoryService = ratingHistoryService;
+    this.serializedResponseCache = serializedResponseCache;
+    this.objectMapper = objectMapper;
   }
 
   @Async
   @RequestMapping(path = "/ladder1v1", method = RequestMethod.GET)
   @ApiOperation("Lists the ladder1v1 leaderboard")
-  public CompletableFuture<JsonApiDocument> getLadder1v1(@RequestParam(value = "page[number]", required = false) Integer page,
-                                                         @RequestParam(value = "page[size]", required = false) Integer pageSize) {
-    List<Resource> values = StreamSupport.stream(leaderboardService.getLadder1v1Leaderboard(page, pageSize).spliterator(), false)
-      .map(entry -> new Resource(LADDER_1V1_LEADERBOARD_ENTRY, String.valueOf(entry.getId()),
-        Map.of(
-          "name", entry.getPlayerName(),
-          "mean", entry.getMean(),
-          "deviation", entry.getDeviation(),
-          "numGames", entry.getNumGames(),
-          "wonGames", entry.getWonGames(),
-          "rank", entry.getRank(),
-          "rating", (int) (entry.getMean() - 3 * entry.getDeviation())
-        ),
-        null, null, null))
-      .collect(Collectors.toList());
+  public CompletableFuture<ResponseEntity<byte[]>> getLadder1v1(@RequestParam(value = "page[number]", required = false) Integer page,
+                                                                @RequestParam(value = "page[size]", required = false) Integer pageSize,
+                                                                @RequestHeader(value = HttpHeaders.IF_NONE_MATCH, required = false) String ifNoneMatch,
+                                                                @RequestHeader(value = HttpHeaders.ACCEPT_ENCODING, required = false) String acceptEncoding) {
+    PageKey key = new PageKey(LADDER_1V1_LEADERBOARD_ENTRY, leaderboardService.getLadder1v1Version(), page, pageSize);
+    SerializedResponse response = serializedResponseCache.get(key, () -> {
+      List<Resource> values = StreamSupport.stream(leaderboardService.getLadder1v1Leaderboard(page, pageSize).spliterator(), false)
+        .map(LeaderboardController::toResource)
+        .collect(Collectors.toList());
+      return new JsonApiDocument(new Data<>(values));
+    });
 
-    return CompletableFuture.completedFuture(new JsonApiDocument(new Data<>(values)));
+    return CompletableFuture.completedFuture(response.toResponseEntity(ifNoneMatch, acceptEncoding));
   }
 
   @Async
   @RequestMapping(path = "/global", method = RequestMethod.GET)
   @ApiOperation("Lists the global leaderboard")
-  public CompletableFuture<JsonApiDocument> getGlobal(@RequestParam(value = "page[number]", required = false) Integer page,
-                                                      @RequestParam(value = "page[size]", required = false) Integer pageSize) {
-    List<Resource> values = StreamSupport.stream(leaderboardService.getGlobalLeaderboard(page, pageSize).spliterator(), false)
-      .map(entry -> new Resource(GLOBAL_LEADERBOARD_ENTRY, String.valueOf(entry.getId()),
-        Map.of(
-          "name", entry.getPlayerName(),
-          "mean", entry.getMean(),
-          "deviation", entry.getDeviation(),
-          "numGames", entry.getNumGames(),
-          "rank", entry.getRank(),
-          "rating", (int) (entry.getMean() - 3 * entry.getDeviation())
-        ),
-        null, null, null))
-      .collect(Collectors.toList());
+  public CompletableFuture<ResponseEntity<byte[]>> getGlobal(@RequestParam(value = "page[number]", required = false) Integer page,
+                                                             @RequestParam(value = "page[size]", required = false) Integer pageSize,
+                                                             @RequestHeader(value = HttpHeaders.IF_NONE_MATCH, required = false) String ifNoneMatch,
+                                                             @RequestHeader(value = HttpHeaders.ACCEPT_ENCODING, required = false) String acceptEncoding) {
+    PageKey key = new PageKey(GLOBAL_LEADERBOARD_ENTRY, leaderboardService.getGlobalVersion(), page, pageSize);
+    SerializedResponse response = serializedResponseCache.get(key, () -> {
+      List<Resource> values = StreamSupport.stream(leaderboardService.getGlobalLeaderboard(page, pageSize).spliterator(), false)
+        .map(LeaderboardController::toResource)
+        .collect(Collectors.toList());
+      return new JsonApiDocument(new Data<>(values));
+    });
 
-    return CompletableFuture.completedFuture(new JsonApiDocument(new Data<>(values)));
+    return CompletableFuture.completedFuture(response.toResponseEntity(ifNoneMatch, acceptEncoding));
+  }
+
+  @RequestMapping(path = "/ladder1v1/export", method = RequestMethod.GET, produces = NDJSON)
+  @ApiOperation("Exports the whole ladder1v1 leaderboard as newline-delimited JSON, one entry per line")
+  public void exportLadder1v1(HttpServletResponse response) throws IOException {
+    response.setContentType(NDJSON);
+    try (SequenceWriter writer = objectMapper.writer().withRootValueSeparator("\n").writeValues(response.getOutputStream())) {
+      leaderboardService.forEachLadder1v1Entry(entry -> writeLine(writer, toResource(entry)));
+    }
+  }
+
+  @RequestMapping(path = "/global/export", method = RequestMethod.GET, produces = NDJSON)
+  @ApiOperation("Exports the whole global leaderboard as newline-delimited JSON, one entry per line")
+  public void exportGlobal(HttpServletResponse response) throws IOException {
+    response.setContentType(NDJSON);
+    try (SequenceWriter writer = objectMapper.writer().withRootValueSeparator("\n").writeValues(response.getOutputStream())) {
+      leaderboardService.forEachGlobalEntry(entry -> writeLine(writer, toResource(entry)));
+    }
   }
 
   @Async
@@ -119,4 +164,172 @@ public class LeaderboardController {
 
     return CompletableFuture.completedFuture(new JsonApiDocument(new Data<>(resource)));
   }
+
+  @Async
+  @RequestMapping(path = "/{leaderboard}/{playerId}/rank", method = RequestMethod.GET)
+  @ApiOperation("Shows the rank, percentile and number of ranked players of the specified player on the specified leaderboard")
+  public CompletableFuture<JsonApiDocument> getRank(@PathVariable("leaderboard") String leaderboard,
+                                                    @PathVariable("playerId") Integer playerId) {
+    LeaderboardRank rank = leaderboardRankingService.getRank(leaderboard, playerId);
+    LeaderboardRatingEntry entry = rank.getEntry();
+
+    Map<String, Object> attributes = toAttributes(entry, rank.getRank());
+    attributes.put("total", rank.getTotal());
+    attributes.put("percentile", rank.getPercentile());
+
+    Resource resource = new Resource(LEADERBOARD_ENTRY, playerId.toString(), attributes, null, null, null);
+
+    return CompletableFuture.completedFuture(new JsonApiDocument(new Data<>(resource)));
+  }
+
+  @Async
+  @RequestMapping(path = "/{leaderboard}/{playerId}/neighbourhood", method = RequestMethod.GET)
+  @ApiOperation("Lists the specified player and the players ranked directly above and below on the specified leaderboard")
+  public CompletableFuture<JsonApiDocument> getNeighbourhood(@PathVariable("leaderboard") String leaderboard,
+                                                             @PathVariable("playerId") Integer playerId,
+                                                             @RequestParam(value = "radius", defaultValue = "10") int radius) {
+    if (radius < 0 || radius > MAX_RADIUS) {
+      throw ApiException.of(ErrorCode.LEADERBOARD_INVALID_RADIUS, MAX_RADIUS, radius);
+    }
+
+    List<Resource> values = leaderboardRankingService.getNeighbourhood(leaderboard, playerId, radius).stream()
+      .map(rankedEntry -> {
+        LeaderboardRatingEntry entry = rankedEntry.getEntry();
+        return new Resource(LEADERBOARD_ENTRY, String.valueOf(entry.getPlayerId()),
+          toAttributes(entry, rankedEntry.getRank()), null, null, null);
+      })
+      .collect(Collectors.toList());
+
+    return CompletableFuture.completedFuture(new JsonApiDocument(new Data<>(values)));
+  }
+
+  @Async
+  @RequestMapping(path = "/{leaderboard}/{playerId}/history", method = RequestMethod.GET)
+  @ApiOperation(value = "Shows the rating history of the specified player on the specified leaderboard",
+    notes = "The history is returned column-wise. 'times' holds the epoch second of the first point followed by the " +
+      "seconds elapsed since the respective previous point. Means and deviations are rounded to two decimals.")
+  public CompletableFuture<JsonApiDocument> getHistory(@PathVariable("leaderboard") String leaderboard,
+                                                       @PathVariable("playerId") Integer playerId,
+                                                       @RequestParam(value = "downsampling", defaultValue = "NONE") RatingHistoryDownsampling downsampling,
+                                                       @RequestParam(value = "maxPoints", defaultValue = "500") int maxPoints) {
+    if (maxPoints < MIN_HISTORY_POINTS || maxPoints > MAX_HISTORY_POINTS) {
+      throw ApiException.of(ErrorCode.RATING_HISTORY_INVALID_MAX_POINTS, MIN_HISTORY_POINTS, MAX_HISTORY_POINTS, maxPoints);
+    }
+
+    RatingHistory history = ratingHistoryService.getHistory(leaderboard, playerId, downsampling, maxPoints);
+    Resource resource = new Resource(RATING_HISTORY, playerId.toString(), Map.of(
+      "times", deltaEncode(history.getTimes()),
+      "means", round(history.getMeans()),
+      "deviations", round(history.getDeviations())
+    ),
+      null, null, null);
+
+    return CompletableFuture.completedFuture(new JsonApiDocument(new Data<>(resource)));
+  }
+
+  @Async
+  @RequestMapping(path = "/{leaderboard}/distribution", method = RequestMethod.GET)
+  @ApiOperation(value = "Shows the distribution of ratings on the specified leaderboard",
+    notes = "'counts' holds the number of ratings per bucket, starting with the bucket at 'start'. The bucket width is " +
+      "increased if the ratings don't fit into " + MAX_BUCKETS + " buckets. If a rating is passed, 'ratingPercentile' " +
+      "is the percentage of ratings below it.")
+  public CompletableFuture<JsonApiDocument> getDistribution(@PathVariable("leaderboard") String leaderboard,
+                                                            @RequestParam(value = "bucketWidth", defaultValue = "100") double bucketWidth,
+                                                            @RequestParam(value = "rating", required = false) Double rating) {
+    if (!Double.isFinite(bucketWidth) || bucketWidth < MIN_BUCKET_WIDTH) {
+      throw ApiException.of(ErrorCode.LEADERBOARD_INVALID_BUCKET_WIDTH, MIN_BUCKET_WIDTH, bucketWidth);
+    }
+
+    RatingHistogram histogram = leaderboardRankingService.getHistogram(leaderboard, bucketWidth, MAX_BUCKETS);
+    Map<String, Double> percentiles = new LinkedHashMap<>();
+    DISTRIBUTION_PERCENTILES.forEach(percentile -> leaderboardRankingService.getRatingAtPercentile(leaderboard, percentile)
+      .ifPresent(value -> percentiles.put(String.valueOf(percentile), value)));
+
+    Map<String, Object> attributes = new HashMap<>();
+    attributes.put("total", histogram.getTotal());
+    attributes.put("start", histogram.getStart());
+    attributes.put("bucketWidth", histogram.getBucketWidth());
+    attributes.put("counts", histogram.getCounts());
+    attributes.put("percentiles", percentiles);
+    if (rating != null) {
+      attributes.put("ratingPercentile", leaderboardRankingService.getPercentile(leaderboard, rating));
+    }
+
+    Resource resource = new Resource(RATING_DISTRIBUTION, leaderboard, attributes, null, null, null);
+    return CompletableFuture.completedFuture(new JsonApiDocument(new Data<>(resource)));
+  }
+
+  /**
+   * Not {@link Map#of}, since the mean and deviation of an entry may be null.
+   */
+  private static Map<String, Object> toAttributes(LeaderboardRatingEntry entry, int rank) {
+    Map<String, Object> attributes = new HashMap<>();
+    attributes.put("name", entry.getPlayerName());
+    attributes.put("mean", entry.getMean());
+    attributes.put("deviation", entry.getDeviation());
+    attributes.put("rating", entry.getRating());
+    attributes.put("totalGames", entry.getTotalGames());
+    attributes.put("wonGames", entry.getWonGames());
+    attributes.put("rank", rank);
+    return attributes;
+  }
+
+  private static Resource toResource(Ladder1v1LeaderboardEntry entry) {
+    return new Resource(LADDER_1V1_LEADERBOARD_ENTRY, String.valueOf(entry.getId()),
+      Map.of(
+        "name", entry.getPlayerName(),
+        "mean", entry.getMean(),
+        "deviation", entry.getDeviation(),
+        "numGames", entry.getNumGames(),
+        "wonGames", entry.getWonGames(),
+        "rank", entry.getRank(),
+        "rating", (int) (entry.getMean() - 3 * entry.getDeviation())
+      ),
+      null, null, null);
+  }
+
+  private static Resource toResource(GlobalLeaderboardEntry entry) {
+    return new Resource(GLOBAL_LEADERBOARD_ENTRY, String.valueOf(entry.getId()),
+      Map.of(
+        "name", entry.getPlayerName(),
+        "mean", entry.getMean(),
+        "deviation", entry.getDeviation(),
+        "numGames", entry.getNumGames(),
+        "rank", entry.getRank(),
+        "rating", (int) (entry.getMean() - 3 * entry.getDeviation())
+      ),
+      null, null, null);
+  }
+
+  private static void writeLine(SequenceWriter writer, Resource resource) {
+    try {
+      writer.write(resource);
+    } catch (IOException e) {
+      throw new UncheckedIOException(e);
+    }
+  }
+
+  private static long[] deltaEncode(long[] values) {
+    long[] deltas = new long[values.length];
+    for (int i = 0; i < values.length; i++) {
+      deltas[i] = i == 0 ? values[i] : values[i] - values[i - 1];
+    }
+    return deltas;
+  }
+
+  private static double[] round(double[] values) {
+    double[] rounded = new double[values.length];
+    for (int i = 0; i < values.length; i++) {
+      rounded[i] = Math.round(values[i] * 100) / 100d;
+    }
+    return rounded;
+  }
+
+  @Value
+  private static class PageKey {
+    String leaderboard;
+    long version;
+    Integer page;
+    Integer pageSize;
+  }
 }
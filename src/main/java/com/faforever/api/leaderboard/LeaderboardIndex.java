@@ -0,0 +1,252 @@
+package com.faforever.api.leaderboard;
+
+import lombok.Value;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.BiPredicate;
+import java.util.function.ToDoubleFunction;
+import java.util.function.ToIntFunction;
+
+/**
+ * Keeps the entries of a leaderboard ordered by rating (highest first, ties broken by player id) so that pages, the
+ * rank of a player and the total number of entries can be answered in O(log n) without touching the database.
+ * Entries are added, moved or removed one by one as they change. Thread-safe.
+ */
+public class LeaderboardIndex<T> {
+
+  private final ToIntFunction<T> playerIdFunction;
+  private final ToDoubleFunction<T> ratingFunction;
+  private final BiPredicate<T, T> sameContentPredicate;
+  private final OrderStatisticTree<RankKey> tree = new OrderStatisticTree<>(RankKey.ORDER);
+  private final Map<Integer, T> entries = new HashMap<>();
+  private final ReadWriteLock lock = new ReentrantReadWriteLock();
+  private volatile boolean initialized;
+  private volatile long version;
+
+  public LeaderboardIndex(ToIntFunction<T> playerIdFunction, ToDoubleFunction<T> ratingFunction) {
+    this(playerIdFunction, ratingFunction, Object::equals);
+  }
+
+  /**
+   * @param sameContentPredicate whether two entries of the same player show the same, so that replacing one with the
+   * other doesn't change the {@link #getVersion() version}. Required for entries that don't implement {@code equals}.
+   */
+  public LeaderboardIndex(ToIntFunction<T> playerIdFunction, ToDoubleFunction<T> ratingFunction, BiPredicate<T, T> sameContentPredicate) {
+    this.playerIdFunction = playerIdFunction;
+    this.ratingFunction = ratingFunction;
+    this.sameContentPredicate = sameContentPredicate;
+  }
+
+  /**
+   * Adds the entry or moves an existing entry of the same player to its new position.
+   */
+  public void put(T entry) {
+    lock.writeLock().lock();
+    try {
+      putInternal(entry);
+    } finally {
+      lock.writeLock().unlock();
+    }
+  }
+
+  public void remove(int playerId) {
+    lock.writeLock().lock();
+    try {
+      removeInternal(playerId);
+    } finally {
+      lock.writeLock().unlock();
+    }
+  }
+
+  /**
+   * Brings the index in line with a complete snapshot of the leaderboard. Only entries whose position changed are
+   * moved, so this is cheap if most of the leaderboard stayed the same.
+   */
+  public void replaceAll(Collection<T> snapshot) {
+    lock.writeLock().lock();
+    try {
+      Set<Integer> playerIds = new HashSet<>(snapshot.size() * 2);
+      for (T entry : snapshot) {
+        playerIds.add(playerIdFunction.applyAsInt(entry));
+        putInternal(entry);
+      }
+      Set<Integer> removedPlayerIds = new HashSet<>(entries.keySet());
+      removedPlayerIds.removeAll(playerIds);
+      removedPlayerIds.forEach(this::removeInternal);
+      initialized = true;
+    } finally {
+      lock.writeLock().unlock();
+    }
+  }
+
+  /**
+   * @return whether the index has been filled with a complete snapshot at least once
+   */
+  public boolean isInitialized() {
+    return initialized;
+  }
+
+  /**
+   * @return a number that changes whenever an entry is added, moved or removed
+   */
+  public long getVersion() {
+    return version;
+  }
+
+  public int size() {
+    lock.readLock().lock();
+    try {
+      return tree.size();
+    } finally {
+      lock.readLock().unlock();
+    }
+  }
+
+  /**
+   * @param offset zero-based position of the first returned entry
+   */
+  public List<RankedEntry<T>> getRange(int offset, int limit) {
+    lock.readLock().lock();
+    try {
+      List<RankKey> keys = tree.range(offset, limit);
+      int rank = offset + 1;
+      List<RankedEntry<T>> result = new ArrayList<>(keys.size());
+      for (RankKey key : keys) {
+        result.add(new RankedEntry<>(rank++, entries.get(key.getPlayerId())));
+      }
+      return result;
+    } finally {
+      lock.readLock().unlock();
+    }
+  }
+
+  /**
+   * @return the entry of the player together with up to {@code radius} entries ranked directly above and below it, or
+   * an empty list if the player isn't part of the leaderboard
+   */
+  public List<RankedEntry<T>> getNeighbourhood(int playerId, int radius) {
+    lock.readLock().lock();
+    try {
+      T entry = entries.get(playerId);
+      if (entry == null) {
+        return List.of();
+      }
+      int index = tree.indexOf(keyOf(entry));
+      int offset = Math.max(0, index - radius);
+      // The read lock is reentrant
+      return getRange(offset, index - offset + radius + 1);
+    } finally {
+      lock.readLock().unlock();
+    }
+  }
+
+  public Optional<RankedEntry<T>> get(int playerId) {
+    lock.readLock().lock();
+    try {
+      T entry = entries.get(playerId);
+      if (entry == null) {
+        return Optional.empty();
+      }
+      return Optional.of(new RankedEntry<>(tree.indexOf(keyOf(entry)) + 1, entry));
+    } finally {
+      lock.readLock().unlock();
+    }
+  }
+
+  /**
+   * @return the number of entries with a rating of at least {@code rating}
+   */
+  public int countRatedAtLeast(double rating) {
+    lock.readLock().lock();
+    try {
+      return countRatedAtLeastInternal(rating);
+    } finally {
+      lock.readLock().unlock();
+    }
+  }
+
+  /**
+   * Counts the entries per rating bucket. Buckets start at multiples of the bucket width, which is doubled until the
+   * ratings fit into {@code maxBuckets}.
+   */
+  public RatingHistogram getHistogram(double bucketWidth, int maxBuckets) {
+    lock.readLock().lock();
+    try {
+      int size = tree.size();
+      if (size == 0) {
+        return new RatingHistogram(0, 0, bucketWidth, new int[0]);
+      }
+      double highest = tree.range(0, 1).get(0).getRating();
+      double lowest = tree.range(size - 1, 1).get(0).getRating();
+
+      double width = bucketWidth;
+      while (Math.floor(highest / width) - Math.floor(lowest / width) + 1 > maxBuckets) {
+        width *= 2;
+      }
+      double start = Math.floor(lowest / width) * width;
+      int[] counts = new int[(int) (Math.floor(highest / width) - Math.floor(lowest / width)) + 1];
+      int countAbove = size;
+      for (int i = 0; i < counts.length; i++) {
+        int countAboveNext = countRatedAtLeastInternal(start + (i + 1) * width);
+        counts[i] = countAbove - countAboveNext;
+        countAbove = countAboveNext;
+      }
+      return new RatingHistogram(size, start, width, counts);
+    } finally {
+      lock.readLock().unlock();
+    }
+  }
+
+  private void putInternal(T entry) {
+    RankKey key = keyOf(entry);
+    T previous = entries.put(key.getPlayerId(), entry);
+    if (previous != null) {
+      RankKey previousKey = keyOf(previous);
+      if (previousKey.equals(key)) {
+        if (!sameContentPredicate.test(previous, entry)) {
+          version++;
+        }
+        return;
+      }
+      tree.remove(previousKey);
+    }
+    tree.add(key);
+    version++;
+  }
+
+  private void removeInternal(int playerId) {
+    T previous = entries.remove(playerId);
+    if (previous != null) {
+      tree.remove(keyOf(previous));
+      version++;
+    }
+  }
+
+  private int countRatedAtLeastInternal(double rating) {
+    // Keys are ordered by rating descending, so every key lower than this one has a rating above nextDown(rating)
+    return tree.countLower(new RankKey(Math.nextDown(rating), Integer.MIN_VALUE));
+  }
+
+  private RankKey keyOf(T entry) {
+    return new RankKey(ratingFunction.applyAsDouble(entry), playerIdFunction.applyAsInt(entry));
+  }
+
+  @Value
+  private static class RankKey {
+    private static final Comparator<RankKey> ORDER = Comparator.comparingDouble(RankKey::getRating).reversed()
+      .thenComparingInt(RankKey::getPlayerId);
+
+    double rating;
+    int playerId;
+  }
+}
@@ -0,0 +1,27 @@
+package com.faforever.api.leaderboard;
+
+import lombok.Value;
+
+/**
+ * The position of a rating within its leaderboard.
+ */
+@Value
+public class LeaderboardRank {
+  LeaderboardRatingEntry entry;
+  /**
+   * One-based, the highest rating has rank 1.
+   */
+  int rank;
+  /**
+   * The number of ratings on the leaderboard.
+   */
+  int total;
+  /**
+   * The percentage of ratings on the leaderboard that are ranked lower.
+   */
+  double percentile;
+
+  static LeaderboardRank of(RankedEntry<LeaderboardRatingEntry> rankedEntry, int total) {
+    return new LeaderboardRank(rankedEntry.getEntry(), rankedEntry.getRank(), total, 100d * (total - rankedEntry.getRank()) / total);
+  }
+}
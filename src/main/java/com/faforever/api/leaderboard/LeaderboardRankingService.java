@@ -0,0 +1,194 @@
+package com.faforever.api.leaderboard;
+
+import com.faforever.api.config.FafApiProperties;
+import com.faforever.api.error.Error;
+import com.faforever.api.error.ErrorCode;
+import com.faforever.api.error.NotFoundApiException;
+import com.google.common.annotations.VisibleForTesting;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import javax.inject.Inject;
+import java.time.Clock;
+import java.time.Instant;
+import java.time.OffsetDateTime;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.OptionalDouble;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.Collectors;
+
+/**
+ * Ranks the ratings of every {@link com.faforever.api.data.domain.Leaderboard} in an in-memory
+ * {@link LeaderboardIndex}, keyed by the leaderboard's technical name. Like {@link LeaderboardService}, the indices are
+ * brought up to date periodically since the ratings are written by the lobby server. Only ratings updated since the
+ * newest update time seen, minus {@code updateTimeOverlap} for ratings committed late, are loaded, except every
+ * {@code fullRefreshInterval} when all ratings are reloaded to drop deleted ones. Ratings loaded again replace
+ * themselves in the index, keyed by player.
+ */
+@Service
+@Slf4j
+public class LeaderboardRankingService {
+
+  private final LeaderboardRatingRepository leaderboardRatingRepository;
+  private final FafApiProperties fafApiProperties;
+  private final Clock clock;
+  private final Map<String, LeaderboardIndex<LeaderboardRatingEntry>> indices = new ConcurrentHashMap<>();
+  private volatile boolean initialized;
+  private OffsetDateTime lastUpdateTime;
+  private Instant lastFullRefresh;
+
+  @Inject
+  public LeaderboardRankingService(LeaderboardRatingRepository leaderboardRatingRepository, FafApiProperties fafApiProperties) {
+    this(leaderboardRatingRepository, fafApiProperties, Clock.systemUTC());
+  }
+
+  @VisibleForTesting
+  LeaderboardRankingService(LeaderboardRatingRepository leaderboardRatingRepository, FafApiProperties fafApiProperties, Clock clock) {
+    this.leaderboardRatingRepository = leaderboardRatingRepository;
+    this.fafApiProperties = fafApiProperties;
+    this.clock = clock;
+  }
+
+  /**
+   * @return the entry of the player together with up to {@code radius} entries ranked directly above and below it
+   * @throws NotFoundApiException if there is no such leaderboard or the player has no rating on it
+   */
+  public List<RankedEntry<LeaderboardRatingEntry>> getNeighbourhood(String leaderboard, int playerId, int radius) {
+    List<RankedEntry<LeaderboardRatingEntry>> neighbourhood = getIndex(leaderboard).getNeighbourhood(playerId, radius);
+    if (neighbourhood.isEmpty()) {
+      throw new NotFoundApiException(new Error(ErrorCode.ENTITY_NOT_FOUND, playerId));
+    }
+    return neighbourhood;
+  }
+
+  /**
+   * @throws NotFoundApiException if there is no such leaderboard or the player has no rating on it
+   */
+  public LeaderboardRank getRank(String leaderboard, int playerId) {
+    LeaderboardIndex<LeaderboardRatingEntry> index = getIndex(leaderboard);
+    return index.get(playerId)
+      .map(rankedEntry -> LeaderboardRank.of(rankedEntry, index.size()))
+      .orElseThrow(() -> new NotFoundApiException(new Error(ErrorCode.ENTITY_NOT_FOUND, playerId)));
+  }
+
+  /**
+   * @throws NotFoundApiException if there is no such leaderboard
+   */
+  public RatingHistogram getHistogram(String leaderboard, double bucketWidth, int maxBuckets) {
+    return getIndex(leaderboard).getHistogram(bucketWidth, maxBuckets);
+  }
+
+  /**
+   * @return the percentage of ratings on the leaderboard that are lower than {@code rating}
+   * @throws NotFoundApiException if there is no such leaderboard
+   */
+  public double getPercentile(String leaderboard, double rating) {
+    LeaderboardIndex<LeaderboardRatingEntry> index = getIndex(leaderboard);
+    int total = index.size();
+    return total == 0 ? 0 : 100d * (total - index.countRatedAtLeast(rating)) / total;
+  }
+
+  /**
+   * @return the rating below which {@code percentile} percent of the ratings on the leaderboard lie, or empty if the
+   * leaderboard has no ratings
+   * @throws NotFoundApiException if there is no such leaderboard
+   */
+  public OptionalDouble getRatingAtPercentile(String leaderboard, double percentile) {
+    LeaderboardIndex<LeaderboardRatingEntry> index = getIndex(leaderboard);
+    int offset = (int) Math.round((100 - percentile) / 100 * (index.size() - 1));
+    return index.getRange(Math.max(0, offset), 1).stream()
+      .mapToDouble(rankedEntry -> rankedEntry.getEntry().getRating())
+      .findFirst();
+  }
+
+  /**
+   * Like {@link #getRank(String, int)}, but never loads from the database. Meant to be used while entities are being
+   * loaded, where a nested query is not an option.
+   *
+   * @return the rank, or empty if the rankings haven't been loaded yet or don't contain the player
+   */
+  public Optional<LeaderboardRank> findLoadedRank(String leaderboard, int playerId) {
+    LeaderboardIndex<LeaderboardRatingEntry> index = indices.get(leaderboard);
+    if (index == null) {
+      return Optional.empty();
+    }
+    return index.get(playerId).map(rankedEntry -> LeaderboardRank.of(rankedEntry, index.size()));
+  }
+
+  private LeaderboardIndex<LeaderboardRatingEntry> getIndex(String leaderboard) {
+    ensureLoaded();
+    LeaderboardIndex<LeaderboardRatingEntry> index = indices.get(leaderboard);
+    if (index == null) {
+      throw new NotFoundApiException(new Error(ErrorCode.ENTITY_NOT_FOUND, leaderboard));
+    }
+    return index;
+  }
+
+  @Scheduled(fixedDelayString = "${faf-api.leaderboard.refresh-interval:PT1M}")
+  public void refreshIndices() {
+    try {
+      long start = System.currentTimeMillis();
+      boolean full = !initialized || clock.instant().isAfter(lastFullRefresh.plus(fafApiProperties.getLeaderboard().getFullRefreshInterval()));
+      int count = full ? refresh() : refreshUpdated();
+      log.debug("Refreshed {} leaderboards with {} {} ratings in {} ms", indices.size(), count, full ? "total" : "updated", System.currentTimeMillis() - start);
+    } catch (RuntimeException e) {
+      log.warn("Could not refresh leaderboards, keeping previous state", e);
+    }
+  }
+
+  /**
+   * Fills the indices on first use, in case a request arrives before the first scheduled refresh.
+   */
+  private void ensureLoaded() {
+    if (!initialized) {
+      synchronized (this) {
+        if (!initialized) {
+          refresh();
+        }
+      }
+    }
+  }
+
+  private synchronized int refresh() {
+    Instant start = clock.instant();
+    List<LeaderboardRatingEntry> entries = leaderboardRatingRepository.findAllEntries();
+    Map<String, List<LeaderboardRatingEntry>> entriesByLeaderboard = entries.stream()
+      .collect(Collectors.groupingBy(LeaderboardRatingEntry::getLeaderboard));
+
+    indices.keySet().retainAll(entriesByLeaderboard.keySet());
+    entriesByLeaderboard.forEach((leaderboard, leaderboardEntries) -> getOrCreateIndex(leaderboard).replaceAll(leaderboardEntries));
+    lastUpdateTime = maxUpdateTime(entries, null);
+    lastFullRefresh = start;
+    initialized = true;
+    return entries.size();
+  }
+
+  private synchronized int refreshUpdated() {
+    if (lastUpdateTime == null) {
+      return refresh();
+    }
+    OffsetDateTime since = lastUpdateTime.minus(fafApiProperties.getLeaderboard().getUpdateTimeOverlap());
+    List<LeaderboardRatingEntry> entries = leaderboardRatingRepository.findEntriesUpdatedSince(since);
+    entries.forEach(entry -> getOrCreateIndex(entry.getLeaderboard()).put(entry));
+    lastUpdateTime = maxUpdateTime(entries, lastUpdateTime);
+    return entries.size();
+  }
+
+  private LeaderboardIndex<LeaderboardRatingEntry> getOrCreateIndex(String leaderboard) {
+    return indices.computeIfAbsent(leaderboard, key -> new LeaderboardIndex<>(LeaderboardRatingEntry::getPlayerId, LeaderboardRatingEntry::getRating));
+  }
+
+  private static OffsetDateTime maxUpdateTime(List<LeaderboardRatingEntry> entries, OffsetDateTime previous) {
+    OffsetDateTime max = previous;
+    for (LeaderboardRatingEntry entry : entries) {
+      OffsetDateTime updateTime = entry.getUpdateTime();
+      if (updateTime != null && (max == null || updateTime.isAfter(max))) {
+        max = updateTime;
+      }
+    }
+    return max;
+  }
+}
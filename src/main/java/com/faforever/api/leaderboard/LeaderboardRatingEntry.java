@@ -0,0 +1,22 @@
+package com.faforever.api.leaderboard;
+
+import lombok.Value;
+
+import java.time.OffsetDateTime;
+
+/**
+ * The parts of a {@link com.faforever.api.data.domain.LeaderboardRating} needed to rank it, loaded without the entity
+ * and its associations.
+ */
+@Value
+public class LeaderboardRatingEntry {
+  int playerId;
+  String playerName;
+  String leaderboard;
+  Double mean;
+  Double deviation;
+  double rating;
+  int totalGames;
+  int wonGames;
+  OffsetDateTime updateTime;
+}
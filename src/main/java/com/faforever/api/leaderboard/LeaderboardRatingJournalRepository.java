@@ -0,0 +1,29 @@
+package com.faforever.api.leaderboard;
+
+import com.faforever.api.data.domain.LeaderboardRatingJournal;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.Repository;
+import org.springframework.data.repository.query.Param;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.List;
+
+public interface LeaderboardRatingJournalRepository extends Repository<LeaderboardRatingJournal, Integer> {
+
+  /**
+   * Loads the rating history of a player on a leaderboard, starting after the journal entry with the specified id.
+   * Journal ids increase with time, so passing the last id seen loads only new entries.
+   */
+  @Transactional(readOnly = true)
+  @Query("SELECT new com.faforever.api.leaderboard.RatingHistoryPoint(" +
+    "    journal.id, journal.createTime, journal.meanAfter, journal.deviationAfter)" +
+    "  FROM LeaderboardRatingJournal journal" +
+    "  WHERE journal.gamePlayerStats.player.id = :playerId" +
+    "    AND journal.leaderboard.technicalName = :leaderboard" +
+    "    AND journal.id > :afterId" +
+    "    AND journal.meanAfter IS NOT NULL AND journal.deviationAfter IS NOT NULL" +
+    "  ORDER BY journal.id")
+  List<RatingHistoryPoint> findPointsAfter(@Param("leaderboard") String leaderboard,
+                                           @Param("playerId") int playerId,
+                                           @Param("afterId") int afterId);
+}
@@ -0,0 +1,33 @@
+package com.faforever.api.leaderboard;
+
+import com.faforever.api.data.domain.LeaderboardRating;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.Repository;
+import org.springframework.data.repository.query.Param;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.OffsetDateTime;
+import java.util.List;
+
+public interface LeaderboardRatingRepository extends Repository<LeaderboardRating, Integer> {
+
+  String SELECT_ENTRIES = "SELECT new com.faforever.api.leaderboard.LeaderboardRatingEntry(" +
+    "    player.id, player.login, leaderboard.technicalName," +
+    "    rating.mean, rating.deviation, rating.rating, rating.totalGames, rating.wonGames, rating.updateTime)" +
+    "  FROM LeaderboardRating rating JOIN rating.player player JOIN rating.leaderboard leaderboard";
+
+  /**
+   * Loads the ratings of all leaderboards, unordered. Ranks are computed by {@link LeaderboardIndex}.
+   */
+  @Transactional(readOnly = true)
+  @Query(SELECT_ENTRIES)
+  List<LeaderboardRatingEntry> findAllEntries();
+
+  /**
+   * Loads the ratings updated at or after {@code since}. Update times have a resolution of seconds, so the ratings
+   * updated in the same second as the last seen one are loaded again.
+   */
+  @Transactional(readOnly = true)
+  @Query(SELECT_ENTRIES + " WHERE rating.updateTime >= :since")
+  List<LeaderboardRatingEntry> findEntriesUpdatedSince(@Param("since") OffsetDateTime since);
+}
@@ -1,53 +1,215 @@
 package com.faforever.api.leaderboard;
 
+import com.faforever.api.config.FafApiProperties;
+import com.google.common.annotations.VisibleForTesting;
+import lombok.extern.slf4j.Slf4j;
 import org.jetbrains.annotations.NotNull;
 import org.jetbrains.annotations.Nullable;
-import org.springframework.cache.annotation.Cacheable;
 import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageImpl;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
 import org.springframework.stereotype.Service;
 
+import javax.inject.Inject;
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Objects;
 import java.util.Optional;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.BiPredicate;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+import java.util.function.ToIntFunction;
 
+/**
+ * Serves the legacy leaderboards from in-memory {@link LeaderboardSnapshot}s of their rank views. The lobby server
+ * computes the rankings and writes them without an update time, so a leaderboard can't be brought up to date with the
+ * changed ratings alone. Instead, a snapshot of the whole view is loaded on first use and loaded again on use once it
+ * is older than the refresh interval, so that nothing is loaded while nobody reads the leaderboard.
+ */
 @Service
+@Slf4j
 public class LeaderboardService {
 
-  public static final String LEADERBOARD_RANKED_1V1_CACHE_NAME = "LeaderboardService.leaderboard1v1";
-  public static final String LEADERBOARD_GLOBAL_CACHE_NAME = "LeaderboardService.leaderboardGlobal";
-  private static final int MAX_RESULTS = 10_000;
+  private static final int DEFAULT_PAGE_SIZE = 100;
+  private static final int MAX_PAGE_SIZE = 10_000;
+  private static final int EXPORT_CHUNK_SIZE = 1_000;
 
-  private final GlobalLeaderboardRepository globalLeaderboardRepository;
-  private final Ladder1v1LeaderboardRepository ladder1v1LeaderboardRepository;
+  private final FafApiProperties fafApiProperties;
+  private final Clock clock;
+  private final CachedLeaderboard<GlobalLeaderboardEntry> globalLeaderboard;
+  private final CachedLeaderboard<Ladder1v1LeaderboardEntry> ladder1v1Leaderboard;
 
-  public LeaderboardService(GlobalLeaderboardRepository globalLeaderboardRepository, Ladder1v1LeaderboardRepository ladder1v1LeaderboardRepository) {
-    this.globalLeaderboardRepository = globalLeaderboardRepository;
-    this.ladder1v1LeaderboardRepository = ladder1v1LeaderboardRepository;
+  @Inject
+  public LeaderboardService(GlobalLeaderboardRepository globalLeaderboardRepository, Ladder1v1LeaderboardRepository ladder1v1LeaderboardRepository,
+                            FafApiProperties fafApiProperties) {
+    this(globalLeaderboardRepository, ladder1v1LeaderboardRepository, fafApiProperties, Clock.systemUTC());
+  }
+
+  @VisibleForTesting
+  LeaderboardService(GlobalLeaderboardRepository globalLeaderboardRepository, Ladder1v1LeaderboardRepository ladder1v1LeaderboardRepository,
+                     FafApiProperties fafApiProperties, Clock clock) {
+    this.fafApiProperties = fafApiProperties;
+    this.clock = clock;
+    globalLeaderboard = new CachedLeaderboard<>("global", globalLeaderboardRepository::findAllEntries,
+      Comparator.comparingInt(GlobalLeaderboardEntry::getRank).thenComparingInt(GlobalLeaderboardEntry::getId),
+      GlobalLeaderboardEntry::getId, LeaderboardService::sameContent);
+    ladder1v1Leaderboard = new CachedLeaderboard<>("ladder1v1", ladder1v1LeaderboardRepository::findAllEntries,
+      Comparator.comparingInt(Ladder1v1LeaderboardEntry::getRank).thenComparingInt(Ladder1v1LeaderboardEntry::getId),
+      Ladder1v1LeaderboardEntry::getId, LeaderboardService::sameContent);
   }
 
-  @Cacheable(LEADERBOARD_RANKED_1V1_CACHE_NAME)
   public Page<Ladder1v1LeaderboardEntry> getLadder1v1Leaderboard(@Nullable Integer page, @Nullable Integer pageSize) {
-    return ladder1v1LeaderboardRepository.getLeaderboardByPage(getPageable(page, pageSize));
+    return getPage(ladder1v1Leaderboard.get(), getPageable(page, pageSize));
   }
 
-  @Cacheable(LEADERBOARD_GLOBAL_CACHE_NAME)
   public Page<GlobalLeaderboardEntry> getGlobalLeaderboard(@Nullable Integer page, @Nullable Integer pageSize) {
-    return globalLeaderboardRepository.getLeaderboardByPage(getPageable(page, pageSize));
+    return getPage(globalLeaderboard.get(), getPageable(page, pageSize));
   }
 
+  @Nullable
   public GlobalLeaderboardEntry getGlobalEntry(int playerId) {
-    return globalLeaderboardRepository.findByPlayerId(playerId);
+    return globalLeaderboard.get().get(playerId).orElse(null);
   }
 
+  @Nullable
   public Ladder1v1LeaderboardEntry getLadder1v1Entry(int playerId) {
-    return ladder1v1LeaderboardRepository.findByPlayerId(playerId);
+    return ladder1v1Leaderboard.get().get(playerId).orElse(null);
+  }
+
+  /**
+   * Passes all entries of the ladder1v1 leaderboard to the consumer, ordered by rank. All entries are taken from the
+   * same snapshot.
+   */
+  public void forEachLadder1v1Entry(Consumer<Ladder1v1LeaderboardEntry> consumer) {
+    forEach(ladder1v1Leaderboard.get(), consumer);
+  }
+
+  /**
+   * @see #forEachLadder1v1Entry(Consumer)
+   */
+  public void forEachGlobalEntry(Consumer<GlobalLeaderboardEntry> consumer) {
+    forEach(globalLeaderboard.get(), consumer);
+  }
+
+  /**
+   * @return a number that changes whenever the ladder1v1 leaderboard changes
+   */
+  public long getLadder1v1Version() {
+    return ladder1v1Leaderboard.get().getVersion();
+  }
+
+  /**
+   * @return a number that changes whenever the global leaderboard changes
+   */
+  public long getGlobalVersion() {
+    return globalLeaderboard.get().getVersion();
+  }
+
+  private static <T> Page<T> getPage(LeaderboardSnapshot<T> snapshot, Pageable pageable) {
+    return new PageImpl<>(snapshot.getRange((int) pageable.getOffset(), pageable.getPageSize()), pageable, snapshot.size());
+  }
+
+  private static <T> void forEach(LeaderboardSnapshot<T> snapshot, Consumer<T> consumer) {
+    for (int offset = 0; offset < snapshot.size(); offset += EXPORT_CHUNK_SIZE) {
+      snapshot.getRange(offset, EXPORT_CHUNK_SIZE).forEach(consumer);
+    }
   }
 
   @NotNull
   private Pageable getPageable(@Nullable Integer page, @Nullable Integer pageSize) {
     return PageRequest.of(
       Optional.ofNullable(page).map(p -> p - 1).orElse(0),
-      Optional.ofNullable(pageSize).orElse(MAX_RESULTS)
+      Optional.ofNullable(pageSize).map(size -> Math.min(size, MAX_PAGE_SIZE)).orElse(DEFAULT_PAGE_SIZE)
     );
   }
+
+  /**
+   * The entities don't implement {@code equals}, so the snapshot is told which fields a page shows.
+   */
+  private static boolean sameContent(GlobalLeaderboardEntry previous, GlobalLeaderboardEntry entry) {
+    return previous.getRank() == entry.getRank()
+      && previous.getNumGames() == entry.getNumGames()
+      && Objects.equals(previous.getMean(), entry.getMean())
+      && Objects.equals(previous.getDeviation(), entry.getDeviation())
+      && Objects.equals(previous.getPlayerName(), entry.getPlayerName());
+  }
+
+  private static boolean sameContent(Ladder1v1LeaderboardEntry previous, Ladder1v1LeaderboardEntry entry) {
+    return previous.getRank() == entry.getRank()
+      && previous.getNumGames() == entry.getNumGames()
+      && previous.getWonGames() == entry.getWonGames()
+      && Objects.equals(previous.getMean(), entry.getMean())
+      && Objects.equals(previous.getDeviation(), entry.getDeviation())
+      && Objects.equals(previous.getPlayerName(), entry.getPlayerName());
+  }
+
+  /**
+   * Only one thread loads a stale leaderboard again, the others keep reading the previous snapshot meanwhile.
+   */
+  private class CachedLeaderboard<T> {
+    private final String name;
+    private final Supplier<List<T>> loader;
+    private final Comparator<T> order;
+    private final ToIntFunction<T> playerIdFunction;
+    private final BiPredicate<T, T> sameContentPredicate;
+    private final Lock reloadLock = new ReentrantLock();
+    private volatile LeaderboardSnapshot<T> snapshot;
+
+    private CachedLeaderboard(String name, Supplier<List<T>> loader, Comparator<T> order, ToIntFunction<T> playerIdFunction,
+                              BiPredicate<T, T> sameContentPredicate) {
+      this.name = name;
+      this.loader = loader;
+      this.order = order;
+      this.playerIdFunction = playerIdFunction;
+      this.sameContentPredicate = sameContentPredicate;
+    }
+
+    LeaderboardSnapshot<T> get() {
+      LeaderboardSnapshot<T> current = snapshot;
+      if (current == null) {
+        synchronized (this) {
+          if (snapshot == null) {
+            snapshot = load(null);
+          }
+          return snapshot;
+        }
+      }
+      Duration age = Duration.between(current.getLoadTime(), clock.instant());
+      if (age.compareTo(fafApiProperties.getLeaderboard().getRefreshInterval()) >= 0 && reloadLock.tryLock()) {
+        try {
+          if (snapshot == current) {
+            snapshot = reload(current);
+          }
+        } finally {
+          reloadLock.unlock();
+        }
+      }
+      return snapshot;
+    }
+
+    private LeaderboardSnapshot<T> reload(LeaderboardSnapshot<T> current) {
+      try {
+        return load(current);
+      } catch (RuntimeException e) {
+        log.warn("Could not reload {} leaderboard, keeping previous state", name, e);
+        // Don't retry on every request while the database is unavailable
+        return current.withLoadTime(clock.instant());
+      }
+    }
+
+    private LeaderboardSnapshot<T> load(@Nullable LeaderboardSnapshot<T> previous) {
+      long start = System.currentTimeMillis();
+      Instant loadTime = clock.instant();
+      List<T> entries = loader.get();
+      LeaderboardSnapshot<T> loaded = LeaderboardSnapshot.of(entries, order, playerIdFunction, sameContentPredicate, previous, loadTime);
+      log.debug("Loaded {} leaderboard with {} entries in {} ms", name, entries.size(), System.currentTimeMillis() - start);
+      return loaded;
+    }
+  }
 }
@@ -0,0 +1,105 @@
+package com.faforever.api.leaderboard;
+
+import org.jetbrains.annotations.Nullable;
+
+import java.time.Instant;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.function.BiPredicate;
+import java.util.function.ToIntFunction;
+import java.util.stream.Collectors;
+
+/**
+ * An immutable copy of a whole leaderboard, ordered by rank. Pages, the entry of a player and the total number of
+ * entries are read from memory, but the snapshot is only as recent as its {@link #getLoadTime() load time}.
+ */
+public final class LeaderboardSnapshot<T> {
+
+  private final List<T> entries;
+  private final Map<Integer, T> entriesByPlayerId;
+  private final long version;
+  private final Instant loadTime;
+
+  private LeaderboardSnapshot(List<T> entries, Map<Integer, T> entriesByPlayerId, long version, Instant loadTime) {
+    this.entries = entries;
+    this.entriesByPlayerId = entriesByPlayerId;
+    this.version = version;
+    this.loadTime = loadTime;
+  }
+
+  /**
+   * @param previous the snapshot this one replaces, whose version is kept if no entry changed
+   * @param sameContentPredicate whether two entries of the same player show the same. Required for entries that don't
+   * implement {@code equals}.
+   */
+  static <T> LeaderboardSnapshot<T> of(List<T> entries, Comparator<T> order, ToIntFunction<T> playerIdFunction,
+                                       BiPredicate<T, T> sameContentPredicate, @Nullable LeaderboardSnapshot<T> previous,
+                                       Instant loadTime) {
+    List<T> orderedEntries = entries.stream().sorted(order).collect(Collectors.toUnmodifiableList());
+    Map<Integer, T> entriesByPlayerId = new HashMap<>(orderedEntries.size() * 2);
+    orderedEntries.forEach(entry -> entriesByPlayerId.put(playerIdFunction.applyAsInt(entry), entry));
+
+    long version = 0;
+    if (previous != null) {
+      version = sameContent(previous.entries, orderedEntries, playerIdFunction, sameContentPredicate)
+        ? previous.version
+        : previous.version + 1;
+    }
+    return new LeaderboardSnapshot<>(orderedEntries, entriesByPlayerId, version, loadTime);
+  }
+
+  public int size() {
+    return entries.size();
+  }
+
+  /**
+   * @param offset zero-based position of the first returned entry
+   */
+  public List<T> getRange(int offset, int limit) {
+    if (offset >= entries.size()) {
+      return List.of();
+    }
+    return entries.subList(offset, Math.min(entries.size(), offset + limit));
+  }
+
+  public Optional<T> get(int playerId) {
+    return Optional.ofNullable(entriesByPlayerId.get(playerId));
+  }
+
+  /**
+   * @return a number that changes whenever a snapshot replaces one with different entries
+   */
+  public long getVersion() {
+    return version;
+  }
+
+  public Instant getLoadTime() {
+    return loadTime;
+  }
+
+  /**
+   * The same snapshot, treated as loaded at {@code loadTime}.
+   */
+  LeaderboardSnapshot<T> withLoadTime(Instant loadTime) {
+    return new LeaderboardSnapshot<>(entries, entriesByPlayerId, version, loadTime);
+  }
+
+  private static <T> boolean sameContent(List<T> previous, List<T> entries, ToIntFunction<T> playerIdFunction,
+                                         BiPredicate<T, T> sameContentPredicate) {
+    if (previous.size() != entries.size()) {
+      return false;
+    }
+    for (int i = 0; i < entries.size(); i++) {
+      T previousEntry = previous.get(i);
+      T entry = entries.get(i);
+      if (playerIdFunction.applyAsInt(previousEntry) != playerIdFunction.applyAsInt(entry)
+        || !sameContentPredicate.test(previousEntry, entry)) {
+        return false;
+      }
+    }
+    return true;
+  }
+}
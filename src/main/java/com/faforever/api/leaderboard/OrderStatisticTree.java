@@ -0,0 +1,162 @@
+package com.faforever.api.leaderboard;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Sorted set of unique keys that also answers "at which position is key X" and "which key is at position N" in
+ * O(log n). Implemented as a treap whose nodes know the size of their subtree. Not thread-safe.
+ */
+class OrderStatisticTree<K> {
+
+  private final Comparator<? super K> comparator;
+  private Node<K> root;
+
+  OrderStatisticTree(Comparator<? super K> comparator) {
+    this.comparator = comparator;
+  }
+
+  int size() {
+    return size(root);
+  }
+
+  /**
+   * Adds the key, which must not be contained yet.
+   */
+  void add(K key) {
+    Node<K>[] parts = split(root, key, false);
+    root = merge(merge(parts[0], new Node<>(key)), parts[1]);
+  }
+
+  boolean remove(K key) {
+    Node<K>[] lowerAndRest = split(root, key, false);
+    Node<K>[] equalAndHigher = split(lowerAndRest[1], key, true);
+    root = merge(lowerAndRest[0], equalAndHigher[1]);
+    return equalAndHigher[0] != null;
+  }
+
+  /**
+   * @return the zero-based position of the key, or {@code -1} if it isn't contained
+   */
+  int indexOf(K key) {
+    int index = 0;
+    Node<K> node = root;
+    while (node != null) {
+      int comparison = comparator.compare(key, node.key);
+      if (comparison < 0) {
+        node = node.left;
+      } else if (comparison > 0) {
+        index += size(node.left) + 1;
+        node = node.right;
+      } else {
+        return index + size(node.left);
+      }
+    }
+    return -1;
+  }
+
+  /**
+   * @return the number of contained keys lower than {@code key}, which doesn't need to be contained itself
+   */
+  int countLower(K key) {
+    int count = 0;
+    Node<K> node = root;
+    while (node != null) {
+      if (comparator.compare(key, node.key) <= 0) {
+        node = node.left;
+      } else {
+        count += size(node.left) + 1;
+        node = node.right;
+      }
+    }
+    return count;
+  }
+
+  /**
+   * @return up to {@code limit} keys starting at the zero-based position {@code offset}
+   */
+  List<K> range(int offset, int limit) {
+    List<K> result = new ArrayList<>(Math.max(0, Math.min(limit, size() - offset)));
+    collect(root, offset, limit, result);
+    return result;
+  }
+
+  private void collect(Node<K> node, int offset, int limit, List<K> result) {
+    if (node == null || result.size() >= limit) {
+      return;
+    }
+    int leftSize = size(node.left);
+    if (offset < leftSize) {
+      collect(node.left, offset, limit, result);
+    }
+    if (result.size() < limit && offset <= leftSize) {
+      result.add(node.key);
+    }
+    if (result.size() < limit) {
+      collect(node.right, Math.max(0, offset - leftSize - 1), limit, result);
+    }
+  }
+
+  /**
+   * Splits the tree into keys lower than {@code key} (or lower or equal, if {@code inclusive}) and all others.
+   */
+  @SuppressWarnings("unchecked")
+  private Node<K>[] split(Node<K> node, K key, boolean inclusive) {
+    if (node == null) {
+      return new Node[]{null, null};
+    }
+    int comparison = comparator.compare(node.key, key);
+    if (comparison < 0 || (inclusive && comparison == 0)) {
+      Node<K>[] parts = split(node.right, key, inclusive);
+      node.right = parts[0];
+      node.update();
+      return new Node[]{node, parts[1]};
+    }
+    Node<K>[] parts = split(node.left, key, inclusive);
+    node.left = parts[1];
+    node.update();
+    return new Node[]{parts[0], node};
+  }
+
+  /**
+   * Merges two trees, all keys of {@code lower} must be lower than those of {@code higher}.
+   */
+  private Node<K> merge(Node<K> lower, Node<K> higher) {
+    if (lower == null) {
+      return higher;
+    }
+    if (higher == null) {
+      return lower;
+    }
+    if (lower.priority > higher.priority) {
+      lower.right = merge(lower.right, higher);
+      lower.update();
+      return lower;
+    }
+    higher.left = merge(lower, higher.left);
+    higher.update();
+    return higher;
+  }
+
+  private static int size(Node<?> node) {
+    return node == null ? 0 : node.size;
+  }
+
+  private static class Node<K> {
+    private final K key;
+    private final int priority = ThreadLocalRandom.current().nextInt();
+    private int size = 1;
+    private Node<K> left;
+    private Node<K> right;
+
+    private Node(K key) {
+      this.key = key;
+    }
+
+    private void update() {
+      size = 1 + size(left) + size(right);
+    }
+  }
+}
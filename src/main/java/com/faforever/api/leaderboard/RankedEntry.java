@@ -0,0 +1,12 @@
+package com.faforever.api.leaderboard;
+
+import lombok.Value;
+
+/**
+ * An entry of a leaderboard together with its one-based rank.
+ */
+@Value
+public class RankedEntry<T> {
+  int rank;
+  T entry;
+}
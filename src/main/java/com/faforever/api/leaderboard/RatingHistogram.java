@@ -0,0 +1,17 @@
+package com.faforever.api.leaderboard;
+
+import lombok.Value;
+
+/**
+ * The number of ratings per fixed-width rating bucket.
+ */
+@Value
+public class RatingHistogram {
+  int total;
+  /**
+   * The lower bound of the first bucket, inclusive.
+   */
+  double start;
+  double bucketWidth;
+  int[] counts;
+}
@@ -0,0 +1,62 @@
+package com.faforever.api.leaderboard;
+
+import lombok.Value;
+
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * The rating history of a player on a leaderboard, ordered by time. Stored column-wise to keep cached histories small.
+ */
+@Value
+public class RatingHistory {
+  static final RatingHistory EMPTY = new RatingHistory(0, new long[0], new double[0], new double[0]);
+
+  /**
+   * The id of the newest journal entry, used to load only newer entries.
+   */
+  int lastJournalId;
+  /**
+   * Epoch seconds.
+   */
+  long[] times;
+  double[] means;
+  double[] deviations;
+
+  public int size() {
+    return times.length;
+  }
+
+  RatingHistory append(List<RatingHistoryPoint> points) {
+    if (points.isEmpty()) {
+      return this;
+    }
+    int size = size() + points.size();
+    long[] newTimes = Arrays.copyOf(times, size);
+    double[] newMeans = Arrays.copyOf(means, size);
+    double[] newDeviations = Arrays.copyOf(deviations, size);
+    int index = size();
+    for (RatingHistoryPoint point : points) {
+      newTimes[index] = point.getTime().toEpochSecond();
+      newMeans[index] = point.getMean();
+      newDeviations[index] = point.getDeviation();
+      index++;
+    }
+    return new RatingHistory(points.get(points.size() - 1).getJournalId(), newTimes, newMeans, newDeviations);
+  }
+
+  /**
+   * @param indices ascending indices of the points to keep
+   */
+  RatingHistory select(int[] indices) {
+    long[] newTimes = new long[indices.length];
+    double[] newMeans = new double[indices.length];
+    double[] newDeviations = new double[indices.length];
+    for (int i = 0; i < indices.length; i++) {
+      newTimes[i] = times[indices[i]];
+      newMeans[i] = means[indices[i]];
+      newDeviations[i] = deviations[indices[i]];
+    }
+    return new RatingHistory(lastJournalId, newTimes, newMeans, newDeviations);
+  }
+}
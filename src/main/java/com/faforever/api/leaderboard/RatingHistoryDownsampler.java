@@ -0,0 +1,91 @@
+package com.faforever.api.leaderboard;
+
+import java.time.Duration;
+import java.util.Arrays;
+
+/**
+ * Reduces the number of points of a {@link RatingHistory} for display in a graph.
+ */
+final class RatingHistoryDownsampler {
+
+  private static final long SECONDS_PER_DAY = Duration.ofDays(1).toSeconds();
+
+  private RatingHistoryDownsampler() {
+    // Utility class
+  }
+
+  static RatingHistory downsample(RatingHistory history, RatingHistoryDownsampling downsampling, int maxPoints) {
+    switch (downsampling) {
+      case NONE:
+        return history;
+      case DAILY:
+        return daily(history);
+      case LTTB:
+        return largestTriangleThreeBuckets(history, maxPoints);
+      default:
+        throw new IllegalArgumentException("Unknown downsampling: " + downsampling);
+    }
+  }
+
+  /**
+   * Keeps the last point of each day (UTC).
+   */
+  static RatingHistory daily(RatingHistory history) {
+    long[] times = history.getTimes();
+    int[] indices = new int[times.length];
+    int count = 0;
+    for (int i = 0; i < times.length; i++) {
+      if (i == times.length - 1 || Math.floorDiv(times[i], SECONDS_PER_DAY) != Math.floorDiv(times[i + 1], SECONDS_PER_DAY)) {
+        indices[count++] = i;
+      }
+    }
+    return history.select(Arrays.copyOf(indices, count));
+  }
+
+  /**
+   * Picks {@code threshold} points using Largest-Triangle-Three-Buckets on time and mean. The first and last points are
+   * always kept; of every bucket in between, the point forming the largest triangle with the previously picked point
+   * and the average of the next bucket is kept.
+   */
+  static RatingHistory largestTriangleThreeBuckets(RatingHistory history, int threshold) {
+    int size = history.size();
+    if (threshold >= size || threshold < 3) {
+      return history;
+    }
+    long[] times = history.getTimes();
+    double[] means = history.getMeans();
+
+    int[] indices = new int[threshold];
+    double bucketSize = (double) (size - 2) / (threshold - 2);
+    int previous = 0;
+    for (int bucket = 0; bucket < threshold - 2; bucket++) {
+      int nextStart = (int) ((bucket + 1) * bucketSize) + 1;
+      int nextEnd = Math.min((int) ((bucket + 2) * bucketSize) + 1, size);
+      double averageTime = 0;
+      double averageMean = 0;
+      for (int i = nextStart; i < nextEnd; i++) {
+        averageTime += times[i];
+        averageMean += means[i];
+      }
+      averageTime /= nextEnd - nextStart;
+      averageMean /= nextEnd - nextStart;
+
+      int start = (int) (bucket * bucketSize) + 1;
+      int end = (int) ((bucket + 1) * bucketSize) + 1;
+      double maxArea = -1;
+      int picked = start;
+      for (int i = start; i < end; i++) {
+        double area = Math.abs((times[previous] - averageTime) * (means[i] - means[previous])
+          - (times[previous] - times[i]) * (averageMean - means[previous]));
+        if (area > maxArea) {
+          maxArea = area;
+          picked = i;
+        }
+      }
+      indices[bucket + 1] = picked;
+      previous = picked;
+    }
+    indices[threshold - 1] = size - 1;
+    return history.select(indices);
+  }
+}
@@ -0,0 +1,16 @@
+package com.faforever.api.leaderboard;
+
+public enum RatingHistoryDownsampling {
+  /**
+   * Every rating change.
+   */
+  NONE,
+  /**
+   * The last rating of each day (UTC).
+   */
+  DAILY,
+  /**
+   * Largest-Triangle-Three-Buckets, keeps the shape of the graph with at most the requested number of points.
+   */
+  LTTB
+}
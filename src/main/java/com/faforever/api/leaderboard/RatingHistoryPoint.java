@@ -0,0 +1,16 @@
+package com.faforever.api.leaderboard;
+
+import lombok.Value;
+
+import java.time.OffsetDateTime;
+
+/**
+ * The rating of a player after a game, as recorded in a {@link com.faforever.api.data.domain.LeaderboardRatingJournal}.
+ */
+@Value
+public class RatingHistoryPoint {
+  int journalId;
+  OffsetDateTime time;
+  double mean;
+  double deviation;
+}
@@ -0,0 +1,71 @@
+package com.faforever.api.leaderboard;
+
+import com.faforever.api.config.FafApiProperties;
+import com.faforever.api.config.FafApiProperties.Leaderboard;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import lombok.Value;
+import org.springframework.stereotype.Service;
+
+import java.util.List;
+import java.util.stream.Collectors;
+
+/**
+ * Serves rating histories from the leaderboard rating journal. Since journal entries are written by the lobby server,
+ * each request reads the journal entries of the player that are newer than the cached history, which is a cheap indexed
+ * query. Journal entries may be committed out of the order of their ids, so only entries that are
+ * {@link Leaderboard#getHistoryRecheckedJournalIds() far enough} below the newest one are cached, and the others are
+ * read again by the next request.
+ */
+@Service
+public class RatingHistoryService {
+
+  private final LeaderboardRatingJournalRepository leaderboardRatingJournalRepository;
+  private final int recheckedJournalIds;
+  private final Cache<HistoryKey, RatingHistory> cache;
+
+  public RatingHistoryService(LeaderboardRatingJournalRepository leaderboardRatingJournalRepository, FafApiProperties fafApiProperties) {
+    this.leaderboardRatingJournalRepository = leaderboardRatingJournalRepository;
+    Leaderboard properties = fafApiProperties.getLeaderboard();
+    this.recheckedJournalIds = properties.getHistoryRecheckedJournalIds();
+    this.cache = Caffeine.newBuilder()
+      .maximumSize(properties.getHistoryCacheSize())
+      .expireAfterWrite(properties.getHistoryCacheExpiry())
+      .build();
+  }
+
+  /**
+   * @param maxPoints only used by {@link RatingHistoryDownsampling#LTTB}
+   */
+  public RatingHistory getHistory(String leaderboard, int playerId, RatingHistoryDownsampling downsampling, int maxPoints) {
+    return RatingHistoryDownsampler.downsample(getHistory(leaderboard, playerId), downsampling, maxPoints);
+  }
+
+  private RatingHistory getHistory(String leaderboard, int playerId) {
+    HistoryKey key = new HistoryKey(leaderboard, playerId);
+    RatingHistory cached = cache.getIfPresent(key);
+    RatingHistory settled = cached == null ? RatingHistory.EMPTY : cached;
+
+    List<RatingHistoryPoint> recentPoints = leaderboardRatingJournalRepository.findPointsAfter(leaderboard, playerId, settled.getLastJournalId());
+    if (recentPoints.isEmpty()) {
+      return settled;
+    }
+
+    int settledJournalId = recentPoints.get(recentPoints.size() - 1).getJournalId() - recheckedJournalIds;
+    List<RatingHistoryPoint> settledPoints = recentPoints.stream()
+      .filter(point -> point.getJournalId() <= settledJournalId)
+      .collect(Collectors.toList());
+    if (!settledPoints.isEmpty()) {
+      // Concurrent requests may have settled points in the meantime, keep whichever history is newer
+      cache.asMap().merge(key, settled.append(settledPoints),
+        (previous, current) -> previous.getLastJournalId() >= current.getLastJournalId() ? previous : current);
+    }
+    return settled.append(recentPoints);
+  }
+
+  @Value
+  private static class HistoryKey {
+    String leaderboard;
+    int playerId;
+  }
+}
@@ -0,0 +1,16 @@
+package com.faforever.api.map;
+
+import com.faforever.api.map.hpi.TaMapInfo;
+import lombok.Value;
+
+/**
+ * A map read from an archive in the map target directory, to be imported by {@link MapService#importMaps}.
+ */
+@Value
+public class ImportedMap {
+  /** The name of the archive in the map target directory, the first part of the map version's file name. */
+  String archiveName;
+  /** The SHA-256 hash of the archive, by which archives with the same content are imported only once. */
+  String archiveSha256;
+  TaMapInfo mapInfo;
+}
@@ -0,0 +1,161 @@
+package com.faforever.api.map;
+
+import com.faforever.api.config.FafApiProperties;
+import lombok.Value;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.commons.io.FilenameUtils;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronizationAdapter;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.io.IOException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Hands out the names under which uploaded map archives are stored. If an archive name is taken, the upload is stored
+ * as a version of it, {@code <name>.v0002.<extension>} and so on. The latest version of every archive name is kept in
+ * memory, so that allocating a name neither probes the (network) file system nor races with concurrent uploads of the
+ * same archive name.
+ *
+ * <p>The registry is loaded on first use from the map target directory and from the file names of all map versions.
+ * A reservation becomes durable with the archive and the map versions written by the upload. If the transaction of the
+ * upload is rolled back, the reservation is {@linkplain #release(String) released}. Until the transaction has
+ * completed, the name is {@linkplain #isReserved(String) reserved}.</p>
+ */
+@Component
+@Slf4j
+public class MapArchiveNameRegistry {
+
+  /** At most nine digits, so that any version fits into an {@code int}. */
+  private static final Pattern VERSIONED_NAME_PATTERN = Pattern.compile("^(.+)\\.v(\\d{4,9})\\.([^.]+)$");
+
+  private final FafApiProperties fafApiProperties;
+  private final MapRepository mapRepository;
+  /** Names handed out to transactions that haven't completed yet, guarded by {@code this}. */
+  private final Set<String> reservedNames = new HashSet<>();
+  /** Latest version by archive name, guarded by {@code this} and {@code null} until first used. */
+  private Map<String, Integer> latestVersions;
+
+  public MapArchiveNameRegistry(FafApiProperties fafApiProperties, MapRepository mapRepository) {
+    this.fafApiProperties = fafApiProperties;
+    this.mapRepository = mapRepository;
+  }
+
+  /**
+   * @return {@code archiveFileName} if it hasn't been used yet, otherwise its next version
+   */
+  public synchronized String reserve(String archiveFileName) throws IOException {
+    int version = getLatestVersions().merge(archiveFileName, 1, Integer::sum);
+    String versionedArchiveName = toVersionedName(archiveFileName, version);
+    if (TransactionSynchronizationManager.isSynchronizationActive()) {
+      reservedNames.add(versionedArchiveName);
+      TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronizationAdapter() {
+        @Override
+        public void afterCompletion(int status) {
+          synchronized (MapArchiveNameRegistry.this) {
+            reservedNames.remove(versionedArchiveName);
+            if (status == STATUS_ROLLED_BACK) {
+              release(versionedArchiveName);
+            }
+          }
+        }
+      });
+    }
+    return versionedArchiveName;
+  }
+
+  /**
+   * @return whether the name has been handed out to a transaction that hasn't completed yet, so its archive may exist
+   * before the map versions referring to it have been committed
+   */
+  public synchronized boolean isReserved(String versionedArchiveName) {
+    return reservedNames.contains(versionedArchiveName);
+  }
+
+  /**
+   * Gives back a reserved name that hasn't been used after all. Only the latest version can be given back, earlier
+   * ones are left as gaps.
+   */
+  public synchronized void release(String versionedArchiveName) {
+    if (latestVersions == null) {
+      return;
+    }
+    VersionedName name = parse(versionedArchiveName);
+    latestVersions.computeIfPresent(name.getArchiveFileName(), (archiveFileName, latestVersion) -> {
+      if (latestVersion != name.getVersion()) {
+        return latestVersion;
+      }
+      return latestVersion > 1 ? latestVersion - 1 : null;
+    });
+  }
+
+  private Map<String, Integer> getLatestVersions() throws IOException {
+    if (latestVersions == null) {
+      latestVersions = load();
+    }
+    return latestVersions;
+  }
+
+  private Map<String, Integer> load() throws IOException {
+    Map<String, Integer> versions = new HashMap<>();
+
+    Path targetDirectory = fafApiProperties.getMap().getTargetDirectory();
+    if (Files.isDirectory(targetDirectory)) {
+      try (DirectoryStream<Path> archives = Files.newDirectoryStream(targetDirectory,
+        path -> !path.getFileName().toString().startsWith("."))) {
+        archives.forEach(archive -> register(versions, archive.getFileName().toString()));
+      }
+    }
+    mapRepository.findArchiveNames().forEach(archiveName -> register(versions, archiveName));
+
+    log.debug("Loaded {} map archive names", versions.size());
+    return versions;
+  }
+
+  /**
+   * Names that look like versions are taken as they are as well, since they may have been uploaded under that name.
+   */
+  private static void register(Map<String, Integer> versions, String versionedArchiveName) {
+    versions.merge(versionedArchiveName, 1, Math::max);
+    VersionedName name = parse(versionedArchiveName);
+    versions.merge(name.getArchiveFileName(), name.getVersion(), Math::max);
+  }
+
+  /**
+   * Only names this registry could have handed out are versions, not for instance {@code map.v0001.ufo},
+   * {@code map.v02020.ufo} or {@code map.v99999999999.ufo}.
+   */
+  private static VersionedName parse(String versionedArchiveName) {
+    Matcher matcher = VERSIONED_NAME_PATTERN.matcher(versionedArchiveName);
+    if (matcher.matches()) {
+      String archiveFileName = matcher.group(1) + "." + matcher.group(3);
+      int version = Integer.parseInt(matcher.group(2));
+      if (version > 1 && toVersionedName(archiveFileName, version).equals(versionedArchiveName)) {
+        return new VersionedName(archiveFileName, version);
+      }
+    }
+    return new VersionedName(versionedArchiveName, 1);
+  }
+
+  private static String toVersionedName(String archiveFileName, int version) {
+    if (version == 1) {
+      return archiveFileName;
+    }
+    return String.format("%s.v%04d.%s", FilenameUtils.getBaseName(archiveFileName), version,
+      FilenameUtils.getExtension(archiveFileName));
+  }
+
+  @Value
+  private static class VersionedName {
+    String archiveFileName;
+    int version;
+  }
+}
@@ -0,0 +1,196 @@
+package com.faforever.api.map;
+
+import com.faforever.api.config.FafApiProperties;
+import com.faforever.api.utils.FilePermissionUtil;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PostConstruct;
+import java.io.IOException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.FileAlreadyExistsException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.Set;
+
+/**
+ * Content addressed store of map archives. Each distinct archive is stored once, as a blob named after its SHA-256
+ * hash below a hidden directory of the map target directory. The archive names in the target directory, including
+ * the versioned ones, are hard links to these blobs, so the number of names linking to a blob is its reference count.
+ * Blobs whose names have all been deleted are removed by {@link #removeUnlinkedArchives()}.
+ *
+ * <p>The names linking to each blob are indexed in memory, so looking up whether an archive is stored already doesn't
+ * touch the file system. The index is built on first use and rebuilt on every cleanup, which also picks up names that
+ * have been deleted in the meantime. Archives stored before this store existed aren't indexed.</p>
+ *
+ * <p>Since names only count as references if they are hard links, the application fails to start if the target
+ * directory doesn't support hard links to the blobs.</p>
+ */
+@Component
+@Slf4j
+public class MapArchiveStore {
+
+  static final String BLOB_DIRECTORY = ".blobs";
+
+  private final FafApiProperties fafApiProperties;
+  /** Guarded by {@code this}, {@code null} until first used. */
+  private Map<String, Set<String>> archiveNamesByHash;
+
+  public MapArchiveStore(FafApiProperties fafApiProperties) {
+    this.fafApiProperties = fafApiProperties;
+  }
+
+  @PostConstruct
+  public void verifyHardLinkSupport() throws IOException {
+    Path targetDirectory = fafApiProperties.getMap().getTargetDirectory();
+    Path blobDirectory = targetDirectory.resolve(BLOB_DIRECTORY);
+    Files.createDirectories(blobDirectory, FilePermissionUtil.directoryPermissionFileAttributes());
+
+    Path blob = Files.createTempFile(blobDirectory, ".link-check", null);
+    // Hidden, so that neither the index nor the downloads ever see it
+    Path link = targetDirectory.resolve(blob.getFileName());
+    try {
+      Files.createLink(link, blob);
+    } catch (UnsupportedOperationException | IOException e) {
+      throw new IllegalStateException("Map archives can't be hard linked from '" + blobDirectory + "' to '" + targetDirectory + "'", e);
+    } finally {
+      Files.deleteIfExists(link);
+      Files.deleteIfExists(blob);
+    }
+  }
+
+  /**
+   * @return the names under which the archive with the given hash is stored, empty if it isn't stored
+   */
+  public synchronized Set<String> getArchiveNames(String sha256) throws IOException {
+    return Set.copyOf(getIndex().getOrDefault(sha256, Set.of()));
+  }
+
+  /**
+   * Stores the archive under the given name in the target directory. If the same archive is stored already, only the
+   * name is linked to it. Otherwise, the staged archive is linked into the store as well. Either way, the staged archive
+   * is left to the caller.
+   *
+   * @throws java.nio.file.FileAlreadyExistsException if a file of the given name exists already
+   */
+  public synchronized void add(Path stagedArchive, String sha256, String archiveName) throws IOException {
+    Map<String, Set<String>> index = getIndex();
+    Path targetDirectory = fafApiProperties.getMap().getTargetDirectory();
+
+    Path blob = getBlobPath(sha256);
+    if (Files.exists(blob)) {
+      log.debug("Archive '{}' is stored already, linking it as '{}'", sha256, archiveName);
+    } else {
+      Files.createDirectories(blob.getParent(), FilePermissionUtil.directoryPermissionFileAttributes());
+      // TODO if possible, this should be done using umask instead
+      FilePermissionUtil.setDefaultFilePermission(stagedArchive);
+      try {
+        // Unlike an atomic move, which silently replaces an existing file, linking fails if the blob exists already
+        Files.createLink(blob, stagedArchive);
+      } catch (FileAlreadyExistsException e) {
+        log.debug("Archive '{}' has been stored by another process in the meantime", sha256);
+      }
+    }
+
+    Files.createLink(targetDirectory.resolve(archiveName), blob);
+    index.computeIfAbsent(sha256, hash -> new HashSet<>()).add(archiveName);
+  }
+
+  /**
+   * Removes the name of a stored archive, for instance if the upload storing it failed. The archive itself is removed by
+   * the next cleanup if no other name links to it.
+   */
+  public synchronized void remove(String sha256, String archiveName) throws IOException {
+    Files.deleteIfExists(fafApiProperties.getMap().getTargetDirectory().resolve(archiveName));
+    Set<String> archiveNames = getIndex().get(sha256);
+    if (archiveNames != null) {
+      archiveNames.remove(archiveName);
+    }
+  }
+
+  @Scheduled(fixedDelayString = "${faf-api.map.archive-cleanup-interval:PT1H}")
+  public synchronized void removeUnlinkedArchives() {
+    try {
+      archiveNamesByHash = readIndex();
+      Iterator<Entry<String, Set<String>>> iterator = archiveNamesByHash.entrySet().iterator();
+      while (iterator.hasNext()) {
+        Entry<String, Set<String>> entry = iterator.next();
+        if (entry.getValue().isEmpty()) {
+          log.debug("Removing archive '{}' which is no longer linked", entry.getKey());
+          Files.deleteIfExists(getBlobPath(entry.getKey()));
+          iterator.remove();
+        }
+      }
+    } catch (IOException e) {
+      log.warn("Could not remove unlinked map archives", e);
+    }
+  }
+
+  private Map<String, Set<String>> getIndex() throws IOException {
+    if (archiveNamesByHash == null) {
+      archiveNamesByHash = readIndex();
+    }
+    return archiveNamesByHash;
+  }
+
+  /**
+   * Matches the names in the target directory to the blobs by their file keys (device and inode). Blobs whose file key
+   * isn't known are left out, so they are never considered unlinked.
+   */
+  private Map<String, Set<String>> readIndex() throws IOException {
+    Path targetDirectory = fafApiProperties.getMap().getTargetDirectory();
+    Path blobDirectory = targetDirectory.resolve(BLOB_DIRECTORY);
+
+    Map<Object, String> hashesByFileKey = new HashMap<>();
+    if (Files.isDirectory(blobDirectory)) {
+      try (DirectoryStream<Path> prefixDirectories = Files.newDirectoryStream(blobDirectory, Files::isDirectory)) {
+        for (Path prefixDirectory : prefixDirectories) {
+          try (DirectoryStream<Path> blobs = Files.newDirectoryStream(prefixDirectory, Files::isRegularFile)) {
+            for (Path blob : blobs) {
+              Object fileKey = getFileKey(blob);
+              if (fileKey != null) {
+                hashesByFileKey.put(fileKey, blob.getFileName().toString());
+              }
+            }
+          }
+        }
+      }
+    }
+
+    Map<String, Set<String>> index = new HashMap<>();
+    hashesByFileKey.values().forEach(hash -> index.put(hash, new HashSet<>()));
+    if (hashesByFileKey.isEmpty()) {
+      return index;
+    }
+
+    // Hidden files are staging files and the blob directory itself
+    try (DirectoryStream<Path> archives = Files.newDirectoryStream(targetDirectory,
+      path -> !path.getFileName().toString().startsWith(".") && Files.isRegularFile(path))) {
+      for (Path archive : archives) {
+        String hash = hashesByFileKey.get(getFileKey(archive));
+        if (hash != null) {
+          index.get(hash).add(archive.getFileName().toString());
+        }
+      }
+    }
+    return index;
+  }
+
+  private Path getBlobPath(String sha256) {
+    return fafApiProperties.getMap().getTargetDirectory()
+      .resolve(BLOB_DIRECTORY)
+      .resolve(sha256.substring(0, 2))
+      .resolve(sha256);
+  }
+
+  private static Object getFileKey(Path path) throws IOException {
+    return Files.readAttributes(path, BasicFileAttributes.class).fileKey();
+  }
+}
@@ -0,0 +1,55 @@
+package com.faforever.api.map;
+
+import com.faforever.api.error.Error;
+import com.faforever.api.error.ErrorCode;
+import com.faforever.api.error.NotFoundApiException;
+import com.faforever.api.security.OAuthScope;
+import io.swagger.annotations.ApiOperation;
+import io.swagger.annotations.ApiResponse;
+import io.swagger.annotations.ApiResponses;
+import org.springframework.security.access.prepost.PreAuthorize;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestMethod;
+import org.springframework.web.bind.annotation.RestController;
+
+import static com.faforever.api.data.domain.GroupPermission.ROLE_ADMIN_MAP;
+import static org.springframework.http.MediaType.APPLICATION_JSON_VALUE;
+
+@RestController
+@RequestMapping(path = "/maps/import")
+public class MapImportController {
+
+  private final MapImportService mapImportService;
+
+  public MapImportController(MapImportService mapImportService) {
+    this.mapImportService = mapImportService;
+  }
+
+  @ApiOperation("Import the maps of all archives in the map directory that haven't been imported yet")
+  @ApiResponses(value = {
+    @ApiResponse(code = 200, message = "The import has been started"),
+    @ApiResponse(code = 422, message = "An import is running already")})
+  @RequestMapping(method = RequestMethod.POST, produces = APPLICATION_JSON_VALUE)
+  @PreAuthorize("#oauth2.hasScope('" + OAuthScope._ADMINISTRATIVE_ACTION + "') and hasAnyRole('" + ROLE_ADMIN_MAP + "', 'ROLE_ADMINISTRATOR')")
+  public MapImportProgress startImport() {
+    return mapImportService.start();
+  }
+
+  @ApiOperation("Progress of the running or last map import")
+  @ApiResponses(value = {
+    @ApiResponse(code = 200, message = "Success"),
+    @ApiResponse(code = 404, message = "There hasn't been an import since the API started")})
+  @RequestMapping(method = RequestMethod.GET, produces = APPLICATION_JSON_VALUE)
+  @PreAuthorize("#oauth2.hasScope('" + OAuthScope._ADMINISTRATIVE_ACTION + "') and hasAnyRole('" + ROLE_ADMIN_MAP + "', 'ROLE_ADMINISTRATOR')")
+  public MapImportProgress getImportProgress() {
+    return mapImportService.getProgress()
+      .orElseThrow(() -> new NotFoundApiException(new Error(ErrorCode.ENTITY_NOT_FOUND, "import")));
+  }
+
+  @ApiOperation("Stop the running map import once the current batch has been committed, it can be resumed by starting it again")
+  @RequestMapping(method = RequestMethod.DELETE)
+  @PreAuthorize("#oauth2.hasScope('" + OAuthScope._ADMINISTRATIVE_ACTION + "') and hasAnyRole('" + ROLE_ADMIN_MAP + "', 'ROLE_ADMINISTRATOR')")
+  public void cancelImport() {
+    mapImportService.cancel();
+  }
+}
@@ -0,0 +1,31 @@
+package com.faforever.api.map;
+
+import lombok.Value;
+import org.jetbrains.annotations.Nullable;
+
+import java.time.Instant;
+import java.util.List;
+
+/**
+ * A snapshot of the progress of a {@link MapImportService map import}.
+ */
+@Value
+public class MapImportProgress {
+  State state;
+  Instant startedAt;
+  @Nullable
+  Instant finishedAt;
+  /** The number of archives that haven't been imported before, known once the target directory has been scanned. */
+  int archiveCount;
+  int processedArchiveCount;
+  int failedArchiveCount;
+  /** The number of map versions that have been committed. */
+  int importedMapCount;
+  double archivesPerSecond;
+  /** The first failures, each prefixed by the name of its archive. */
+  List<String> failures;
+
+  public enum State {
+    RUNNING, COMPLETED, CANCELLED, FAILED
+  }
+}
@@ -0,0 +1,327 @@
+package com.faforever.api.map;
+
+import com.faforever.api.config.FafApiProperties;
+import com.faforever.api.error.ApiException;
+import com.faforever.api.error.ErrorCode;
+import com.faforever.api.map.MapImportProgress.State;
+import com.faforever.api.map.hpi.HpiArchive;
+import com.faforever.api.map.hpi.TaMapInfo;
+import com.faforever.api.map.hpi.TaMapReader;
+import com.google.common.annotations.VisibleForTesting;
+import com.google.common.collect.Lists;
+import com.google.common.hash.Hashing;
+import com.google.common.io.MoreFiles;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.commons.io.FilenameUtils;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+import org.springframework.stereotype.Service;
+
+import javax.annotation.PreDestroy;
+import javax.inject.Inject;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * Imports the maps of all archives in the map target directory that no map version refers to yet, for instance after
+ * copying a legacy map pack there or when the database has lost track of archives. Archives are read in parallel on a
+ * fork-join pool, and their maps are written by {@link MapService#importMaps} in one transaction per batch of
+ * archives. The next batch is read while the previous one is written.
+ *
+ * <p>Since archives are only imported once their maps have been committed, an import that has been cancelled or
+ * failed can simply be started again and continues with the remaining archives. Archives that can't be read are
+ * reported and tried again by the next import. Only one import runs at a time.</p>
+ *
+ * <p>Archives are told apart by their content, not by the CRCs of their maps, which can't be computed the way the client
+ * does. An archive with the same content as one imported before, or as a stored archive that map versions refer to, is
+ * reported as a duplicate. Archives being uploaded are left out, since their maps haven't been committed yet.</p>
+ */
+@Service
+@Slf4j
+public class MapImportService {
+
+  private static final Set<String> ARCHIVE_EXTENSIONS = Set.of("ccx", "gp3", "hpi", "ufo");
+  private static final int MAX_REPORTED_FAILURES = 100;
+
+  private final FafApiProperties fafApiProperties;
+  private final MapRepository mapRepository;
+  private final MapService mapService;
+  private final MapArchiveNameRegistry mapArchiveNameRegistry;
+  private final MapArchiveStore mapArchiveStore;
+  private final Clock clock;
+  private final ThreadPoolTaskExecutor executor;
+  /** The running or last import, guarded by {@code this}. */
+  private Job job;
+
+  @Inject
+  public MapImportService(FafApiProperties fafApiProperties, MapRepository mapRepository, MapService mapService,
+                          MapArchiveNameRegistry mapArchiveNameRegistry, MapArchiveStore mapArchiveStore) {
+    this(fafApiProperties, mapRepository, mapService, mapArchiveNameRegistry, mapArchiveStore, Clock.systemUTC());
+  }
+
+  @VisibleForTesting
+  MapImportService(FafApiProperties fafApiProperties, MapRepository mapRepository, MapService mapService,
+                   MapArchiveNameRegistry mapArchiveNameRegistry, MapArchiveStore mapArchiveStore, Clock clock) {
+    this.fafApiProperties = fafApiProperties;
+    this.mapRepository = mapRepository;
+    this.mapService = mapService;
+    this.mapArchiveNameRegistry = mapArchiveNameRegistry;
+    this.mapArchiveStore = mapArchiveStore;
+    this.clock = clock;
+
+    executor = new ThreadPoolTaskExecutor();
+    executor.setCorePoolSize(1);
+    executor.setMaxPoolSize(1);
+    executor.setThreadNamePrefix("MapImport-");
+    executor.initialize();
+  }
+
+  /**
+   * Starts an import in the background.
+   *
+   * @throws ApiException with {@link ErrorCode#MAP_IMPORT_RUNNING} if an import is running already
+   */
+  public synchronized MapImportProgress start() {
+    if (job != null && job.state == State.RUNNING) {
+      throw ApiException.of(ErrorCode.MAP_IMPORT_RUNNING, job.processedArchiveCount.get(), job.archiveCount);
+    }
+    Job newJob = new Job(clock.instant());
+    job = newJob;
+    executor.execute(() -> run(newJob));
+    return newJob.toProgress(clock.instant());
+  }
+
+  /**
+   * @return the progress of the running or last import, empty if there hasn't been one since startup
+   */
+  public synchronized Optional<MapImportProgress> getProgress() {
+    return Optional.ofNullable(job).map(lastJob -> lastJob.toProgress(clock.instant()));
+  }
+
+  /**
+   * Stops the running import once the batch being written has been committed.
+   */
+  public synchronized void cancel() {
+    if (job != null) {
+      job.cancelled = true;
+    }
+  }
+
+  @PreDestroy
+  public void shutdown() {
+    cancel();
+    executor.shutdown();
+  }
+
+  void run(Job job) {
+    ForkJoinPool pool = new ForkJoinPool(fafApiProperties.getMap().getImportThreads());
+    try {
+      List<Path> archives = findArchivesToImport(job);
+      job.archiveCount = archives.size();
+      log.info("Importing maps of {} archives", archives.size());
+
+      List<List<Path>> batches = Lists.partition(archives, fafApiProperties.getMap().getImportBatchSize());
+      CompletableFuture<List<ImportedMap>> nextBatch = batches.isEmpty() ? null : read(batches.get(0), job, pool);
+      for (int i = 0; i < batches.size() && !job.cancelled; i++) {
+        List<ImportedMap> batch = nextBatch.join();
+        nextBatch = i + 1 < batches.size() ? read(batches.get(i + 1), job, pool) : null;
+        write(removeDuplicates(batch, job), job);
+      }
+
+      job.finish(job.cancelled ? State.CANCELLED : State.COMPLETED, clock.instant());
+      log.info("Map import {}: {}", job.state, job.toProgress(clock.instant()));
+    } catch (IOException | RuntimeException e) {
+      log.warn("Map import failed", e);
+      job.report("Import failed: " + e.getMessage());
+      job.finish(State.FAILED, clock.instant());
+    } finally {
+      pool.shutdownNow();
+    }
+  }
+
+  /**
+   * The names of the map versions are loaded after the archives being uploaded have been left out, so that an upload
+   * committed in the meantime is left out as well.
+   *
+   * @return the archives in the map target directory that no map version refers to, in the order of their names
+   */
+  private List<Path> findArchivesToImport(Job job) throws IOException {
+    List<Path> archives;
+    try (Stream<Path> files = Files.list(fafApiProperties.getMap().getTargetDirectory())) {
+      archives = files
+        .filter(file -> {
+          String name = file.getFileName().toString();
+          return !name.startsWith(".")
+            && ARCHIVE_EXTENSIONS.contains(FilenameUtils.getExtension(name).toLowerCase(Locale.ROOT))
+            && !mapArchiveNameRegistry.isReserved(name);
+        })
+        .filter(Files::isRegularFile)
+        .sorted()
+        .collect(Collectors.toList());
+    }
+    job.referencedArchiveNames = new HashSet<>(mapRepository.findArchiveNames());
+    return archives.stream()
+      .filter(archive -> !job.referencedArchiveNames.contains(archive.getFileName().toString()))
+      .collect(Collectors.toList());
+  }
+
+  private CompletableFuture<List<ImportedMap>> read(List<Path> archives, Job job, ForkJoinPool pool) {
+    // A parallel stream run by a task of the pool is processed by that pool
+    return CompletableFuture.supplyAsync(() -> archives.parallelStream()
+      .flatMap(archive -> read(archive, job).stream())
+      .collect(Collectors.toList()), pool);
+  }
+
+  private List<ImportedMap> read(Path archive, Job job) {
+    String archiveName = archive.getFileName().toString();
+    try {
+      String sha256 = MoreFiles.asByteSource(archive).hash(Hashing.sha256()).toString();
+      List<ImportedMap> maps = new ArrayList<>();
+      for (TaMapInfo mapInfo : TaMapReader.readMaps(HpiArchive.open(archive))) {
+        maps.add(new ImportedMap(archiveName, sha256, mapInfo));
+      }
+      if (maps.isEmpty()) {
+        job.fail(archiveName, "contains no maps");
+      }
+      return maps;
+    } catch (IOException | RuntimeException e) {
+      log.debug("Could not read map archive '{}'", archiveName, e);
+      job.fail(archiveName, e.getMessage());
+      return List.of();
+    } finally {
+      job.processedArchiveCount.incrementAndGet();
+    }
+  }
+
+  /**
+   * Leaves out the maps of archives with the same content as an archive imported before. Archives stored before the
+   * {@link MapArchiveStore} existed aren't known by their content, though.
+   */
+  private List<ImportedMap> removeDuplicates(List<ImportedMap> batch, Job job) throws IOException {
+    Map<String, String> archiveNamesByHash = new HashMap<>();
+    Set<String> duplicateArchiveNames = new HashSet<>();
+    List<ImportedMap> maps = new ArrayList<>();
+    for (ImportedMap map : batch) {
+      String sha256 = map.getArchiveSha256();
+      String originalArchiveName = archiveNamesByHash.get(sha256);
+      if (originalArchiveName == null) {
+        originalArchiveName = findImportedArchive(sha256, job).orElse(map.getArchiveName());
+        archiveNamesByHash.put(sha256, originalArchiveName);
+      }
+
+      if (originalArchiveName.equals(map.getArchiveName())) {
+        maps.add(map);
+      } else if (duplicateArchiveNames.add(map.getArchiveName())) {
+        job.fail(map.getArchiveName(), "has the same content as " + originalArchiveName);
+      }
+    }
+    return maps;
+  }
+
+  private Optional<String> findImportedArchive(String sha256, Job job) throws IOException {
+    String archiveName = job.importedArchiveNamesByHash.get(sha256);
+    if (archiveName != null) {
+      return Optional.of(archiveName);
+    }
+    return mapArchiveStore.getArchiveNames(sha256).stream()
+      .filter(job.referencedArchiveNames::contains)
+      .sorted()
+      .findFirst();
+  }
+
+  /**
+   * If the batch can't be written, its archives are written one by one, so that a single archive can't hold up the
+   * others.
+   */
+  private void write(List<ImportedMap> batch, Job job) {
+    if (batch.isEmpty()) {
+      return;
+    }
+    try {
+      job.importedMapCount.addAndGet(mapService.importMaps(batch));
+      batch.forEach(job::imported);
+    } catch (RuntimeException e) {
+      log.debug("Could not import batch of {} maps, importing archive by archive", batch.size(), e);
+      batch.stream()
+        .collect(Collectors.groupingBy(ImportedMap::getArchiveName))
+        .forEach((archiveName, maps) -> {
+          try {
+            job.importedMapCount.addAndGet(mapService.importMaps(maps));
+            maps.forEach(job::imported);
+          } catch (RuntimeException archiveException) {
+            log.warn("Could not import maps of archive '{}'", archiveName, archiveException);
+            job.fail(archiveName, archiveException.getMessage());
+          }
+        });
+    }
+  }
+
+  static class Job {
+    private final Instant startedAt;
+    private final AtomicInteger processedArchiveCount = new AtomicInteger();
+    private final AtomicInteger failedArchiveCount = new AtomicInteger();
+    private final AtomicInteger importedMapCount = new AtomicInteger();
+    private final List<String> failures = new ArrayList<>();
+    /** Only used by the thread running the import, like {@link #referencedArchiveNames}. */
+    private final Map<String, String> importedArchiveNamesByHash = new HashMap<>();
+    private Set<String> referencedArchiveNames = Set.of();
+    private volatile int archiveCount;
+    private volatile boolean cancelled;
+    private volatile State state = State.RUNNING;
+    private volatile Instant finishedAt;
+
+    Job(Instant startedAt) {
+      this.startedAt = startedAt;
+    }
+
+    void imported(ImportedMap map) {
+      importedArchiveNamesByHash.putIfAbsent(map.getArchiveSha256(), map.getArchiveName());
+    }
+
+    void fail(String archiveName, String reason) {
+      failedArchiveCount.incrementAndGet();
+      report(archiveName + ": " + reason);
+    }
+
+    void report(String failure) {
+      synchronized (failures) {
+        if (failures.size() < MAX_REPORTED_FAILURES) {
+          failures.add(failure);
+        }
+      }
+    }
+
+    void finish(State state, Instant finishedAt) {
+      this.finishedAt = finishedAt;
+      this.state = state;
+    }
+
+    MapImportProgress toProgress(Instant now) {
+      Instant end = finishedAt != null ? finishedAt : now;
+      long elapsedMillis = Math.max(1, Duration.between(startedAt, end).toMillis());
+      int processed = processedArchiveCount.get();
+      List<String> reportedFailures;
+      synchronized (failures) {
+        reportedFailures = List.copyOf(failures);
+      }
+      return new MapImportProgress(state, startedAt, finishedAt, archiveCount, processed, failedArchiveCount.get(),
+        importedMapCount.get(), processed * 1000.0 / elapsedMillis, reportedFailures);
+    }
+  }
+}
@@ -1,13 +1,19 @@
 package com.faforever.api.map;
 
-import com.faforever.commons.lua.LuaAccessor;
 import org.luaj.vm2.LuaValue;
 
 import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
 import java.nio.file.Path;
 import java.util.Optional;
 import java.util.OptionalInt;
+import java.util.regex.Pattern;
 
+/**
+ * Reads the {@code ScenarioInfo} table of a scenario file. Scenario files are evaluated by a shared
+ * {@link ScenarioLuaEvaluator}. Instances are read-only, so they may be shared between threads.
+ */
 public class MapLuaAccessor {
   private static final String ROOT_ELEMENT = "ScenarioInfo";
   private static final String CONFIGURATIONS = "Configurations";
@@ -23,66 +29,73 @@ public class MapLuaAccessor {
   private static final String CONFIGURATION_STANDARD_TEAMS_ARMIES = "armies";
   private static final String ADAPTIVE_MAP = "AdaptiveMap";
 
-  private final LuaAccessor luaAccessor;
+  private static final ScenarioLuaEvaluator EVALUATOR = new ScenarioLuaEvaluator(Runtime.getRuntime().availableProcessors());
 
-  private MapLuaAccessor(LuaAccessor luaAccessor) {
-    this.luaAccessor = luaAccessor;
+  private final LuaValue scenarioInfo;
+
+  private MapLuaAccessor(LuaValue scenarioInfo) {
+    this.scenarioInfo = scenarioInfo;
   }
 
   public static MapLuaAccessor of(Path scenarioLuaPath) throws IOException {
-    return new MapLuaAccessor(LuaAccessor.of(scenarioLuaPath, ROOT_ELEMENT));
+    return of(new String(Files.readAllBytes(scenarioLuaPath), StandardCharsets.UTF_8));
   }
 
   public static MapLuaAccessor of(String scenarioLuaCode) throws IOException {
-    return new MapLuaAccessor(LuaAccessor.of(scenarioLuaCode, ROOT_ELEMENT));
+    return new MapLuaAccessor(EVALUATOR.evaluate(scenarioLuaCode, ROOT_ELEMENT));
   }
 
   public Optional<String> getName() {
-    return luaAccessor.readVariableString(NAME);
+    return readVariableString(NAME);
   }
 
   public Optional<String> getDescription() {
-    return luaAccessor.readVariableString(DESCRIPTION);
+    return readVariableString(DESCRIPTION);
   }
 
   public Optional<String> getType() {
-    return luaAccessor.readVariableString(TYPE);
+    return readVariableString(TYPE);
   }
 
   public Optional<LuaValue> getSize() {
-    return luaAccessor.readVariable(SIZE);
+    return readVariable(SIZE);
   }
 
   public OptionalInt getMapVersion() {
-    return luaAccessor.readVariableInt(MAP_VERSION);
+    return readVariableInt(MAP_VERSION);
   }
 
   public OptionalInt getNoRushRadius() {
-    return luaAccessor.readVariableInt(NO_RUSH_RADIUS);
+    return readVariableInt(NO_RUSH_RADIUS);
   }
 
   public Optional<Boolean> isAdaptive() {
-    return luaAccessor.readVariableBool(ADAPTIVE_MAP);
+    return readVariable(ADAPTIVE_MAP).filter(LuaValue::isboolean).map(LuaValue::toboolean);
   }
 
   public boolean hasVariableMatchingIgnoreCase(String regex, String... names) {
-    return luaAccessor.hasVariableMatchingIgnoreCase(regex, names);
+    Pattern pattern = Pattern.compile(regex, Pattern.CASE_INSENSITIVE);
+    return readVariableString(names)
+      .map(value -> pattern.matcher(value).matches())
+      .orElse(false);
   }
 
   public Optional<LuaValue> getFirstTeam() {
-    Optional<LuaValue> configurationStandardTeamsOptional = luaAccessor.readVariable(
+    Optional<LuaValue> configurationStandardTeamsOptional = readVariable(
       CONFIGURATIONS, CONFIGURATION_STANDARD, CONFIGURATION_STANDARD_TEAMS);
 
     return configurationStandardTeamsOptional
-      .map(teams -> teams.get(1));
+      .filter(LuaValue::istable)
+      .map(teams -> teams.rawget(1))
+      .filter(firstTeam -> !firstTeam.isnil());
   }
 
   public boolean hasInvalidTeam() {
     return getFirstTeam()
       .map(firstTeam ->
-        !LuaAccessor.isValue(firstTeam, CONFIGURATION_STANDARD_TEAMS_NAME) ||
-          !LuaAccessor.isValue(firstTeam, CONFIGURATION_STANDARD_TEAMS_ARMIES) ||
-          !firstTeam.get(CONFIGURATION_STANDARD_TEAMS_NAME).tojstring().equals("FFA"))
+        !isValue(firstTeam, CONFIGURATION_STANDARD_TEAMS_NAME) ||
+          !isValue(firstTeam, CONFIGURATION_STANDARD_TEAMS_ARMIES) ||
+          !firstTeam.rawget(CONFIGURATION_STANDARD_TEAMS_NAME).tojstring().equals("FFA"))
       .orElse(true);
   }
 
@@ -113,4 +126,30 @@ public class MapLuaAccessor {
   public boolean isAdaptive$() {
     return isAdaptive().get();
   }
+
+  private static boolean isValue(LuaValue table, String name) {
+    return table.istable() && !table.rawget(name).isnil();
+  }
+
+  private Optional<LuaValue> readVariable(String... names) {
+    LuaValue value = scenarioInfo;
+    for (String name : names) {
+      if (!value.istable()) {
+        return Optional.empty();
+      }
+      value = value.rawget(name);
+    }
+    return value.isnil() ? Optional.empty() : Optional.of(value);
+  }
+
+  private Optional<String> readVariableString(String... names) {
+    return readVariable(names).filter(LuaValue::isstring).map(LuaValue::tojstring);
+  }
+
+  private OptionalInt readVariableInt(String... names) {
+    return readVariable(names)
+      .filter(LuaValue::isnumber)
+      .map(value -> OptionalInt.of(value.toint()))
+      .orElse(OptionalInt.empty());
+  }
 }
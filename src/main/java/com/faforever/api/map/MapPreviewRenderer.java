@@ -0,0 +1,216 @@
+package com.faforever.api.map;
+
+import com.faforever.api.config.FafApiProperties;
+import com.faforever.api.utils.FilePermissionUtil;
+import lombok.extern.slf4j.Slf4j;
+import org.jetbrains.annotations.Nullable;
+import org.springframework.core.task.TaskRejectedException;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronizationAdapter;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import javax.annotation.PreDestroy;
+import javax.imageio.ImageIO;
+import javax.imageio.ImageReader;
+import javax.imageio.stream.ImageInputStream;
+import java.awt.Graphics2D;
+import java.awt.RenderingHints;
+import java.awt.image.BufferedImage;
+import java.io.IOException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+
+/**
+ * Renders the uploaded map previews at the {@linkplain MapPreviewSize sizes} used by clients, so that they don't need
+ * to download the full preview for a list entry. Previews are rendered in the background, on a bounded number of
+ * threads, once the upload has been committed. Each size is written to its own directory next to the directory of the
+ * uploaded previews, using the same file name. Previews whose scaled versions are missing are rendered by a periodic
+ * backfill.
+ */
+@Component
+@Slf4j
+public class MapPreviewRenderer {
+
+  private static final String FORMAT = "png";
+
+  private final FafApiProperties fafApiProperties;
+  private final ThreadPoolTaskExecutor executor;
+
+  public MapPreviewRenderer(FafApiProperties fafApiProperties) {
+    this.fafApiProperties = fafApiProperties;
+
+    executor = new ThreadPoolTaskExecutor();
+    executor.setCorePoolSize(fafApiProperties.getMap().getPreviewRenderThreads());
+    executor.setMaxPoolSize(fafApiProperties.getMap().getPreviewRenderThreads());
+    executor.setQueueCapacity(fafApiProperties.getMap().getPreviewRenderQueueCapacity());
+    executor.setThreadNamePrefix("MapPreview-");
+    executor.initialize();
+  }
+
+  /**
+   * Renders the previews once the current transaction has been committed, or right away if there is none.
+   *
+   * @param previewFileNames the file names of previews in the directory of uploaded previews
+   */
+  public void renderAfterCommit(Collection<String> previewFileNames) {
+    List<String> fileNames = List.copyOf(previewFileNames);
+    if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+      fileNames.forEach(this::submit);
+      return;
+    }
+    TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronizationAdapter() {
+      @Override
+      public void afterCommit() {
+        fileNames.forEach(MapPreviewRenderer.this::submit);
+      }
+    });
+  }
+
+  @PreDestroy
+  public void shutdown() {
+    executor.shutdown();
+  }
+
+  private void submit(String previewFileName) {
+    try {
+      executor.execute(() -> {
+        try {
+          render(previewFileName);
+        } catch (IOException | RuntimeException e) {
+          log.warn("Could not render scaled previews of '{}'", previewFileName, e);
+        }
+      });
+    } catch (TaskRejectedException e) {
+      log.warn("Too many previews to render, skipping '{}'", previewFileName);
+    }
+  }
+
+  /**
+   * Renders the previews of which a scaled version is missing, one after the other.
+   */
+  @Scheduled(fixedDelayString = "${faf-api.map.preview-backfill-interval:PT6H}")
+  public void renderMissingPreviews() {
+    Path previewDirectory = fafApiProperties.getMap().getDirectoryPreviewPath();
+    if (!Files.isDirectory(previewDirectory)) {
+      return;
+    }
+    List<String> previewFileNames = new ArrayList<>();
+    try (DirectoryStream<Path> previews = Files.newDirectoryStream(previewDirectory, "*." + FORMAT)) {
+      for (Path preview : previews) {
+        String previewFileName = preview.getFileName().toString();
+        if (Arrays.stream(MapPreviewSize.values()).anyMatch(size ->
+          !Files.exists(previewDirectory.resolveSibling(size.getDirectoryName()).resolve(previewFileName)))) {
+          previewFileNames.add(previewFileName);
+        }
+      }
+    } catch (IOException e) {
+      log.warn("Could not list previews in '{}'", previewDirectory, e);
+      return;
+    }
+
+    log.debug("Rendering missing scaled versions of {} previews", previewFileNames.size());
+    for (String previewFileName : previewFileNames) {
+      try {
+        render(previewFileName);
+      } catch (IOException | RuntimeException e) {
+        log.warn("Could not render scaled previews of '{}'", previewFileName, e);
+      }
+    }
+  }
+
+  void render(String previewFileName) throws IOException {
+    Path previewDirectory = fafApiProperties.getMap().getDirectoryPreviewPath();
+    BufferedImage preview = read(previewDirectory.resolve(previewFileName));
+    if (preview == null) {
+      return;
+    }
+
+    for (MapPreviewSize size : MapPreviewSize.values()) {
+      BufferedImage scaled = scale(preview, size.getPixels(fafApiProperties.getMap().getPreviewSize()));
+      Path directory = previewDirectory.resolveSibling(size.getDirectoryName());
+      Files.createDirectories(directory, FilePermissionUtil.directoryPermissionFileAttributes());
+
+      Path stagingFile = Files.createTempFile(directory, ".render-", ".part");
+      try {
+        ImageIO.write(scaled, FORMAT, stagingFile.toFile());
+        // TODO if possible, this should be done using umask instead
+        FilePermissionUtil.setDefaultFilePermission(stagingFile);
+        Files.move(stagingFile, directory.resolve(previewFileName), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+      } finally {
+        Files.deleteIfExists(stagingFile);
+      }
+    }
+    log.debug("Rendered scaled previews of '{}'", previewFileName);
+  }
+
+  /**
+   * Reads the size from the image's header before decoding it, so that images with too many pixels are skipped.
+   *
+   * @return {@code null} if the image isn't readable or too large
+   */
+  @Nullable
+  private BufferedImage read(Path previewFile) throws IOException {
+    try (ImageInputStream inputStream = ImageIO.createImageInputStream(previewFile.toFile())) {
+      Iterator<ImageReader> readers = inputStream == null ? Collections.emptyIterator() : ImageIO.getImageReaders(inputStream);
+      if (!readers.hasNext()) {
+        log.warn("Preview '{}' is not a readable image", previewFile.getFileName());
+        return null;
+      }
+      ImageReader reader = readers.next();
+      try {
+        reader.setInput(inputStream, true, true);
+        long pixels = (long) reader.getWidth(0) * reader.getHeight(0);
+        int maxPixels = fafApiProperties.getMap().getPreviewMaxPixels();
+        if (pixels > maxPixels) {
+          log.warn("Preview '{}' has {} pixels, more than {}", previewFile.getFileName(), pixels, maxPixels);
+          return null;
+        }
+        return reader.read(0);
+      } finally {
+        reader.dispose();
+      }
+    }
+  }
+
+  /**
+   * Scales the image down to fit into a square of the given size, halving it in steps so that bilinear interpolation
+   * doesn't skip pixels. Smaller images are kept as they are.
+   */
+  private static BufferedImage scale(BufferedImage image, int maxSize) {
+    double factor = (double) maxSize / Math.max(image.getWidth(), image.getHeight());
+    if (factor >= 1) {
+      return image;
+    }
+    int targetWidth = Math.max(1, (int) Math.round(image.getWidth() * factor));
+    int targetHeight = Math.max(1, (int) Math.round(image.getHeight() * factor));
+
+    BufferedImage scaled = image;
+    int width = image.getWidth();
+    int height = image.getHeight();
+    do {
+      width = Math.max(targetWidth, width / 2);
+      height = Math.max(targetHeight, height / 2);
+
+      BufferedImage step = new BufferedImage(width, height, BufferedImage.TYPE_INT_ARGB);
+      Graphics2D graphics = step.createGraphics();
+      try {
+        graphics.setRenderingHint(RenderingHints.KEY_INTERPOLATION, RenderingHints.VALUE_INTERPOLATION_BILINEAR);
+        graphics.drawImage(scaled, 0, 0, width, height, null);
+      } finally {
+        graphics.dispose();
+      }
+      scaled = step;
+    } while (width != targetWidth || height != targetHeight);
+    return scaled;
+  }
+}
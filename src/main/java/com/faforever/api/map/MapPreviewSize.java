@@ -0,0 +1,25 @@
+package com.faforever.api.map;
+
+import lombok.Getter;
+import lombok.RequiredArgsConstructor;
+
+/**
+ * The sizes at which map previews are rendered, as fractions of the configured preview size.
+ */
+@Getter
+@RequiredArgsConstructor
+public enum MapPreviewSize {
+  /** For map lists. */
+  SMALL("small", 4),
+  /** For map cards. */
+  MEDIUM("medium", 2),
+  /** For map details. */
+  LARGE("large", 1);
+
+  private final String directoryName;
+  private final int divisor;
+
+  public int getPixels(int previewSize) {
+    return previewSize / divisor;
+  }
+}
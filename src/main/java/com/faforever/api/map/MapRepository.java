@@ -1,13 +1,89 @@
 package com.faforever.api.map;
 
 import com.faforever.api.data.domain.Map;
+import com.faforever.api.search.SearchDocument;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
 
+import java.util.Collection;
+import java.util.List;
 import java.util.Optional;
 
 @Repository
 public interface MapRepository extends JpaRepository<Map, Integer> {
 
+  String SELECT_SEARCH_DOCUMENTS = "SELECT map.id AS id, map.display_name AS name, login.login AS author, version.description AS description " +
+    "FROM map LEFT JOIN login ON login.id = map.author " +
+    "JOIN map_version version ON version.id = (SELECT latest.id FROM map_version latest WHERE latest.map_id = map.id ORDER BY latest.version DESC LIMIT 1) " +
+    "WHERE version.hidden = 0";
+
   Optional<Map> findOneByDisplayName(String displayName);
+
+  /**
+   * Like {@link #findOneByDisplayName(String)}, but only loads the map's author and highest version number.
+   */
+  @Query("SELECT map.id AS id, author.id AS authorId, MAX(version.version) AS latestVersion FROM Map map " +
+    "LEFT JOIN map.author author LEFT JOIN map.versions version " +
+    "WHERE map.displayName = :displayName GROUP BY map.id, author.id")
+  Optional<MapHead> findHeadByDisplayName(@Param("displayName") String displayName);
+
+  /**
+   * @return the archive name and CRC of every version of the map, the first and last part of their file names
+   */
+  @Query(value = "SELECT SUBSTRING_INDEX(filename, '/', 1) AS archiveName, SUBSTRING_INDEX(filename, '/', -1) AS crc " +
+    "FROM map_version WHERE map_id = :mapId", nativeQuery = true)
+  List<MapVersionFileName> findVersionFileNames(@Param("mapId") int mapId);
+
+  /**
+   * @return the ids of all map versions whose file name matches, which is the archive name followed by the map name
+   * and CRC since an archive may contain several maps
+   */
+  @Query(value = "SELECT id FROM map_version WHERE filename LIKE :filenamePattern", nativeQuery = true)
+  List<Integer> findVersionIdsByFilenameLike(@Param("filenamePattern") String filenamePattern);
+
+  /**
+   * @return the names of all archives that map versions are stored in, the first part of their file names
+   */
+  @Query(value = "SELECT DISTINCT SUBSTRING_INDEX(filename, '/', 1) FROM map_version", nativeQuery = true)
+  List<String> findArchiveNames();
+
+  /**
+   * Loads the searchable texts of all maps whose latest version isn't hidden. Not read-only, so that the documents
+   * contain everything committed before, which a lagging replica might not.
+   */
+  @Transactional
+  @Query(value = SELECT_SEARCH_DOCUMENTS, nativeQuery = true)
+  List<SearchDocument> findSearchDocuments();
+
+  /**
+   * Like {@link #findSearchDocuments()}, but only of the given maps. Not read-only, so that maps which have just been
+   * committed are read from the primary instead of a lagging replica.
+   */
+  @Transactional
+  @Query(value = SELECT_SEARCH_DOCUMENTS + " AND map.id IN (:ids)", nativeQuery = true)
+  List<SearchDocument> findSearchDocuments(@Param("ids") Collection<Integer> ids);
+
+  @Transactional
+  @Query("SELECT DISTINCT version.map.id FROM MapVersion version WHERE version.id IN (:versionIds)")
+  List<Integer> findIdsByVersionIds(@Param("versionIds") Collection<Integer> versionIds);
+
+  interface MapHead {
+    int getId();
+
+    Integer getAuthorId();
+
+    /**
+     * @return the highest version number, {@code null} if the map has no versions
+     */
+    Integer getLatestVersion();
+  }
+
+  interface MapVersionFileName {
+    String getArchiveName();
+
+    String getCrc();
+  }
 }
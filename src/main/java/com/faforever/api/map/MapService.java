@@ -1,7 +1,6 @@
 package com.faforever.api.map;
 
 import com.faforever.api.config.FafApiProperties;
-import com.faforever.api.content.ContentService;
 import com.faforever.api.data.domain.BanDurationType;
 import com.faforever.api.data.domain.BanLevel;
 import com.faforever.api.data.domain.Map;
@@ -11,9 +10,14 @@ import com.faforever.api.error.ApiException;
 import com.faforever.api.error.Error;
 import com.faforever.api.error.ErrorCode;
 import com.faforever.api.map.MapNameValidationResponse.FileNames;
+import com.faforever.api.map.MapRepository.MapHead;
+import com.faforever.api.map.MapRepository.MapVersionFileName;
+import com.faforever.api.map.hpi.HpiArchive;
+import com.faforever.api.map.hpi.HpiFormatException;
+import com.faforever.api.map.hpi.TaMapInfo;
+import com.faforever.api.map.hpi.TaMapReader;
 import com.faforever.api.utils.FilePermissionUtil;
 import com.faforever.api.utils.NameUtil;
-import com.faforever.commons.io.Unzipper;
 import com.faforever.commons.io.Zipper;
 import com.google.common.annotations.VisibleForTesting;
 import com.google.common.collect.ImmutableSet;
@@ -22,37 +26,32 @@ import lombok.Getter;
 import lombok.SneakyThrows;
 import lombok.extern.slf4j.Slf4j;
 import org.apache.commons.compress.archivers.ArchiveException;
-import org.apache.commons.io.FilenameUtils;
-import org.springframework.cache.annotation.CacheEvict;
+import org.luaj.vm2.LuaError;
 import org.springframework.data.util.Pair;
 import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronizationAdapter;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
 import org.springframework.util.Assert;
-import org.springframework.util.FileSystemUtils;
 import org.springframework.util.StringUtils;
 import org.springframework.web.client.HttpClientErrorException;
 
 import java.io.IOException;
 import java.io.InputStream;
-import java.net.URLDecoder;
-import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
 import java.nio.file.Path;
-import java.nio.file.Paths;
-import java.nio.file.StandardCopyOption;
 import java.util.ArrayList;
 import java.util.Arrays;
-import java.util.HashMap;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Objects;
 import java.util.Optional;
 import java.util.Set;
+import java.util.TreeMap;
 import java.util.regex.Pattern;
 import java.util.stream.Collectors;
-import java.util.stream.Stream;
 
 import static com.faforever.api.map.MapService.ScenarioMapInfo.FILE_ENDING_MAP;
 import static com.faforever.api.map.MapService.ScenarioMapInfo.FILE_ENDING_SAVE;
@@ -68,14 +67,24 @@ import static java.text.MessageFormat.format;
 public class MapService {
   private static final Pattern MAP_NAME_INVALID_CHARACTER_PATTERN = Pattern.compile("[a-zA-Z0-9\\- ]+");
   private static final Pattern MAP_NAME_DOES_NOT_START_WITH_LETTER_PATTERN = Pattern.compile("^[^a-zA-Z]+");
-  private static final Pattern MAP_SIZE_PATTERN = Pattern.compile("^([0-9]{1,3})[ xX]{1,3}([0-9]{1,3})");
   private static final int MAP_NAME_MINUS_MAX_OCCURENCE = 3;
   private static final int MAP_NAME_MIN_LENGTH = 4;
   private static final int MAP_NAME_MAX_LENGTH = 50;
+  private static final long ZIP_BOMB_BYTE_COUNT_THRESHOLD = 5_000_000;
+  private static final int ZIP_BOMB_PROTECTION_FACTOR = 200;
+  /**
+   * The CRC of imported map versions, see {@link #importMaps}. {@link MapDetailInfo#REGEX_CRC32} rejects it, so that the
+   * CRC of an uploaded version never equals it.
+   */
+  static final String UNKNOWN_CRC = "unknown";
 
   private final FafApiProperties fafApiProperties;
   private final MapRepository mapRepository;
-  private final ContentService contentService;
+  private final MapArchiveStore mapArchiveStore;
+  private final MapArchiveNameRegistry mapArchiveNameRegistry;
+  private final MapPreviewRenderer mapPreviewRenderer;
+  private final MapSummaryCache mapSummaryCache;
+  private final ScenarioInfoCache scenarioInfoCache;
 
   @VisibleForTesting
   private final Set<String> _officialMapArchives = ImmutableSet.of(
@@ -97,12 +106,8 @@ public class MapService {
     validateMapName(mapName);
     MapNameBuilder mapNameBuilder = new MapNameBuilder(mapName);
 
-    int nextVersion = mapRepository.findOneByDisplayName(mapNameBuilder.getDisplayName())
-      .map(map -> map.getVersions().stream()
-        .mapToInt(MapVersion::getVersion)
-        .map(i -> i + 1)
-        .max()
-        .orElse(1))
+    int nextVersion = mapSummaryCache.find(mapNameBuilder.getDisplayName())
+      .map(summary -> summary.getLatestVersion() + 1)
       .orElse(1);
 
     return MapNameValidationResponse.builder()
@@ -120,6 +125,46 @@ public class MapService {
       .build();
   }
 
+  /**
+   * Checks the {@code ScenarioInfo} of a scenario file. Map makers validate the same file over and over while editing,
+   * so it is only evaluated once per content, see {@link ScenarioInfoCache}.
+   */
+  public void validateScenarioLua(String scenarioLua) {
+    MapLuaAccessor mapLua;
+    try {
+      mapLua = scenarioInfoCache.get(scenarioLua);
+    } catch (IOException | LuaError e) {
+      throw ApiException.of(ErrorCode.PARSING_LUA_FILE_FAILED, e.getMessage());
+    }
+
+    List<Error> errors = new ArrayList<>();
+    if (mapLua.getName().isEmpty()) {
+      errors.add(new Error(ErrorCode.MAP_NAME_MISSING));
+    }
+    if (mapLua.getDescription().isEmpty()) {
+      errors.add(new Error(ErrorCode.MAP_DESCRIPTION_MISSING));
+    }
+    if (mapLua.hasInvalidTeam()) {
+      errors.add(new Error(ErrorCode.MAP_FIRST_TEAM_FFA));
+    }
+    if (mapLua.getType().isEmpty()) {
+      errors.add(new Error(ErrorCode.MAP_TYPE_MISSING));
+    }
+    if (mapLua.getSize().isEmpty()) {
+      errors.add(new Error(ErrorCode.MAP_SIZE_MISSING));
+    }
+    if (mapLua.getMapVersion().isEmpty()) {
+      errors.add(new Error(ErrorCode.MAP_VERSION_MISSING));
+    }
+    if (mapLua.getNoRushRadius().isEmpty()) {
+      errors.add(new Error(ErrorCode.NO_RUSH_RADIUS_MISSING));
+    }
+
+    if (!errors.isEmpty()) {
+      throw ApiException.of(errors);
+    }
+  }
+
   @VisibleForTesting
   void validateMapName(String mapName) {
     List<Error> errors = new ArrayList<>();
@@ -149,114 +194,124 @@ public class MapService {
     }
   }
 
-  private String _getNewVersionedArchiveName(String archiveFileName) {
-    String basename = FilenameUtils.getBaseName(archiveFileName);
-    String extension = FilenameUtils.getExtension(archiveFileName);
-    int version = 1;
-
-    Path finalArchiveDestination = fafApiProperties.getMap().getTargetDirectory().resolve(archiveFileName);
-    while (Files.exists(finalArchiveDestination)) {
-      ++version;
-      finalArchiveDestination = fafApiProperties.getMap().getTargetDirectory().resolve(
-        String.format("%s.v%04d.%s", basename, version, extension));
-    }
-
-    if (version == 1) {
-      return archiveFileName;
-    }
-    else {
-      return String.format("%s.v%04d.%s", basename, version, extension);
-    }
-  }
-
+  /**
+   * Reads the upload only once, see {@link MapUploadExtractor}. The map archive and its previews are moved to their
+   * final location only after the upload has been validated and the map entities have been updated. An archive that
+   * has already been uploaded is linked to its stored copy, see {@link MapArchiveStore}. The archive is stored before
+   * the commit, so that committed map versions never refer to a missing archive, and removed again on rollback. Scaled
+   * previews are rendered in the background after commit, see {@link MapPreviewRenderer}.
+   */
   @Transactional
   @SneakyThrows
-  @CacheEvict(value = {Map.TYPE_NAME, MapVersion.TYPE_NAME}, allEntries = true)
   public void uploadMap(InputStream mapDataInputStream, Player author, boolean isRanked, List<java.util.Map<String,String>> mapsDetails) {
     Assert.notNull(author, "'author' must not be null");
     Assert.isTrue(mapDataInputStream.available() > 0, "'mapData' must not be empty");
 
     checkAuthorVaultBan(author);
 
-    Path rootTempFolder = contentService.createTempDir();
-    long tempFreeSpace = rootTempFolder.toFile().getFreeSpace();
-    long mapsFreeSpace = fafApiProperties.getMap().getTargetDirectory().toFile().getFreeSpace();
-    log.info("[uploadMap] rootTempFolder='{}'. temp free space={}GB; maps directory free space={}GB; archive size={}kB",
-      rootTempFolder, (int)(tempFreeSpace/1e9), (int)(mapsFreeSpace/1e9), (int)(mapDataInputStream.available()/1e3));
-    if (tempFreeSpace < 10*mapDataInputStream.available() || mapsFreeSpace < 10*mapDataInputStream.available()) {
+    Path targetDirectory = fafApiProperties.getMap().getTargetDirectory();
+    long mapsFreeSpace = targetDirectory.toFile().getFreeSpace();
+    log.info("[uploadMap] maps directory free space={}GB; archive size={}kB",
+      (int)(mapsFreeSpace/1e9), (int)(mapDataInputStream.available()/1e3));
+    if (mapsFreeSpace < 10*mapDataInputStream.available()) {
       throw ApiException.of(ErrorCode.SERVER_DISK_FULL);
     }
 
-    try (mapDataInputStream) {
-      Path unzippedFileFolder = unzipToTemporaryDirectory(mapDataInputStream, rootTempFolder);
-      log.info("[uploadMap] unzippedFileFolder=''{}''", unzippedFileFolder);
-      Path mapFolder = validateMapFolderStructure(unzippedFileFolder);
-      log.info("[uploadMap] mapFolder=''{}''", mapFolder);
-      String archiveFileName = mapFolder.getFileName().toString();  // the directory and the archive located within it are named the same
+    java.util.Set<String> mapPreviewFileNameSet = mapsDetails.stream()
+      .map(mapDetails -> mapDetails.get("name") + ".png")
+      .collect(Collectors.toSet());
+
+    try (mapDataInputStream;
+         MapUploadExtractor extractor = new MapUploadExtractor(targetDirectory, fafApiProperties.getMap().getDirectoryPreviewPath(),
+           mapPreviewFileNameSet, ZIP_BOMB_BYTE_COUNT_THRESHOLD, ZIP_BOMB_PROTECTION_FACTOR)) {
+      extractor.extract(mapDataInputStream);
+      String archiveFileName = validateMapFolderStructure(extractor);  // the directory and the archive located within it are named the same
       if (isOfficialArchive(archiveFileName)) {
         throw ApiException.of(ErrorCode.MAP_ARCHIVE_OFFICIAL, archiveFileName);
       }
       log.info("[uploadMap] archiveFileName=''{}''", archiveFileName);
-      validateRequiredFiles(mapFolder, MANDATORY_FILES);
+      validateRequiredFiles(extractor.getMapFolderFileNames(), MANDATORY_FILES);
 
       validateMapsDetails(mapsDetails);
-      java.util.Map<String, Optional<Map>> existingMaps = new HashMap<>();
       for (java.util.Map<String,String> mapDetails: mapsDetails) {
         String mapName = mapDetails.get("name");
         validateMapDetails(mapDetails, MANDATORY_MAP_DETAILS);
-        existingMaps.put(mapDetails.get("name"), mapRepository.findOneByDisplayName(mapName));
         if (!mapDetails.get("archive").equals(archiveFileName)) {
           throw ApiException.of(ErrorCode.MAP_DETAIL_ARCHIVE_NAME_MISMATCH, mapName, mapDetails.get("archive"), archiveFileName);
         }
-        if (existingMaps.get(mapName).isPresent()) {
-          validateAgainstExistingMap(existingMaps.get(mapName).get(), author, mapDetails.get("crc"));
+        // Queried in this transaction rather than taken from a cached summary, which may be stale
+        Optional<MapHead> existingMap = mapRepository.findHeadByDisplayName(mapName);
+        if (existingMap.isPresent()) {
+          validateAgainstExistingMap(mapName, existingMap.get(), author, mapDetails.get("crc"));
         }
       }
 
-      java.util.Set<Path> mapPreviewFileNameSet = mapsDetails.stream()
-        .map(mapDetails -> Paths.get(mapDetails.get("name") + ".png"))
-        .collect(Collectors.toSet());
-
-      java.util.Set<Path> presentPreviewFileNameSet;
-      try(Stream<Path> paths = Files.walk(Paths.get(mapFolder.resolve("mini").toString()))) {
-        presentPreviewFileNameSet = paths
-          .filter(p -> Files.isRegularFile(p))
-          .map(p -> Paths.get(URLDecoder.decode(p.getFileName().toString(), StandardCharsets.ISO_8859_1)))
-          .collect(Collectors.toSet());
-      }
-      java.util.Set<Path> missingPreviewFileNameSet = new java.util.HashSet<>(mapPreviewFileNameSet);
-      missingPreviewFileNameSet.removeAll(presentPreviewFileNameSet);
+      java.util.Set<String> missingPreviewFileNameSet = new java.util.HashSet<>(mapPreviewFileNameSet);
+      missingPreviewFileNameSet.removeAll(extractor.getPreviewFileNames());
       if (!missingPreviewFileNameSet.isEmpty()) {
         throw ApiException.of(ErrorCode.MAP_MISSING_PREVIEW, missingPreviewFileNameSet, missingPreviewFileNameSet.size()-1);
       }
 
-      String versionedArchiveName = _getNewVersionedArchiveName(archiveFileName);
+      java.util.Map<String, TaMapInfo> archiveMaps = readArchiveMaps(extractor.getStagedArchive(), archiveFileName);
+      for (java.util.Map<String,String> mapDetails: mapsDetails) {
+        if (!archiveMaps.containsKey(mapDetails.get("name"))) {
+          throw ApiException.of(ErrorCode.MAP_NOT_IN_ARCHIVE, mapDetails.get("name"), archiveFileName);
+        }
+      }
+
+      String versionedArchiveName = mapArchiveNameRegistry.reserve(archiveFileName);
       log.info("[uploadMap] versionedArchiveName=''{}''", versionedArchiveName);
 
       for (java.util.Map<String,String> mapDetails: mapsDetails) {
         String mapName = mapDetails.get("name");
-        updateHibernateMapEntities(versionedArchiveName, mapDetails, existingMaps.get(mapName), author, isRanked);
+        updateHibernateMapEntities(versionedArchiveName, mapDetails, archiveMaps.get(mapName), mapRepository.findOneByDisplayName(mapName), author, isRanked);
       }
 
-      Path finalPath = fafApiProperties.getMap().getTargetDirectory().resolve(versionedArchiveName);
-      log.info("[uploadMap] finalPath=''{}''", finalPath);
-      copyMapArchive(mapFolder.resolve(archiveFileName), finalPath);
-
-      Path previewPath = fafApiProperties.getMap().getDirectoryPreviewPath();
-      Files.createDirectories(previewPath, FilePermissionUtil.directoryPermissionFileAttributes());
-      try(Stream<Path> paths = Files.walk(Paths.get(mapFolder.resolve("mini").toString()))) {
-        paths
-          .map(p -> new Path[] {p, Paths.get(URLDecoder.decode(p.getFileName().toString(), StandardCharsets.ISO_8859_1))})
-          .filter(p -> Files.isRegularFile(p[0]) && mapPreviewFileNameSet.contains(p[1]))
-          .forEach(p -> {
-            try {  Files.copy(p[0], previewPath.resolve(p[1]), StandardCopyOption.REPLACE_EXISTING); }
-            catch (IOException e) { log.warn("unable to copy '{}' to '{}'", p[0], p[1]); }
-          });
-      }
+      mapArchiveStore.add(extractor.getStagedArchive(), extractor.getArchiveSha256(), versionedArchiveName);
+      removeArchiveOnRollback(extractor.getArchiveSha256(), versionedArchiveName);
+      extractor.commitPreviews();
+      mapPreviewRenderer.renderAfterCommit(mapPreviewFileNameSet);
+    }
+  }
 
-    } finally {
-      FileSystemUtils.deleteRecursively(rootTempFolder);
+  /**
+   * Creates the maps read from archives by the {@link MapImportService}, as unranked versions without an author. A map
+   * that exists already gets a new version. The versions have the CRC {@value #UNKNOWN_CRC}, since the CRC the client
+   * reports can't be computed from the archive here, so they never replace another version.
+   *
+   * @return the number of map versions created
+   */
+  @Transactional
+  public int importMaps(List<ImportedMap> importedMaps) {
+    for (ImportedMap importedMap : importedMaps) {
+      TaMapInfo mapInfo = importedMap.getMapInfo();
+      java.util.Map<String, String> mapDetails = java.util.Map.of(
+        "name", mapInfo.getName(),
+        "crc", UNKNOWN_CRC,
+        "description", StringUtils.hasText(mapInfo.getDescription()) ? mapInfo.getDescription() : mapInfo.getName());
+      updateHibernateMapEntities(importedMap.getArchiveName(), mapDetails, mapInfo,
+        mapRepository.findOneByDisplayName(mapInfo.getName()), null, false);
     }
+    return importedMaps.size();
+  }
+
+  private void removeArchiveOnRollback(String sha256, String archiveName) {
+    if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+      return;
+    }
+    TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronizationAdapter() {
+      @Override
+      public void afterCompletion(int status) {
+        if (status != STATUS_ROLLED_BACK) {
+          return;
+        }
+        try {
+          mapArchiveStore.remove(sha256, archiveName);
+        } catch (IOException e) {
+          log.warn("Could not remove map archive '{}' of rolled back upload", archiveName, e);
+        }
+      }
+    });
   }
 
   private void checkAuthorVaultBan(Player author) {
@@ -270,63 +325,45 @@ public class MapService {
       });
   }
 
-  private Path unzipToTemporaryDirectory(InputStream mapDataInputStream, Path rootTempFolder)
-    throws IOException, ArchiveException {
-    Path unzippedDirectory = Files.createDirectories(rootTempFolder.resolve("unzipped-content"));
-    log.debug("Unzipping uploaded file ''{}'' to: {}", mapDataInputStream, unzippedDirectory);
-
-    Unzipper.from(mapDataInputStream)
-      .zipBombByteCountThreshold(5_000_000)
-      .zipBombProtectionFactor(200)
-      .to(unzippedDirectory)
-      .unzip();
-
-    return unzippedDirectory;
-  }
-
   /**
-   * @param zipContentFolder The folder containing the content of the zipped map file
-   * @return the root folder of the map
+   * @return the name of the map folder, which is also the name of the map archive
    */
-  private Path validateMapFolderStructure(Path zipContentFolder) throws IOException {
-    Path mapFolder;
+  private String validateMapFolderStructure(MapUploadExtractor extractor) {
+    String mapFolderName = extractor.getMapFolderName()
+      .orElseThrow(() -> ApiException.of(ErrorCode.MAP_MISSING_MAP_FOLDER_INSIDE_ZIP));
 
-    try (Stream<Path> mapFolderStream = Files.list(zipContentFolder)) {
-      mapFolder = mapFolderStream
-        .filter(Files::isDirectory)
-        .findFirst()
-        .orElseThrow(() -> ApiException.of(ErrorCode.MAP_MISSING_MAP_FOLDER_INSIDE_ZIP));
+    if (!extractor.hasSingleTopLevelEntry()) {
+      throw ApiException.of(ErrorCode.MAP_INVALID_ZIP);
     }
 
-    try (Stream<Path> mapFolderStream = Files.list(zipContentFolder)) {
-      if (mapFolderStream.count() != 1) {
-        throw ApiException.of(ErrorCode.MAP_INVALID_ZIP);
-      }
+    if (!extractor.hasArchive()) {
+      throw ApiException.of(ErrorCode.MAP_MISSING_ARCHIVE_INSIDE_MAP_FOLDER, mapFolderName);
     }
 
-    Path archiveFileName = mapFolder.getFileName();
-    if (!Files.isRegularFile(mapFolder.resolve(archiveFileName))) {
-      throw ApiException.of(ErrorCode.MAP_MISSING_ARCHIVE_INSIDE_MAP_FOLDER, archiveFileName);
-    }
+    return mapFolderName;
+  }
 
-    return mapFolder;
+  /**
+   * @return the maps in the archive by their case insensitive names
+   */
+  private java.util.Map<String, TaMapInfo> readArchiveMaps(Path archive, String archiveFileName) throws IOException {
+    java.util.Map<String, TaMapInfo> maps = new TreeMap<>(String.CASE_INSENSITIVE_ORDER);
+    try {
+      TaMapReader.readMaps(HpiArchive.open(archive)).forEach(mapInfo -> maps.put(mapInfo.getName(), mapInfo));
+    } catch (HpiFormatException e) {
+      throw ApiException.of(ErrorCode.MAP_INVALID_ARCHIVE, archiveFileName, e.getMessage());
+    }
+    return maps;
   }
 
-  @SneakyThrows
-  private void validateRequiredFiles(Path mapFolder, String[] requiredFiles) {
-    try (Stream<Path> mapFileStream = Files.list(mapFolder)) {
-      List<String> fileNames = mapFileStream
-        .map(Path::toString)
-        .collect(Collectors.toList());
-
-      List<Error> errors = Arrays.stream(requiredFiles)
-        .filter(requiredEnding -> fileNames.stream().noneMatch(fileName -> fileName.endsWith(requiredEnding)))
-        .map(requiredEnding -> new Error(ErrorCode.MAP_FILE_INSIDE_ZIP_MISSING, requiredEnding))
-        .collect(Collectors.toList());
-
-      if (!errors.isEmpty()) {
-        throw ApiException.of(errors);
-      }
+  private void validateRequiredFiles(Set<String> fileNames, String[] requiredFiles) {
+    List<Error> errors = Arrays.stream(requiredFiles)
+      .filter(requiredEnding -> fileNames.stream().noneMatch(fileName -> fileName.endsWith(requiredEnding)))
+      .map(requiredEnding -> new Error(ErrorCode.MAP_FILE_INSIDE_ZIP_MISSING, requiredEnding))
+      .collect(Collectors.toList());
+
+    if (!errors.isEmpty()) {
+      throw ApiException.of(errors);
     }
   }
 
@@ -359,38 +396,19 @@ public class MapService {
     }
   }
 
-  private void validateAgainstExistingMap(Map existingMap, Player author, String newCrc32) {
-    Optional.ofNullable(existingMap.getAuthor())
-      .filter(existingMapAuthor -> !Objects.equals(existingMapAuthor, author))
-      .ifPresent(existingMapAuthor -> {
-        throw ApiException.of(ErrorCode.MAP_NOT_ORIGINAL_AUTHOR, existingMap.getDisplayName());
-      });
-
-    if (existingMap.getVersions().stream()
-      .anyMatch(mapVersion -> mapVersion.getFilename().split("/")[2].equals(newCrc32))) {
-      //throw ApiException.of(ErrorCode.MAP_VERSION_EXISTS, existingMap.getDisplayName(), newCrc32);
+  private void validateAgainstExistingMap(String mapName, MapHead existingMap, Player author, String newCrc32) {
+    if (existingMap.getAuthorId() != null && !Objects.equals(existingMap.getAuthorId(), author.getId())) {
+      throw ApiException.of(ErrorCode.MAP_NOT_ORIGINAL_AUTHOR, mapName);
     }
 
-    if (existingMap.getVersions().stream()
-      .anyMatch(mapVersion -> officialMapArchives.contains(mapVersion.getFilename().split("/")[0]))) {
-      throw ApiException.of(ErrorCode.MAP_ARCHIVE_OFFICIAL, existingMap.getDisplayName());
+    List<MapVersionFileName> versionFileNames = mapRepository.findVersionFileNames(existingMap.getId());
+    if (versionFileNames.stream().anyMatch(fileName -> fileName.getCrc().equals(newCrc32))) {
+      //throw ApiException.of(ErrorCode.MAP_VERSION_EXISTS, mapName, newCrc32);
     }
-  }
 
-  static private Integer[] getMapSize(String size, String description) {
-    for (String s: List.of(size, description)) {
-      java.util.regex.Matcher m = MAP_SIZE_PATTERN.matcher(s);
-      if (m.find()) {
-        try {
-          Integer[] result = { Integer.parseInt(m.group(1)), Integer.parseInt(m.group(2)) };
-          return result;
-        }
-        catch (NumberFormatException e) { }
-        catch (IndexOutOfBoundsException e) { }
-      }
+    if (versionFileNames.stream().anyMatch(fileName -> officialMapArchives.contains(fileName.getArchiveName()))) {
+      throw ApiException.of(ErrorCode.MAP_ARCHIVE_OFFICIAL, mapName);
     }
-
-    return new Integer[] {8,8};
   }
 
   static private int getMaxPlayers(String players) {
@@ -407,8 +425,8 @@ public class MapService {
     return maxPlayers >= 2 ? maxPlayers : 10;
   }
 
-  private Map updateHibernateMapEntities(String archiveName, java.util.Map<String,String> mapDetails, Optional<Map> existingMapOptional, Player author, boolean isRanked) {
-    // mapDetails is supposed to be validated already
+  private Map updateHibernateMapEntities(String archiveName, java.util.Map<String,String> mapDetails, TaMapInfo mapInfo, Optional<Map> existingMapOptional, Player author, boolean isRanked) {
+    // mapDetails is supposed to be validated already, size and players are taken from the archive itself
 
     Map map = existingMapOptional
       .orElseGet(() ->
@@ -421,9 +439,7 @@ public class MapService {
       .setMapType("FFA")
       .setBattleType("skirmish");
 
-    Integer[] size = getMapSize(mapDetails.getOrDefault("size", ""), mapDetails.get("description"));
-
-    Optional<MapVersion> version = map.getVersions().stream()
+    Optional<MapVersion> version = UNKNOWN_CRC.equals(mapDetails.get("crc")) ? Optional.empty() : map.getVersions().stream()
       .filter(v -> v.getCrc().equals(mapDetails.get("crc")))
       .findAny();
 
@@ -438,13 +454,15 @@ public class MapService {
 
     version.get()
       .setDescription(mapDetails.get("description"))
-      .setWidth(size[0])
-      .setHeight(size[1])
+      .setWidth(mapInfo.getWidth())
+      .setHeight(mapInfo.getHeight())
       .setHidden(false)
       .setRanked(isRanked)
-      .setMaxPlayers(getMaxPlayers(mapDetails.getOrDefault("players","10")))
+      .setMaxPlayers(getMaxPlayers(StringUtils.hasText(mapInfo.getNumPlayers()) ? mapInfo.getNumPlayers() : mapDetails.getOrDefault("players","10")))
       .setMap(map)
-      .setFilename(String.format("%s/%s/%s", archiveName, mapDetails.get("name"), mapDetails.get("crc")));
+      .setFilename(String.format("%s/%s/%s", archiveName, mapDetails.get("name"), mapDetails.get("crc")))
+      // Otherwise only set when loaded, but versions created earlier in the same transaction are compared by CRC too
+      .setCrc(mapDetails.get("crc"));
 
     // this triggers validation
     mapRepository.save(map);
@@ -462,13 +480,6 @@ public class MapService {
     FilePermissionUtil.setDefaultFilePermission(finalZipPath);
   }
 
-  private void copyMapArchive(Path newMapArchive, Path finalArchivePath) throws IOException {
-    Files.createDirectories(finalArchivePath.getParent(), FilePermissionUtil.directoryPermissionFileAttributes());
-    Files.copy(newMapArchive, finalArchivePath);
-    // TODO if possible, this should be done using umask instead
-    FilePermissionUtil.setDefaultFilePermission(finalArchivePath);
-  }
-
   static class ScenarioMapInfo {
     static final String FILE_ENDING_SCENARIO = "_scenario.lua";
     static final String FILE_ENDING_MAP = ".ufo";
@@ -0,0 +1,19 @@
+package com.faforever.api.map;
+
+import lombok.Value;
+import org.jetbrains.annotations.Nullable;
+
+/**
+ * What validating a map name needs to know about an existing map, loaded without the map's versions. Uploads query
+ * the same projections within their transaction instead, since a cached summary may be stale.
+ */
+@Value
+public class MapSummary {
+  int id;
+  @Nullable
+  Integer authorId;
+  /**
+   * The highest version number, 0 if the map has no versions.
+   */
+  int latestVersion;
+}
@@ -0,0 +1,48 @@
+package com.faforever.api.map;
+
+import com.faforever.api.config.FafApiProperties;
+import com.faforever.api.data.domain.Map;
+import com.faforever.api.data.domain.MapVersion;
+import com.faforever.api.data.listeners.EntityChangedEvent;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+
+import java.util.Optional;
+
+/**
+ * Caches {@link MapSummary map summaries} by display name, including the absence of a map. Map makers validate names
+ * over and over while editing, which would otherwise load the map and all its versions every time. Since the cache is
+ * keyed by name but entity changes carry ids, every committed change of a map or map version evicts all summaries.
+ */
+@Component
+public class MapSummaryCache {
+
+  private final MapRepository mapRepository;
+  private final Cache<String, Optional<MapSummary>> summaries;
+
+  public MapSummaryCache(FafApiProperties fafApiProperties, MapRepository mapRepository) {
+    this.mapRepository = mapRepository;
+    summaries = Caffeine.newBuilder()
+      .maximumSize(fafApiProperties.getMap().getSummaryCacheSize())
+      .expireAfterWrite(fafApiProperties.getMap().getSummaryCacheExpiry())
+      .build();
+  }
+
+  public Optional<MapSummary> find(String displayName) {
+    return summaries.get(displayName, this::load);
+  }
+
+  @EventListener
+  public void onEntityChanged(EntityChangedEvent event) {
+    if (event.concerns(Map.class) || event.concerns(MapVersion.class)) {
+      summaries.invalidateAll();
+    }
+  }
+
+  private Optional<MapSummary> load(String displayName) {
+    return mapRepository.findHeadByDisplayName(displayName)
+      .map(head -> new MapSummary(head.getId(), head.getAuthorId(), Optional.ofNullable(head.getLatestVersion()).orElse(0)));
+  }
+}
@@ -0,0 +1,248 @@
+package com.faforever.api.map;
+
+import com.faforever.api.error.ApiException;
+import com.faforever.api.error.ErrorCode;
+import com.faforever.api.utils.FilePermissionUtil;
+import com.google.common.hash.Hasher;
+import com.google.common.hash.Hashing;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.commons.compress.archivers.ArchiveEntry;
+import org.apache.commons.compress.archivers.ArchiveException;
+import org.apache.commons.compress.archivers.ArchiveInputStream;
+import org.apache.commons.compress.archivers.ArchiveStreamFactory;
+import org.apache.commons.io.input.CountingInputStream;
+import org.jetbrains.annotations.Nullable;
+
+import java.io.BufferedInputStream;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+
+import static com.faforever.api.map.MapService.ScenarioMapInfo.DIRECTORY_MINIMAPS;
+
+/**
+ * Reads an uploaded map archive in a single pass. Of its entries, only the map archive ({@code <folder>/<folder>}) and
+ * the requested previews below {@code <folder>/mini/} are written, each to a staging file in the directory of its final
+ * location so that it can be moved there atomically once the upload has been validated. The map archive is hashed on
+ * the way. All other entries are only recorded for validation. Staging files that haven't been moved are deleted on {@link #close()}.
+ */
+@Slf4j
+class MapUploadExtractor implements Closeable {
+
+  private static final int BUFFER_SIZE = 64 * 1024;
+  private static final String STAGING_FILE_PREFIX = ".upload-";
+  private static final String STAGING_FILE_SUFFIX = ".part";
+
+  private final Path archiveDirectory;
+  private final Path previewDirectory;
+  private final Set<String> requestedPreviewFileNames;
+  private final long zipBombByteCountThreshold;
+  private final int zipBombProtectionFactor;
+  private final byte[] buffer = new byte[BUFFER_SIZE];
+
+  private final Set<String> topLevelNames = new LinkedHashSet<>();
+  private final Set<String> topLevelFolderNames = new LinkedHashSet<>();
+  private final Set<String> mapFolderFileNames = new HashSet<>();
+  private final Set<String> previewFileNames = new HashSet<>();
+  private final Map<String, Path> stagedPreviews = new HashMap<>();
+  private Path stagedArchive;
+  private String archiveSha256;
+  private CountingInputStream compressedInputStream;
+  private long uncompressedByteCount;
+
+  MapUploadExtractor(Path archiveDirectory, Path previewDirectory, Set<String> requestedPreviewFileNames,
+                     long zipBombByteCountThreshold, int zipBombProtectionFactor) {
+    this.archiveDirectory = archiveDirectory;
+    this.previewDirectory = previewDirectory;
+    this.requestedPreviewFileNames = requestedPreviewFileNames;
+    this.zipBombByteCountThreshold = zipBombByteCountThreshold;
+    this.zipBombProtectionFactor = zipBombProtectionFactor;
+  }
+
+  /**
+   * Reads all entries of the zip or tar archive, without closing the stream.
+   *
+   * @throws ApiException with {@link ErrorCode#MAP_ZIP_BOMB} if the content expands to more than the zip bomb byte
+   * count threshold and more than the zip bomb protection factor times the size of the upload
+   */
+  void extract(InputStream inputStream) throws IOException, ArchiveException {
+    compressedInputStream = new CountingInputStream(inputStream);
+    ArchiveInputStream archiveInputStream = new ArchiveStreamFactory()
+      .createArchiveInputStream(new BufferedInputStream(compressedInputStream));
+
+    ArchiveEntry entry;
+    while ((entry = archiveInputStream.getNextEntry()) != null) {
+      if (!archiveInputStream.canReadEntryData(entry)) {
+        log.debug("Skipping unreadable entry '{}'", entry.getName());
+        continue;
+      }
+      String[] segments = Arrays.stream(entry.getName().split("/"))
+        .filter(segment -> !segment.isEmpty() && !segment.equals("."))
+        .toArray(String[]::new);
+      if (segments.length == 0) {
+        continue;
+      }
+
+      topLevelNames.add(segments[0]);
+      if (segments.length == 1) {
+        if (entry.isDirectory()) {
+          topLevelFolderNames.add(segments[0]);
+        }
+        skip(archiveInputStream);
+        continue;
+      }
+      topLevelFolderNames.add(segments[0]);
+      mapFolderFileNames.add(segments[1]);
+
+      if (entry.isDirectory()) {
+        continue;
+      }
+      if (segments.length == 2 && segments[0].equals(segments[1]) && stagedArchive == null) {
+        Hasher hasher = Hashing.sha256().newHasher();
+        stagedArchive = stage(archiveInputStream, archiveDirectory, hasher);
+        archiveSha256 = hasher.hash().toString();
+      } else if (segments.length > 2 && segments[1].equals(DIRECTORY_MINIMAPS)) {
+        extractPreview(archiveInputStream, URLDecoder.decode(segments[segments.length - 1], StandardCharsets.ISO_8859_1));
+      } else {
+        skip(archiveInputStream);
+      }
+    }
+  }
+
+  /**
+   * @return the name of the first folder at the root level of the archive, which is also the name of the map archive
+   */
+  Optional<String> getMapFolderName() {
+    return topLevelFolderNames.stream().findFirst();
+  }
+
+  boolean hasSingleTopLevelEntry() {
+    return topLevelNames.size() == 1;
+  }
+
+  boolean hasArchive() {
+    return stagedArchive != null;
+  }
+
+  /**
+   * @return the names of the files and folders directly inside the map folder
+   */
+  Set<String> getMapFolderFileNames() {
+    return mapFolderFileNames;
+  }
+
+  /**
+   * @return the URL decoded names of all files below the map folder's {@code mini} folder
+   */
+  Set<String> getPreviewFileNames() {
+    return previewFileNames;
+  }
+
+  /**
+   * @return the staging file of the map archive, which the caller may move elsewhere
+   */
+  Path getStagedArchive() {
+    return stagedArchive;
+  }
+
+  /**
+   * @return the hex encoded SHA-256 hash of the map archive
+   */
+  String getArchiveSha256() {
+    return archiveSha256;
+  }
+
+  /**
+   * Moves the requested previews to the preview directory, replacing previous previews of the same name.
+   */
+  void commitPreviews() {
+    stagedPreviews.entrySet().removeIf(stagedPreview -> {
+      Path previewPath = previewDirectory.resolve(stagedPreview.getKey());
+      try {
+        commit(stagedPreview.getValue(), previewPath);
+        return true;
+      } catch (IOException e) {
+        log.warn("unable to move preview to '{}'", previewPath, e);
+        return false;
+      }
+    });
+  }
+
+  @Override
+  public void close() throws IOException {
+    if (stagedArchive != null) {
+      Files.deleteIfExists(stagedArchive);
+    }
+    for (Path stagedPreview : stagedPreviews.values()) {
+      Files.deleteIfExists(stagedPreview);
+    }
+  }
+
+  private void extractPreview(InputStream inputStream, String previewFileName) throws IOException {
+    previewFileNames.add(previewFileName);
+    if (!requestedPreviewFileNames.contains(previewFileName)) {
+      skip(inputStream);
+      return;
+    }
+    // Like a copy with REPLACE_EXISTING, the last of several equally named previews wins
+    Path previous = stagedPreviews.put(previewFileName, stage(inputStream, previewDirectory, null));
+    if (previous != null) {
+      Files.delete(previous);
+    }
+  }
+
+  private Path stage(InputStream inputStream, Path directory, @Nullable Hasher hasher) throws IOException {
+    Files.createDirectories(directory, FilePermissionUtil.directoryPermissionFileAttributes());
+    Path stagingFile = Files.createTempFile(directory, STAGING_FILE_PREFIX, STAGING_FILE_SUFFIX);
+    try (OutputStream outputStream = Files.newOutputStream(stagingFile)) {
+      copy(inputStream, outputStream, hasher);
+    } catch (IOException | RuntimeException e) {
+      Files.deleteIfExists(stagingFile);
+      throw e;
+    }
+    return stagingFile;
+  }
+
+  private void skip(InputStream inputStream) throws IOException {
+    copy(inputStream, null, null);
+  }
+
+  /**
+   * Skipped entries are read as well, so that they count towards the zip bomb protection.
+   */
+  private void copy(InputStream inputStream, @Nullable OutputStream outputStream, @Nullable Hasher hasher) throws IOException {
+    int read;
+    while ((read = inputStream.read(buffer)) != -1) {
+      uncompressedByteCount += read;
+      if (uncompressedByteCount > zipBombByteCountThreshold
+        && uncompressedByteCount > zipBombProtectionFactor * compressedInputStream.getByteCount()) {
+        throw ApiException.of(ErrorCode.MAP_ZIP_BOMB, zipBombProtectionFactor);
+      }
+      if (outputStream != null) {
+        outputStream.write(buffer, 0, read);
+      }
+      if (hasher != null) {
+        hasher.putBytes(buffer, 0, read);
+      }
+    }
+  }
+
+  private static void commit(Path stagingFile, Path finalPath) throws IOException {
+    // TODO if possible, this should be done using umask instead
+    FilePermissionUtil.setDefaultFilePermission(stagingFile);
+    Files.move(stagingFile, finalPath, StandardCopyOption.ATOMIC_MOVE);
+  }
+}
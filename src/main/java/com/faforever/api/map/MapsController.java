@@ -6,6 +6,8 @@ import com.faforever.api.error.ApiException;
 import com.faforever.api.error.Error;
 import com.faforever.api.error.ErrorCode;
 import com.faforever.api.player.PlayerService;
+import com.faforever.api.upload.UploadSessionService;
+import com.faforever.api.upload.UploadType;
 import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.google.common.io.Files;
@@ -15,6 +17,7 @@ import io.swagger.annotations.ApiResponses;
 import lombok.AllArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.security.core.Authentication;
+import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RequestMethod;
 import org.springframework.web.bind.annotation.RequestParam;
@@ -23,6 +26,7 @@ import org.springframework.web.multipart.MultipartFile;
 import org.springframework.web.servlet.ModelAndView;
 
 import java.io.IOException;
+import java.io.InputStream;
 import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.Iterator;
@@ -41,6 +45,7 @@ public class MapsController {
   private final FafApiProperties fafApiProperties;
   private final ObjectMapper objectMapper;
   private final PlayerService playerService;
+  private final UploadSessionService uploadSessionService;
 
 
   @RequestMapping(path = "/validate", method = RequestMethod.GET, produces = APPLICATION_JSON_UTF8_VALUE)
@@ -72,7 +77,7 @@ public class MapsController {
     produces = APPLICATION_JSON_UTF8_VALUE
   )
   public void validateScenarioLua(@RequestParam(name = "scenarioLua") String scenarioLua) {
-    //mapService.validateScenarioLua(scenarioLua);
+    mapService.validateScenarioLua(scenarioLua);
   }
 
   @ApiOperation("Upload a map")
@@ -93,6 +98,25 @@ public class MapsController {
       throw new ApiException(new Error(ErrorCode.UPLOAD_INVALID_FILE_EXTENSIONS, fafApiProperties.getMap().getAllowedExtensions()));
     }
 
+    processMapUpload(file.getInputStream(), jsonString, playerService.getPlayer(authentication));
+  }
+
+  @ApiOperation("Process a map uploaded with a resumable upload of type MAP")
+  @ApiResponses(value = {
+    @ApiResponse(code = 200, message = "Success"),
+    @ApiResponse(code = 401, message = "Unauthorized"),
+    @ApiResponse(code = 404, message = "Unknown or expired upload"),
+    @ApiResponse(code = 500, message = "Failure")})
+  @RequestMapping(path = "/upload/{uploadId}", method = RequestMethod.POST, produces = APPLICATION_JSON_UTF8_VALUE)
+  public void completeMapUpload(@PathVariable("uploadId") String uploadId,
+                                @RequestParam("metadata") String jsonString,
+                                Authentication authentication) throws IOException {
+    Player player = playerService.getPlayer(authentication);
+    uploadSessionService.complete(uploadId, UploadType.MAP, player,
+      stagingFile -> processMapUpload(java.nio.file.Files.newInputStream(stagingFile), jsonString, player));
+  }
+
+  private void processMapUpload(InputStream mapDataInputStream, String jsonString, Player player) {
     boolean ranked;
     List<Map<String,String>> mapsDetails = new ArrayList<>();
     try {
@@ -117,7 +141,6 @@ public class MapsController {
       throw new ApiException(new Error(ErrorCode.INVALID_METADATA, e.getMessage()));
     }
 
-    Player player = playerService.getPlayer(authentication);
-    mapService.uploadMap(file.getInputStream(), player, ranked, mapsDetails);
+    mapService.uploadMap(mapDataInputStream, player, ranked, mapsDetails);
   }
 }
@@ -0,0 +1,49 @@
+package com.faforever.api.map;
+
+import com.faforever.api.config.FafApiProperties;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.google.common.hash.HashCode;
+import com.google.common.hash.Hashing;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+/**
+ * Caches the {@link MapLuaAccessor evaluated scenario files} by the SHA-256 hash of their content, so validating the
+ * same scenario again, or the same scenario contained in several archives, doesn't evaluate it again. Files that
+ * can't be evaluated aren't cached. Safe to be called from many threads at once, see {@link ScenarioLuaEvaluator}.
+ */
+@Component
+public class ScenarioInfoCache {
+
+  private final Cache<HashCode, MapLuaAccessor> scenarios;
+
+  public ScenarioInfoCache(FafApiProperties fafApiProperties) {
+    scenarios = Caffeine.newBuilder()
+      .maximumSize(fafApiProperties.getMap().getScenarioCacheSize())
+      .build();
+  }
+
+  public MapLuaAccessor get(Path scenarioLuaPath) throws IOException {
+    return get(Files.readAllBytes(scenarioLuaPath));
+  }
+
+  public MapLuaAccessor get(String scenarioLuaCode) throws IOException {
+    return get(scenarioLuaCode.getBytes(StandardCharsets.UTF_8));
+  }
+
+  private MapLuaAccessor get(byte[] scenarioLua) throws IOException {
+    HashCode hash = Hashing.sha256().hashBytes(scenarioLua);
+    MapLuaAccessor scenario = scenarios.getIfPresent(hash);
+    if (scenario == null) {
+      // Evaluated outside of the cache, since the cache can't load values by throwing checked exceptions
+      scenario = MapLuaAccessor.of(new String(scenarioLua, StandardCharsets.UTF_8));
+      scenarios.put(hash, scenario);
+    }
+    return scenario;
+  }
+}
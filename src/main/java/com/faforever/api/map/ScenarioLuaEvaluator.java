@@ -0,0 +1,257 @@
+package com.faforever.api.map;
+
+import org.luaj.vm2.Globals;
+import org.luaj.vm2.LoadState;
+import org.luaj.vm2.LuaClosure;
+import org.luaj.vm2.LuaError;
+import org.luaj.vm2.LuaFunction;
+import org.luaj.vm2.LuaString;
+import org.luaj.vm2.LuaTable;
+import org.luaj.vm2.LuaValue;
+import org.luaj.vm2.Varargs;
+import org.luaj.vm2.compiler.LuaC;
+import org.luaj.vm2.lib.Bit32Lib;
+import org.luaj.vm2.lib.DebugLib;
+import org.luaj.vm2.lib.PackageLib;
+import org.luaj.vm2.lib.StringLib;
+import org.luaj.vm2.lib.TableLib;
+import org.luaj.vm2.lib.ThreeArgFunction;
+import org.luaj.vm2.lib.VarArgFunction;
+import org.luaj.vm2.lib.jse.JseBaseLib;
+import org.luaj.vm2.lib.jse.JseMathLib;
+
+import java.io.InterruptedIOException;
+import java.time.Duration;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Evaluates scenario files with a pool of sandboxed Lua globals, which are set up once and reused. Setting up the
+ * globals takes far longer than evaluating a scenario file, which mostly consists of a single table.
+ *
+ * <p>The globals only provide the {@code string}, {@code table}, {@code math} and {@code bit32} libraries and the
+ * base functions that neither access files nor compile further code. Each evaluation runs in a fresh environment
+ * that falls back to the globals, and the libraries are read-only, so that no evaluation sees the variables of
+ * another. The metatables of the environment and of strings are protected, since they would otherwise hand out the
+ * globals and the string library. An evaluation is aborted after {@value #MAX_INSTRUCTIONS} instructions, and
+ * {@code string.rep} and {@code table.concat} don't build strings longer than {@value #MAX_STRING_LENGTH} characters.
+ * Concatenating strings with {@code ..} isn't limited, so the instruction limit only bounds how often a string can be
+ * doubled. A set of globals is used by one thread at a time, so up to {@code poolSize} scenario files are evaluated in
+ * parallel.</p>
+ *
+ * <p>LuaJ looks up the methods of all strings in a single metatable, which is shared by every user of LuaJ in the JVM.
+ * It is set once, when this class is loaded, to the same limited and read-only string library the globals provide.
+ * The string library only sets the metatable if nobody has before.</p>
+ */
+class ScenarioLuaEvaluator {
+
+  private static final String[] UNSAFE_GLOBALS = {"collectgarbage", "dofile", "load", "loadfile", "package", "print", "rawset", "require"};
+  private static final String[] LIBRARIES = {"bit32", "math", "table"};
+  /** Far more than evaluating a table takes, even a huge one. */
+  static final int MAX_INSTRUCTIONS = 1_000_000;
+  /** Far more than any string of a scenario file. */
+  static final int MAX_STRING_LENGTH = 1_000_000;
+  private static final Duration BORROW_TIMEOUT = Duration.ofSeconds(30);
+  private static final LuaValue READ_ONLY = new ThreeArgFunction() {
+    @Override
+    public LuaValue call(LuaValue table, LuaValue key, LuaValue value) {
+      throw new LuaError("Libraries are read-only, can't set " + key.tojstring());
+    }
+  };
+  /** Shared by all globals, since its functions don't keep any state. */
+  private static final LuaTable STRING_LIBRARY = createStringLibrary();
+
+  static {
+    LuaString.s_metatable = LuaValue.tableOf(new LuaValue[]{
+      LuaValue.INDEX, STRING_LIBRARY,
+      LuaValue.METATABLE, LuaValue.FALSE,
+    });
+  }
+
+  private final BlockingQueue<Globals> pool;
+
+  ScenarioLuaEvaluator(int poolSize) {
+    pool = new ArrayBlockingQueue<>(poolSize);
+    for (int i = 0; i < poolSize; i++) {
+      pool.add(createGlobals());
+    }
+  }
+
+  /**
+   * @return the value the code assigned to the global variable {@code rootElement}, {@code nil} if none
+   * @throws LuaError if the code can't be compiled or fails
+   */
+  LuaValue evaluate(String code, String rootElement) throws InterruptedIOException {
+    Globals globals = borrow();
+    try {
+      // Functions only call the instruction hook if their environment is a Globals
+      Globals environment = new Globals();
+      environment.debuglib = new InstructionLimit(MAX_INSTRUCTIONS);
+      environment.setmetatable(LuaValue.tableOf(new LuaValue[]{
+        LuaValue.INDEX, globals,
+        LuaValue.METATABLE, LuaValue.FALSE,
+      }));
+      environment.rawset("_G", environment);
+      globals.load(code, "=" + rootElement, environment).call();
+      return environment.rawget(rootElement);
+    } finally {
+      pool.add(globals);
+    }
+  }
+
+  private Globals borrow() throws InterruptedIOException {
+    try {
+      Globals globals = pool.poll(BORROW_TIMEOUT.toMillis(), TimeUnit.MILLISECONDS);
+      if (globals == null) {
+        throw new InterruptedIOException("Timed out waiting for Lua globals");
+      }
+      return globals;
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new InterruptedIOException("Interrupted while waiting for Lua globals");
+    }
+  }
+
+  private static Globals createGlobals() {
+    Globals globals = new Globals();
+    globals.load(new JseBaseLib());
+    // Required by the other libraries to register themselves
+    globals.load(new PackageLib());
+    globals.load(new Bit32Lib());
+    globals.load(new TableLib());
+    globals.load(new JseMathLib());
+    LoadState.install(globals);
+    LuaC.install(globals);
+
+    for (String name : UNSAFE_GLOBALS) {
+      globals.rawset(name, LuaValue.NIL);
+    }
+    globals.rawset("table", override(globals.rawget("table"), "concat", new LimitedConcat(globals.rawget("table").rawget("concat"))));
+    for (String name : LIBRARIES) {
+      globals.rawset(name, readOnly(globals.rawget(name)));
+    }
+    globals.rawset("string", STRING_LIBRARY);
+    return globals;
+  }
+
+  private static LuaTable createStringLibrary() {
+    Globals globals = new Globals();
+    globals.load(new PackageLib());
+    globals.load(new StringLib());
+    LuaValue string = globals.rawget("string");
+    return readOnly(override(string, "rep", new LimitedRep(string.rawget("rep"))));
+  }
+
+  /**
+   * @return a copy of the library with one function replaced
+   */
+  private static LuaTable override(LuaValue library, String name, LuaValue function) {
+    LuaTable copy = new LuaTable();
+    for (Varargs entry = library.next(LuaValue.NIL); !entry.arg1().isnil(); entry = library.next(entry.arg1())) {
+      copy.rawset(entry.arg1(), entry.arg(2));
+    }
+    copy.rawset(name, function);
+    return copy;
+  }
+
+  /**
+   * A proxy of the table that can't be written to, nor can its metatable be replaced.
+   */
+  private static LuaTable readOnly(LuaValue table) {
+    LuaTable proxy = new LuaTable();
+    proxy.setmetatable(LuaValue.tableOf(new LuaValue[]{
+      LuaValue.INDEX, table,
+      LuaValue.NEWINDEX, READ_ONLY,
+      LuaValue.METATABLE, LuaValue.FALSE,
+    }));
+    return proxy;
+  }
+
+  private static void checkStringLength(long length, String function) {
+    if (length > MAX_STRING_LENGTH) {
+      throw new LuaError(function + " would build a string of more than " + MAX_STRING_LENGTH + " characters");
+    }
+  }
+
+  /**
+   * {@code string.rep}, which refuses to build too long strings.
+   */
+  private static class LimitedRep extends VarArgFunction {
+    private final LuaValue rep;
+
+    LimitedRep(LuaValue rep) {
+      this.rep = rep;
+    }
+
+    @Override
+    public Varargs invoke(Varargs args) {
+      long count = Math.max(0, args.checkint(2));
+      long separatorLength = args.isstring(3) ? args.checkstring(3).length() : 0;
+      checkStringLength(args.checkstring(1).length() * count + separatorLength * Math.max(0, count - 1), "string.rep");
+      return rep.invoke(args);
+    }
+  }
+
+  /**
+   * {@code table.concat}, which refuses to build too long strings.
+   */
+  private static class LimitedConcat extends VarArgFunction {
+    private final LuaValue concat;
+
+    LimitedConcat(LuaValue concat) {
+      this.concat = concat;
+    }
+
+    @Override
+    public Varargs invoke(Varargs args) {
+      LuaTable list = args.checktable(1);
+      long separatorLength = args.isstring(2) ? args.checkstring(2).length() : 0;
+      int first = args.optint(3, 1);
+      int last = args.isvalue(4) ? args.checkint(4) : list.length();
+      long length = 0;
+      // Fails on the first element that isn't a string, like concatenating does, before iterating a huge range
+      for (int i = first; i <= last; i++) {
+        length += list.get(i).checkstring().length() + (i < last ? separatorLength : 0);
+        checkStringLength(length, "table.concat");
+      }
+      return concat.invoke(args);
+    }
+  }
+
+  /**
+   * Aborts an evaluation that runs too many instructions. Replaces the hooks of the debug library, which keep track of
+   * the call stack, so it can be used without loading the library.
+   */
+  private static class InstructionLimit extends DebugLib {
+    private int remainingInstructions;
+
+    InstructionLimit(int maxInstructions) {
+      remainingInstructions = maxInstructions;
+    }
+
+    @Override
+    public void onInstruction(int pc, Varargs v, int top) {
+      if (--remainingInstructions < 0) {
+        throw new LuaError("Scenario takes more than " + MAX_INSTRUCTIONS + " instructions");
+      }
+    }
+
+    @Override
+    public void onCall(LuaFunction f) {
+    }
+
+    @Override
+    public void onCall(LuaClosure c, Varargs varargs, LuaValue[] stack) {
+    }
+
+    @Override
+    public void onReturn() {
+    }
+
+    @Override
+    public String traceback(int level) {
+      return "";
+    }
+  }
+}
@@ -0,0 +1,184 @@
+package com.faforever.api.map.hpi;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileChannel.MapMode;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+
+/**
+ * Reads HPI archives, the container format of Total Annihilation. The archive is memory mapped and only its directory
+ * is read when it is opened. Entries are decompressed on demand, chunk by chunk, so reading a single file doesn't
+ * extract the whole archive. Reading is thread safe.
+ *
+ * <p>An archive starts with a header ({@code HAPI} marker, version, directory size, key and directory offset),
+ * followed by the directory and the file data. Unless the key is 0, every byte after the header is obfuscated with a
+ * key derived from it and the position of the byte. Compressed files are split into chunks of 64 KiB, each compressed
+ * with LZ77 or zlib.</p>
+ */
+public final class HpiArchive {
+
+  private static final int MARKER = 0x49504148;
+  private static final int VERSION = 0x00010000;
+  private static final int HEADER_SIZE = 20;
+  private static final int DIRECTORY_ENTRY_SIZE = 9;
+  private static final int MAX_DIRECTORY_DEPTH = 32;
+  /** Far more files and directories than any map archive has. */
+  static final int MAX_ENTRY_COUNT = 10_000;
+
+  private final ByteBuffer buffer;
+  private final boolean obfuscated;
+  private final int key;
+  private final List<HpiEntry> entries;
+
+  private HpiArchive(ByteBuffer buffer) throws HpiFormatException {
+    this.buffer = buffer;
+
+    if (buffer.getInt(0) != MARKER || buffer.getInt(4) != VERSION) {
+      throw new HpiFormatException("Not an HPI archive");
+    }
+    int directorySize = buffer.getInt(8);
+    int headerKey = buffer.getInt(12);
+    int directoryOffset = buffer.getInt(16);
+    if (directoryOffset < HEADER_SIZE || directorySize <= directoryOffset || directorySize > buffer.limit()) {
+      throw new HpiFormatException("Invalid directory at " + directoryOffset + " with size " + directorySize);
+    }
+
+    obfuscated = headerKey != 0;
+    key = ~((headerKey << 2) | (headerKey >> 6));
+
+    // Offsets within the directory are positions in the archive, so it is read to the same positions of the array
+    byte[] directory = new byte[directorySize];
+    read(directoryOffset, directory, directoryOffset, directorySize - directoryOffset);
+    List<HpiEntry> entries = new ArrayList<>();
+    try {
+      readDirectory(ByteBuffer.wrap(directory).order(ByteOrder.LITTLE_ENDIAN), directoryOffset, "", 0, new HashSet<>(), entries);
+    } catch (IndexOutOfBoundsException e) {
+      throw new HpiFormatException("Directory exceeds its size");
+    }
+    this.entries = Collections.unmodifiableList(entries);
+  }
+
+  public static HpiArchive open(Path path) throws IOException {
+    try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+      long size = channel.size();
+      if (size < HEADER_SIZE || size > Integer.MAX_VALUE) {
+        throw new HpiFormatException("Invalid archive size " + size);
+      }
+      // The mapping stays valid after the channel has been closed
+      return new HpiArchive(channel.map(MapMode.READ_ONLY, 0, size).order(ByteOrder.LITTLE_ENDIAN));
+    }
+  }
+
+  /**
+   * @return all files in the archive, without directories
+   */
+  public List<HpiEntry> getEntries() {
+    return entries;
+  }
+
+  /**
+   * @param path the path within the archive, which is case insensitive like in the game
+   */
+  public Optional<HpiEntry> findEntry(String path) {
+    return entries.stream()
+      .filter(entry -> entry.getPath().equalsIgnoreCase(path))
+      .findFirst();
+  }
+
+  /**
+   * @return a stream of the uncompressed content of the entry, decompressing one chunk at a time
+   */
+  public InputStream openStream(HpiEntry entry) throws HpiFormatException {
+    return new HpiEntryInputStream(this, entry);
+  }
+
+  public byte[] read(HpiEntry entry) throws IOException {
+    try (InputStream inputStream = openStream(entry)) {
+      return inputStream.readNBytes(entry.getSize());
+    }
+  }
+
+  int size() {
+    return buffer.limit();
+  }
+
+  /**
+   * Reads bytes of the archive, undoing the obfuscation.
+   */
+  void read(int position, byte[] destination, int offset, int length) throws HpiFormatException {
+    if (position < 0 || length < 0 || position > buffer.limit() - length) {
+      throw new HpiFormatException("Invalid read of " + length + " bytes at " + position);
+    }
+    buffer.get(position, destination, offset, length);
+    if (obfuscated) {
+      for (int i = 0; i < length; i++) {
+        destination[offset + i] = (byte) (((position + i) ^ key) ^ ~destination[offset + i]);
+      }
+    }
+  }
+
+  /**
+   * A directory may only be listed once, otherwise directories referring to each other would list exponentially many
+   * entries.
+   *
+   * @param directoryOffsets the offsets of the directories read so far
+   */
+  private void readDirectory(ByteBuffer directory, int offset, String prefix, int depth, Set<Integer> directoryOffsets,
+                             List<HpiEntry> entries) throws HpiFormatException {
+    if (depth > MAX_DIRECTORY_DEPTH) {
+      throw new HpiFormatException("Directories are nested too deeply");
+    }
+    if (!directoryOffsets.add(offset)) {
+      throw new HpiFormatException("Directory at " + offset + " is listed more than once");
+    }
+    int entryCount = directory.getInt(offset);
+    int entryListOffset = directory.getInt(offset + 4);
+    if (entryCount < 0 || entryCount > (directory.limit() - entryListOffset) / DIRECTORY_ENTRY_SIZE) {
+      throw new HpiFormatException("Invalid entry count " + entryCount);
+    }
+    if (entryCount > MAX_ENTRY_COUNT - directoryOffsets.size() - entries.size()) {
+      throw new HpiFormatException("More than " + MAX_ENTRY_COUNT + " files and directories");
+    }
+
+    for (int i = 0; i < entryCount; i++) {
+      int entryOffset = entryListOffset + i * DIRECTORY_ENTRY_SIZE;
+      String path = prefix + readName(directory, directory.getInt(entryOffset));
+      int dataOffset = directory.getInt(entryOffset + 4);
+      boolean isDirectory = directory.get(entryOffset + 8) != 0;
+
+      if (isDirectory) {
+        readDirectory(directory, dataOffset, path + "/", depth + 1, directoryOffsets, entries);
+      } else {
+        int fileOffset = directory.getInt(dataOffset);
+        int size = directory.getInt(dataOffset + 4);
+        boolean compressed = directory.get(dataOffset + 8) != 0;
+        if (fileOffset < HEADER_SIZE || fileOffset > buffer.limit() || size < 0
+          || !compressed && size > buffer.limit() - fileOffset) {
+          throw new HpiFormatException("Invalid data of " + path);
+        }
+        entries.add(new HpiEntry(path, size, fileOffset, compressed));
+      }
+    }
+  }
+
+  private static String readName(ByteBuffer directory, int offset) {
+    int end = offset;
+    while (directory.get(end) != 0) {
+      end++;
+    }
+    byte[] name = new byte[end - offset];
+    directory.get(offset, name);
+    return new String(name, StandardCharsets.ISO_8859_1);
+  }
+}
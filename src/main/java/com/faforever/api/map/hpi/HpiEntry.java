@@ -0,0 +1,16 @@
+package com.faforever.api.map.hpi;
+
+import lombok.Value;
+
+/**
+ * A file within an {@link HpiArchive}.
+ */
+@Value
+public class HpiEntry {
+  /** The path of the file within the archive, with {@code /} as separator. */
+  String path;
+  /** The uncompressed size of the file. */
+  int size;
+  int dataOffset;
+  boolean compressed;
+}
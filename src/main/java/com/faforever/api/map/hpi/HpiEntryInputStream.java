@@ -0,0 +1,210 @@
+package com.faforever.api.map.hpi;
+
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.Objects;
+import java.util.zip.DataFormatException;
+import java.util.zip.Inflater;
+
+/**
+ * Reads the content of an {@link HpiEntry}, one chunk of at most 64 KiB at a time. The content of a compressed entry
+ * starts with the sizes of all chunks, followed by the chunks. Each chunk starts with a header ({@code SQSH} marker,
+ * compression method, encryption flag, compressed and decompressed size and checksum) followed by its data.
+ */
+class HpiEntryInputStream extends InputStream {
+
+  private static final int CHUNK_SIZE = 65536;
+  private static final int CHUNK_MARKER = 0x48535153;
+  private static final int CHUNK_HEADER_SIZE = 19;
+  private static final int COMPRESSION_LZ77 = 1;
+  private static final int COMPRESSION_ZLIB = 2;
+  private static final int LZ77_WINDOW_SIZE = 4096;
+
+  private final HpiArchive archive;
+  private final HpiEntry entry;
+  private final byte[] chunk = new byte[CHUNK_SIZE];
+  private int[] storedChunkSizes;
+  private int chunkIndex;
+  private int chunkLength;
+  private int chunkPosition;
+  private int position;
+  private int remaining;
+
+  HpiEntryInputStream(HpiArchive archive, HpiEntry entry) throws HpiFormatException {
+    this.archive = archive;
+    this.entry = entry;
+    position = entry.getDataOffset();
+    remaining = entry.getSize();
+
+    if (entry.isCompressed()) {
+      // Computed as long, since the size plus a chunk may exceed the range of int
+      int chunkCount = (int) (((long) entry.getSize() + CHUNK_SIZE - 1) / CHUNK_SIZE);
+      byte[] sizes = new byte[4 * chunkCount];
+      archive.read(position, sizes, 0, sizes.length);
+      storedChunkSizes = new int[chunkCount];
+      ByteBuffer.wrap(sizes).order(ByteOrder.LITTLE_ENDIAN).asIntBuffer().get(storedChunkSizes);
+      position += sizes.length;
+    }
+  }
+
+  @Override
+  public int read() throws HpiFormatException {
+    if (chunkPosition == chunkLength && !nextChunk()) {
+      return -1;
+    }
+    return chunk[chunkPosition++] & 0xFF;
+  }
+
+  @Override
+  public int read(byte[] b, int off, int len) throws HpiFormatException {
+    Objects.checkFromIndexSize(off, len, b.length);
+    if (len == 0) {
+      return 0;
+    }
+    if (chunkPosition == chunkLength && !nextChunk()) {
+      return -1;
+    }
+    int count = Math.min(len, chunkLength - chunkPosition);
+    System.arraycopy(chunk, chunkPosition, b, off, count);
+    chunkPosition += count;
+    return count;
+  }
+
+  @Override
+  public int available() {
+    return chunkLength - chunkPosition;
+  }
+
+  private boolean nextChunk() throws HpiFormatException {
+    if (remaining == 0) {
+      return false;
+    }
+
+    int length = Math.min(CHUNK_SIZE, remaining);
+    if (entry.isCompressed()) {
+      decompressChunk(length);
+    } else {
+      archive.read(position, chunk, 0, length);
+      position += length;
+    }
+    chunkLength = length;
+    chunkPosition = 0;
+    remaining -= length;
+    return true;
+  }
+
+  private void decompressChunk(int length) throws HpiFormatException {
+    int storedSize = storedChunkSizes[chunkIndex++];
+    byte[] header = new byte[CHUNK_HEADER_SIZE];
+    archive.read(position, header, 0, CHUNK_HEADER_SIZE);
+    ByteBuffer headerBuffer = ByteBuffer.wrap(header).order(ByteOrder.LITTLE_ENDIAN);
+    int compression = header[5];
+    boolean encrypted = header[6] != 0;
+    int compressedSize = headerBuffer.getInt(7);
+    int decompressedSize = headerBuffer.getInt(11);
+    int checksum = headerBuffer.getInt(15);
+
+    if (headerBuffer.getInt(0) != CHUNK_MARKER || decompressedSize != length
+      || compressedSize < 0 || compressedSize > storedSize - CHUNK_HEADER_SIZE || compressedSize > archive.size()) {
+      throw new HpiFormatException("Invalid chunk " + chunkIndex + " of " + entry.getPath());
+    }
+
+    byte[] data = new byte[compressedSize];
+    archive.read(position + CHUNK_HEADER_SIZE, data, 0, compressedSize);
+    position += storedSize;
+
+    int sum = 0;
+    for (int i = 0; i < compressedSize; i++) {
+      sum += data[i] & 0xFF;
+      if (encrypted) {
+        data[i] = (byte) ((data[i] - i) ^ i);
+      }
+    }
+    if (sum != checksum) {
+      throw new HpiFormatException("Checksum mismatch in chunk " + chunkIndex + " of " + entry.getPath());
+    }
+
+    switch (compression) {
+      case COMPRESSION_LZ77:
+        decompressLz77(data, length);
+        break;
+      case COMPRESSION_ZLIB:
+        inflate(data, length);
+        break;
+      default:
+        throw new HpiFormatException("Unknown compression " + compression + " in " + entry.getPath());
+    }
+  }
+
+  /**
+   * Each bit of a tag byte, starting with the lowest, tells whether the next token is a literal byte or a reference
+   * into the window of recently written bytes (12 bits offset, 4 bits length - 2). A reference to offset 0 ends the
+   * data.
+   */
+  private void decompressLz77(byte[] data, int length) throws HpiFormatException {
+    byte[] window = new byte[LZ77_WINDOW_SIZE];
+    int windowPosition = 1;
+    int in = 0;
+    int out = 0;
+
+    try {
+      int tag = data[in++] & 0xFF;
+      int mask = 1;
+      while (true) {
+        if ((tag & mask) == 0) {
+          byte value = data[in++];
+          chunk[out++] = value;
+          window[windowPosition] = value;
+          windowPosition = (windowPosition + 1) & (LZ77_WINDOW_SIZE - 1);
+        } else {
+          int reference = (data[in] & 0xFF) | (data[in + 1] & 0xFF) << 8;
+          in += 2;
+          int windowOffset = reference >> 4;
+          if (windowOffset == 0) {
+            break;
+          }
+          int count = (reference & 0x0F) + 2;
+          for (int i = 0; i < count; i++) {
+            byte value = window[windowOffset];
+            chunk[out++] = value;
+            window[windowPosition] = value;
+            windowOffset = (windowOffset + 1) & (LZ77_WINDOW_SIZE - 1);
+            windowPosition = (windowPosition + 1) & (LZ77_WINDOW_SIZE - 1);
+          }
+        }
+
+        mask <<= 1;
+        if ((mask & 0x100) != 0) {
+          mask = 1;
+          tag = data[in++] & 0xFF;
+        }
+      }
+    } catch (ArrayIndexOutOfBoundsException e) {
+      throw new HpiFormatException("Corrupt LZ77 data in " + entry.getPath());
+    }
+
+    if (out != length) {
+      throw new HpiFormatException("Chunk of " + entry.getPath() + " decompressed to " + out + " instead of " + length + " bytes");
+    }
+  }
+
+  private void inflate(byte[] data, int length) throws HpiFormatException {
+    Inflater inflater = new Inflater();
+    try {
+      inflater.setInput(data);
+      int out = 0;
+      int count;
+      while (out < length && (count = inflater.inflate(chunk, out, length - out)) > 0) {
+        out += count;
+      }
+      if (out != length) {
+        throw new HpiFormatException("Chunk of " + entry.getPath() + " decompressed to " + out + " instead of " + length + " bytes");
+      }
+    } catch (DataFormatException e) {
+      throw new HpiFormatException("Corrupt zlib data in " + entry.getPath());
+    } finally {
+      inflater.end();
+    }
+  }
+}
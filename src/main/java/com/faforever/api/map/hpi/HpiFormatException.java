@@ -0,0 +1,13 @@
+package com.faforever.api.map.hpi;
+
+import java.io.IOException;
+
+/**
+ * Thrown if a file is not a valid HPI archive.
+ */
+public class HpiFormatException extends IOException {
+
+  public HpiFormatException(String message) {
+    super(message);
+  }
+}
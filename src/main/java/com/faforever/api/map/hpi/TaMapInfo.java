@@ -0,0 +1,19 @@
+package com.faforever.api.map.hpi;
+
+import lombok.Value;
+
+/**
+ * Metadata of a map within a map archive, as read from its {@code .ota} and {@code .tnt} files.
+ */
+@Value
+public class TaMapInfo {
+  /** The name of the map, which is the name of its {@code .ota} file. */
+  String name;
+  String description;
+  /** The width in the units used by the game for map sizes, 512 pixels. */
+  int width;
+  /** The height in the units used by the game for map sizes, 512 pixels. */
+  int height;
+  /** The player counts the map is meant for, as written by the map author, for instance {@code 2, 4}. */
+  String numPlayers;
+}
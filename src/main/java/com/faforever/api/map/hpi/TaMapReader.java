@@ -0,0 +1,132 @@
+package com.faforever.api.map.hpi;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Reads the metadata of all maps in a map archive. A map consists of {@code maps/<name>.ota}, a TDF file with the
+ * mission settings, and {@code maps/<name>.tnt}, the terrain, of which only the header is read.
+ */
+public final class TaMapReader {
+
+  private static final Pattern OTA_PATH_PATTERN = Pattern.compile("maps/([^/]+)\\.ota", Pattern.CASE_INSENSITIVE);
+  private static final int TNT_VERSION = 0x2000;
+  private static final int TNT_HEADER_SIZE = 12;
+  /** The TNT size is given in units of 16 pixels, map sizes in units of 512 pixels. */
+  private static final int TNT_UNITS_PER_MAP_SIZE_UNIT = 32;
+  /** Entries are compressed in chunks of this size. */
+  private static final int CHUNK_SIZE = 64 * 1024;
+  /** Real {@code .ota} files have a few KiB. */
+  static final int MAX_OTA_SIZE = 64 * 1024;
+  /** Only the header of a {@code .tnt} file is read, but larger files are no real maps either. */
+  static final int MAX_TNT_SIZE = 64 * 1024 * 1024;
+  /**
+   * Limits the bytes decompressed to read all maps of an archive. Each {@code .tnt} header costs a whole chunk of
+   * 64 KiB, since chunks are decompressed as a whole.
+   */
+  static final long MAX_DECOMPRESSED_SIZE = 32 * 1024 * 1024;
+
+  private TaMapReader() {
+    // Utility class
+  }
+
+  /**
+   * @throws HpiFormatException if a map can't be read, or if reading the maps would decompress
+   * {@linkplain #MAX_DECOMPRESSED_SIZE too many bytes}
+   */
+  public static List<TaMapInfo> readMaps(HpiArchive archive) throws IOException {
+    List<TaMapInfo> maps = new ArrayList<>();
+    long decompressedSize = 0;
+    for (HpiEntry entry : archive.getEntries()) {
+      Matcher matcher = OTA_PATH_PATTERN.matcher(entry.getPath());
+      if (!matcher.matches()) {
+        continue;
+      }
+      String name = matcher.group(1);
+      checkSize(entry, MAX_OTA_SIZE);
+      HpiEntry tntEntry = archive.findEntry("maps/" + name + ".tnt")
+        .orElseThrow(() -> new HpiFormatException("Map '" + name + "' has no .tnt file"));
+      checkSize(tntEntry, MAX_TNT_SIZE);
+      decompressedSize += entry.getSize() + Math.min(tntEntry.getSize(), CHUNK_SIZE);
+      if (decompressedSize > MAX_DECOMPRESSED_SIZE) {
+        throw new HpiFormatException("Maps decompress to more than " + MAX_DECOMPRESSED_SIZE + " bytes");
+      }
+
+      Map<String, String> globalHeader = readGlobalHeader(new String(archive.read(entry), StandardCharsets.ISO_8859_1));
+      ByteBuffer tntHeader = readTntHeader(archive, tntEntry);
+      maps.add(new TaMapInfo(
+        name,
+        globalHeader.getOrDefault("missiondescription", ""),
+        toMapSize(tntHeader.getInt(4)),
+        toMapSize(tntHeader.getInt(8)),
+        globalHeader.getOrDefault("numplayers", "")
+      ));
+    }
+    return maps;
+  }
+
+  /**
+   * Reads the key/value pairs of the first section of a TDF file, which in an {@code .ota} file is
+   * {@code [GlobalHeader]}. Keys are case insensitive.
+   */
+  static Map<String, String> readGlobalHeader(String tdf) {
+    Map<String, String> values = new TreeMap<>(String.CASE_INSENSITIVE_ORDER);
+    StringBuilder statement = new StringBuilder();
+    int depth = 0;
+    for (char c : tdf.toCharArray()) {
+      switch (c) {
+        case '{':
+          depth++;
+          statement.setLength(0);
+          break;
+        case '}':
+          if (--depth == 0) {
+            return values;
+          }
+          statement.setLength(0);
+          break;
+        case ';':
+          int separator = statement.indexOf("=");
+          if (depth == 1 && separator > 0) {
+            values.putIfAbsent(statement.substring(0, separator).trim(), statement.substring(separator + 1).trim());
+          }
+          statement.setLength(0);
+          break;
+        default:
+          statement.append(c);
+      }
+    }
+    return values;
+  }
+
+  private static ByteBuffer readTntHeader(HpiArchive archive, HpiEntry tntEntry) throws IOException {
+    byte[] header;
+    try (InputStream inputStream = archive.openStream(tntEntry)) {
+      header = inputStream.readNBytes(TNT_HEADER_SIZE);
+    }
+    ByteBuffer buffer = ByteBuffer.wrap(header).order(ByteOrder.LITTLE_ENDIAN);
+    if (header.length < TNT_HEADER_SIZE || buffer.getInt(0) != TNT_VERSION) {
+      throw new HpiFormatException("Unsupported .tnt file " + tntEntry.getPath());
+    }
+    return buffer;
+  }
+
+  private static void checkSize(HpiEntry entry, int maxSize) throws HpiFormatException {
+    if (entry.getSize() > maxSize) {
+      throw new HpiFormatException(entry.getPath() + " has " + entry.getSize() + " bytes, more than " + maxSize);
+    }
+  }
+
+  private static int toMapSize(int tntUnits) {
+    return Math.max(1, Math.round((float) tntUnits / TNT_UNITS_PER_MAP_SIZE_UNIT));
+  }
+}
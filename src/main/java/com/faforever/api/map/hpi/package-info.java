@@ -0,0 +1,5 @@
+/**
+ * Contains a reader for the HPI archive format of Total Annihilation, which map archives ({@code .ufo}, {@code .hpi},
+ * {@code .ccx}) are stored in, and for the map metadata within them.
+ */
+package com.faforever.api.map.hpi;
@@ -2,6 +2,7 @@ package com.faforever.api.mod;
 
 import com.faforever.api.data.domain.Mod;
 import com.faforever.api.data.domain.Player;
+import com.faforever.api.search.SearchDocument;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
@@ -10,12 +11,19 @@ import org.springframework.stereotype.Repository;
 import org.springframework.transaction.annotation.Propagation;
 import org.springframework.transaction.annotation.Transactional;
 
+import java.util.Collection;
+import java.util.List;
 import java.util.Optional;
 
 @Repository
 @Transactional(propagation = Propagation.MANDATORY)
 public interface ModRepository extends JpaRepository<Mod, Integer> {
 
+  String SELECT_SEARCH_DOCUMENTS = "SELECT `mod`.id AS id, `mod`.display_name AS name, `mod`.author AS author, version.description AS description " +
+      "FROM `mod` " +
+      "JOIN mod_version version ON version.id = (SELECT latest.id FROM mod_version latest WHERE latest.mod_id = `mod`.id ORDER BY latest.version DESC LIMIT 1) " +
+      "WHERE version.hidden = 0";
+
 //  @Query("select case when(count(m) > 0) then true else false end " +
 //      "from Mod m where lower(m.displayName) = lower(:displayName) and m.uploader <> :uploader")
 //  boolean modExistsByDifferentUser(@Param("displayName") String displayName, @Param("uploader") User user);
@@ -34,4 +42,24 @@ public interface ModRepository extends JpaRepository<Mod, Integer> {
   void insertModStats(@Param("displayName") String displayName);
 
   Optional<Mod> findOneByDisplayName(String name);
+
+  /**
+   * Loads the searchable texts of all mods whose latest version isn't hidden. Not read-only, so that the documents
+   * contain everything committed before, which a lagging replica might not.
+   */
+  @Transactional
+  @Query(value = SELECT_SEARCH_DOCUMENTS, nativeQuery = true)
+  List<SearchDocument> findSearchDocuments();
+
+  /**
+   * Like {@link #findSearchDocuments()}, but only of the given mods. Not read-only, so that mods which have just been
+   * committed are read from the primary instead of a lagging replica.
+   */
+  @Transactional
+  @Query(value = SELECT_SEARCH_DOCUMENTS + " AND `mod`.id IN (:ids)", nativeQuery = true)
+  List<SearchDocument> findSearchDocuments(@Param("ids") Collection<Integer> ids);
+
+  @Transactional
+  @Query("SELECT DISTINCT version.mod.id FROM ModVersion version WHERE version.id IN (:versionIds)")
+  List<Integer> findIdsByVersionIds(@Param("versionIds") Collection<Integer> versionIds);
 }
@@ -2,9 +2,16 @@ package com.faforever.api.mod;
 
 import com.faforever.api.data.domain.ModVersion;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.util.List;
+
 @Repository
 public interface ModVersionRepository extends JpaRepository<ModVersion, Integer> {
   boolean existsByUid(String uid);
+
+  @Query("SELECT DISTINCT version.mod.id FROM ModVersion version WHERE version.filename = :filename")
+  List<Integer> findModIdsByFilename(@Param("filename") String filename);
 }
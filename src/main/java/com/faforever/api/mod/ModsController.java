@@ -1,13 +1,17 @@
 package com.faforever.api.mod;
 
 import com.faforever.api.config.FafApiProperties;
+import com.faforever.api.data.domain.Player;
 import com.faforever.api.error.ApiException;
 import com.faforever.api.error.Error;
 import com.faforever.api.error.ErrorCode;
 import com.faforever.api.player.PlayerService;
+import com.faforever.api.upload.UploadSessionService;
+import com.faforever.api.upload.UploadType;
 import com.google.common.io.Files;
 import io.swagger.annotations.ApiOperation;
 import org.springframework.security.core.Authentication;
+import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RequestMethod;
 import org.springframework.web.bind.annotation.RequestParam;
@@ -26,11 +30,13 @@ public class ModsController {
   private final PlayerService playerService;
   private final ModService modService;
   private final FafApiProperties fafApiProperties;
+  private final UploadSessionService uploadSessionService;
 
-  public ModsController(PlayerService playerService, ModService modService, FafApiProperties fafApiProperties) {
+  public ModsController(PlayerService playerService, ModService modService, FafApiProperties fafApiProperties, UploadSessionService uploadSessionService) {
     this.playerService = playerService;
     this.modService = modService;
     this.fafApiProperties = fafApiProperties;
+    this.uploadSessionService = uploadSessionService;
   }
 
   @ApiOperation("Upload a mod")
@@ -50,4 +56,11 @@ public class ModsController {
 
     modService.processUploadedMod(tempFile, playerService.getPlayer(authentication));
   }
+
+  @ApiOperation("Process a mod uploaded with a resumable upload of type MOD")
+  @RequestMapping(path = "/upload/{uploadId}", method = RequestMethod.POST, produces = APPLICATION_JSON_UTF8_VALUE)
+  public void completeModUpload(@PathVariable("uploadId") String uploadId, Authentication authentication) throws IOException {
+    Player player = playerService.getPlayer(authentication);
+    uploadSessionService.complete(uploadId, UploadType.MOD, player, stagingFile -> modService.processUploadedMod(stagingFile, player));
+  }
 }
@@ -0,0 +1,77 @@
+package com.faforever.api.search;
+
+import com.faforever.api.error.ApiException;
+import com.faforever.api.error.ErrorCode;
+import com.yahoo.elide.jsonapi.models.Data;
+import com.yahoo.elide.jsonapi.models.JsonApiDocument;
+import com.yahoo.elide.jsonapi.models.Resource;
+import io.swagger.annotations.ApiOperation;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestMethod;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+/**
+ * Lists the identifiers of the best matching maps or mods. The resources only carry their score, the entities
+ * are meant to be fetched through {@code /data} afterwards, e.g. with {@code filter=id=in=(...)}.
+ */
+@RestController
+@RequestMapping(path = "/search")
+public class SearchController {
+  private static final String MAP = "map";
+  private static final String MOD = "mod";
+  private static final int MAX_LIMIT = 100;
+  private static final int MAX_QUERY_LENGTH = 200;
+
+  private final SearchService searchService;
+
+  public SearchController(SearchService searchService) {
+    this.searchService = searchService;
+  }
+
+  @RequestMapping(path = "/maps", method = RequestMethod.GET)
+  @ApiOperation(value = "Lists the maps whose name, author or description best match the query",
+    notes = "Tolerates typos and partial words. Maps whose latest version is hidden are not listed.")
+  public JsonApiDocument searchMaps(@RequestParam("q") String query,
+                                    @RequestParam(value = "limit", defaultValue = "20") int limit) {
+    verifyQuery(query);
+    verifyLimit(limit);
+    return toDocument(MAP, searchService.searchMaps(query, limit));
+  }
+
+  @RequestMapping(path = "/mods", method = RequestMethod.GET)
+  @ApiOperation(value = "Lists the mods whose name, author or description best match the query",
+    notes = "Tolerates typos and partial words. Mods whose latest version is hidden are not listed.")
+  public JsonApiDocument searchMods(@RequestParam("q") String query,
+                                    @RequestParam(value = "limit", defaultValue = "20") int limit) {
+    verifyQuery(query);
+    verifyLimit(limit);
+    return toDocument(MOD, searchService.searchMods(query, limit));
+  }
+
+  /**
+   * Long queries are rejected, since every trigram of the query is looked up in the index.
+   */
+  private static void verifyQuery(String query) {
+    if (query.length() > MAX_QUERY_LENGTH) {
+      throw ApiException.of(ErrorCode.SEARCH_QUERY_TOO_LONG, MAX_QUERY_LENGTH, query.length());
+    }
+  }
+
+  private static void verifyLimit(int limit) {
+    if (limit < 1 || limit > MAX_LIMIT) {
+      throw ApiException.of(ErrorCode.SEARCH_INVALID_LIMIT, MAX_LIMIT, limit);
+    }
+  }
+
+  private static JsonApiDocument toDocument(String type, List<SearchHit> hits) {
+    List<Resource> values = hits.stream()
+      .map(hit -> new Resource(type, String.valueOf(hit.getId()), Map.of("score", hit.getScore()), null, null, null))
+      .collect(Collectors.toList());
+    return new JsonApiDocument(new Data<>(values));
+  }
+}
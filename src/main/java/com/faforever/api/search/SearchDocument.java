@@ -0,0 +1,15 @@
+package com.faforever.api.search;
+
+/**
+ * The searchable texts of a map or mod, loaded without the entity and its associations. The description is taken
+ * from the latest version.
+ */
+public interface SearchDocument {
+  int getId();
+
+  String getName();
+
+  String getAuthor();
+
+  String getDescription();
+}
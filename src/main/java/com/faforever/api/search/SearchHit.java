@@ -0,0 +1,12 @@
+package com.faforever.api.search;
+
+import lombok.Value;
+
+@Value
+public class SearchHit {
+  int id;
+  /**
+   * Between 0 and 1, where 1 means that all trigrams of the query occur in the name.
+   */
+  double score;
+}
@@ -0,0 +1,191 @@
+package com.faforever.api.search;
+
+import com.faforever.api.config.FafApiProperties;
+import com.faforever.api.data.domain.Map;
+import com.faforever.api.data.domain.MapVersion;
+import com.faforever.api.data.domain.Mod;
+import com.faforever.api.data.domain.ModVersion;
+import com.faforever.api.data.listeners.EntityChangedEvent;
+import com.faforever.api.map.MapRepository;
+import com.faforever.api.mod.ModRepository;
+import com.google.common.annotations.VisibleForTesting;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import javax.inject.Inject;
+import java.time.Clock;
+import java.time.Instant;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+/**
+ * Answers vault searches from a {@link TrigramIndex} of all maps and one of all mods, instead of {@code LIKE} queries
+ * which scan the whole table. The ids of maps, mods and their versions are collected from {@link EntityChangedEvent}s
+ * as they are committed, and the affected documents are reloaded by the next scheduled refresh. Every
+ * {@code fullRefreshInterval}, the indices are rebuilt completely to pick up changes made by other services.
+ */
+@Service
+@Slf4j
+public class SearchService {
+
+  private final FafApiProperties fafApiProperties;
+  private final Clock clock;
+  private final Corpus maps;
+  private final Corpus mods;
+  private volatile boolean initialized;
+  private Instant lastFullRefresh;
+
+  @Inject
+  public SearchService(MapRepository mapRepository, ModRepository modRepository, FafApiProperties fafApiProperties) {
+    this(mapRepository, modRepository, fafApiProperties, Clock.systemUTC());
+  }
+
+  @VisibleForTesting
+  SearchService(MapRepository mapRepository, ModRepository modRepository, FafApiProperties fafApiProperties, Clock clock) {
+    this.fafApiProperties = fafApiProperties;
+    this.clock = clock;
+    maps = new Corpus(mapRepository::findSearchDocuments, mapRepository::findSearchDocuments, mapRepository::findIdsByVersionIds);
+    mods = new Corpus(modRepository::findSearchDocuments, modRepository::findSearchDocuments, modRepository::findIdsByVersionIds);
+  }
+
+  public List<SearchHit> searchMaps(String query, int limit) {
+    ensureLoaded();
+    return maps.index.search(query, limit);
+  }
+
+  public List<SearchHit> searchMods(String query, int limit) {
+    ensureLoaded();
+    return mods.index.search(query, limit);
+  }
+
+  @EventListener
+  public void onEntityChanged(EntityChangedEvent event) {
+    Integer id = (Integer) event.getEntityId();
+    if (event.concerns(Map.class)) {
+      maps.changedIds.add(id);
+    } else if (event.concerns(MapVersion.class)) {
+      maps.changedVersionIds.add(id);
+    } else if (event.concerns(Mod.class)) {
+      mods.changedIds.add(id);
+    } else if (event.concerns(ModVersion.class)) {
+      mods.changedVersionIds.add(id);
+    }
+  }
+
+  @Scheduled(fixedDelayString = "${faf-api.search.refresh-interval:PT5S}")
+  public void refreshIndices() {
+    try {
+      long start = System.currentTimeMillis();
+      boolean full = !initialized || clock.instant().isAfter(lastFullRefresh.plus(fafApiProperties.getSearch().getFullRefreshInterval()));
+      int count = full ? refresh() : refreshChanged();
+      if (full || count > 0) {
+        log.debug("Refreshed search indices with {} {} documents in {} ms", count, full ? "total" : "changed", System.currentTimeMillis() - start);
+      }
+    } catch (RuntimeException e) {
+      log.warn("Could not refresh search indices, keeping previous state", e);
+    }
+  }
+
+  /**
+   * Fills the indices on first use, in case a search arrives before the first scheduled refresh.
+   */
+  private void ensureLoaded() {
+    if (!initialized) {
+      synchronized (this) {
+        if (!initialized) {
+          refresh();
+        }
+      }
+    }
+  }
+
+  private synchronized int refresh() {
+    Instant start = clock.instant();
+    int count = maps.rebuild() + mods.rebuild();
+    lastFullRefresh = start;
+    initialized = true;
+    return count;
+  }
+
+  private synchronized int refreshChanged() {
+    return maps.reloadChanged() + mods.reloadChanged();
+  }
+
+  /**
+   * The index of one type together with the ids of the documents changed since they were last loaded. Documents are
+   * only ever loaded while holding the lock of the service.
+   */
+  private static class Corpus {
+    private final Supplier<List<SearchDocument>> allDocumentsLoader;
+    private final Function<Collection<Integer>, List<SearchDocument>> documentsLoader;
+    private final Function<Collection<Integer>, List<Integer>> versionIdResolver;
+    private final Set<Integer> changedIds = ConcurrentHashMap.newKeySet();
+    private final Set<Integer> changedVersionIds = ConcurrentHashMap.newKeySet();
+    private volatile TrigramIndex index = new TrigramIndex();
+
+    Corpus(Supplier<List<SearchDocument>> allDocumentsLoader,
+           Function<Collection<Integer>, List<SearchDocument>> documentsLoader,
+           Function<Collection<Integer>, List<Integer>> versionIdResolver) {
+      this.allDocumentsLoader = allDocumentsLoader;
+      this.documentsLoader = documentsLoader;
+      this.versionIdResolver = versionIdResolver;
+    }
+
+    /**
+     * Builds a new index off to the side, so searches keep being answered from the previous one meanwhile. Changes
+     * committed before loading starts are contained in the documents, since they are loaded from the primary, so they
+     * are discarded.
+     */
+    int rebuild() {
+      changedIds.clear();
+      changedVersionIds.clear();
+      TrigramIndex newIndex = new TrigramIndex();
+      allDocumentsLoader.get().forEach(newIndex::put);
+      index = newIndex;
+      return newIndex.size();
+    }
+
+    int reloadChanged() {
+      Set<Integer> ids = drain(changedIds);
+      Set<Integer> versionIds = drain(changedVersionIds);
+      if (ids.isEmpty() && versionIds.isEmpty()) {
+        return 0;
+      }
+
+      List<SearchDocument> documents;
+      try {
+        if (!versionIds.isEmpty()) {
+          ids.addAll(versionIdResolver.apply(versionIds));
+        }
+        documents = ids.isEmpty() ? List.of() : documentsLoader.apply(ids);
+      } catch (RuntimeException e) {
+        // Retried with the next refresh
+        changedIds.addAll(ids);
+        changedVersionIds.addAll(versionIds);
+        throw e;
+      }
+
+      Set<Integer> removedIds = new HashSet<>(ids);
+      for (SearchDocument document : documents) {
+        index.put(document);
+        removedIds.remove(document.getId());
+      }
+      // Deleted, or their latest version has been hidden
+      removedIds.forEach(index::remove);
+      return ids.size();
+    }
+
+    private static Set<Integer> drain(Set<Integer> ids) {
+      Set<Integer> drained = new HashSet<>(ids);
+      ids.removeAll(drained);
+      return drained;
+    }
+  }
+}
@@ -0,0 +1,255 @@
+package com.faforever.api.search;
+
+import lombok.Value;
+
+import java.text.Normalizer;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.Set;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.regex.Pattern;
+
+/**
+ * Inverted index from trigrams to the {@link SearchDocument documents} containing them. Like PostgreSQL's
+ * {@code pg_trgm}, texts are lower cased, stripped of accents and split into words, and every word is padded with two
+ * spaces in front and one behind before it is cut into trigrams. A query matches a document if enough of its trigrams
+ * occur in the document, so typos and partial words still match.
+ *
+ * <p>A trigram counts fully if it occurs in the name, half if it occurs in the author and a quarter if it only occurs
+ * in the description. The score is the sum over all trigrams of the query divided by their number. Hits with the same
+ * score are ordered by the length of their name, so exact matches come before longer names containing them.</p>
+ *
+ * <p>Documents are numbered by dense slots, so that posting lists are plain arrays and the scores of a query are
+ * summed up in an array instead of a map. The posting lists of common trigrams, which are scanned last, only add to
+ * documents that can still reach the minimum score. Documents are added, replaced or removed one by one as they change.
+ * Thread-safe.</p>
+ */
+class TrigramIndex {
+
+  static final double MIN_SCORE = 0.3;
+  private static final float NAME_WEIGHT = 1f;
+  private static final float AUTHOR_WEIGHT = 0.5f;
+  private static final float DESCRIPTION_WEIGHT = 0.25f;
+  private static final Pattern DIACRITICS_PATTERN = Pattern.compile("\\p{M}+");
+  private static final Pattern WORD_SEPARATOR_PATTERN = Pattern.compile("[^\\p{L}\\p{N}]+");
+  /** Worst first, so that the worst of the best candidates found so far can be dropped. */
+  private static final Comparator<Candidate> WORST_FIRST = Comparator.comparingDouble(Candidate::getSum)
+    .thenComparing(Comparator.comparingInt(Candidate::getNameLength).reversed())
+    .thenComparing(Comparator.comparingInt(Candidate::getId).reversed());
+
+  private final Map<String, Postings> postings = new HashMap<>();
+  private final Map<Integer, Integer> slotsById = new HashMap<>();
+  private final Deque<Integer> freeSlots = new ArrayDeque<>();
+  private final ReadWriteLock lock = new ReentrantReadWriteLock();
+  private int[] idsBySlot = new int[16];
+  private int[] nameLengthsBySlot = new int[16];
+  private String[][] trigramsBySlot = new String[16][];
+  private int slotCount;
+
+  /**
+   * Adds the document or replaces the document with the same id.
+   */
+  void put(SearchDocument document) {
+    Map<String, Float> weights = new HashMap<>();
+    addTrigrams(weights, document.getDescription(), DESCRIPTION_WEIGHT);
+    addTrigrams(weights, document.getAuthor(), AUTHOR_WEIGHT);
+    addTrigrams(weights, document.getName(), NAME_WEIGHT);
+    int nameLength = document.getName() == null ? 0 : document.getName().length();
+
+    lock.writeLock().lock();
+    try {
+      removeInternal(document.getId());
+      int slot = allocateSlot();
+      idsBySlot[slot] = document.getId();
+      nameLengthsBySlot[slot] = nameLength;
+      trigramsBySlot[slot] = weights.keySet().toArray(new String[0]);
+      weights.forEach((trigram, weight) -> postings.computeIfAbsent(trigram, key -> new Postings()).add(slot, weight));
+      slotsById.put(document.getId(), slot);
+    } finally {
+      lock.writeLock().unlock();
+    }
+  }
+
+  void remove(int id) {
+    lock.writeLock().lock();
+    try {
+      removeInternal(id);
+    } finally {
+      lock.writeLock().unlock();
+    }
+  }
+
+  int size() {
+    lock.readLock().lock();
+    try {
+      return slotsById.size();
+    } finally {
+      lock.readLock().unlock();
+    }
+  }
+
+  /**
+   * @return up to {@code limit} documents scoring at least {@link #MIN_SCORE}, best first
+   */
+  List<SearchHit> search(String query, int limit) {
+    Set<String> queryTrigrams = trigrams(query);
+    if (queryTrigrams.isEmpty() || limit <= 0) {
+      return List.of();
+    }
+    float minSum = (float) (MIN_SCORE * queryTrigrams.size());
+    PriorityQueue<Candidate> best = new PriorityQueue<>(limit + 1, WORST_FIRST);
+
+    lock.readLock().lock();
+    try {
+      // Rarest trigrams first: once the remaining ones can't lift a new document to the minimum, only documents seen
+      // already are summed up further
+      List<Postings> queryPostings = new ArrayList<>(queryTrigrams.size());
+      for (String trigram : queryTrigrams) {
+        Postings trigramPostings = postings.get(trigram);
+        if (trigramPostings != null) {
+          queryPostings.add(trigramPostings);
+        }
+      }
+      queryPostings.sort(Comparator.comparingInt(trigramPostings -> trigramPostings.size));
+
+      float[] sums = new float[slotCount];
+      int[] touchedSlots = new int[slotCount];
+      int touchedCount = 0;
+      float remainingMaxSum = queryPostings.size() * NAME_WEIGHT;
+      for (Postings trigramPostings : queryPostings) {
+        boolean admitsNewSlots = remainingMaxSum >= minSum;
+        remainingMaxSum -= NAME_WEIGHT;
+        for (int i = 0; i < trigramPostings.size; i++) {
+          int slot = trigramPostings.slots[i];
+          if (sums[slot] == 0) {
+            if (!admitsNewSlots) {
+              continue;
+            }
+            touchedSlots[touchedCount++] = slot;
+          }
+          sums[slot] += trigramPostings.weights[i];
+        }
+      }
+
+      for (int i = 0; i < touchedCount; i++) {
+        int slot = touchedSlots[i];
+        if (sums[slot] >= minSum) {
+          best.add(new Candidate(idsBySlot[slot], sums[slot], nameLengthsBySlot[slot]));
+          if (best.size() > limit) {
+            best.poll();
+          }
+        }
+      }
+    } finally {
+      lock.readLock().unlock();
+    }
+
+    List<SearchHit> hits = new ArrayList<>(best.size());
+    while (!best.isEmpty()) {
+      Candidate candidate = best.poll();
+      hits.add(new SearchHit(candidate.getId(), (double) candidate.getSum() / queryTrigrams.size()));
+    }
+    Collections.reverse(hits);
+    return hits;
+  }
+
+  static Set<String> trigrams(String text) {
+    Set<String> trigrams = new HashSet<>();
+    if (text == null) {
+      return trigrams;
+    }
+    String normalized = DIACRITICS_PATTERN.matcher(Normalizer.normalize(text, Normalizer.Form.NFD)).replaceAll("")
+      .toLowerCase(Locale.ROOT);
+    for (String word : WORD_SEPARATOR_PATTERN.split(normalized)) {
+      if (word.isEmpty()) {
+        continue;
+      }
+      String padded = "  " + word + " ";
+      for (int i = 0; i + 3 <= padded.length(); i++) {
+        trigrams.add(padded.substring(i, i + 3));
+      }
+    }
+    return trigrams;
+  }
+
+  private static void addTrigrams(Map<String, Float> weights, String text, float weight) {
+    trigrams(text).forEach(trigram -> weights.merge(trigram, weight, Math::max));
+  }
+
+  private int allocateSlot() {
+    if (!freeSlots.isEmpty()) {
+      return freeSlots.pop();
+    }
+    if (slotCount == idsBySlot.length) {
+      int capacity = slotCount * 2;
+      idsBySlot = Arrays.copyOf(idsBySlot, capacity);
+      nameLengthsBySlot = Arrays.copyOf(nameLengthsBySlot, capacity);
+      trigramsBySlot = Arrays.copyOf(trigramsBySlot, capacity);
+    }
+    return slotCount++;
+  }
+
+  private void removeInternal(int id) {
+    Integer slot = slotsById.remove(id);
+    if (slot == null) {
+      return;
+    }
+    for (String trigram : trigramsBySlot[slot]) {
+      Postings trigramPostings = postings.get(trigram);
+      trigramPostings.remove(slot);
+      if (trigramPostings.size == 0) {
+        postings.remove(trigram);
+      }
+    }
+    trigramsBySlot[slot] = null;
+    freeSlots.push(slot);
+  }
+
+  /**
+   * The slots of the documents containing a trigram, unordered, with the weight of the trigram in each.
+   */
+  private static class Postings {
+    private int[] slots = new int[4];
+    private float[] weights = new float[4];
+    private int size;
+
+    void add(int slot, float weight) {
+      if (size == slots.length) {
+        slots = Arrays.copyOf(slots, size * 2);
+        weights = Arrays.copyOf(weights, size * 2);
+      }
+      slots[size] = slot;
+      weights[size] = weight;
+      size++;
+    }
+
+    void remove(int slot) {
+      for (int i = 0; i < size; i++) {
+        if (slots[i] == slot) {
+          size--;
+          slots[i] = slots[size];
+          weights[i] = weights[size];
+          return;
+        }
+      }
+    }
+  }
+
+  @Value
+  private static class Candidate {
+    int id;
+    float sum;
+    int nameLength;
+  }
+}
@@ -0,0 +1,4 @@
+/**
+ * Full-text search over the vault, answered from in-memory trigram indices that are kept in sync with the database.
+ */
+package com.faforever.api.search;
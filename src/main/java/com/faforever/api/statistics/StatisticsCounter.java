@@ -0,0 +1,22 @@
+package com.faforever.api.statistics;
+
+import lombok.Getter;
+import lombok.RequiredArgsConstructor;
+
+/**
+ * A statistics column that is counted by {@link StatisticsCounterService}. Each counter adds to its column with an
+ * upsert of the parameters {@code id} and {@code delta}. The upsert selects the row to insert from the counted entity's
+ * table, so that counts of entities deleted in the meantime are dropped instead of failing the whole batch.
+ */
+@Getter
+@RequiredArgsConstructor
+public enum StatisticsCounter {
+  MAP_VERSION_DOWNLOADS("INSERT INTO table_map_features (map_id, downloads) " +
+    "SELECT id, :delta FROM map_version WHERE id = :id " +
+    "ON DUPLICATE KEY UPDATE downloads = downloads + VALUES(downloads)"),
+  MOD_DOWNLOADS("INSERT INTO mod_stats (mod_id, likers, downloads) " +
+    "SELECT id, '', :delta FROM `mod` WHERE id = :id " +
+    "ON DUPLICATE KEY UPDATE downloads = downloads + VALUES(downloads)");
+
+  private final String upsertStatement;
+}
@@ -0,0 +1,38 @@
+package com.faforever.api.statistics;
+
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.jdbc.core.namedparam.SqlParameterSource;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.Map;
+
+@Repository
+public class StatisticsCounterRepository {
+
+  private final NamedParameterJdbcTemplate jdbcTemplate;
+
+  public StatisticsCounterRepository(NamedParameterJdbcTemplate jdbcTemplate) {
+    this.jdbcTemplate = jdbcTemplate;
+  }
+
+  /**
+   * Adds the deltas by entity id to the counter's column in a single batch, in one transaction.
+   *
+   * @param synchronization registered with the transaction, to be notified of its completion
+   */
+  // Don't make this package private, see https://jira.spring.io/browse/SPR-15911
+  @Transactional
+  public void add(StatisticsCounter counter, Map<Integer, Long> deltas, TransactionSynchronization synchronization) {
+    TransactionSynchronizationManager.registerSynchronization(synchronization);
+    SqlParameterSource[] parameters = deltas.entrySet().stream()
+      .map(entry -> new MapSqlParameterSource()
+        .addValue("id", entry.getKey())
+        .addValue("delta", entry.getValue()))
+      .toArray(SqlParameterSource[]::new);
+    jdbcTemplate.batchUpdate(counter.getUpsertStatement(), parameters);
+  }
+}
@@ -0,0 +1,139 @@
+package com.faforever.api.statistics;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronizationAdapter;
+
+import javax.annotation.PreDestroy;
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Counts events like downloads per entity id in memory and adds them to the statistics in the database periodically,
+ * one batch per {@link StatisticsCounter}. Incrementing a counter only touches a {@link LongAdder}, so concurrent
+ * increments of the same entity neither contend nor take a row lock.
+ *
+ * <p>Counts that haven't been written yet are {@linkplain #getPendingCount(StatisticsCounter, int) pending}. A count
+ * stays pending while its batch is being written, and is only dropped once the batch has been committed. If writing
+ * fails, the counts are added back for the next attempt. Pending counts aren't read while counts are moved into a
+ * batch or while a batch commits, so a count is never pending twice, nor pending and committed at once.</p>
+ */
+@Service
+@Slf4j
+public class StatisticsCounterService {
+
+  private final StatisticsCounterRepository statisticsCounterRepository;
+  private final Map<StatisticsCounter, Map<Integer, LongAdder>> counts = new EnumMap<>(StatisticsCounter.class);
+  private final Map<StatisticsCounter, Map<Integer, Long>> flushingCounts = new EnumMap<>(StatisticsCounter.class);
+  /** Read to sum up pending counts, written to move counts between {@link #counts} and {@link #flushingCounts}. */
+  private final ReadWriteLock pendingCountLock = new ReentrantReadWriteLock();
+
+  public StatisticsCounterService(StatisticsCounterRepository statisticsCounterRepository) {
+    this.statisticsCounterRepository = statisticsCounterRepository;
+    for (StatisticsCounter counter : StatisticsCounter.values()) {
+      counts.put(counter, new ConcurrentHashMap<>());
+      flushingCounts.put(counter, new ConcurrentHashMap<>());
+    }
+  }
+
+  public void increment(StatisticsCounter counter, int id) {
+    // Adders are never removed, so that an increment can't end up in an adder that has already been flushed
+    counts.get(counter).computeIfAbsent(id, key -> new LongAdder()).increment();
+  }
+
+  /**
+   * @return the count that has not been written to the database yet
+   */
+  public long getPendingCount(StatisticsCounter counter, int id) {
+    pendingCountLock.readLock().lock();
+    try {
+      LongAdder count = counts.get(counter).get(id);
+      return (count == null ? 0 : count.sum()) + flushingCounts.get(counter).getOrDefault(id, 0L);
+    } finally {
+      pendingCountLock.readLock().unlock();
+    }
+  }
+
+  /**
+   * @return the count written to the database plus the pending count
+   */
+  public long getLiveCount(StatisticsCounter counter, int id, long persistedCount) {
+    return persistedCount + getPendingCount(counter, id);
+  }
+
+  @Scheduled(fixedDelayString = "${faf-api.statistics.flush-interval:PT1M}")
+  @PreDestroy
+  public synchronized void flush() {
+    for (StatisticsCounter counter : StatisticsCounter.values()) {
+      flush(counter);
+    }
+  }
+
+  private void flush(StatisticsCounter counter) {
+    Map<Integer, Long> flushing = flushingCounts.get(counter);
+    // Ordered by id, so that concurrent batches of several API instances lock rows in the same order
+    Map<Integer, Long> deltas = new TreeMap<>();
+    pendingCountLock.writeLock().lock();
+    try {
+      for (Entry<Integer, LongAdder> entry : counts.get(counter).entrySet()) {
+        long delta = entry.getValue().sum();
+        if (delta == 0) {
+          continue;
+        }
+        entry.getValue().add(-delta);
+        flushing.put(entry.getKey(), delta);
+        deltas.put(entry.getKey(), delta);
+      }
+    } finally {
+      pendingCountLock.writeLock().unlock();
+    }
+    if (deltas.isEmpty()) {
+      return;
+    }
+
+    try {
+      statisticsCounterRepository.add(counter, deltas, new TransactionSynchronizationAdapter() {
+        @Override
+        public void beforeCompletion() {
+          pendingCountLock.writeLock().lock();
+        }
+
+        @Override
+        public void afterCompletion(int status) {
+          try {
+            if (status == STATUS_COMMITTED) {
+              flushing.clear();
+            }
+          } finally {
+            pendingCountLock.writeLock().unlock();
+          }
+        }
+      });
+      log.debug("Added {} counts of {}", deltas.size(), counter);
+    } catch (RuntimeException e) {
+      restore(counter, deltas);
+      log.warn("Could not add {} counts of {}, retrying later", deltas.size(), counter, e);
+    }
+  }
+
+  private void restore(StatisticsCounter counter, Map<Integer, Long> deltas) {
+    pendingCountLock.writeLock().lock();
+    try {
+      if (flushingCounts.get(counter).isEmpty()) {
+        // Committed, the exception has been thrown afterwards
+        return;
+      }
+      deltas.forEach((id, delta) -> counts.get(counter).get(id).add(delta));
+      flushingCounts.get(counter).clear();
+    } finally {
+      pendingCountLock.writeLock().unlock();
+    }
+  }
+}
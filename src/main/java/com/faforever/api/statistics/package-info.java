@@ -0,0 +1,4 @@
+/**
+ * Counters of statistics which are incremented in memory and written to the database in batches.
+ */
+package com.faforever.api.statistics;
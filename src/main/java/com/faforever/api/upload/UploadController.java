@@ -0,0 +1,66 @@
+package com.faforever.api.upload;
+
+import com.faforever.api.player.PlayerService;
+import io.swagger.annotations.ApiOperation;
+import io.swagger.annotations.ApiResponse;
+import io.swagger.annotations.ApiResponses;
+import lombok.RequiredArgsConstructor;
+import org.springframework.security.core.Authentication;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestMethod;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.io.IOException;
+import java.io.InputStream;
+
+import static org.springframework.http.MediaType.APPLICATION_JSON_VALUE;
+import static org.springframework.http.MediaType.APPLICATION_OCTET_STREAM_VALUE;
+
+/**
+ * Receives resumable uploads, see {@link UploadSessionService}. Completed uploads are processed by
+ * {@code POST /maps/upload/{id}}, {@code POST /mods/upload/{id}} or {@code POST /game/logs_upload/{id}}.
+ */
+@RestController
+@RequestMapping(path = "/uploads")
+@RequiredArgsConstructor
+public class UploadController {
+  private final UploadSessionService uploadSessionService;
+  private final PlayerService playerService;
+
+  @ApiOperation("Start a resumable upload")
+  @ApiResponses(value = {
+    @ApiResponse(code = 200, message = "Success"),
+    @ApiResponse(code = 401, message = "Unauthorized"),
+    @ApiResponse(code = 422, message = "Invalid file extension or size, or too many uploads in progress")})
+  @RequestMapping(method = RequestMethod.POST, produces = APPLICATION_JSON_VALUE)
+  public UploadStatus createSession(@RequestParam("type") UploadType type,
+                                    @RequestParam("fileName") String fileName,
+                                    @RequestParam("size") long size,
+                                    Authentication authentication) throws IOException {
+    return uploadSessionService.createSession(type, fileName, size, playerService.getPlayer(authentication));
+  }
+
+  @ApiOperation("Get the offset at which a resumable upload continues")
+  @RequestMapping(path = "/{id}", method = RequestMethod.GET, produces = APPLICATION_JSON_VALUE)
+  public UploadStatus getStatus(@PathVariable("id") String id, Authentication authentication) {
+    return uploadSessionService.getStatus(id, playerService.getPlayer(authentication));
+  }
+
+  @ApiOperation("Append a chunk to a resumable upload")
+  @ApiResponses(value = {
+    @ApiResponse(code = 200, message = "Success"),
+    @ApiResponse(code = 401, message = "Unauthorized"),
+    @ApiResponse(code = 404, message = "Unknown or expired upload"),
+    @ApiResponse(code = 409, message = "Another chunk is being received"),
+    @ApiResponse(code = 422, message = "Unexpected offset, checksum mismatch or chunk too large")})
+  @RequestMapping(path = "/{id}", method = RequestMethod.PUT, consumes = APPLICATION_OCTET_STREAM_VALUE, produces = APPLICATION_JSON_VALUE)
+  public UploadStatus appendChunk(@PathVariable("id") String id,
+                                  @RequestParam("offset") long offset,
+                                  @RequestParam("checksum") String checksum,
+                                  InputStream body,
+                                  Authentication authentication) throws IOException {
+    return uploadSessionService.appendChunk(id, offset, checksum, body, playerService.getPlayer(authentication));
+  }
+}
@@ -0,0 +1,38 @@
+package com.faforever.api.upload;
+
+import lombok.Getter;
+import lombok.Setter;
+
+import java.nio.file.Path;
+import java.time.Instant;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Mutable state of a resumable upload. Chunks of a session are appended and the session is completed while holding
+ * its lock. The state may be read without holding it.
+ */
+@Getter
+class UploadSession {
+  private final String id;
+  private final UploadType type;
+  private final int playerId;
+  private final long size;
+  private final Path stagingFile;
+  private final Lock lock = new ReentrantLock();
+  @Setter
+  private volatile long received;
+  @Setter
+  private volatile Instant lastActivity;
+  @Setter
+  private volatile boolean completed;
+
+  UploadSession(String id, UploadType type, int playerId, long size, Path stagingFile, Instant lastActivity) {
+    this.id = id;
+    this.type = type;
+    this.playerId = playerId;
+    this.size = size;
+    this.stagingFile = stagingFile;
+    this.lastActivity = lastActivity;
+  }
+}
@@ -0,0 +1,269 @@
+package com.faforever.api.upload;
+
+import com.faforever.api.config.FafApiProperties;
+import com.faforever.api.config.FafApiProperties.Upload;
+import com.faforever.api.data.domain.Player;
+import com.faforever.api.error.ApiException;
+import com.faforever.api.error.ConflictApiException;
+import com.faforever.api.error.Error;
+import com.faforever.api.error.ErrorCode;
+import com.faforever.api.error.NotFoundApiException;
+import com.google.common.annotations.VisibleForTesting;
+import com.google.common.hash.Hashing;
+import com.google.common.hash.HashingInputStream;
+import com.google.common.io.ByteStreams;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.commons.io.FilenameUtils;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import javax.inject.Inject;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Clock;
+import java.time.Instant;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Collects resumable uploads. A client creates a session for the file it wants to upload, then sends the file in
+ * chunks that are appended directly to a staging file, and finally completes the upload through the endpoint of the
+ * uploaded content type, which processes the staging file. If a chunk fails, the client asks for the current offset
+ * and continues from there instead of starting over.
+ *
+ * <p>Only one request writes to a session at a time. Others are rejected instead of waiting for it, since receiving a
+ * chunk may take long, and the status can be read meanwhile.</p>
+ */
+@Service
+@Slf4j
+public class UploadSessionService {
+
+  private static final String STAGING_FILE_SUFFIX = ".part";
+
+  private final FafApiProperties fafApiProperties;
+  private final Clock clock;
+  private final Map<String, UploadSession> sessions = new ConcurrentHashMap<>();
+
+  @Inject
+  public UploadSessionService(FafApiProperties fafApiProperties) {
+    this(fafApiProperties, Clock.systemUTC());
+  }
+
+  @VisibleForTesting
+  UploadSessionService(FafApiProperties fafApiProperties, Clock clock) {
+    this.fafApiProperties = fafApiProperties;
+    this.clock = clock;
+  }
+
+  public UploadStatus createSession(UploadType type, String fileName, long size, Player player) throws IOException {
+    Set<String> allowedExtensions = getAllowedExtensions(type);
+    if (!allowedExtensions.contains(FilenameUtils.getExtension(fileName))) {
+      throw new ApiException(new Error(ErrorCode.UPLOAD_INVALID_FILE_EXTENSIONS, allowedExtensions));
+    }
+
+    Upload upload = fafApiProperties.getUpload();
+    long maxFileSize = upload.getMaxFileSize().toBytes();
+    if (size <= 0 || size > maxFileSize) {
+      throw new ApiException(new Error(ErrorCode.FILE_SIZE_EXCEEDED, maxFileSize, size));
+    }
+
+    Files.createDirectories(upload.getStagingDirectory());
+    if (upload.getStagingDirectory().toFile().getFreeSpace() < 2 * size) {
+      throw ApiException.of(ErrorCode.SERVER_DISK_FULL);
+    }
+
+    String id = UUID.randomUUID().toString();
+    UploadSession session;
+    // Counting and adding the session at once, so that concurrent requests can't exceed the limit
+    synchronized (sessions) {
+      long playerSessionCount = sessions.values().stream()
+        .filter(existingSession -> existingSession.getPlayerId() == player.getId())
+        .count();
+      if (playerSessionCount >= upload.getMaxSessionsPerPlayer()) {
+        throw ApiException.of(ErrorCode.UPLOAD_TOO_MANY_SESSIONS, upload.getMaxSessionsPerPlayer());
+      }
+      Path stagingFile = Files.createFile(upload.getStagingDirectory().resolve(id + STAGING_FILE_SUFFIX));
+      session = new UploadSession(id, type, player.getId(), size, stagingFile, clock.instant());
+      sessions.put(id, session);
+    }
+
+    log.debug("Player '{}' started uploading {} '{}' with {} bytes in session '{}'", player, type, fileName, size, id);
+    return toStatus(session);
+  }
+
+  public UploadStatus getStatus(String id, Player player) {
+    return toStatus(getSession(id, player));
+  }
+
+  /**
+   * Appends a chunk to the upload. If the chunk can't be received completely or doesn't match its checksum, it is
+   * discarded so that it can be sent again.
+   *
+   * @param offset the position of the chunk within the file, which has to be the number of bytes received so far
+   * @param checksum the hex encoded SHA-256 checksum of the chunk
+   * @throws ConflictApiException with {@link ErrorCode#UPLOAD_BUSY} if another request is writing to the session
+   */
+  public UploadStatus appendChunk(String id, long offset, String checksum, InputStream inputStream, Player player) throws IOException {
+    UploadSession session = getSession(id, player);
+    lock(session);
+    try {
+      if (session.isCompleted()) {
+        throw new NotFoundApiException(new Error(ErrorCode.ENTITY_NOT_FOUND, id));
+      }
+      if (offset != session.getReceived()) {
+        throw new ApiException(new Error(ErrorCode.UPLOAD_OFFSET_MISMATCH, session.getReceived(), offset));
+      }
+
+      long maxChunkSize = Math.min(fafApiProperties.getUpload().getMaxChunkSize().toBytes(), session.getSize() - offset);
+      try (FileChannel channel = FileChannel.open(session.getStagingFile(), StandardOpenOption.WRITE)) {
+        try {
+          channel.position(offset);
+          HashingInputStream hashingInputStream = new HashingInputStream(Hashing.sha256(), ByteStreams.limit(inputStream, maxChunkSize + 1));
+          long chunkSize = ByteStreams.copy(hashingInputStream, Channels.newOutputStream(channel));
+          if (chunkSize > maxChunkSize) {
+            throw new ApiException(new Error(ErrorCode.FILE_SIZE_EXCEEDED, maxChunkSize, chunkSize));
+          }
+          String actualChecksum = hashingInputStream.hash().toString();
+          if (!actualChecksum.equalsIgnoreCase(checksum)) {
+            throw new ApiException(new Error(ErrorCode.UPLOAD_CHECKSUM_MISMATCH, actualChecksum));
+          }
+          session.setReceived(offset + chunkSize);
+        } catch (IOException | RuntimeException e) {
+          channel.truncate(offset);
+          throw e;
+        }
+      }
+      session.setLastActivity(clock.instant());
+      return toStatus(session);
+    } finally {
+      session.getLock().unlock();
+    }
+  }
+
+  /**
+   * Passes the completely received file to the processor, which may move it elsewhere. The session and the file, if
+   * still present, are removed if processing succeeds. Otherwise it is kept, so that the client can try again, for instance with
+   * corrected metadata.
+   *
+   * @throws ApiException with {@link ErrorCode#UPLOAD_INCOMPLETE} if not all bytes have been received yet
+   * @throws ConflictApiException with {@link ErrorCode#UPLOAD_BUSY} if another request is writing to the session
+   */
+  public void complete(String id, UploadType type, Player player, UploadProcessor processor) throws IOException {
+    UploadSession session = getSession(id, player);
+    lock(session);
+    try {
+      if (session.isCompleted() || session.getType() != type) {
+        throw new NotFoundApiException(new Error(ErrorCode.ENTITY_NOT_FOUND, id));
+      }
+      if (session.getReceived() != session.getSize()) {
+        throw new ApiException(new Error(ErrorCode.UPLOAD_INCOMPLETE, session.getReceived(), session.getSize()));
+      }
+
+      session.setLastActivity(clock.instant());
+      processor.process(session.getStagingFile());
+
+      session.setCompleted(true);
+      discard(session);
+    } finally {
+      session.getLock().unlock();
+    }
+  }
+
+  @Scheduled(fixedDelayString = "${faf-api.upload.cleanup-interval:PT10M}")
+  public void discardExpiredSessions() {
+    Instant expiredBefore = clock.instant().minus(fafApiProperties.getUpload().getSessionExpiry());
+    sessions.values().forEach(session -> {
+      // Sessions being written to aren't expired
+      if (!session.getLock().tryLock()) {
+        return;
+      }
+      try {
+        if (!session.isCompleted() && session.getLastActivity().isBefore(expiredBefore)) {
+          log.debug("Discarding expired upload session '{}' after {} of {} bytes", session.getId(), session.getReceived(), session.getSize());
+          session.setCompleted(true);
+          discard(session);
+        }
+      } finally {
+        session.getLock().unlock();
+      }
+    });
+    discardOrphanedStagingFiles(expiredBefore);
+  }
+
+  /**
+   * Sessions are only kept in memory, so their staging files are left behind if the application is restarted.
+   */
+  private void discardOrphanedStagingFiles(Instant expiredBefore) {
+    Path stagingDirectory = fafApiProperties.getUpload().getStagingDirectory();
+    if (!Files.isDirectory(stagingDirectory)) {
+      return;
+    }
+    try (DirectoryStream<Path> stagingFiles = Files.newDirectoryStream(stagingDirectory, "*" + STAGING_FILE_SUFFIX)) {
+      for (Path stagingFile : stagingFiles) {
+        String id = stagingFile.getFileName().toString().replace(STAGING_FILE_SUFFIX, "");
+        if (!sessions.containsKey(id) && Files.getLastModifiedTime(stagingFile).toInstant().isBefore(expiredBefore)) {
+          Files.deleteIfExists(stagingFile);
+        }
+      }
+    } catch (IOException e) {
+      log.warn("Could not discard orphaned staging files in '{}'", stagingDirectory, e);
+    }
+  }
+
+  private void discard(UploadSession session) {
+    sessions.remove(session.getId());
+    try {
+      Files.deleteIfExists(session.getStagingFile());
+    } catch (IOException e) {
+      log.warn("Could not delete staging file '{}'", session.getStagingFile(), e);
+    }
+  }
+
+  private static void lock(UploadSession session) {
+    if (!session.getLock().tryLock()) {
+      throw new ConflictApiException(new Error(ErrorCode.UPLOAD_BUSY, session.getId()));
+    }
+  }
+
+  /**
+   * Sessions of other players are reported as missing as well.
+   */
+  private UploadSession getSession(String id, Player player) {
+    UploadSession session = sessions.get(id);
+    if (session == null || session.getPlayerId() != player.getId()) {
+      throw new NotFoundApiException(new Error(ErrorCode.ENTITY_NOT_FOUND, id));
+    }
+    return session;
+  }
+
+  private Set<String> getAllowedExtensions(UploadType type) {
+    switch (type) {
+      case MAP:
+        return fafApiProperties.getMap().getAllowedExtensions();
+      case MOD:
+        return fafApiProperties.getMod().getAllowedExtensions();
+      case GAME_LOGS:
+        return fafApiProperties.getGameLogs().getAllowedExtensions();
+      default:
+        throw new IllegalArgumentException("Unknown upload type: " + type);
+    }
+  }
+
+  private UploadStatus toStatus(UploadSession session) {
+    return new UploadStatus(session.getId(), session.getType(), session.getSize(), session.getReceived(),
+      session.getLastActivity().plus(fafApiProperties.getUpload().getSessionExpiry()));
+  }
+
+  @FunctionalInterface
+  public interface UploadProcessor {
+    void process(Path stagingFile) throws IOException;
+  }
+}
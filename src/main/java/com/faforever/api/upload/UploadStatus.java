@@ -0,0 +1,20 @@
+package com.faforever.api.upload;
+
+import lombok.Value;
+
+import java.time.Instant;
+
+@Value
+public class UploadStatus {
+  String id;
+  UploadType type;
+  long size;
+  /**
+   * The number of bytes received so far, which is where the next chunk has to start.
+   */
+  long offset;
+  /**
+   * The session and everything received so far is discarded if no chunk is received until then.
+   */
+  Instant expiresAt;
+}
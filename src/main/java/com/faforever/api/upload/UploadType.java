@@ -0,0 +1,5 @@
+package com.faforever.api.upload;
+
+public enum UploadType {
+  MAP, MOD, GAME_LOGS
+}
@@ -0,0 +1,5 @@
+/**
+ * Contains classes for resumable uploads, which are received in chunks and then handed to the processing of the
+ * uploaded content type.
+ */
+package com.faforever.api.upload;
@@ -0,0 +1,79 @@
+package com.faforever.api.cache;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+
+import java.io.ByteArrayInputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.zip.GZIPInputStream;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.CoreMatchers.nullValue;
+import static org.junit.Assert.assertThat;
+
+public class SerializedResponseTest {
+
+  private static final byte[] LARGE_BODY = ("{\"data\":\"" + "x".repeat(SerializedResponse.GZIP_THRESHOLD) + "\"}").getBytes(StandardCharsets.UTF_8);
+
+  @Test
+  public void plainResponse() {
+    SerializedResponse response = SerializedResponse.of(LARGE_BODY);
+
+    ResponseEntity<byte[]> result = response.toResponseEntity(null, null);
+
+    assertThat(result.getStatusCode(), is(HttpStatus.OK));
+    assertThat(result.getBody(), is(LARGE_BODY));
+    assertThat(result.getHeaders().getETag(), is(response.getEtag()));
+    assertThat(result.getHeaders().getFirst(HttpHeaders.CONTENT_ENCODING), is(nullValue()));
+  }
+
+  @Test
+  public void gzippedResponse() throws Exception {
+    SerializedResponse response = SerializedResponse.of(LARGE_BODY);
+
+    ResponseEntity<byte[]> result = response.toResponseEntity(null, "deflate, gzip;q=0.8");
+
+    assertThat(result.getHeaders().getFirst(HttpHeaders.CONTENT_ENCODING), is("gzip"));
+    assertThat(result.getHeaders().getETag(), is(response.getGzipEtag()));
+    try (GZIPInputStream inputStream = new GZIPInputStream(new ByteArrayInputStream(result.getBody()))) {
+      assertThat(inputStream.readAllBytes(), is(LARGE_BODY));
+    }
+  }
+
+  @Test
+  public void gzipNotAccepted() {
+    ResponseEntity<byte[]> result = SerializedResponse.of(LARGE_BODY).toResponseEntity(null, "gzip;q=0");
+
+    assertThat(result.getBody(), is(LARGE_BODY));
+  }
+
+  @Test
+  public void smallBodiesAreNotGzipped() {
+    byte[] body = "{}".getBytes(StandardCharsets.UTF_8);
+
+    ResponseEntity<byte[]> result = SerializedResponse.of(body).toResponseEntity(null, "gzip");
+
+    assertThat(result.getBody(), is(body));
+  }
+
+  @Test
+  public void notModified() {
+    SerializedResponse response = SerializedResponse.of(LARGE_BODY);
+
+    ResponseEntity<byte[]> result = response.toResponseEntity("\"other\", " + response.getEtag(), "gzip");
+
+    assertThat(result.getStatusCode(), is(HttpStatus.NOT_MODIFIED));
+    assertThat(result.getBody(), is(nullValue()));
+    assertThat(result.getHeaders().getETag(), is(response.getGzipEtag()));
+  }
+
+  @Test
+  public void etagChangesWithBody() {
+    SerializedResponse first = SerializedResponse.of("{\"a\":1}".getBytes(StandardCharsets.UTF_8));
+    SerializedResponse second = SerializedResponse.of("{\"a\":2}".getBytes(StandardCharsets.UTF_8));
+
+    assertThat(second.toResponseEntity(first.getEtag(), null).getStatusCode(), is(HttpStatus.OK));
+  }
+}
@@ -0,0 +1,171 @@
+package com.faforever.api.data;
+
+import com.faforever.api.config.FafApiProperties;
+import com.faforever.api.data.domain.Map;
+import com.faforever.api.error.ApiException;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.yahoo.elide.ElideResponse;
+import com.yahoo.elide.core.dictionary.EntityDictionary;
+import com.yahoo.elide.core.type.Type;
+import com.yahoo.elide.core.utils.TypeHelper;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.mock.web.MockHttpServletResponse;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Set;
+import java.util.function.Function;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.assertThat;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.doReturn;
+
+@ExtendWith(MockitoExtension.class)
+public class JsonApiStreamWriterTest {
+
+  private static final Pattern SEEK_FILTER = Pattern.compile("id=gt=\"(\\d+)\"");
+
+  @Mock
+  private EntityDictionary entityDictionary;
+
+  private JsonApiStreamWriter instance;
+  private FafApiProperties properties;
+  private ObjectMapper objectMapper;
+  private List<java.util.Map<String, String>> requestedChunks;
+  private MockHttpServletResponse response;
+
+  @BeforeEach
+  public void setUp() {
+    properties = new FafApiProperties();
+    properties.getDataStream().setChunkSize(2);
+    objectMapper = new ObjectMapper();
+    instance = new JsonApiStreamWriter(objectMapper, new KeysetPaginator(entityDictionary, objectMapper), properties);
+    requestedChunks = new ArrayList<>();
+    response = new MockHttpServletResponse();
+  }
+
+  private void givenMapType() {
+    doReturn(TypeHelper.getClassType(Map.class)).when(entityDictionary).getEntityClass(Map.TYPE_NAME, DataController.API_VERSION);
+  }
+
+  private Function<java.util.Map<String, String>, ElideResponse> collectionOf(int total) {
+    return collectionOf(total, Set.of());
+  }
+
+  /**
+   * Simulates a collection of {@code total} maps sorted by id, each of which includes the same author. Hidden maps
+   * are loaded, but dropped from the chunk like permission checks do.
+   */
+  private Function<java.util.Map<String, String>, ElideResponse> collectionOf(int total, Set<Integer> hidden) {
+    return params -> {
+      requestedChunks.add(params);
+      int firstId = Integer.parseInt(params.getOrDefault("page[offset]", "0")) + 1;
+      Matcher seekFilter = SEEK_FILTER.matcher(params.getOrDefault("filter[map]", ""));
+      if (seekFilter.find()) {
+        firstId = Integer.parseInt(seekFilter.group(1)) + 1;
+      }
+      int limit = Integer.parseInt(params.get("page[limit]"));
+      StringBuilder data = new StringBuilder();
+      for (int id = firstId; id <= Math.min(total, firstId + limit - 1); id++) {
+        if (hidden.contains(id)) {
+          continue;
+        }
+        if (data.length() > 0) {
+          data.append(',');
+        }
+        data.append("{\"type\":\"map\",\"id\":\"").append(id).append("\"}");
+      }
+      return new ElideResponse(200, "{\"data\":[" + data + "],\"included\":[{\"type\":\"player\",\"id\":\"1\"}]}");
+    };
+  }
+
+  @Test
+  public void streamsAllChunks() throws Exception {
+    givenMapType();
+
+    instance.write("/map", java.util.Map.of("stream", "true"), collectionOf(5), response);
+
+    JsonNode document = objectMapper.readTree(response.getContentAsString());
+    assertThat(response.getStatus(), is(200));
+    assertThat(document.path("data").size(), is(5));
+    assertThat(document.path("data").get(4).path("id").asText(), is("5"));
+    assertThat(document.path("included").size(), is(1));
+    assertThat(requestedChunks.size(), is(4));
+    assertThat(requestedChunks.get(1).get("filter[map]"), is("(id=gt=\"2\")"));
+    assertThat(requestedChunks.get(1).containsKey("page[offset]"), is(false));
+  }
+
+  @Test
+  public void continuesBehindChunkWithHiddenResources() throws Exception {
+    givenMapType();
+
+    instance.write("/map", java.util.Map.of("stream", "true"), collectionOf(6, Set.of(2)), response);
+
+    JsonNode document = objectMapper.readTree(response.getContentAsString());
+    assertThat(document.path("data").size(), is(5));
+    assertThat(document.path("data").get(1).path("id").asText(), is("3"));
+  }
+
+  @Test
+  public void explicitLimitIsCapped() throws Exception {
+    givenMapType();
+    properties.getDataStream().setMaxResources(3);
+
+    instance.write("/map", java.util.Map.of("stream", "true", "page[limit]", "1000"), collectionOf(100), response);
+
+    JsonNode document = objectMapper.readTree(response.getContentAsString());
+    assertThat(document.path("data").size(), is(3));
+  }
+
+  @Test
+  public void respectsRequestedPage() throws Exception {
+    givenMapType();
+    java.util.Map<String, String> params = new HashMap<>();
+    params.put("stream", "true");
+    params.put("page[number]", "2");
+    params.put("page[size]", "3");
+
+    instance.write("/map", params, collectionOf(100), response);
+
+    JsonNode document = objectMapper.readTree(response.getContentAsString());
+    assertThat(document.path("data").size(), is(3));
+    assertThat(document.path("data").get(0).path("id").asText(), is("4"));
+    assertThat(requestedChunks.get(0).containsKey("page[number]"), is(false));
+    assertThat(requestedChunks.get(0).containsKey("stream"), is(false));
+  }
+
+  @Test
+  public void addsIdAsSortTiebreaker() throws Exception {
+    givenMapType();
+    doReturn(List.of("createTime")).when(entityDictionary).getAttributes(any(Type.class));
+
+    instance.write("/map", java.util.Map.of("stream", "true", "sort", "-createTime"), collectionOf(1), response);
+
+    assertThat(requestedChunks.get(0).get("sort"), is("-createTime,id"));
+  }
+
+  @Test
+  public void errorOfFirstChunkIsPassedThrough() throws Exception {
+    givenMapType();
+
+    instance.write("/map", java.util.Map.of("stream", "true"), params -> new ElideResponse(400, "{\"errors\":[]}"), response);
+
+    assertThat(response.getStatus(), is(400));
+    assertThat(response.getContentAsString(), is("{\"errors\":[]}"));
+  }
+
+  @Test
+  public void invalidPageParameter() {
+    assertThrows(ApiException.class, () -> instance.write("/map", java.util.Map.of("stream", "true", "page[size]", "many"), collectionOf(1), response));
+  }
+}
@@ -0,0 +1,137 @@
+package com.faforever.api.data;
+
+import com.faforever.api.data.KeysetPaginator.KeysetPage;
+import com.faforever.api.data.domain.Game;
+import com.faforever.api.error.ApiException;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.yahoo.elide.ElideResponse;
+import com.yahoo.elide.core.dictionary.EntityDictionary;
+import com.yahoo.elide.core.type.Type;
+import com.yahoo.elide.core.utils.TypeHelper;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.web.util.UriComponentsBuilder;
+
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.assertThat;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.doReturn;
+
+@ExtendWith(MockitoExtension.class)
+public class KeysetPaginatorTest {
+
+  @Mock
+  private EntityDictionary entityDictionary;
+
+  private KeysetPaginator instance;
+  private ObjectMapper objectMapper;
+
+  @BeforeEach
+  public void setUp() {
+    objectMapper = new ObjectMapper();
+    instance = new KeysetPaginator(entityDictionary, objectMapper);
+  }
+
+  private void givenGameType() {
+    doReturn(TypeHelper.getClassType(Game.class)).when(entityDictionary).getEntityClass("game", DataController.API_VERSION);
+    doReturn(List.of("name", "endTime")).when(entityDictionary).getAttributes(any(Type.class));
+  }
+
+  @Test
+  public void notRequested() {
+    assertThat(instance.prepare("/game", Map.of("page[size]", "10")).isPresent(), is(false));
+  }
+
+  @Test
+  public void firstPage() {
+    givenGameType();
+
+    KeysetPage page = instance.prepare("/game", Map.of("page[after]", "", "sort", "-endTime", "page[number]", "3")).orElseThrow();
+
+    assertThat(page.getSort(), is("-endTime,id"));
+    assertThat(page.getPageSize(), is(500));
+    assertThat(page.getElideParameters().get("sort"), is("-endTime,id"));
+    assertThat(page.getElideParameters().containsKey("page[after]"), is(false));
+    assertThat(page.getElideParameters().containsKey("page[number]"), is(false));
+    assertThat(page.getElideParameters().containsKey("filter[game]"), is(false));
+  }
+
+  @Test
+  public void nextLinkCursorSeeksBehindLastResource() throws Exception {
+    givenGameType();
+    Map<String, String> requestParams = Map.of("page[after]", "", "sort", "-endTime", "page[size]", "2", "filter", "name==foo");
+    KeysetPage page = instance.prepare("/game", requestParams).orElseThrow();
+
+    ElideResponse response = instance.addNextLink(new ElideResponse(200, "{\"data\":["
+      + "{\"type\":\"game\",\"id\":\"7\",\"attributes\":{\"endTime\":\"2020-01-02T00:00:00Z\"}},"
+      + "{\"type\":\"game\",\"id\":\"5\",\"attributes\":{\"endTime\":\"2020-01-01T00:00:00Z\"}}"
+      + "]}"), page, "http://localhost/data/game", requestParams);
+
+    JsonNode document = objectMapper.readTree(response.getBody());
+    String nextLink = document.path("links").path("next").asText();
+    String cursor = URLDecoder.decode(UriComponentsBuilder.fromUriString(nextLink).build().getQueryParams()
+      .getFirst("page%5Bafter%5D"), StandardCharsets.UTF_8);
+
+    KeysetPage nextPage = instance.prepare("/game", Map.of("page[after]", cursor, "sort", "-endTime", "page[size]", "2", "filter", "name==foo")).orElseThrow();
+    assertThat(nextPage.getElideParameters().get("filter"), is("(name==foo);("
+      + "((endTime=lt=\"2020-01-01T00:00:00Z\",endTime=isnull=true)),"
+      + "(endTime=ge=\"2020-01-01T00:00:00Z\";endTime=le=\"2020-01-01T00:00:00Z\";id=gt=\"5\"))"));
+  }
+
+  @Test
+  public void noNextLinkOnLastPage() throws Exception {
+    givenGameType();
+    Map<String, String> requestParams = Map.of("page[after]", "", "page[size]", "2");
+    KeysetPage page = instance.prepare("/game", requestParams).orElseThrow();
+
+    ElideResponse response = instance.addNextLink(new ElideResponse(200, "{\"data\":[{\"type\":\"game\",\"id\":\"1\"}]}"),
+      page, "http://localhost/data/game", requestParams);
+
+    assertThat(objectMapper.readTree(response.getBody()).has("links"), is(false));
+  }
+
+  @Test
+  public void seekAfterNullAscending() {
+    String filter = KeysetPaginator.buildSeekFilter(
+      List.of(new KeysetPaginator.SortKey("endTime", false), new KeysetPaginator.SortKey("id", false)),
+      Arrays.asList(null, "3"));
+
+    assertThat(filter, is("(endTime=isnull=false),(endTime=isnull=true;id=gt=\"3\")"));
+  }
+
+  @Test
+  public void cursorOfDifferentSortIsRejected() {
+    givenGameType();
+    KeysetPage page = instance.prepare("/game", Map.of("page[after]", "", "page[size]", "1")).orElseThrow();
+    ElideResponse response = instance.addNextLink(new ElideResponse(200, "{\"data\":[{\"type\":\"game\",\"id\":\"1\"}]}"),
+      page, "http://localhost/data/game", Map.of("page[after]", "", "page[size]", "1"));
+    String nextLink = response.getBody();
+    String cursor = nextLink.replaceAll(".*page%5Bafter%5D=([^&\"]*).*", "$1");
+
+    assertThrows(ApiException.class, () -> instance.prepare("/game", Map.of("page[after]", cursor, "sort", "name")));
+  }
+
+  @Test
+  public void unsupportedOnRelationships() {
+    doReturn(TypeHelper.getClassType(Game.class)).when(entityDictionary).getEntityClass("game", DataController.API_VERSION);
+
+    assertThrows(ApiException.class, () -> instance.prepare("/game/1/playerStats", Map.of("page[after]", "")));
+  }
+
+  @Test
+  public void unknownSortField() {
+    givenGameType();
+    assertThrows(ApiException.class, () -> instance.prepare("/game", Map.of("page[after]", "", "sort", "foo")));
+  }
+}
@@ -0,0 +1,159 @@
+package com.faforever.api.data.cache;
+
+import com.faforever.api.data.DataController;
+import com.faforever.api.data.checks.IsEntityOwner;
+import com.faforever.api.data.domain.Map;
+import com.faforever.api.data.domain.MapVersion;
+import com.faforever.api.data.domain.Player;
+import com.faforever.api.security.FafUserDetails;
+import com.yahoo.elide.annotation.ReadPermission;
+import com.yahoo.elide.core.dictionary.EntityDictionary;
+import com.yahoo.elide.core.type.Type;
+import com.yahoo.elide.core.utils.TypeHelper;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.security.authentication.AnonymousAuthenticationToken;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.GrantedAuthority;
+import org.springframework.security.core.authority.AuthorityUtils;
+import org.springframework.security.oauth2.provider.OAuth2Authentication;
+import org.springframework.security.oauth2.provider.OAuth2Request;
+
+import java.util.List;
+import java.util.Set;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.CoreMatchers.not;
+import static org.hamcrest.Matchers.containsInAnyOrder;
+import static org.junit.Assert.assertThat;
+import static org.mockito.Mockito.doReturn;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+public class ElideCacheKeyFactoryTest {
+
+  private static final Type<?> MAP = TypeHelper.getClassType(Map.class);
+  private static final Type<?> MAP_VERSION = TypeHelper.getClassType(MapVersion.class);
+  private static final Type<?> PLAYER = TypeHelper.getClassType(Player.class);
+
+  @Mock
+  private EntityDictionary entityDictionary;
+
+  private ElideCacheKeyFactory instance;
+
+  @BeforeEach
+  public void setUp() {
+    doReturn(MAP).when(entityDictionary).getEntityClass(Map.TYPE_NAME, DataController.API_VERSION);
+    doReturn(List.of("versions", "author")).when(entityDictionary).getRelationships(MAP);
+    doReturn(MAP_VERSION).when(entityDictionary).getParameterizedType(MAP, "versions");
+    doReturn(PLAYER).when(entityDictionary).getParameterizedType(MAP, "author");
+    doReturn(Map.TYPE_NAME).when(entityDictionary).getJsonAliasFor(MAP);
+    doReturn(MapVersion.TYPE_NAME).when(entityDictionary).getJsonAliasFor(MAP_VERSION);
+    doReturn(Player.TYPE_NAME).when(entityDictionary).getJsonAliasFor(PLAYER);
+
+    instance = new ElideCacheKeyFactory(entityDictionary);
+  }
+
+  private ElideCacheKey key(java.util.Map<String, String> parameters, Authentication authentication) {
+    return instance.createKey("/map", parameters, authentication).orElseThrow();
+  }
+
+  private ElideCacheKey key(Authentication authentication) {
+    return key(java.util.Map.of(), authentication);
+  }
+
+  private static Authentication user(int id, String... authorities) {
+    List<GrantedAuthority> grantedAuthorities = AuthorityUtils.createAuthorityList(authorities);
+    FafUserDetails principal = new FafUserDetails(id, "user" + id, "password", true, grantedAuthorities);
+    return new UsernamePasswordAuthenticationToken(principal, null, grantedAuthorities);
+  }
+
+  private static Authentication oAuthUser(int id, Set<String> scopes) {
+    Authentication user = user(id, "ROLE_USER");
+    OAuth2Request request = new OAuth2Request(java.util.Map.of(), "client", List.of(), true, scopes, Set.of(), null, Set.of(), java.util.Map.of());
+    return new OAuth2Authentication(request, user);
+  }
+
+  private void givenPlayersReadableByOwnerOnly() {
+    ReadPermission readPermission = mock(ReadPermission.class);
+    when(readPermission.expression()).thenReturn(IsEntityOwner.EXPRESSION);
+    doReturn(null).when(entityDictionary).getAnnotation(MAP, ReadPermission.class);
+    doReturn(null).when(entityDictionary).getAnnotation(MAP_VERSION, ReadPermission.class);
+    doReturn(readPermission).when(entityDictionary).getAnnotation(PLAYER, ReadPermission.class);
+  }
+
+  @Test
+  public void anonymousCallersShareKey() {
+    Authentication anonymous = new AnonymousAuthenticationToken("key", "anonymousUser", AuthorityUtils.createAuthorityList("ROLE_ANONYMOUS"));
+
+    assertThat(key(anonymous), is(key((Authentication) null)));
+    assertThat(key(anonymous).getPermissionFingerprint(), is(ElideCacheKeyFactory.ANONYMOUS_FINGERPRINT));
+  }
+
+  @Test
+  public void authenticatedCallerDoesNotShareKeyWithAnonymous() {
+    assertThat(key(user(1, "ROLE_USER")), not(key((Authentication) null)));
+  }
+
+  @Test
+  public void differentRolesDoNotShareKey() {
+    assertThat(key(user(1, "ROLE_USER")), not(key(user(2, "ROLE_USER", "ROLE_ADMINISTRATOR"))));
+  }
+
+  @Test
+  public void differentScopesDoNotShareKey() {
+    assertThat(key(oAuthUser(1, Set.of("public_profile"))), not(key(oAuthUser(2, Set.of("public_profile", "upload_map")))));
+  }
+
+  @Test
+  public void sameRolesShareKeyIfNoCheckComparesCaller() {
+    assertThat(key(user(1, "ROLE_USER")), is(key(user(2, "ROLE_USER"))));
+  }
+
+  @Test
+  public void sameRolesDoNotShareKeyIfCheckComparesCaller() {
+    givenPlayersReadableByOwnerOnly();
+
+    assertThat(key(user(1, "ROLE_USER")), not(key(user(2, "ROLE_USER"))));
+    assertThat(key(user(1, "ROLE_USER")), is(key(user(1, "ROLE_USER"))));
+  }
+
+  @Test
+  public void differentParametersDoNotShareKey() {
+    assertThat(key(java.util.Map.of("filter", "ranked==true"), null), not(key(java.util.Map.of("filter", "ranked==false"), null)));
+  }
+
+  @Test
+  public void filterOnNestedPathQueriesRelatedType() {
+    doReturn(List.of("map")).when(entityDictionary).getRelationships(MAP_VERSION);
+
+    ElideCacheKey key = key(java.util.Map.of("filter", "versions.ranked==true;displayName=='author.login==x'"), null);
+
+    assertThat(key.getQueriedTypes(), containsInAnyOrder(MapVersion.TYPE_NAME));
+  }
+
+  @Test
+  public void sortOnNestedPathQueriesRelatedType() {
+    doReturn(List.of()).when(entityDictionary).getRelationships(PLAYER);
+
+    ElideCacheKey key = key(java.util.Map.of("sort", "-author.login,displayName"), null);
+
+    assertThat(key.getQueriedTypes(), containsInAnyOrder(Player.TYPE_NAME));
+  }
+
+  @Test
+  public void typedFilterQueriesFilteredType() {
+    doReturn(MAP_VERSION).when(entityDictionary).getEntityClass(MapVersion.TYPE_NAME, DataController.API_VERSION);
+    doReturn(List.of("map")).when(entityDictionary).getRelationships(MAP_VERSION);
+    doReturn(MAP).when(entityDictionary).getParameterizedType(MAP_VERSION, "map");
+
+    ElideCacheKey key = key(java.util.Map.of("filter[mapVersion]", "map.displayName==x"), null);
+
+    assertThat(key.getQueriedTypes(), containsInAnyOrder(MapVersion.TYPE_NAME, Map.TYPE_NAME));
+  }
+}
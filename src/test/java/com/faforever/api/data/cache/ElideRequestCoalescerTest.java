@@ -0,0 +1,118 @@
+package com.faforever.api.data.cache;
+
+import com.faforever.api.config.FafApiProperties;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.ResponseEntity;
+
+import java.time.Duration;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.assertThat;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+public class ElideRequestCoalescerTest {
+
+  private ElideRequestCoalescer instance;
+  private FafApiProperties properties;
+  private AtomicInteger loadCount;
+  private CountDownLatch joined;
+
+  @BeforeEach
+  public void setUp() {
+    properties = new FafApiProperties();
+    loadCount = new AtomicInteger();
+    joined = new CountDownLatch(1);
+    instance = createInstance();
+  }
+
+  private ElideRequestCoalescer createInstance() {
+    return new ElideRequestCoalescer(properties) {
+      @Override
+      void onJoin(ElideCacheKey key) {
+        super.onJoin(key);
+        joined.countDown();
+      }
+    };
+  }
+
+  private static ElideCacheKey key(String fingerprint) {
+    return new ElideCacheKey("/mapPool", new TreeMap<>(), fingerprint, Set.of("mapPool"), Set.of(), Set.of());
+  }
+
+  @Test
+  public void concurrentIdenticalRequestsShareOneComputation() throws Exception {
+    CountDownLatch loading = new CountDownLatch(1);
+    CountDownLatch release = new CountDownLatch(1);
+
+    CompletableFuture<ResponseEntity<String>> first = CompletableFuture.supplyAsync(() -> instance.execute(key("anonymous"), () -> {
+      loading.countDown();
+      await(release);
+      return ResponseEntity.ok("response " + loadCount.incrementAndGet());
+    }));
+    assertThat(loading.await(5, TimeUnit.SECONDS), is(true));
+
+    CompletableFuture<ResponseEntity<String>> second = CompletableFuture.supplyAsync(() -> instance.execute(key("anonymous"),
+      () -> ResponseEntity.ok("response " + loadCount.incrementAndGet())));
+    assertThat(joined.await(5, TimeUnit.SECONDS), is(true));
+    release.countDown();
+
+    assertThat(first.get(5, TimeUnit.SECONDS).getBody(), is("response 1"));
+    assertThat(second.get(5, TimeUnit.SECONDS).getBody(), is("response 1"));
+    assertThat(loadCount.get(), is(1));
+  }
+
+  @Test
+  public void joinedRequestLoadsItselfIfInFlightRequestHangs() throws Exception {
+    properties.getDataCache().setCoalesceTimeout(Duration.ofMillis(100));
+    instance = createInstance();
+    CountDownLatch loading = new CountDownLatch(1);
+    CountDownLatch release = new CountDownLatch(1);
+
+    CompletableFuture<ResponseEntity<String>> hanging = CompletableFuture.supplyAsync(() -> instance.execute(key("anonymous"), () -> {
+      loading.countDown();
+      await(release);
+      return ResponseEntity.ok("hanging");
+    }));
+    assertThat(loading.await(5, TimeUnit.SECONDS), is(true));
+
+    ResponseEntity<String> result = instance.execute(key("anonymous"), () -> ResponseEntity.ok("loaded separately"));
+
+    assertThat(result.getBody(), is("loaded separately"));
+    assertThat(joined.getCount(), is(0L));
+    release.countDown();
+    hanging.get(5, TimeUnit.SECONDS);
+  }
+
+  @Test
+  public void sequentialRequestsAreNotCoalesced() {
+    instance.execute(key("anonymous"), () -> ResponseEntity.ok("response " + loadCount.incrementAndGet()));
+    ResponseEntity<String> result = instance.execute(key("anonymous"), () -> ResponseEntity.ok("response " + loadCount.incrementAndGet()));
+
+    assertThat(result.getBody(), is("response 2"));
+  }
+
+  @Test
+  public void failureIsNotRemembered() {
+    assertThrows(IllegalStateException.class, () -> instance.execute(key("anonymous"), () -> {
+      throw new IllegalStateException("boom");
+    }));
+
+    ResponseEntity<String> result = instance.execute(key("anonymous"), () -> ResponseEntity.ok("recovered"));
+    assertThat(result.getBody(), is("recovered"));
+  }
+
+  private static void await(CountDownLatch latch) {
+    try {
+      latch.await(5, TimeUnit.SECONDS);
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    }
+  }
+}
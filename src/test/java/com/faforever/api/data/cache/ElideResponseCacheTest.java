@@ -0,0 +1,128 @@
+package com.faforever.api.data.cache;
+
+import com.faforever.api.config.FafApiProperties;
+import com.faforever.api.data.domain.Map;
+import com.faforever.api.data.domain.MapVersion;
+import com.faforever.api.data.listeners.EntityChangedEvent;
+import com.faforever.api.data.listeners.EntityChangedEvent.ChangeType;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.assertThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+public class ElideResponseCacheTest {
+
+  private ElideResponseCache instance;
+  private AtomicInteger loadCount;
+  private Supplier<ResponseEntity<String>> loader;
+
+  @BeforeEach
+  public void setUp() {
+    FafApiProperties properties = new FafApiProperties();
+    properties.getDataCache().setEnabled(true);
+    instance = new ElideResponseCache(properties);
+
+    loadCount = new AtomicInteger();
+    loader = () -> ResponseEntity.ok("response " + loadCount.incrementAndGet());
+  }
+
+  private static ElideCacheKey key(String fingerprint) {
+    return new ElideCacheKey("/map", new TreeMap<>(), fingerprint, Set.of(Map.TYPE_NAME), Set.of(MapVersion.TYPE_NAME), Set.of());
+  }
+
+  @Test
+  public void servesCachedResponse() {
+    instance.get(key("anonymous"), loader);
+    ResponseEntity<String> result = instance.get(key("anonymous"), loader);
+
+    assertThat(result.getBody(), is("response 1"));
+    assertThat(loadCount.get(), is(1));
+  }
+
+  @Test
+  public void differentFingerprintsDoNotShareResponses() {
+    instance.get(key("anonymous"), loader);
+    ResponseEntity<String> result = instance.get(key("ROLE_USER|public_profile"), loader);
+
+    assertThat(result.getBody(), is("response 2"));
+  }
+
+  @Test
+  public void commitOfLinkedTypeInvalidates() {
+    instance.get(key("anonymous"), loader);
+    instance.onEntityChanged(new EntityChangedEvent(new MapVersion(), MapVersion.class, 1, ChangeType.CREATED));
+    ResponseEntity<String> result = instance.get(key("anonymous"), loader);
+
+    assertThat(result.getBody(), is("response 2"));
+  }
+
+  @Test
+  public void commitOfUnrelatedTypeDoesNotInvalidate() {
+    instance.get(key("anonymous"), loader);
+    instance.invalidate("clan");
+    ResponseEntity<String> result = instance.get(key("anonymous"), loader);
+
+    assertThat(result.getBody(), is("response 1"));
+  }
+
+  @Test
+  public void responseLoadedWhileReplicaMayLagIsNotCached() {
+    Clock clock = mock(Clock.class);
+    when(clock.instant()).thenReturn(Instant.parse("2020-01-01T00:00:00Z"));
+    instance = withReplica(clock);
+
+    instance.invalidate(MapVersion.TYPE_NAME);
+    instance.get(key("anonymous"), loader);
+    ResponseEntity<String> result = instance.get(key("anonymous"), loader);
+
+    assertThat(result.getBody(), is("response 2"));
+  }
+
+  @Test
+  public void responseLoadedAfterReplicaLagIsCached() {
+    Clock clock = mock(Clock.class);
+    when(clock.instant()).thenReturn(Instant.parse("2020-01-01T00:00:00Z"));
+    instance = withReplica(clock);
+
+    instance.invalidate(MapVersion.TYPE_NAME);
+    when(clock.instant()).thenReturn(Instant.parse("2020-01-01T00:01:00Z"));
+    instance.get(key("anonymous"), loader);
+    ResponseEntity<String> result = instance.get(key("anonymous"), loader);
+
+    assertThat(result.getBody(), is("response 1"));
+  }
+
+  private static ElideResponseCache withReplica(Clock clock) {
+    FafApiProperties properties = new FafApiProperties();
+    properties.getDataCache().setEnabled(true);
+    properties.getDatabase().getReplica().setUrl("jdbc:mysql://replica/faf");
+    properties.getDatabase().getReplica().setLagGuard(Duration.ofSeconds(5));
+    return new ElideResponseCache(properties, clock);
+  }
+
+  @Test
+  public void errorResponsesAreNotCached() {
+    Supplier<ResponseEntity<String>> failingLoader = () -> {
+      loadCount.incrementAndGet();
+      return ResponseEntity.status(HttpStatus.BAD_REQUEST).body("error");
+    };
+
+    instance.get(key("anonymous"), failingLoader);
+    instance.get(key("anonymous"), failingLoader);
+
+    assertThat(loadCount.get(), is(2));
+  }
+}
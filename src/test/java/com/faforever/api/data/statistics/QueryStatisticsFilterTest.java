@@ -0,0 +1,129 @@
+package com.faforever.api.data.statistics;
+
+import com.faforever.api.config.FafApiProperties;
+import com.faforever.api.data.DataController;
+import com.faforever.api.data.domain.Map;
+import com.faforever.api.data.domain.MapVersion;
+import com.faforever.api.data.domain.Player;
+import com.yahoo.elide.core.dictionary.EntityDictionary;
+import com.yahoo.elide.core.type.Type;
+import com.yahoo.elide.core.utils.TypeHelper;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+
+import java.util.List;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.CoreMatchers.nullValue;
+import static org.junit.Assert.assertThat;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.doReturn;
+
+@ExtendWith(MockitoExtension.class)
+public class QueryStatisticsFilterTest {
+
+  private static final Type<?> MAP = TypeHelper.getClassType(Map.class);
+
+  @Mock
+  private EntityDictionary entityDictionary;
+
+  private QueryStatisticsFilter instance;
+  private SimpleMeterRegistry meterRegistry;
+
+  @BeforeEach
+  public void setUp() {
+    meterRegistry = new SimpleMeterRegistry();
+    instance = new QueryStatisticsFilter(meterRegistry, entityDictionary, new FafApiProperties());
+  }
+
+  private void givenMapType() {
+    doReturn(MAP).when(entityDictionary).getEntityClass(Map.TYPE_NAME, DataController.API_VERSION);
+    doReturn(List.of("versions", "author")).when(entityDictionary).getRelationships(MAP);
+  }
+
+  @Test
+  public void recordsStatisticsTaggedByEntityAndInclude() throws Exception {
+    givenMapType();
+    doReturn(TypeHelper.getClassType(MapVersion.class)).when(entityDictionary).getParameterizedType(MAP, "versions");
+    doReturn(TypeHelper.getClassType(Player.class)).when(entityDictionary).getParameterizedType(MAP, "author");
+    MockHttpServletRequest request = new MockHttpServletRequest("GET", "/data/map/1");
+    request.setParameter("include", "versions,author");
+
+    instance.doFilter(request, new MockHttpServletResponse(), (req, res) -> RequestQueryStatistics.current().ifPresent(statistics -> {
+      statistics.statementExecuted(1_000);
+      statistics.statementExecuted(1_000);
+      statistics.entityLoaded();
+      statistics.collectionFetched();
+    }));
+
+    DistributionSummary statements = meterRegistry.get("data.request.statements")
+      .tag("entity", "map")
+      .tag("include", "author,versions")
+      .summary();
+    assertThat(statements.totalAmount(), is(2.0));
+    assertThat(RequestQueryStatistics.current().isPresent(), is(false));
+  }
+
+  @Test
+  public void unknownIncludesAreTaggedAsOther() throws Exception {
+    givenMapType();
+    MockHttpServletRequest request = new MockHttpServletRequest("GET", "/data/map/1");
+    request.setParameter("include", "random1,random2");
+
+    instance.doFilter(request, new MockHttpServletResponse(), (req, res) -> {
+    });
+
+    assertThat(meterRegistry.get("data.request.statements").tag("entity", "map").tag("include", "other").summary().count(), is(1L));
+  }
+
+  @Test
+  public void deepIncludesAreTaggedAsOther() throws Exception {
+    givenMapType();
+    doReturn(TypeHelper.getClassType(Player.class)).when(entityDictionary).getParameterizedType(MAP, "author");
+    MockHttpServletRequest request = new MockHttpServletRequest("GET", "/data/map/1");
+    request.setParameter("include", "author,versions.map.versions,versions.map.versions.map.versions");
+
+    instance.doFilter(request, new MockHttpServletResponse(), (req, res) -> {
+    });
+
+    assertThat(meterRegistry.get("data.request.statements").tag("entity", "map").tag("include", "author,other").summary().count(), is(1L));
+  }
+
+  @Test
+  public void manyIncludesAreTaggedAsOther() throws Exception {
+    doReturn(MAP).when(entityDictionary).getEntityClass(Map.TYPE_NAME, DataController.API_VERSION);
+    doReturn(List.of("a", "b", "c", "d", "e", "f")).when(entityDictionary).getRelationships(MAP);
+    doReturn(MAP).when(entityDictionary).getParameterizedType(eq(MAP), anyString());
+    MockHttpServletRequest request = new MockHttpServletRequest("GET", "/data/map/1");
+    request.setParameter("include", "a,b,c,d,e,f");
+
+    instance.doFilter(request, new MockHttpServletResponse(), (req, res) -> {
+    });
+
+    assertThat(meterRegistry.get("data.request.statements").tag("entity", "map").tag("include", "other").summary().count(), is(1L));
+  }
+
+  @Test
+  public void unknownEntitiesAndMethodsAreTaggedAsOther() throws Exception {
+    instance.doFilter(new MockHttpServletRequest("FOO", "/data/random"), new MockHttpServletResponse(), (req, res) -> {
+    });
+
+    assertThat(meterRegistry.get("data.request.statements").tag("entity", "other").tag("method", "other").summary().count(), is(1L));
+  }
+
+  @Test
+  public void ignoresOtherRequests() throws Exception {
+    instance.doFilter(new MockHttpServletRequest("GET", "/leaderboards/global"), new MockHttpServletResponse(),
+      (req, res) -> assertThat(RequestQueryStatistics.current().isPresent(), is(false)));
+
+    assertThat(meterRegistry.find("data.request.statements").summary(), is(nullValue()));
+  }
+}
@@ -0,0 +1,86 @@
+package com.faforever.api.db;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.time.Duration;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.assertThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+public class ReplicaRoutingDataSourceTest {
+
+  @Mock
+  private DataSource primary;
+  @Mock
+  private DataSource replica;
+  @Mock
+  private ReplicaLagGuard lagGuard;
+
+  private ReplicaRoutingDataSource instance;
+  private Connection primaryConnection;
+  private Connection replicaConnection;
+
+  @BeforeEach
+  public void setUp() {
+    instance = new ReplicaRoutingDataSource(primary, replica, lagGuard, Duration.ofMinutes(1));
+    primaryConnection = mock(Connection.class);
+    replicaConnection = mock(Connection.class);
+  }
+
+  @AfterEach
+  public void tearDown() {
+    TransactionSynchronizationManager.setCurrentTransactionReadOnly(false);
+  }
+
+  @Test
+  public void readWriteTransactionUsesPrimary() throws Exception {
+    when(primary.getConnection()).thenReturn(primaryConnection);
+
+    assertThat(instance.getConnection(), is(primaryConnection));
+    verify(replica, never()).getConnection();
+  }
+
+  @Test
+  public void readOnlyTransactionUsesReplica() throws Exception {
+    TransactionSynchronizationManager.setCurrentTransactionReadOnly(true);
+    when(replica.getConnection()).thenReturn(replicaConnection);
+
+    assertThat(instance.getConnection(), is(replicaConnection));
+  }
+
+  @Test
+  public void recentWriterUsesPrimary() throws Exception {
+    TransactionSynchronizationManager.setCurrentTransactionReadOnly(true);
+    when(lagGuard.isCurrentUserRecentWriter()).thenReturn(true);
+    when(primary.getConnection()).thenReturn(primaryConnection);
+
+    assertThat(instance.getConnection(), is(primaryConnection));
+    verify(replica, never()).getConnection();
+  }
+
+  @Test
+  public void unavailableReplicaIsBypassed() throws Exception {
+    TransactionSynchronizationManager.setCurrentTransactionReadOnly(true);
+    when(replica.getConnection()).thenThrow(new SQLException("Connection is not available"));
+    when(primary.getConnection()).thenReturn(primaryConnection);
+
+    assertThat(instance.getConnection(), is(primaryConnection));
+    assertThat(instance.getConnection(), is(primaryConnection));
+    verify(replica, times(1)).getConnection();
+  }
+}
@@ -0,0 +1,107 @@
+package com.faforever.api.download;
+
+import com.faforever.api.config.FafApiProperties;
+import com.faforever.api.error.NotFoundApiException;
+import com.faforever.api.map.MapRepository;
+import com.faforever.api.mod.ModVersionRepository;
+import com.faforever.api.statistics.StatisticsCounter;
+import com.faforever.api.statistics.StatisticsCounterService;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.junit.jupiter.api.io.TempDir;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.assertThat;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+public class DownloadServiceTest {
+
+  @TempDir
+  Path baseDirectory;
+
+  @Mock
+  private MapRepository mapRepository;
+  @Mock
+  private ModVersionRepository modVersionRepository;
+  @Mock
+  private StatisticsCounterService statisticsCounterService;
+
+  private DownloadService instance;
+  private Path mapsDirectory;
+
+  @BeforeEach
+  public void setUp() throws Exception {
+    mapsDirectory = Files.createDirectory(baseDirectory.resolve("maps"));
+    FafApiProperties fafApiProperties = new FafApiProperties();
+    fafApiProperties.getMap().setTargetDirectory(mapsDirectory);
+    instance = new DownloadService(fafApiProperties, mapRepository, modVersionRepository, statisticsCounterService);
+  }
+
+  @Test
+  public void resolvesMapFile() throws Exception {
+    Path archive = Files.createFile(mapsDirectory.resolve("Beta Tropics (Coasts).ufo"));
+
+    assertThat(instance.getMapFile("Beta Tropics (Coasts).ufo"), is(archive.toAbsolutePath().normalize()));
+  }
+
+  @Test
+  public void hiddenFilesAreNotServed() throws Exception {
+    Files.createFile(mapsDirectory.resolve(".upload-1.part"));
+
+    assertThrows(NotFoundApiException.class, () -> instance.getMapFile(".upload-1.part"));
+  }
+
+  @Test
+  public void filesOutsideOfDirectoryAreNotServed() throws Exception {
+    Files.createFile(baseDirectory.resolve("secret.ufo"));
+
+    assertThrows(NotFoundApiException.class, () -> instance.getMapFile("../secret.ufo"));
+  }
+
+  @Test
+  public void downloadsAreCountedForAllMapVersionsInArchive() {
+    when(mapRepository.findVersionIdsByFilenameLike("100\\%\\_map.ufo/%")).thenReturn(List.of(1, 2));
+
+    instance.countMapDownload("100%_map.ufo");
+    instance.countMapDownload("100%_map.ufo");
+
+    verify(mapRepository, times(1)).findVersionIdsByFilenameLike(anyString());
+    verify(statisticsCounterService, times(2)).increment(StatisticsCounter.MAP_VERSION_DOWNLOADS, 1);
+    verify(statisticsCounterService, times(2)).increment(StatisticsCounter.MAP_VERSION_DOWNLOADS, 2);
+  }
+
+  @Test
+  public void fileWithoutIdsIsLookedUpAgain() {
+    when(mapRepository.findVersionIdsByFilenameLike("map.ufo/%")).thenReturn(List.of(), List.of(1));
+
+    instance.countMapDownload("map.ufo");
+    instance.countMapDownload("map.ufo");
+
+    verify(mapRepository, times(2)).findVersionIdsByFilenameLike(anyString());
+    verify(statisticsCounterService, times(1)).increment(StatisticsCounter.MAP_VERSION_DOWNLOADS, 1);
+  }
+
+  @Test
+  public void downloadIsServedIfItCantBeCounted() {
+    when(modVersionRepository.findModIdsByFilename("mods/mod.zip")).thenThrow(new RuntimeException("Database down"));
+
+    instance.countModDownload("mod.zip");
+
+    verify(statisticsCounterService, never()).increment(any(), anyInt());
+  }
+}
@@ -0,0 +1,91 @@
+package com.faforever.api.download;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.http.HttpHeaders;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.assertThat;
+
+public class FileSenderTest {
+
+  private static final String CONTENT = "0123456789";
+
+  @TempDir
+  Path directory;
+
+  private Path file;
+  private MockHttpServletRequest request;
+  private MockHttpServletResponse response;
+
+  @BeforeEach
+  public void setUp() throws Exception {
+    file = Files.writeString(directory.resolve("map.ufo"), CONTENT);
+    request = new MockHttpServletRequest("GET", "/downloads/maps/map.ufo");
+    response = new MockHttpServletResponse();
+  }
+
+  @Test
+  public void sendsWholeFile() throws Exception {
+    boolean newDownload = FileSender.send(file, request, response);
+
+    assertThat(newDownload, is(true));
+    assertThat(response.getStatus(), is(200));
+    assertThat(response.getContentAsString(), is(CONTENT));
+    assertThat(response.getHeader(HttpHeaders.ACCEPT_RANGES), is("bytes"));
+  }
+
+  @Test
+  public void sendsRequestedRange() throws Exception {
+    request.addHeader(HttpHeaders.RANGE, "bytes=4-");
+
+    boolean newDownload = FileSender.send(file, request, response);
+
+    assertThat(newDownload, is(false));
+    assertThat(response.getStatus(), is(206));
+    assertThat(response.getContentAsString(), is("456789"));
+    assertThat(response.getHeader(HttpHeaders.CONTENT_RANGE), is("bytes 4-9/10"));
+  }
+
+  @Test
+  public void ignoresRangeIfFileChanged() throws Exception {
+    request.addHeader(HttpHeaders.RANGE, "bytes=4-");
+    request.addHeader(HttpHeaders.IF_RANGE, "\"outdated\"");
+
+    FileSender.send(file, request, response);
+
+    assertThat(response.getStatus(), is(200));
+    assertThat(response.getContentAsString(), is(CONTENT));
+  }
+
+  @Test
+  public void rejectsUnsatisfiableRange() throws Exception {
+    request.addHeader(HttpHeaders.RANGE, "bytes=20-");
+
+    FileSender.send(file, request, response);
+
+    assertThat(response.getStatus(), is(416));
+    assertThat(response.getHeader(HttpHeaders.CONTENT_RANGE), is("bytes */10"));
+  }
+
+  @Test
+  public void answersNotModified() throws Exception {
+    FileSender.send(file, request, response);
+    String etag = response.getHeader(HttpHeaders.ETAG);
+
+    request.addHeader(HttpHeaders.IF_NONE_MATCH, etag);
+    response = new MockHttpServletResponse();
+    boolean newDownload = FileSender.send(file, request, response);
+
+    assertThat(newDownload, is(false));
+    assertThat(response.getStatus(), is(304));
+    assertThat(response.getContentAsByteArray().length, is(0));
+  }
+}
@@ -0,0 +1,90 @@
+package com.faforever.api.featuredmods;
+
+import com.faforever.api.cache.SerializedResponseCache;
+import com.faforever.api.config.FafApiProperties;
+import com.faforever.api.data.domain.FeaturedMod;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+
+import java.util.List;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.CoreMatchers.not;
+import static org.junit.Assert.assertThat;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+public class FeaturedModsControllerTest {
+
+  private FeaturedModsController instance;
+  private SerializedResponseCache serializedResponseCache;
+
+  @Mock
+  private FeaturedModService featuredModService;
+
+  @BeforeEach
+  public void setUp() {
+    serializedResponseCache = new SerializedResponseCache(new ObjectMapper(), new FafApiProperties());
+    instance = new FeaturedModsController(featuredModService, serializedResponseCache);
+
+    FeaturedMod featuredMod = new FeaturedMod();
+    featuredMod.setId(1);
+    featuredMod.setTechnicalName("faf");
+    when(featuredModService.getFeaturedMods()).thenReturn(List.of(featuredMod));
+  }
+
+  private static FeaturedModFile file(int id, String md5) {
+    FeaturedModFile file = new FeaturedModFile();
+    file.setId(id);
+    file.setGroup("bin");
+    file.setMd5(md5);
+    file.setName("ForgedAlliance.exe");
+    file.setUrl("http://example.com/ForgedAlliance.exe");
+    file.setVersion(3700);
+    return file;
+  }
+
+  @Test
+  public void getFilesServesCachedResponse() throws Exception {
+    when(featuredModService.getFiles("faf", null)).thenReturn(List.of(file(1, "md5")));
+
+    ResponseEntity<byte[]> first = instance.getFiles(1, "latest", null, null, null).get();
+    ResponseEntity<byte[]> second = instance.getFiles(1, "latest", null, null, null).get();
+
+    assertThat(first.getStatusCode(), is(HttpStatus.OK));
+    assertThat(second.getBody(), is(first.getBody()));
+    assertThat(second.getHeaders().getETag(), is(first.getHeaders().getETag()));
+    verify(featuredModService, times(1)).getFiles("faf", null);
+  }
+
+  @Test
+  public void getFilesNotModified() throws Exception {
+    when(featuredModService.getFiles("faf", null)).thenReturn(List.of(file(1, "md5")));
+
+    String etag = instance.getFiles(1, "latest", null, null, null).get().getHeaders().getETag();
+    ResponseEntity<byte[]> result = instance.getFiles(1, "latest", null, etag, null).get();
+
+    assertThat(result.getStatusCode(), is(HttpStatus.NOT_MODIFIED));
+    assertThat(result.getHeaders().getETag(), is(etag));
+  }
+
+  @Test
+  public void getFilesAfterInvalidation() throws Exception {
+    when(featuredModService.getFiles("faf", null)).thenReturn(List.of(file(1, "md5")), List.of(file(2, "newMd5")));
+
+    String etag = instance.getFiles(1, "latest", null, null, null).get().getHeaders().getETag();
+    serializedResponseCache.invalidateIf(FeaturedModFilesKey.class::isInstance);
+    ResponseEntity<byte[]> result = instance.getFiles(1, "latest", null, etag, null).get();
+
+    assertThat(result.getStatusCode(), is(HttpStatus.OK));
+    assertThat(result.getHeaders().getETag(), is(not(etag)));
+  }
+}
@@ -1,6 +1,11 @@
 package com.faforever.api.leaderboard;
 
-import com.yahoo.elide.jsonapi.models.JsonApiDocument;
+import com.faforever.api.cache.SerializedResponseCache;
+import com.faforever.api.config.FafApiProperties;
+import com.faforever.api.error.ApiException;
+import com.faforever.api.error.ErrorCode;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
 import com.yahoo.elide.jsonapi.models.Resource;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
@@ -8,16 +13,31 @@ import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
 import org.springframework.data.domain.PageImpl;
+import org.springframework.http.ResponseEntity;
+import org.springframework.mock.web.MockHttpServletResponse;
 
 import java.util.Arrays;
 import java.util.Collection;
 import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.OptionalDouble;
 import java.util.concurrent.CompletableFuture;
+import java.util.function.Consumer;
 
+import static com.faforever.api.error.ApiExceptionMatcher.hasErrorCode;
 import static org.hamcrest.CoreMatchers.is;
 import static org.hamcrest.CoreMatchers.notNullValue;
+import static org.hamcrest.CoreMatchers.nullValue;
 import static org.hamcrest.Matchers.hasSize;
 import static org.junit.Assert.assertThat;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyDouble;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
 @ExtendWith(MockitoExtension.class)
@@ -27,10 +47,18 @@ public class LeaderboardControllerTest {
 
   @Mock
   private LeaderboardService leaderboardService;
+  @Mock
+  private LeaderboardRankingService leaderboardRankingService;
+  @Mock
+  private RatingHistoryService ratingHistoryService;
+
+  private ObjectMapper objectMapper;
 
   @BeforeEach
   public void setUp() throws Exception {
-    instance = new LeaderboardController(leaderboardService);
+    objectMapper = new ObjectMapper();
+    instance = new LeaderboardController(leaderboardService, leaderboardRankingService, ratingHistoryService,
+      new SerializedResponseCache(objectMapper, new FafApiProperties()), objectMapper);
   }
 
   @Test
@@ -40,32 +68,49 @@ public class LeaderboardControllerTest {
       new Ladder1v1LeaderboardEntry().setId(5).setPlayerName("JUnit 5").setMean(1400f).setDeviation(67f).setNumGames((short) 65).setRank(2).setWonGames((short) 32)
     )));
 
-    CompletableFuture<JsonApiDocument> result = instance.getLadder1v1(1, 100);
+    CompletableFuture<ResponseEntity<byte[]>> result = instance.getLadder1v1(1, 100, null, null);
     assertThat(result.get(), is(notNullValue()));
 
-    Collection<Resource> resources = result.get().getData().get();
-    assertThat(resources, hasSize(2));
+    JsonNode resources = objectMapper.readTree(result.get().getBody()).get("data");
+    assertThat(resources.size(), is(2));
 
-    Iterator<Resource> iterator = resources.iterator();
-    Resource firstEntry = iterator.next();
-    assertThat(firstEntry.getId(), is("14"));
-    assertThat(firstEntry.getAttributes().get("name"), is("JUnit 14"));
-    assertThat(firstEntry.getAttributes().get("mean"), is(1500f));
-    assertThat(firstEntry.getAttributes().get("deviation"), is(51f));
-    assertThat(firstEntry.getAttributes().get("numGames"), is((short) 514));
-    assertThat(firstEntry.getAttributes().get("wonGames"), is((short) 270));
-    assertThat(firstEntry.getAttributes().get("rank"), is(1));
-    assertThat(firstEntry.getAttributes().get("rating"), is(1347));
-
-    Resource secondEntry = iterator.next();
-    assertThat(secondEntry.getId(), is("5"));
-    assertThat(secondEntry.getAttributes().get("name"), is("JUnit 5"));
-    assertThat(secondEntry.getAttributes().get("mean"), is(1400f));
-    assertThat(secondEntry.getAttributes().get("deviation"), is(67f));
-    assertThat(secondEntry.getAttributes().get("numGames"), is((short) 65));
-    assertThat(secondEntry.getAttributes().get("wonGames"), is((short) 32));
-    assertThat(secondEntry.getAttributes().get("rank"), is(2));
-    assertThat(secondEntry.getAttributes().get("rating"), is(1199));
+    JsonNode firstEntry = resources.get(0);
+    assertThat(firstEntry.get("id").asText(), is("14"));
+    assertThat(firstEntry.get("type").asText(), is("ladder1v1LeaderboardEntry"));
+    JsonNode firstAttributes = firstEntry.get("attributes");
+    assertThat(firstAttributes.get("name").asText(), is("JUnit 14"));
+    assertThat(firstAttributes.get("mean").asDouble(), is(1500d));
+    assertThat(firstAttributes.get("deviation").asDouble(), is(51d));
+    assertThat(firstAttributes.get("numGames").asInt(), is(514));
+    assertThat(firstAttributes.get("wonGames").asInt(), is(270));
+    assertThat(firstAttributes.get("rank").asInt(), is(1));
+    assertThat(firstAttributes.get("rating").asInt(), is(1347));
+
+    JsonNode secondEntry = resources.get(1);
+    assertThat(secondEntry.get("id").asText(), is("5"));
+    JsonNode secondAttributes = secondEntry.get("attributes");
+    assertThat(secondAttributes.get("name").asText(), is("JUnit 5"));
+    assertThat(secondAttributes.get("mean").asDouble(), is(1400d));
+    assertThat(secondAttributes.get("deviation").asDouble(), is(67d));
+    assertThat(secondAttributes.get("numGames").asInt(), is(65));
+    assertThat(secondAttributes.get("wonGames").asInt(), is(32));
+    assertThat(secondAttributes.get("rank").asInt(), is(2));
+    assertThat(secondAttributes.get("rating").asInt(), is(1199));
+  }
+
+  @Test
+  public void getLadder1v1IsServedFromCacheUntilLeaderboardChanges() throws Exception {
+    when(leaderboardService.getLadder1v1Version()).thenReturn(1L, 1L, 2L);
+    when(leaderboardService.getLadder1v1Leaderboard(1, 100)).thenReturn(new PageImpl<>(List.of(
+      new Ladder1v1LeaderboardEntry().setId(14).setPlayerName("JUnit 14").setMean(1500f).setDeviation(51f).setNumGames((short) 514).setRank(1).setWonGames((short) 270)
+    )));
+
+    instance.getLadder1v1(1, 100, null, null).get();
+    instance.getLadder1v1(1, 100, null, null).get();
+    verify(leaderboardService, times(1)).getLadder1v1Leaderboard(1, 100);
+
+    instance.getLadder1v1(1, 100, null, null).get();
+    verify(leaderboardService, times(2)).getLadder1v1Leaderboard(1, 100);
   }
 
   @Test
@@ -75,29 +120,156 @@ public class LeaderboardControllerTest {
       new GlobalLeaderboardEntry().setId(5).setPlayerName("JUnit 5").setMean(1400f).setDeviation(67f).setNumGames((short) 65).setRank(2)
     )));
 
-    CompletableFuture<JsonApiDocument> result = instance.getGlobal(1, 100);
+    CompletableFuture<ResponseEntity<byte[]>> result = instance.getGlobal(1, 100, null, null);
     assertThat(result.get(), is(notNullValue()));
 
-    Collection<Resource> resources = result.get().getData().get();
+    JsonNode resources = objectMapper.readTree(result.get().getBody()).get("data");
+    assertThat(resources.size(), is(2));
+
+    JsonNode firstEntry = resources.get(0);
+    assertThat(firstEntry.get("id").asText(), is("14"));
+    assertThat(firstEntry.get("type").asText(), is("globalLeaderboardEntry"));
+    JsonNode firstAttributes = firstEntry.get("attributes");
+    assertThat(firstAttributes.get("name").asText(), is("JUnit 14"));
+    assertThat(firstAttributes.get("mean").asDouble(), is(1500d));
+    assertThat(firstAttributes.get("deviation").asDouble(), is(51d));
+    assertThat(firstAttributes.get("numGames").asInt(), is(514));
+    assertThat(firstAttributes.get("rank").asInt(), is(1));
+    assertThat(firstAttributes.get("rating").asInt(), is(1347));
+
+    JsonNode secondEntry = resources.get(1);
+    assertThat(secondEntry.get("id").asText(), is("5"));
+    JsonNode secondAttributes = secondEntry.get("attributes");
+    assertThat(secondAttributes.get("name").asText(), is("JUnit 5"));
+    assertThat(secondAttributes.get("mean").asDouble(), is(1400d));
+    assertThat(secondAttributes.get("deviation").asDouble(), is(67d));
+    assertThat(secondAttributes.get("numGames").asInt(), is(65));
+    assertThat(secondAttributes.get("rank").asInt(), is(2));
+    assertThat(secondAttributes.get("rating").asInt(), is(1199));
+  }
+
+  @Test
+  public void exportGlobal() throws Exception {
+    doAnswer(invocation -> {
+      Consumer<GlobalLeaderboardEntry> consumer = invocation.getArgument(0);
+      consumer.accept(new GlobalLeaderboardEntry().setId(14).setPlayerName("JUnit 14").setMean(1500f).setDeviation(51f).setNumGames((short) 514).setRank(1));
+      consumer.accept(new GlobalLeaderboardEntry().setId(5).setPlayerName("JUnit 5").setMean(1400f).setDeviation(67f).setNumGames((short) 65).setRank(2));
+      return null;
+    }).when(leaderboardService).forEachGlobalEntry(any());
+    MockHttpServletResponse response = new MockHttpServletResponse();
+
+    instance.exportGlobal(response);
+
+    String[] lines = response.getContentAsString().split("\n");
+    assertThat(lines.length, is(2));
+    assertThat(objectMapper.readTree(lines[0]).get("id").asText(), is("14"));
+    assertThat(objectMapper.readTree(lines[1]).get("attributes").get("rank").asInt(), is(2));
+    assertThat(response.getContentType(), is("application/x-ndjson"));
+  }
+
+  @Test
+  public void getNeighbourhood() throws Exception {
+    when(leaderboardRankingService.getNeighbourhood("tmm_2v2", 5, 1)).thenReturn(List.of(
+      new RankedEntry<>(7, new LeaderboardRatingEntry(14, "JUnit 14", "tmm_2v2", 1500d, 51d, 1347d, 514, 270, null)),
+      new RankedEntry<>(8, new LeaderboardRatingEntry(5, "JUnit 5", "tmm_2v2", 1400d, 67d, 1199d, 65, 32, null))
+    ));
+
+    Collection<Resource> resources = instance.getNeighbourhood("tmm_2v2", 5, 1).get().getData().get();
     assertThat(resources, hasSize(2));
 
     Iterator<Resource> iterator = resources.iterator();
     Resource firstEntry = iterator.next();
     assertThat(firstEntry.getId(), is("14"));
     assertThat(firstEntry.getAttributes().get("name"), is("JUnit 14"));
-    assertThat(firstEntry.getAttributes().get("mean"), is(1500f));
-    assertThat(firstEntry.getAttributes().get("deviation"), is(51f));
-    assertThat(firstEntry.getAttributes().get("numGames"), is((short) 514));
-    assertThat(firstEntry.getAttributes().get("rank"), is(1));
-    assertThat(firstEntry.getAttributes().get("rating"), is(1347));
-
-    Resource secondEntry = iterator.next();
-    assertThat(secondEntry.getId(), is("5"));
-    assertThat(secondEntry.getAttributes().get("name"), is("JUnit 5"));
-    assertThat(secondEntry.getAttributes().get("mean"), is(1400f));
-    assertThat(secondEntry.getAttributes().get("deviation"), is(67f));
-    assertThat(secondEntry.getAttributes().get("numGames"), is((short) 65));
-    assertThat(secondEntry.getAttributes().get("rank"), is(2));
-    assertThat(secondEntry.getAttributes().get("rating"), is(1199));
+    assertThat(firstEntry.getAttributes().get("rating"), is(1347d));
+    assertThat(firstEntry.getAttributes().get("totalGames"), is(514));
+    assertThat(firstEntry.getAttributes().get("rank"), is(7));
+
+    assertThat(iterator.next().getAttributes().get("rank"), is(8));
+  }
+
+  @Test
+  public void getNeighbourhoodOfUnratedEntry() throws Exception {
+    when(leaderboardRankingService.getNeighbourhood("tmm_2v2", 5, 0)).thenReturn(List.of(
+      new RankedEntry<>(8, new LeaderboardRatingEntry(5, "JUnit 5", "tmm_2v2", null, null, 0d, 0, 0, null))
+    ));
+
+    Resource resource = instance.getNeighbourhood("tmm_2v2", 5, 0).get().getData().get().iterator().next();
+
+    assertThat(resource.getAttributes().get("mean"), is(nullValue()));
+    assertThat(resource.getAttributes().get("rank"), is(8));
+  }
+
+  @Test
+  public void getRank() throws Exception {
+    when(leaderboardRankingService.getRank("tmm_2v2", 5)).thenReturn(new LeaderboardRank(
+      new LeaderboardRatingEntry(5, "JUnit 5", "tmm_2v2", 1400d, 67d, 1199d, 65, 32, null), 8, 10, 20d));
+
+    Resource resource = instance.getRank("tmm_2v2", 5).get().getData().getSingleValue();
+    assertThat(resource.getId(), is("5"));
+    assertThat(resource.getAttributes().get("rank"), is(8));
+    assertThat(resource.getAttributes().get("total"), is(10));
+    assertThat(resource.getAttributes().get("percentile"), is(20d));
+  }
+
+  @Test
+  public void getRankOfUnratedEntry() throws Exception {
+    when(leaderboardRankingService.getRank("tmm_2v2", 5)).thenReturn(new LeaderboardRank(
+      new LeaderboardRatingEntry(5, "JUnit 5", "tmm_2v2", null, null, 0d, 0, 0, null), 10, 10, 0d));
+
+    Resource resource = instance.getRank("tmm_2v2", 5).get().getData().getSingleValue();
+
+    assertThat(resource.getAttributes().get("deviation"), is(nullValue()));
+    assertThat(resource.getAttributes().get("rank"), is(10));
+  }
+
+  @Test
+  public void getNeighbourhoodRadiusTooLarge() {
+    ApiException result = assertThrows(ApiException.class, () -> instance.getNeighbourhood("tmm_2v2", 5, 101));
+    assertThat(result, hasErrorCode(ErrorCode.LEADERBOARD_INVALID_RADIUS));
+  }
+
+  @Test
+  public void getHistory() throws Exception {
+    when(ratingHistoryService.getHistory("tmm_2v2", 5, RatingHistoryDownsampling.DAILY, 500)).thenReturn(new RatingHistory(
+      12, new long[]{1_600_000_000L, 1_600_000_600L, 1_600_090_000L}, new double[]{1500.123, 1510.5, 1490}, new double[]{300, 290.456, 280}));
+
+    Resource resource = instance.getHistory("tmm_2v2", 5, RatingHistoryDownsampling.DAILY, 500).get().getData().getSingleValue();
+
+    assertThat(resource.getAttributes().get("times"), is(new long[]{1_600_000_000L, 600, 89_400}));
+    assertThat(resource.getAttributes().get("means"), is(new double[]{1500.12, 1510.5, 1490}));
+    assertThat(resource.getAttributes().get("deviations"), is(new double[]{300, 290.46, 280}));
+  }
+
+  @Test
+  public void getHistoryTooManyPoints() {
+    ApiException result = assertThrows(ApiException.class, () -> instance.getHistory("tmm_2v2", 5, RatingHistoryDownsampling.LTTB, 10_001));
+    assertThat(result, hasErrorCode(ErrorCode.RATING_HISTORY_INVALID_MAX_POINTS));
+  }
+
+  @Test
+  public void getDistribution() throws Exception {
+    when(leaderboardRankingService.getHistogram("tmm_2v2", 100, 500)).thenReturn(new RatingHistogram(3, 1000, 100, new int[]{1, 2}));
+    when(leaderboardRankingService.getRatingAtPercentile(eq("tmm_2v2"), anyDouble())).thenReturn(OptionalDouble.of(1100));
+    when(leaderboardRankingService.getPercentile("tmm_2v2", 1150)).thenReturn(33.3);
+
+    Resource resource = instance.getDistribution("tmm_2v2", 100, 1150d).get().getData().getSingleValue();
+
+    assertThat(resource.getAttributes().get("total"), is(3));
+    assertThat(resource.getAttributes().get("counts"), is(new int[]{1, 2}));
+    assertThat(((Map<?, ?>) resource.getAttributes().get("percentiles")).get("50"), is(1100d));
+    assertThat(resource.getAttributes().get("ratingPercentile"), is(33.3));
+  }
+
+  @Test
+  public void getDistributionBucketsTooNarrow() {
+    ApiException result = assertThrows(ApiException.class, () -> instance.getDistribution("tmm_2v2", 1, null));
+    assertThat(result, hasErrorCode(ErrorCode.LEADERBOARD_INVALID_BUCKET_WIDTH));
+  }
+
+  @Test
+  public void getDistributionBucketWidthNotANumber() {
+    ApiException result = assertThrows(ApiException.class, () -> instance.getDistribution("tmm_2v2", Double.NaN, null));
+    assertThat(result, hasErrorCode(ErrorCode.LEADERBOARD_INVALID_BUCKET_WIDTH));
   }
 }
@@ -0,0 +1,142 @@
+package com.faforever.api.leaderboard;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+import java.util.stream.Collectors;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.CoreMatchers.not;
+import static org.junit.Assert.assertThat;
+
+public class LeaderboardIndexTest {
+
+  private LeaderboardIndex<double[]> instance;
+
+  @BeforeEach
+  public void setUp() {
+    // Entries are {playerId, rating}
+    instance = new LeaderboardIndex<>(entry -> (int) entry[0], entry -> entry[1]);
+  }
+
+  @Test
+  public void ranksByRatingThenPlayerId() {
+    instance.put(new double[]{1, 100});
+    instance.put(new double[]{2, 300});
+    instance.put(new double[]{3, 200});
+    instance.put(new double[]{4, 200});
+
+    assertThat(instance.size(), is(4));
+    assertThat(instance.get(2).orElseThrow().getRank(), is(1));
+    assertThat(instance.get(3).orElseThrow().getRank(), is(2));
+    assertThat(instance.get(4).orElseThrow().getRank(), is(3));
+    assertThat(instance.get(1).orElseThrow().getRank(), is(4));
+  }
+
+  @Test
+  public void putMovesExistingEntry() {
+    instance.put(new double[]{1, 100});
+    instance.put(new double[]{2, 200});
+    instance.put(new double[]{1, 300});
+
+    assertThat(instance.size(), is(2));
+    assertThat(instance.get(1).orElseThrow().getRank(), is(1));
+  }
+
+  @Test
+  public void removeAndReplaceAll() {
+    instance.replaceAll(List.of(new double[]{1, 100}, new double[]{2, 200}, new double[]{3, 300}));
+    instance.remove(3);
+    assertThat(instance.get(2).orElseThrow().getRank(), is(1));
+
+    instance.replaceAll(List.of(new double[]{1, 100}));
+    assertThat(instance.size(), is(1));
+    assertThat(instance.get(2).isPresent(), is(false));
+    assertThat(instance.isInitialized(), is(true));
+  }
+
+  @Test
+  public void versionChangesOnlyIfContentChanges() {
+    // Arrays don't implement equals
+    LeaderboardIndex<double[]> index = new LeaderboardIndex<>(entry -> (int) entry[0], entry -> entry[1], Arrays::equals);
+    index.replaceAll(List.of(new double[]{1, 100, 5}, new double[]{2, 200, 5}));
+    long version = index.getVersion();
+
+    index.replaceAll(List.of(new double[]{1, 100, 5}, new double[]{2, 200, 5}));
+    assertThat(index.getVersion(), is(version));
+
+    index.put(new double[]{1, 100, 6});
+    assertThat(index.getVersion(), is(not(version)));
+  }
+
+  @Test
+  public void getNeighbourhood() {
+    for (int playerId = 1; playerId <= 10; playerId++) {
+      instance.put(new double[]{playerId, 1000 - playerId});
+    }
+
+    List<Integer> ranks = instance.getNeighbourhood(5, 2).stream()
+      .map(RankedEntry::getRank)
+      .collect(Collectors.toList());
+    assertThat(ranks, is(List.of(3, 4, 5, 6, 7)));
+    assertThat(instance.getNeighbourhood(1, 2).size(), is(3));
+    assertThat(instance.getNeighbourhood(10, 2).get(0).getRank(), is(8));
+    assertThat(instance.getNeighbourhood(11, 2), is(Collections.emptyList()));
+  }
+
+  @Test
+  public void countRatedAtLeast() {
+    instance.replaceAll(List.of(new double[]{1, 100}, new double[]{2, 200}, new double[]{3, 200}, new double[]{4, 300}));
+
+    assertThat(instance.countRatedAtLeast(200), is(3));
+    assertThat(instance.countRatedAtLeast(201), is(1));
+    assertThat(instance.countRatedAtLeast(1000), is(0));
+    assertThat(instance.countRatedAtLeast(-1000), is(4));
+  }
+
+  @Test
+  public void getHistogram() {
+    instance.replaceAll(List.of(new double[]{1, -50}, new double[]{2, 120}, new double[]{3, 199}, new double[]{4, 350}));
+
+    RatingHistogram histogram = instance.getHistogram(100, 10);
+    assertThat(histogram.getTotal(), is(4));
+    assertThat(histogram.getStart(), is(-100d));
+    assertThat(histogram.getBucketWidth(), is(100d));
+    assertThat(histogram.getCounts(), is(new int[]{1, 0, 2, 0, 1}));
+
+    RatingHistogram widened = instance.getHistogram(100, 3);
+    assertThat(widened.getBucketWidth(), is(200d));
+    assertThat(widened.getCounts(), is(new int[]{1, 2, 1}));
+  }
+
+  @Test
+  public void rangeMatchesSortedOrder() {
+    Random random = new Random(42);
+    List<double[]> entries = new ArrayList<>();
+    for (int playerId = 0; playerId < 1000; playerId++) {
+      entries.add(new double[]{playerId, random.nextInt(500)});
+    }
+    instance.replaceAll(entries);
+
+    List<double[]> expected = new ArrayList<>(entries);
+    expected.sort((a, b) -> a[1] != b[1] ? Double.compare(b[1], a[1]) : Double.compare(a[0], b[0]));
+
+    List<Integer> range = instance.getRange(250, 100).stream()
+      .map(rankedEntry -> (int) rankedEntry.getEntry()[0])
+      .collect(Collectors.toList());
+    List<Integer> expectedRange = expected.subList(250, 350).stream()
+      .map(entry -> (int) entry[0])
+      .collect(Collectors.toList());
+
+    assertThat(range, is(expectedRange));
+    assertThat(instance.getRange(990, 100).size(), is(10));
+    assertThat(instance.getRange(250, 1).get(0).getRank(), is(251));
+    assertThat(instance.get((int) expected.get(777)[0]).orElseThrow().getRank(), is(778));
+    assertThat(instance.getRange(2000, 10), is(Collections.emptyList()));
+  }
+}
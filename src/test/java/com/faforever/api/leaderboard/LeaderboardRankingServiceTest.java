@@ -0,0 +1,139 @@
+package com.faforever.api.leaderboard;
+
+import com.faforever.api.config.FafApiProperties;
+import com.faforever.api.error.ErrorCode;
+import com.faforever.api.error.NotFoundApiException;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.OffsetDateTime;
+import java.time.ZoneOffset;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import static com.faforever.api.error.ApiExceptionMatcher.hasErrorCode;
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.assertThat;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+public class LeaderboardRankingServiceTest {
+
+  private static final Instant NOW = Instant.parse("2020-01-01T12:00:00Z");
+  private static final OffsetDateTime UPDATE_TIME = OffsetDateTime.of(2020, 1, 1, 11, 0, 0, 0, ZoneOffset.UTC);
+
+  private LeaderboardRankingService instance;
+
+  @Mock
+  private LeaderboardRatingRepository leaderboardRatingRepository;
+  @Mock
+  private Clock clock;
+
+  @BeforeEach
+  public void setUp() {
+    FafApiProperties properties = new FafApiProperties();
+    properties.getLeaderboard().setFullRefreshInterval(Duration.ofHours(1));
+    properties.getLeaderboard().setUpdateTimeOverlap(Duration.ofSeconds(10));
+    instance = new LeaderboardRankingService(leaderboardRatingRepository, properties, clock);
+  }
+
+  @Test
+  public void getNeighbourhoodRanksPerLeaderboard() {
+    when(clock.instant()).thenReturn(NOW);
+    when(leaderboardRatingRepository.findAllEntries()).thenReturn(List.of(
+      entry(1, "global", 1000),
+      entry(2, "global", 2000),
+      entry(3, "global", 1500),
+      entry(1, "tmm_2v2", 500),
+      entry(4, "tmm_2v2", 100)
+    ));
+
+    assertThat(playerIds(instance.getNeighbourhood("global", 3, 1)), is(List.of(2, 3, 1)));
+    assertThat(instance.getNeighbourhood("global", 1, 1).get(1).getRank(), is(3));
+    assertThat(instance.getNeighbourhood("tmm_2v2", 1, 0).get(0).getRank(), is(1));
+    verify(leaderboardRatingRepository, times(1)).findAllEntries();
+  }
+
+  @Test
+  public void refreshLoadsUpdatedRatings() {
+    when(clock.instant()).thenReturn(NOW);
+    when(leaderboardRatingRepository.findAllEntries()).thenReturn(List.of(entry(1, "global", 1000), entry(2, "global", 2000)));
+    when(leaderboardRatingRepository.findEntriesUpdatedSince(UPDATE_TIME.minusSeconds(10))).thenReturn(List.of(
+      new LeaderboardRatingEntry(1, "Player 1", "global", 3000d, 0d, 3000d, 11, 6, UPDATE_TIME.plusMinutes(1))
+    ));
+
+    instance.refreshIndices();
+    instance.refreshIndices();
+
+    LeaderboardRank rank = instance.getRank("global", 1);
+    assertThat(rank.getRank(), is(1));
+    assertThat(rank.getTotal(), is(2));
+    assertThat(rank.getPercentile(), is(50d));
+    assertThat(instance.findLoadedRank("global", 2).orElseThrow().getRank(), is(2));
+    verify(leaderboardRatingRepository, times(1)).findAllEntries();
+  }
+
+  @Test
+  public void refreshLoadsRatingsCommittedLate() {
+    when(clock.instant()).thenReturn(NOW);
+    when(leaderboardRatingRepository.findAllEntries()).thenReturn(List.of(entry(1, "global", 1000), entry(2, "global", 2000)));
+    OffsetDateTime newestUpdateTime = UPDATE_TIME.plusMinutes(1);
+    when(leaderboardRatingRepository.findEntriesUpdatedSince(UPDATE_TIME.minusSeconds(10))).thenReturn(List.of(
+      new LeaderboardRatingEntry(1, "Player 1", "global", 3000d, 0d, 3000d, 11, 6, newestUpdateTime)
+    ));
+    when(leaderboardRatingRepository.findEntriesUpdatedSince(newestUpdateTime.minusSeconds(10))).thenReturn(List.of(
+      new LeaderboardRatingEntry(1, "Player 1", "global", 3000d, 0d, 3000d, 11, 6, newestUpdateTime),
+      new LeaderboardRatingEntry(2, "Player 2", "global", 4000d, 0d, 4000d, 11, 6, newestUpdateTime.minusSeconds(5))
+    ));
+
+    instance.refreshIndices();
+    instance.refreshIndices();
+    instance.refreshIndices();
+
+    assertThat(instance.getRank("global", 2).getRank(), is(1));
+    assertThat(instance.getRank("global", 1).getRank(), is(2));
+    assertThat(instance.getRank("global", 1).getTotal(), is(2));
+  }
+
+  @Test
+  public void refreshDropsRemovedLeaderboards() {
+    when(clock.instant()).thenReturn(NOW, NOW.plus(Duration.ofHours(2)));
+    when(leaderboardRatingRepository.findAllEntries())
+      .thenReturn(List.of(entry(1, "global", 1000), entry(1, "tmm_2v2", 500)))
+      .thenReturn(List.of(entry(1, "global", 1000)));
+
+    instance.refreshIndices();
+    assertThat(instance.getNeighbourhood("tmm_2v2", 1, 0).size(), is(1));
+
+    instance.refreshIndices();
+    NotFoundApiException result = assertThrows(NotFoundApiException.class, () -> instance.getNeighbourhood("tmm_2v2", 1, 0));
+    assertThat(result, hasErrorCode(ErrorCode.ENTITY_NOT_FOUND));
+  }
+
+  @Test
+  public void getNeighbourhoodUnknownPlayer() {
+    when(clock.instant()).thenReturn(NOW);
+    when(leaderboardRatingRepository.findAllEntries()).thenReturn(List.of(entry(1, "global", 1000)));
+
+    assertThrows(NotFoundApiException.class, () -> instance.getNeighbourhood("global", 2, 10));
+  }
+
+  private static LeaderboardRatingEntry entry(int playerId, String leaderboard, double rating) {
+    return new LeaderboardRatingEntry(playerId, "Player " + playerId, leaderboard, rating, 0d, rating, 10, 5, UPDATE_TIME);
+  }
+
+  private static List<Integer> playerIds(List<RankedEntry<LeaderboardRatingEntry>> entries) {
+    return entries.stream()
+      .map(rankedEntry -> rankedEntry.getEntry().getPlayerId())
+      .collect(Collectors.toList());
+  }
+}
@@ -1,56 +1,167 @@
 package com.faforever.api.leaderboard;
 
+import com.faforever.api.config.FafApiProperties;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
 import org.springframework.data.domain.Page;
-import org.springframework.data.domain.PageImpl;
-import org.springframework.data.domain.PageRequest;
 
-import java.util.Collections;
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
 import java.util.List;
 
 import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.CoreMatchers.not;
+import static org.hamcrest.CoreMatchers.nullValue;
 import static org.junit.Assert.assertThat;
+import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
 @ExtendWith(MockitoExtension.class)
 public class LeaderboardServiceTest {
 
+  private static final Instant NOW = Instant.parse("2020-01-01T00:00:00Z");
+
   private LeaderboardService instance;
 
   @Mock
   private GlobalLeaderboardRepository globalLeaderboardRepository;
   @Mock
   private Ladder1v1LeaderboardRepository ladder1v1LeaderboardRepository;
+  @Mock
+  private Clock clock;
 
   @BeforeEach
   public void setUp() throws Exception {
-    instance = new LeaderboardService(globalLeaderboardRepository, ladder1v1LeaderboardRepository);
+    FafApiProperties properties = new FafApiProperties();
+    properties.getLeaderboard().setRefreshInterval(Duration.ofMinutes(1));
+    instance = new LeaderboardService(globalLeaderboardRepository, ladder1v1LeaderboardRepository, properties, clock);
+    when(clock.instant()).thenReturn(NOW);
   }
 
   @Test
   public void getLadder1v1Leaderboard() throws Exception {
-    Page<Ladder1v1LeaderboardEntry> leaderboard = new PageImpl<>(Collections.emptyList());
-    when(ladder1v1LeaderboardRepository.getLeaderboardByPage(PageRequest.of(0, 100))).thenReturn(leaderboard);
+    when(ladder1v1LeaderboardRepository.findAllEntries()).thenReturn(List.of(
+      new Ladder1v1LeaderboardEntry().setId(1).setPlayerName("low").setMean(1000f).setDeviation(100f).setRank(3),
+      new Ladder1v1LeaderboardEntry().setId(2).setPlayerName("high").setMean(2000f).setDeviation(100f).setRank(1),
+      new Ladder1v1LeaderboardEntry().setId(3).setPlayerName("middle").setMean(1500f).setDeviation(100f).setRank(2)
+    ));
+
+    Page<Ladder1v1LeaderboardEntry> result = instance.getLadder1v1Leaderboard(2, 2);
+
+    assertThat(result.getTotalElements(), is(3L));
+    assertThat(result.getContent().size(), is(1));
+    assertThat(result.getContent().get(0).getPlayerName(), is("low"));
+    assertThat(result.getContent().get(0).getRank(), is(3));
+  }
+
+  @Test
+  public void getGlobalEntry() throws Exception {
+    when(globalLeaderboardRepository.findAllEntries()).thenReturn(List.of(
+      new GlobalLeaderboardEntry().setId(1).setPlayerName("low").setMean(1000f).setDeviation(100f).setRank(2),
+      new GlobalLeaderboardEntry().setId(2).setPlayerName("high").setMean(2000f).setDeviation(100f).setRank(1)
+    ));
+
+    assertThat(instance.getGlobalEntry(1).getRank(), is(2));
+    assertThat(instance.getGlobalEntry(3), is(nullValue()));
+    verify(globalLeaderboardRepository, times(1)).findAllEntries();
+  }
+
+  @Test
+  public void staleLeaderboardIsLoadedAgainOnUse() throws Exception {
+    when(globalLeaderboardRepository.findAllEntries())
+      .thenReturn(List.of(
+        new GlobalLeaderboardEntry().setId(1).setPlayerName("first").setMean(2000f).setDeviation(100f).setRank(1),
+        new GlobalLeaderboardEntry().setId(2).setPlayerName("second").setMean(1000f).setDeviation(100f).setRank(2)))
+      .thenReturn(List.of(
+        new GlobalLeaderboardEntry().setId(2).setPlayerName("second").setMean(3000f).setDeviation(100f).setRank(1)));
+
+    assertThat(instance.getGlobalEntry(2).getRank(), is(2));
+
+    when(clock.instant()).thenReturn(NOW.plusSeconds(59));
+    assertThat(instance.getGlobalEntry(2).getRank(), is(2));
+
+    when(clock.instant()).thenReturn(NOW.plusSeconds(60));
+    assertThat(instance.getGlobalEntry(2).getRank(), is(1));
+    assertThat(instance.getGlobalEntry(1), is(nullValue()));
+    verify(globalLeaderboardRepository, times(2)).findAllEntries();
+  }
+
+  @Test
+  public void versionChangesOnlyIfContentChanges() throws Exception {
+    when(globalLeaderboardRepository.findAllEntries())
+      .thenReturn(List.of(new GlobalLeaderboardEntry().setId(1).setPlayerName("first").setMean(2000f).setDeviation(100f).setRank(1)))
+      .thenReturn(List.of(new GlobalLeaderboardEntry().setId(1).setPlayerName("first").setMean(2000f).setDeviation(100f).setRank(1)))
+      .thenReturn(List.of(new GlobalLeaderboardEntry().setId(1).setPlayerName("first").setMean(2100f).setDeviation(100f).setRank(1)));
+
+    long version = instance.getGlobalVersion();
+
+    when(clock.instant()).thenReturn(NOW.plusSeconds(60));
+    assertThat(instance.getGlobalVersion(), is(version));
+
+    when(clock.instant()).thenReturn(NOW.plusSeconds(120));
+    assertThat(instance.getGlobalVersion(), is(not(version)));
+  }
+
+  @Test
+  public void failedReloadKeepsPreviousSnapshot() throws Exception {
+    when(globalLeaderboardRepository.findAllEntries())
+      .thenReturn(List.of(new GlobalLeaderboardEntry().setId(1).setPlayerName("first").setMean(2000f).setDeviation(100f).setRank(1)))
+      .thenThrow(new IllegalStateException("Database unavailable"));
+
+    instance.getGlobalEntry(1);
+
+    when(clock.instant()).thenReturn(NOW.plusSeconds(60));
+    assertThat(instance.getGlobalEntry(1).getRank(), is(1));
+    assertThat(instance.getGlobalEntry(1).getRank(), is(1));
+    verify(globalLeaderboardRepository, times(2)).findAllEntries();
+  }
+
+  @Test
+  public void ordersByRankingOfView() throws Exception {
+    when(globalLeaderboardRepository.findAllEntries()).thenReturn(List.of(
+      new GlobalLeaderboardEntry().setId(1).setPlayerName("higher rating").setMean(2000f).setDeviation(100f).setRank(2),
+      new GlobalLeaderboardEntry().setId(2).setPlayerName("better ranking").setMean(1900f).setDeviation(100f).setRank(1)
+    ));
+
+    Page<GlobalLeaderboardEntry> result = instance.getGlobalLeaderboard(1, 2);
+
+    assertThat(result.getContent().get(0).getPlayerName(), is("better ranking"));
+    assertThat(result.getContent().get(0).getRank(), is(1));
+  }
+
+  @Test
+  public void defaultPageSizeIsBounded() throws Exception {
+    List<Ladder1v1LeaderboardEntry> entries = new ArrayList<>();
+    for (int id = 1; id <= 150; id++) {
+      entries.add(new Ladder1v1LeaderboardEntry().setId(id).setPlayerName("Player " + id).setMean(1000f + id).setDeviation(100f).setRank(id));
+    }
+    when(ladder1v1LeaderboardRepository.findAllEntries()).thenReturn(entries);
 
-    List<Ladder1v1LeaderboardEntry> result = instance.getLadder1v1Leaderboard(1, 100).getContent();
+    Page<Ladder1v1LeaderboardEntry> result = instance.getLadder1v1Leaderboard(null, null);
 
-    assertThat(result, is(leaderboard.getContent()));
-    verify(ladder1v1LeaderboardRepository).getLeaderboardByPage(PageRequest.of(0, 100));
+    assertThat(result.getTotalElements(), is(150L));
+    assertThat(result.getContent().size(), is(100));
   }
 
   @Test
-  public void getGlobalLeaderboard() throws Exception {
-    Page<GlobalLeaderboardEntry> leaderboard = new PageImpl<>(Collections.emptyList());
-    when(globalLeaderboardRepository.getLeaderboardByPage(PageRequest.of(0, 100))).thenReturn(leaderboard);
+  public void forEachLadder1v1EntryVisitsAllEntriesInOrder() throws Exception {
+    List<Ladder1v1LeaderboardEntry> entries = new ArrayList<>();
+    for (int id = 1; id <= 2500; id++) {
+      entries.add(new Ladder1v1LeaderboardEntry().setId(id).setPlayerName("Player " + id).setMean(1000f + id).setDeviation(100f).setRank(id));
+    }
+    when(ladder1v1LeaderboardRepository.findAllEntries()).thenReturn(entries);
 
-    List<GlobalLeaderboardEntry> result = instance.getGlobalLeaderboard(1, 100).getContent();
+    List<Integer> ranks = new ArrayList<>();
+    instance.forEachLadder1v1Entry(entry -> ranks.add(entry.getRank()));
 
-    assertThat(result, is(leaderboard.getContent()));
-    verify(globalLeaderboardRepository).getLeaderboardByPage(PageRequest.of(0, 100));
+    assertThat(ranks.size(), is(2500));
+    assertThat(ranks.get(0), is(1));
+    assertThat(ranks.get(2499), is(2500));
   }
 }
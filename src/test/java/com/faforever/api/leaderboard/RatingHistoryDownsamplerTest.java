@@ -0,0 +1,56 @@
+package com.faforever.api.leaderboard;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.assertThat;
+
+public class RatingHistoryDownsamplerTest {
+
+  private static final long DAY = 86_400;
+
+  @Test
+  public void dailyKeepsLastPointOfEachDay() {
+    RatingHistory history = new RatingHistory(4,
+      new long[]{DAY, DAY + 60, 3 * DAY, 3 * DAY + 60},
+      new double[]{1, 2, 3, 4},
+      new double[]{10, 20, 30, 40});
+
+    RatingHistory result = RatingHistoryDownsampler.daily(history);
+
+    assertThat(result.getTimes(), is(new long[]{DAY + 60, 3 * DAY + 60}));
+    assertThat(result.getMeans(), is(new double[]{2, 4}));
+    assertThat(result.getDeviations(), is(new double[]{20, 40}));
+    assertThat(result.getLastJournalId(), is(4));
+  }
+
+  @Test
+  public void lttbKeepsEndpointsAndPeaks() {
+    int size = 1000;
+    long[] times = new long[size];
+    double[] means = new double[size];
+    double[] deviations = new double[size];
+    for (int i = 0; i < size; i++) {
+      times[i] = i * 60L;
+      means[i] = 1000;
+      deviations[i] = 100;
+    }
+    means[500] = 2000;
+
+    RatingHistory result = RatingHistoryDownsampler.largestTriangleThreeBuckets(new RatingHistory(size, times, means, deviations), 50);
+
+    assertThat(result.size(), is(50));
+    assertThat(result.getTimes()[0], is(0L));
+    assertThat(result.getTimes()[49], is((size - 1) * 60L));
+    assertThat(Arrays.stream(result.getMeans()).anyMatch(mean -> mean == 2000), is(true));
+  }
+
+  @Test
+  public void lttbReturnsSmallHistoriesUnchanged() {
+    RatingHistory history = new RatingHistory(2, new long[]{1, 2}, new double[]{1, 2}, new double[]{1, 2});
+
+    assertThat(RatingHistoryDownsampler.largestTriangleThreeBuckets(history, 50), is(history));
+  }
+}
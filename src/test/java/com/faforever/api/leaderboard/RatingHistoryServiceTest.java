@@ -0,0 +1,70 @@
+package com.faforever.api.leaderboard;
+
+import com.faforever.api.config.FafApiProperties;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.time.OffsetDateTime;
+import java.time.ZoneOffset;
+import java.util.List;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.assertThat;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+public class RatingHistoryServiceTest {
+
+  private static final OffsetDateTime TIME = OffsetDateTime.of(2020, 1, 1, 12, 0, 0, 0, ZoneOffset.UTC);
+
+  private RatingHistoryService instance;
+
+  @Mock
+  private LeaderboardRatingJournalRepository leaderboardRatingJournalRepository;
+
+  @BeforeEach
+  public void setUp() {
+    FafApiProperties properties = new FafApiProperties();
+    properties.getLeaderboard().setHistoryRecheckedJournalIds(1);
+    instance = new RatingHistoryService(leaderboardRatingJournalRepository, properties);
+  }
+
+  @Test
+  public void getHistoryAppendsNewJournalEntries() {
+    when(leaderboardRatingJournalRepository.findPointsAfter("global", 5, 0)).thenReturn(List.of(
+      new RatingHistoryPoint(10, TIME, 1500, 300),
+      new RatingHistoryPoint(11, TIME.plusHours(1), 1520, 290)
+    ));
+    when(leaderboardRatingJournalRepository.findPointsAfter("global", 5, 10)).thenReturn(List.of(
+      new RatingHistoryPoint(11, TIME.plusHours(1), 1520, 290),
+      new RatingHistoryPoint(12, TIME.plusHours(2), 1540, 280)
+    ));
+
+    assertThat(instance.getHistory("global", 5, RatingHistoryDownsampling.NONE, 500).size(), is(2));
+
+    RatingHistory result = instance.getHistory("global", 5, RatingHistoryDownsampling.NONE, 500);
+    assertThat(result.size(), is(3));
+    assertThat(result.getLastJournalId(), is(12));
+    assertThat(result.getMeans(), is(new double[]{1500, 1520, 1540}));
+  }
+
+  @Test
+  public void getHistoryFindsJournalEntryCommittedAfterNewerOne() {
+    when(leaderboardRatingJournalRepository.findPointsAfter("global", 5, 0)).thenReturn(List.of(
+      new RatingHistoryPoint(10, TIME, 1500, 300),
+      new RatingHistoryPoint(12, TIME.plusHours(2), 1540, 280)
+    ));
+    when(leaderboardRatingJournalRepository.findPointsAfter("global", 5, 10)).thenReturn(List.of(
+      new RatingHistoryPoint(11, TIME.plusHours(1), 1520, 290),
+      new RatingHistoryPoint(12, TIME.plusHours(2), 1540, 280)
+    ));
+
+    assertThat(instance.getHistory("global", 5, RatingHistoryDownsampling.NONE, 500).size(), is(2));
+
+    RatingHistory result = instance.getHistory("global", 5, RatingHistoryDownsampling.NONE, 500);
+    assertThat(result.getMeans(), is(new double[]{1500, 1520, 1540}));
+  }
+}
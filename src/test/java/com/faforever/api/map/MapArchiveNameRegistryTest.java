@@ -0,0 +1,118 @@
+package com.faforever.api.map;
+
+import com.faforever.api.config.FafApiProperties;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.junit.jupiter.api.io.TempDir;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.assertThat;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+public class MapArchiveNameRegistryTest {
+
+  @TempDir
+  Path targetDirectory;
+
+  @Mock
+  private MapRepository mapRepository;
+
+  private MapArchiveNameRegistry instance;
+
+  @BeforeEach
+  public void setUp() {
+    FafApiProperties fafApiProperties = new FafApiProperties();
+    fafApiProperties.getMap().setTargetDirectory(targetDirectory);
+    instance = new MapArchiveNameRegistry(fafApiProperties, mapRepository);
+  }
+
+  @Test
+  public void unusedNameIsReservedAsIs() throws Exception {
+    assertThat(instance.reserve("map.ufo"), is("map.ufo"));
+    assertThat(instance.reserve("map.ufo"), is("map.v0002.ufo"));
+    assertThat(instance.reserve("map.ufo"), is("map.v0003.ufo"));
+  }
+
+  @Test
+  public void latestVersionIsLoadedFromFilesAndMapVersions() throws Exception {
+    Files.createFile(targetDirectory.resolve("map.ufo"));
+    Files.createFile(targetDirectory.resolve("map.v0004.ufo"));
+    Files.createFile(targetDirectory.resolve("other.hpi"));
+    when(mapRepository.findArchiveNames()).thenReturn(List.of("map.v0002.ufo", "deleted.v0007.ufo"));
+
+    assertThat(instance.reserve("map.ufo"), is("map.v0005.ufo"));
+    assertThat(instance.reserve("other.hpi"), is("other.v0002.hpi"));
+    assertThat(instance.reserve("deleted.ufo"), is("deleted.v0008.ufo"));
+  }
+
+  @Test
+  public void onlyGeneratedNamesAreVersions() throws Exception {
+    Files.createFile(targetDirectory.resolve("map.v2020.ufo"));
+    Files.createFile(targetDirectory.resolve("other.v0001.ufo"));
+    Files.createFile(targetDirectory.resolve("third.v02020.ufo"));
+
+    assertThat(instance.reserve("map.v2020.ufo"), is("map.v2020.v0002.ufo"));
+    assertThat(instance.reserve("other.ufo"), is("other.ufo"));
+    assertThat(instance.reserve("third.ufo"), is("third.ufo"));
+  }
+
+  @Test
+  public void nameWithVersionBeyondIntRangeIsNotVersion() throws Exception {
+    Files.createFile(targetDirectory.resolve("map.v99999999999.ufo"));
+    when(mapRepository.findArchiveNames()).thenReturn(List.of("other.v99999999999.ufo"));
+
+    assertThat(instance.reserve("map.ufo"), is("map.ufo"));
+    assertThat(instance.reserve("map.v99999999999.ufo"), is("map.v99999999999.v0002.ufo"));
+    assertThat(instance.reserve("other.ufo"), is("other.ufo"));
+
+    instance.release("other.v99999999999.ufo");
+    assertThat(instance.reserve("other.ufo"), is("other.v0002.ufo"));
+  }
+
+  @Test
+  public void releasedNameIsReservedAgain() throws Exception {
+    instance.reserve("map.ufo");
+    String versionedName = instance.reserve("map.ufo");
+
+    instance.release(versionedName);
+
+    assertThat(instance.reserve("map.ufo"), is(versionedName));
+  }
+
+  @Test
+  public void releasingEarlierVersionLeavesGap() throws Exception {
+    String firstName = instance.reserve("map.ufo");
+    instance.reserve("map.ufo");
+
+    instance.release(firstName);
+
+    assertThat(instance.reserve("map.ufo"), is("map.v0003.ufo"));
+  }
+
+  @Test
+  public void nameIsReservedUntilTransactionCompletes() throws Exception {
+    TransactionSynchronizationManager.initSynchronization();
+    try {
+      String versionedName = instance.reserve("map.ufo");
+      assertThat(instance.isReserved(versionedName), is(true));
+
+      TransactionSynchronizationManager.getSynchronizations()
+        .forEach(synchronization -> synchronization.afterCompletion(TransactionSynchronization.STATUS_COMMITTED));
+
+      assertThat(instance.isReserved(versionedName), is(false));
+      assertThat(instance.reserve("map.ufo"), is("map.v0002.ufo"));
+    } finally {
+      TransactionSynchronizationManager.clearSynchronization();
+    }
+  }
+}
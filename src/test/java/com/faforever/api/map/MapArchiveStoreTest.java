@@ -0,0 +1,107 @@
+package com.faforever.api.map;
+
+import com.faforever.api.config.FafApiProperties;
+import com.google.common.hash.Hashing;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.FileAlreadyExistsException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Set;
+import java.util.stream.Stream;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.assertThat;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+public class MapArchiveStoreTest {
+
+  private static final byte[] ARCHIVE = "map archive".getBytes(StandardCharsets.UTF_8);
+  private static final String SHA256 = Hashing.sha256().hashBytes(ARCHIVE).toString();
+
+  @TempDir
+  Path targetDirectory;
+
+  private MapArchiveStore instance;
+
+  @BeforeEach
+  public void setUp() {
+    FafApiProperties fafApiProperties = new FafApiProperties();
+    fafApiProperties.getMap().setTargetDirectory(targetDirectory);
+    instance = new MapArchiveStore(fafApiProperties);
+  }
+
+  @Test
+  public void sameArchiveIsStoredOnce() throws Exception {
+    instance.add(stage(), SHA256, "map.ufo");
+    Path secondStagedArchive = stage();
+    instance.add(secondStagedArchive, SHA256, "map.v0002.ufo");
+
+    assertThat(instance.getArchiveNames(SHA256), is(Set.of("map.ufo", "map.v0002.ufo")));
+    assertThat(Files.exists(secondStagedArchive), is(true));
+    assertThat(Files.isSameFile(targetDirectory.resolve("map.ufo"), targetDirectory.resolve("map.v0002.ufo")), is(true));
+    assertThat(Files.readAllBytes(targetDirectory.resolve("map.v0002.ufo")), is(ARCHIVE));
+  }
+
+  @Test
+  public void existingArchiveIsNotReplaced() throws Exception {
+    byte[] existingArchive = "existing map archive".getBytes(StandardCharsets.UTF_8);
+    Files.write(targetDirectory.resolve("map.ufo"), existingArchive);
+
+    assertThrows(FileAlreadyExistsException.class, () -> instance.add(stage(), SHA256, "map.ufo"));
+    assertThat(Files.readAllBytes(targetDirectory.resolve("map.ufo")), is(existingArchive));
+  }
+
+  @Test
+  public void removedNameIsNoLongerIndexed() throws Exception {
+    instance.add(stage(), SHA256, "map.ufo");
+    instance.add(stage(), SHA256, "map.v0002.ufo");
+
+    instance.remove(SHA256, "map.v0002.ufo");
+
+    assertThat(instance.getArchiveNames(SHA256), is(Set.of("map.ufo")));
+    assertThat(Files.exists(targetDirectory.resolve("map.v0002.ufo")), is(false));
+  }
+
+  @Test
+  public void indexIsReadFromDisk() throws Exception {
+    instance.add(stage(), SHA256, "map.ufo");
+
+    FafApiProperties fafApiProperties = new FafApiProperties();
+    fafApiProperties.getMap().setTargetDirectory(targetDirectory);
+    MapArchiveStore restarted = new MapArchiveStore(fafApiProperties);
+
+    assertThat(restarted.getArchiveNames(SHA256), is(Set.of("map.ufo")));
+  }
+
+  @Test
+  public void archiveIsRemovedOnceUnlinked() throws Exception {
+    instance.add(stage(), SHA256, "map.ufo");
+    instance.add(stage(), SHA256, "map.v0002.ufo");
+
+    Files.delete(targetDirectory.resolve("map.ufo"));
+    instance.removeUnlinkedArchives();
+    assertThat(instance.getArchiveNames(SHA256), is(Set.of("map.v0002.ufo")));
+
+    Files.delete(targetDirectory.resolve("map.v0002.ufo"));
+    instance.removeUnlinkedArchives();
+    assertThat(instance.getArchiveNames(SHA256), is(Set.of()));
+    assertThat(Files.exists(targetDirectory.resolve(MapArchiveStore.BLOB_DIRECTORY).resolve(SHA256.substring(0, 2)).resolve(SHA256)), is(false));
+  }
+
+  @Test
+  public void hardLinkCheckLeavesNoFiles() throws Exception {
+    instance.verifyHardLinkSupport();
+
+    try (Stream<Path> files = Files.walk(targetDirectory)) {
+      assertThat(files.filter(Files::isRegularFile).count(), is(0L));
+    }
+  }
+
+  private Path stage() throws Exception {
+    return Files.write(Files.createTempFile(targetDirectory, ".upload-", ".part"), ARCHIVE);
+  }
+}
@@ -0,0 +1,175 @@
+package com.faforever.api.map;
+
+import com.faforever.api.config.FafApiProperties;
+import com.faforever.api.error.ApiException;
+import com.faforever.api.error.ErrorCode;
+import com.faforever.api.map.MapImportProgress.State;
+import com.google.common.hash.Hashing;
+import com.google.common.io.MoreFiles;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.junit.jupiter.api.io.TempDir;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.Clock;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+
+import static com.faforever.api.error.ApiExceptionMatcher.hasErrorCode;
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.assertThat;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+public class MapImportServiceTest {
+
+  private static final Instant NOW = Instant.parse("2021-03-01T12:00:00Z");
+
+  @TempDir
+  Path targetDirectory;
+
+  @Mock
+  private MapRepository mapRepository;
+  @Mock
+  private MapService mapService;
+  @Mock
+  private MapArchiveNameRegistry mapArchiveNameRegistry;
+
+  private MapImportService instance;
+  private MapArchiveStore mapArchiveStore;
+  private Path testMap;
+
+  @BeforeEach
+  public void setUp() throws Exception {
+    FafApiProperties fafApiProperties = new FafApiProperties();
+    fafApiProperties.getMap().setTargetDirectory(targetDirectory);
+    fafApiProperties.getMap().setImportThreads(2);
+    fafApiProperties.getMap().setImportBatchSize(1);
+    mapArchiveStore = new MapArchiveStore(fafApiProperties);
+    instance = new MapImportService(fafApiProperties, mapRepository, mapService, mapArchiveNameRegistry, mapArchiveStore,
+      Clock.fixed(NOW, ZoneOffset.UTC));
+
+    testMap = Paths.get(MapImportServiceTest.class.getResource("/maps/Test Map.ufo").toURI());
+    Files.copy(testMap, targetDirectory.resolve("Test Map.ufo"));
+    Files.copy(testMap, targetDirectory.resolve("Imported.ufo"));
+    Files.copy(testMap, targetDirectory.resolve(".upload-1.part"));
+    Files.writeString(targetDirectory.resolve("Broken.ufo"), "This is not an HPI archive");
+  }
+
+  @Test
+  public void archivesThatHaventBeenImportedAreImported() {
+    when(mapRepository.findArchiveNames()).thenReturn(List.of("Imported.ufo"));
+    when(mapService.importMaps(anyList())).thenReturn(1);
+
+    MapImportService.Job job = new MapImportService.Job(NOW);
+    instance.run(job);
+
+    @SuppressWarnings("unchecked")
+    ArgumentCaptor<List<ImportedMap>> mapsCaptor = ArgumentCaptor.forClass(List.class);
+    verify(mapService, times(1)).importMaps(mapsCaptor.capture());
+    ImportedMap importedMap = mapsCaptor.getValue().get(0);
+    assertThat(importedMap.getArchiveName(), is("Test Map.ufo"));
+    assertThat(importedMap.getMapInfo().getName(), is("Test Map"));
+
+    MapImportProgress progress = job.toProgress(NOW);
+    assertThat(progress.getState(), is(State.COMPLETED));
+    assertThat(progress.getArchiveCount(), is(2));
+    assertThat(progress.getProcessedArchiveCount(), is(2));
+    assertThat(progress.getFailedArchiveCount(), is(1));
+    assertThat(progress.getImportedMapCount(), is(1));
+    assertThat(progress.getFailures().get(0).startsWith("Broken.ufo: "), is(true));
+  }
+
+  @Test
+  public void failedBatchIsReportedAndImportContinues() {
+    when(mapRepository.findArchiveNames()).thenReturn(List.of());
+    when(mapService.importMaps(anyList())).thenThrow(new RuntimeException("Duplicate entry"))
+      .thenThrow(new RuntimeException("Duplicate entry"))
+      .thenReturn(1);
+
+    MapImportService.Job job = new MapImportService.Job(NOW);
+    instance.run(job);
+
+    MapImportProgress progress = job.toProgress(NOW);
+    assertThat(progress.getState(), is(State.COMPLETED));
+    assertThat(progress.getImportedMapCount(), is(1));
+    // Broken.ufo, and Imported.ufo whose batch and archive could not be written
+    assertThat(progress.getFailedArchiveCount(), is(2));
+  }
+
+  @Test
+  public void archivesBeingUploadedAreNotImported() {
+    when(mapArchiveNameRegistry.isReserved(anyString())).thenAnswer(invocation -> invocation.getArgument(0).equals("Test Map.ufo"));
+    when(mapRepository.findArchiveNames()).thenReturn(List.of("Imported.ufo"));
+
+    MapImportService.Job job = new MapImportService.Job(NOW);
+    instance.run(job);
+
+    verify(mapService, never()).importMaps(anyList());
+    assertThat(job.toProgress(NOW).getArchiveCount(), is(1));
+  }
+
+  @Test
+  public void archivesWithSameContentAreImportedOnce() {
+    when(mapRepository.findArchiveNames()).thenReturn(List.of());
+    when(mapService.importMaps(anyList())).thenReturn(1);
+
+    MapImportService.Job job = new MapImportService.Job(NOW);
+    instance.run(job);
+
+    @SuppressWarnings("unchecked")
+    ArgumentCaptor<List<ImportedMap>> mapsCaptor = ArgumentCaptor.forClass(List.class);
+    verify(mapService, times(1)).importMaps(mapsCaptor.capture());
+    assertThat(mapsCaptor.getValue().get(0).getArchiveName(), is("Imported.ufo"));
+
+    MapImportProgress progress = job.toProgress(NOW);
+    assertThat(progress.getImportedMapCount(), is(1));
+    assertThat(progress.getFailures().contains("Test Map.ufo: has the same content as Imported.ufo"), is(true));
+  }
+
+  @Test
+  public void archivesWithContentOfStoredArchiveAreNotImported() throws Exception {
+    String sha256 = MoreFiles.asByteSource(testMap).hash(Hashing.sha256()).toString();
+    Path stagedArchive = Files.copy(testMap, targetDirectory.resolve(".staged"));
+    mapArchiveStore.add(stagedArchive, sha256, "Stored.ufo");
+    when(mapRepository.findArchiveNames()).thenReturn(List.of("Stored.ufo"));
+
+    MapImportService.Job job = new MapImportService.Job(NOW);
+    instance.run(job);
+
+    verify(mapService, never()).importMaps(anyList());
+    assertThat(job.toProgress(NOW).getFailures().contains("Test Map.ufo: has the same content as Stored.ufo"), is(true));
+  }
+
+  @Test
+  public void onlyOneImportRunsAtATime() throws Exception {
+    CountDownLatch started = new CountDownLatch(1);
+    CountDownLatch release = new CountDownLatch(1);
+    when(mapRepository.findArchiveNames()).thenAnswer(invocation -> {
+      started.countDown();
+      release.await();
+      return List.of();
+    });
+
+    instance.start();
+    started.await();
+    ApiException result = assertThrows(ApiException.class, () -> instance.start());
+    release.countDown();
+
+    assertThat(result, hasErrorCode(ErrorCode.MAP_IMPORT_RUNNING));
+  }
+}
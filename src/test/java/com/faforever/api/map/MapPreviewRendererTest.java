@@ -0,0 +1,89 @@
+package com.faforever.api.map;
+
+import com.faforever.api.config.FafApiProperties;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import javax.imageio.ImageIO;
+import java.awt.image.BufferedImage;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.assertThat;
+
+public class MapPreviewRendererTest {
+
+  @TempDir
+  Path previewsDirectory;
+
+  private MapPreviewRenderer instance;
+  private FafApiProperties fafApiProperties;
+  private Path uploadedPreviewsDirectory;
+
+  @BeforeEach
+  public void setUp() throws Exception {
+    uploadedPreviewsDirectory = Files.createDirectory(previewsDirectory.resolve("mini"));
+    fafApiProperties = new FafApiProperties();
+    fafApiProperties.getMap()
+      .setDirectoryPreviewPath(uploadedPreviewsDirectory)
+      .setPreviewSize(512);
+    instance = new MapPreviewRenderer(fafApiProperties);
+  }
+
+  @AfterEach
+  public void tearDown() {
+    instance.shutdown();
+  }
+
+  @Test
+  public void previewIsRenderedInAllSizes() throws Exception {
+    ImageIO.write(new BufferedImage(1000, 500, BufferedImage.TYPE_INT_RGB), "png", uploadedPreviewsDirectory.resolve("map.png").toFile());
+
+    instance.render("map.png");
+
+    assertSize(MapPreviewSize.SMALL, 128, 64);
+    assertSize(MapPreviewSize.MEDIUM, 256, 128);
+    assertSize(MapPreviewSize.LARGE, 512, 256);
+  }
+
+  @Test
+  public void smallPreviewIsNotEnlarged() throws Exception {
+    ImageIO.write(new BufferedImage(100, 80, BufferedImage.TYPE_INT_RGB), "png", uploadedPreviewsDirectory.resolve("map.png").toFile());
+
+    instance.render("map.png");
+
+    assertSize(MapPreviewSize.SMALL, 100, 80);
+    assertSize(MapPreviewSize.LARGE, 100, 80);
+  }
+
+  @Test
+  public void previewWithTooManyPixelsIsSkipped() throws Exception {
+    fafApiProperties.getMap().setPreviewMaxPixels(100 * 80 - 1);
+    ImageIO.write(new BufferedImage(100, 80, BufferedImage.TYPE_INT_RGB), "png", uploadedPreviewsDirectory.resolve("map.png").toFile());
+
+    instance.render("map.png");
+
+    assertThat(Files.exists(previewsDirectory.resolve(MapPreviewSize.LARGE.getDirectoryName()).resolve("map.png")), is(false));
+  }
+
+  @Test
+  public void missingPreviewsAreRendered() throws Exception {
+    ImageIO.write(new BufferedImage(1000, 500, BufferedImage.TYPE_INT_RGB), "png", uploadedPreviewsDirectory.resolve("map.png").toFile());
+    Files.createDirectory(previewsDirectory.resolve(MapPreviewSize.SMALL.getDirectoryName()));
+    ImageIO.write(new BufferedImage(1, 1, BufferedImage.TYPE_INT_RGB), "png", previewsDirectory.resolve(MapPreviewSize.SMALL.getDirectoryName()).resolve("map.png").toFile());
+
+    instance.renderMissingPreviews();
+
+    assertSize(MapPreviewSize.SMALL, 128, 64);
+    assertSize(MapPreviewSize.LARGE, 512, 256);
+  }
+
+  private void assertSize(MapPreviewSize size, int width, int height) throws Exception {
+    BufferedImage image = ImageIO.read(previewsDirectory.resolve(size.getDirectoryName()).resolve("map.png").toFile());
+    assertThat(image.getWidth(), is(width));
+    assertThat(image.getHeight(), is(height));
+  }
+}
@@ -2,7 +2,6 @@ package com.faforever.api.map;
 
 import com.faforever.api.config.FafApiProperties;
 import com.faforever.api.config.FafApiProperties.Map;
-import com.faforever.api.content.ContentService;
 import com.faforever.api.data.domain.BanInfo;
 import com.faforever.api.data.domain.BanLevel;
 import com.faforever.api.data.domain.MapVersion;
@@ -10,6 +9,9 @@ import com.faforever.api.data.domain.Player;
 import com.faforever.api.error.ApiException;
 import com.faforever.api.error.Error;
 import com.faforever.api.error.ErrorCode;
+import com.faforever.api.map.MapRepository.MapHead;
+import com.faforever.api.map.MapRepository.MapVersionFileName;
+import com.faforever.api.map.hpi.TaMapInfo;
 import com.google.common.io.ByteStreams;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Nested;
@@ -19,12 +21,15 @@ import org.junit.jupiter.api.io.TempDir;
 import org.junit.jupiter.params.ParameterizedTest;
 import org.junit.jupiter.params.provider.CsvSource;
 import org.junit.jupiter.params.provider.ValueSource;
+import org.luaj.vm2.LuaError;
 import org.mockito.ArgumentCaptor;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
 import org.springframework.web.client.HttpClientErrorException.Forbidden;
 import org.thymeleaf.util.StringUtils;
 
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.nio.charset.StandardCharsets;
@@ -35,7 +40,11 @@ import java.util.Arrays;
 import java.util.Collections;
 import java.util.List;
 import java.util.Optional;
+import java.util.Set;
 import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
 
 import static com.faforever.api.error.ApiExceptionMatcher.hasErrorCode;
 import static com.faforever.api.error.ErrorCode.MAP_NAME_DOES_NOT_START_WITH_LETTER;
@@ -46,21 +55,24 @@ import static com.faforever.api.error.ErrorCode.MAP_NAME_TOO_SHORT;
 import static com.faforever.api.error.ErrorCode.MAP_SCRIPT_LINE_MISSING;
 import static com.faforever.api.map.MapService.MapDetailInfo.MANDATORY_MAP_DETAILS;
 import static org.hamcrest.Matchers.contains;
+import static org.hamcrest.Matchers.containsInAnyOrder;
+import static org.hamcrest.Matchers.empty;
 import static org.hamcrest.Matchers.hasItems;
+import static org.hamcrest.Matchers.is;
 import static org.hamcrest.Matchers.not;
+import static org.hamcrest.Matchers.nullValue;
 import static org.junit.Assert.assertEquals;
-import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertThat;
 import static org.junit.Assert.assertTrue;
 import static org.junit.jupiter.api.Assertions.assertThrows;
 import static org.mockito.Mockito.any;
 import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
 @ExtendWith(MockitoExtension.class)
 public class MapServiceTest {
-  private Path temporaryDirectory;
   private Path finalDirectory;
 
   @Mock
@@ -68,16 +80,21 @@ public class MapServiceTest {
   @Mock
   private FafApiProperties fafApiProperties;
   @Mock
-  private ContentService contentService;
-  @Mock
   private Player author;
+  @Mock
+  private MapPreviewRenderer mapPreviewRenderer;
+  @Mock
+  private MapSummaryCache mapSummaryCache;
+  @Mock
+  private ScenarioInfoCache scenarioInfoCache;
 
   private MapService instance;
   private Map mapProperties;
 
   @BeforeEach
   void beforeEach() {
-    instance = new MapService(fafApiProperties, mapRepository, contentService);
+    instance = new MapService(fafApiProperties, mapRepository, new MapArchiveStore(fafApiProperties),
+      new MapArchiveNameRegistry(fafApiProperties, mapRepository), mapPreviewRenderer, mapSummaryCache, scenarioInfoCache);
   }
 
   private String loadMapAsString(String filename) throws IOException {
@@ -97,6 +114,15 @@ public class MapServiceTest {
   @Nested
   class Validation {
 
+    @Test
+    void nameValidationReturnsNextVersion() {
+      when(mapSummaryCache.find("Map1")).thenReturn(Optional.of(new MapSummary(1, 5, 13)));
+      assertThat(instance.requestMapNameValidation("Map1").getNextVersion(), is(14));
+
+      when(mapSummaryCache.find("Map2")).thenReturn(Optional.empty());
+      assertThat(instance.requestMapNameValidation("Map2").getNextVersion(), is(1));
+    }
+
     @ParameterizedTest
     @CsvSource(value={
       "[NLJ] 10th Anniversary/[NLJ]-Maps-Pack-2019.ufo/cbefbd4f/16 x 16 map - wind +20-30e -tidal +25e - map by \"nlj\" 1v1, 2v2, 3v3, 4v4, 5v5",
@@ -118,6 +144,24 @@ public class MapServiceTest {
       instance.validateMapName(name);
     }
 
+    @Test
+    void scenarioLuaWithoutNoRushRadiusFails() throws Exception {
+      String scenarioLua = "ScenarioInfo = { name = 'Tropics', description = 'a map', type = 'skirmish', size = { 512, 512 }, map_version = 1, " +
+        "Configurations = { standard = { teams = { { name = 'FFA', armies = { 'ARMY_1', 'ARMY_2' } } } } } }";
+      when(scenarioInfoCache.get(scenarioLua)).thenReturn(MapLuaAccessor.of(scenarioLua));
+
+      ApiException result = assertThrows(ApiException.class, () -> instance.validateScenarioLua(scenarioLua));
+      assertThat(result, hasErrorCode(ErrorCode.NO_RUSH_RADIUS_MISSING));
+    }
+
+    @Test
+    void scenarioLuaThatFailsToEvaluateFails() throws Exception {
+      when(scenarioInfoCache.get("ScenarioInfo = {")).thenThrow(new LuaError("unexpected symbol"));
+
+      ApiException result = assertThrows(ApiException.class, () -> instance.validateScenarioLua("ScenarioInfo = {"));
+      assertThat(result, hasErrorCode(ErrorCode.PARSING_LUA_FILE_FAILED));
+    }
+
     @Test
     void testMapNameMultiErrorsButNoScenarioValidation() {
       String mapName = "123Invalid-in$-many-ways-atOnce" + StringUtils.repeat("x", 50);
@@ -191,13 +235,11 @@ public class MapServiceTest {
 
     @BeforeEach
     void setUp() throws Exception {
-      temporaryDirectory = Files.createDirectory(baseTemporaryDirectory.resolve("temp"));
       finalDirectory = Files.createDirectory(baseTemporaryDirectory.resolve("final"));
 
       mapProperties = new Map()
         .setTargetDirectory(finalDirectory)
         .setDirectoryPreviewPath(finalDirectory.resolve("mini"));
-      when(contentService.createTempDir()).thenReturn(temporaryDirectory);
     }
 
     @ParameterizedTest(name = "Expecting ErrorCode.{0} with file ''{1}''")
@@ -274,13 +316,8 @@ public class MapServiceTest {
     void notCorrectAuthor() {
       when(fafApiProperties.getMap()).thenReturn(mapProperties);
 
-      Player me = new Player();
-      me.setId(1);
-      Player bob = new Player();
-      bob.setId(2);
-
-      com.faforever.api.data.domain.Map map = new com.faforever.api.data.domain.Map().setAuthor(bob);
-      when(mapRepository.findOneByDisplayName(any())).thenReturn(Optional.of(map));
+      when(author.getId()).thenReturn(1);
+      when(mapRepository.findHeadByDisplayName(any())).thenReturn(Optional.of(head(1, 2, 1)));
 
       java.util.Map<String,String> mapDetails = java.util.Map.of("name", "Beta Tropics (Coasts)", "description", "a map", "crc", "deadbeef", "archive", "Beta Tropics (Coasts).ufo");
       uploadFails(ErrorCode.MAP_NOT_ORIGINAL_AUTHOR, "Beta Tropics (Coasts).tar", List.of(mapDetails));
@@ -307,7 +344,10 @@ public class MapServiceTest {
         ));
       InputStream mapData = loadMapAsInputSteam("Beta Tropics (Coasts).tar");
 
+      when(mapRepository.findHeadByDisplayName(any())).thenReturn(Optional.of(head(1, 5, 13)));
+      when(mapRepository.findVersionFileNames(1)).thenReturn(List.of(fileName("original.ufo", "deadbeef")));
       when(mapRepository.findOneByDisplayName(any())).thenReturn(Optional.of(map));
+      when(author.getId()).thenReturn(5);
 
       java.util.Map<String,String> mapDetails = java.util.Map.of("name", "Beta Tropics (Coasts)", "description", "a map", "crc", "deadbeef", "archive", "Beta Tropics (Coasts).ufo");
       instance.uploadMap(mapData, author, true, List.of(mapDetails));
@@ -342,7 +382,10 @@ public class MapServiceTest {
           .setVersion(13));
       InputStream mapData = loadMapAsInputSteam("Beta Tropics (Coasts).tar");
 
+      when(mapRepository.findHeadByDisplayName(any())).thenReturn(Optional.of(head(1, 5, 13)));
+      when(mapRepository.findVersionFileNames(1)).thenReturn(List.of(fileName("Beta Tropics (Coasts).ufo", "deadbeef")));
       when(mapRepository.findOneByDisplayName(any())).thenReturn(Optional.of(map));
+      when(author.getId()).thenReturn(5);
 
       java.util.Map<String,String> mapDetails = java.util.Map.of("name", "Beta Tropics (Coasts)", "description", "a map", "crc", "deedbeef", "archive", "Beta Tropics (Coasts).ufo");
       instance.uploadMap(mapData, author, true, List.of(mapDetails));
@@ -359,22 +402,9 @@ public class MapServiceTest {
     void officialVersionExistsAlready() {
       when(fafApiProperties.getMap()).thenReturn(mapProperties);
 
-      com.faforever.api.data.domain.Map map = new com.faforever.api.data.domain.Map()
-        .setDisplayName("SHERWOOD")
-        .setAuthor(author)
-        .setVersions(Collections.singletonList(new MapVersion()
-          .setCrc("deadbeef")
-          .setDescription("some map")
-          .setFilename("totala2.hpi/SHERWOOD/deadbeef")
-          .setHeight(10)
-          .setWidth(10)
-          .setHidden(false)
-          .setMaxPlayers(8)
-          .setName("SHERWOOD")
-          .setRanked(true)
-          .setVersion(1)
-        ));
-      when(mapRepository.findOneByDisplayName(any())).thenReturn(Optional.of(map));
+      when(mapRepository.findHeadByDisplayName(any())).thenReturn(Optional.of(head(1, 5, 1)));
+      when(mapRepository.findVersionFileNames(1)).thenReturn(List.of(fileName("totala2.hpi", "deadbeef")));
+      when(author.getId()).thenReturn(5);
 
       // NB archive is NOT the official archive name "totala2.hpi", only the map name "SHERWOOD" is official.
       java.util.Map<String,String> mapDetails = java.util.Map.of("name", "SHERWOOD", "description", "a map", "crc", "deadbeef", "archive", "total2.ufo");
@@ -402,7 +432,10 @@ public class MapServiceTest {
           .setRanked(true)
           .setVersion(13)
           );
+      when(mapRepository.findHeadByDisplayName(any())).thenReturn(Optional.of(head(1, 5, 13)));
+      when(mapRepository.findVersionFileNames(1)).thenReturn(List.of(fileName("original.ufo", "deadbeef")));
       when(mapRepository.findOneByDisplayName(any())).thenReturn(Optional.of(map));
+      when(author.getId()).thenReturn(5);
 
       InputStream mapData = loadMapAsInputSteam("Beta Tropics (Coasts).tar");
       java.util.Map<String,String> mapDetails = java.util.Map.of("name", "Beta Tropics (Coasts)", "description", "a map", "crc", "deedbeef", "archive", "Beta Tropics (Coasts).ufo");
@@ -423,7 +456,6 @@ public class MapServiceTest {
       when(mapRepository.findOneByDisplayName(any())).thenReturn(Optional.empty());
       InputStream mapData = loadMapAsInputSteam(zipFilename);
 
-      Path tmpDir = temporaryDirectory;
       java.util.Map<String,String> mapDetails = java.util.Map.of("name", "Beta Tropics (Coasts)", "description", "a map", "crc", "deadbeef", "archive", "Beta Tropics (Coasts).ufo");
       instance.uploadMap(mapData, author, true, List.of(mapDetails));
 
@@ -434,17 +466,160 @@ public class MapServiceTest {
 
       MapVersion mapVersion = mapCaptor.getValue().getVersions().get(0);
       assertEquals("a map", mapVersion.getDescription());
-      assertEquals(8, mapVersion.getHeight());
-      assertEquals(8, mapVersion.getWidth());
-      assertEquals(10, mapVersion.getMaxPlayers());
+      assertEquals(4, mapVersion.getHeight());
+      assertEquals(9, mapVersion.getWidth());
+      assertEquals(4, mapVersion.getMaxPlayers());
       assertEquals("Beta Tropics (Coasts).ufo/Beta Tropics (Coasts)/deadbeef", mapVersion.getFilename());
 
-      assertFalse(Files.exists(tmpDir));
-
       Path finalArchive = finalDirectory.resolve("Beta Tropics (Coasts).ufo");
       assertTrue(Files.exists(finalArchive));
+      assertEquals(802549, Files.size(finalArchive));
 
       assertTrue(Files.exists(mapProperties.getDirectoryPreviewPath().resolve("Beta Tropics (Coasts).png")));
+      assertThat(listFileNames(finalDirectory), containsInAnyOrder("Beta Tropics (Coasts).ufo", "mini", MapArchiveStore.BLOB_DIRECTORY));
+      assertThat(listFileNames(mapProperties.getDirectoryPreviewPath()), contains("Beta Tropics (Coasts).png"));
+      verify(mapPreviewRenderer).renderAfterCommit(Set.of("Beta Tropics (Coasts).png"));
+    }
+
+    @ParameterizedTest(name = "Expecting ErrorCode.{0} with archive ''{1}''")
+    @CsvSource(value = {
+      "MAP_NOT_IN_ARCHIVE,Test Map.ufo",
+      "MAP_INVALID_ARCHIVE,new_text_document.tar"
+    })
+    void uploadFailsWithArchiveContent(String errorCodeEnumValue, String archiveResource) throws Exception {
+      when(fafApiProperties.getMap()).thenReturn(mapProperties);
+
+      ByteArrayOutputStream zipData = new ByteArrayOutputStream();
+      try (ZipOutputStream zipOutputStream = new ZipOutputStream(zipData)) {
+        zipOutputStream.putNextEntry(new ZipEntry("Beta Tropics (Coasts).ufo/Beta Tropics (Coasts).ufo"));
+        zipOutputStream.write(loadMapAsBytes(archiveResource));
+        zipOutputStream.putNextEntry(new ZipEntry("Beta Tropics (Coasts).ufo/mini/Beta Tropics (Coasts).png"));
+        zipOutputStream.closeEntry();
+      }
+
+      java.util.Map<String,String> mapDetails = java.util.Map.of("name", "Beta Tropics (Coasts)", "description", "a map", "crc", "deadbeef", "archive", "Beta Tropics (Coasts).ufo");
+      ApiException result = assertThrows(ApiException.class, () -> instance.uploadMap(new ByteArrayInputStream(zipData.toByteArray()), author, true, List.of(mapDetails)));
+      assertThat(result, hasErrorCode(ErrorCode.valueOf(errorCodeEnumValue)));
+      verify(mapRepository, never()).save(any(com.faforever.api.data.domain.Map.class));
     }
+
+    @Test
+    void uploadOfSameArchiveIsLinkedToStoredArchive() throws Exception {
+      when(fafApiProperties.getMap()).thenReturn(mapProperties);
+      when(mapRepository.findOneByDisplayName(any())).thenReturn(Optional.empty());
+
+      java.util.Map<String,String> mapDetails = java.util.Map.of("name", "Beta Tropics (Coasts)", "description", "a map", "crc", "deadbeef", "archive", "Beta Tropics (Coasts).ufo");
+      instance.uploadMap(loadMapAsInputSteam("Beta Tropics (Coasts).tar"), author, true, List.of(mapDetails));
+      instance.uploadMap(loadMapAsInputSteam("Beta Tropics (Coasts).tar"), author, true, List.of(mapDetails));
+
+      verify(mapRepository, times(2)).save(any(com.faforever.api.data.domain.Map.class));
+      assertThat(listFileNames(finalDirectory), containsInAnyOrder("Beta Tropics (Coasts).ufo", "Beta Tropics (Coasts).v0002.ufo", "mini", MapArchiveStore.BLOB_DIRECTORY));
+      assertTrue(Files.isSameFile(finalDirectory.resolve("Beta Tropics (Coasts).ufo"), finalDirectory.resolve("Beta Tropics (Coasts).v0002.ufo")));
+    }
+
+    @Test
+    void uploadFailsWithZipBomb() throws Exception {
+      when(fafApiProperties.getMap()).thenReturn(mapProperties);
+
+      ByteArrayOutputStream zipData = new ByteArrayOutputStream();
+      try (ZipOutputStream zipOutputStream = new ZipOutputStream(zipData)) {
+        zipOutputStream.putNextEntry(new ZipEntry("bomb.ufo/bomb.ufo"));
+        byte[] zeros = new byte[1024 * 1024];
+        for (int i = 0; i < 20; i++) {
+          zipOutputStream.write(zeros);
+        }
+        zipOutputStream.closeEntry();
+      }
+
+      java.util.Map<String,String> mapDetails = java.util.Map.of("name", "bomb", "description", "a map", "crc", "deadbeef", "archive", "bomb.ufo");
+      ApiException result = assertThrows(ApiException.class, () -> instance.uploadMap(new ByteArrayInputStream(zipData.toByteArray()), author, true, List.of(mapDetails)));
+      assertThat(result, hasErrorCode(ErrorCode.MAP_ZIP_BOMB));
+      assertThat(listFileNames(finalDirectory), is(empty()));
+    }
+
+    private List<String> listFileNames(Path directory) throws IOException {
+      try (Stream<Path> files = Files.list(directory)) {
+        return files.map(file -> file.getFileName().toString()).collect(Collectors.toList());
+      }
+    }
+  }
+
+  @Nested
+  class Import {
+
+    @Test
+    void importCreatesMapWithoutAuthor() {
+      when(mapRepository.findOneByDisplayName("Test Map")).thenReturn(Optional.empty());
+
+      int count = instance.importMaps(List.of(new ImportedMap("Test Map.ufo", "0badcafe", new TaMapInfo("Test Map", "", 5, 4, "2, 3"))));
+
+      assertThat(count, is(1));
+      ArgumentCaptor<com.faforever.api.data.domain.Map> mapCaptor = ArgumentCaptor.forClass(com.faforever.api.data.domain.Map.class);
+      verify(mapRepository).save(mapCaptor.capture());
+      com.faforever.api.data.domain.Map map = mapCaptor.getValue();
+      assertThat(map.getAuthor(), is(nullValue()));
+      MapVersion version = map.getVersions().get(0);
+      assertThat(version.getFilename(), is("Test Map.ufo/Test Map/" + MapService.UNKNOWN_CRC));
+      assertThat(version.getDescription(), is("Test Map"));
+      assertThat(version.getMaxPlayers(), is(3));
+      assertThat(version.isRanked(), is(false));
+    }
+
+    @Test
+    void uploadedCrcNeverEqualsCrcOfImportedVersions() {
+      assertThat(MapService.MapDetailInfo.REGEX_CRC32.matcher(MapService.UNKNOWN_CRC).matches(), is(false));
+    }
+
+    @Test
+    void importAddsVersionToMapImportedBefore() {
+      MapVersion existingVersion = new MapVersion()
+        .setVersion(1)
+        .setFilename("Test Map.ufo/Test Map/" + MapService.UNKNOWN_CRC);
+      existingVersion.setCrc(MapService.UNKNOWN_CRC);
+      com.faforever.api.data.domain.Map existingMap = new com.faforever.api.data.domain.Map();
+      existingMap.getVersions().add(existingVersion);
+      when(mapRepository.findOneByDisplayName("Test Map")).thenReturn(Optional.of(existingMap));
+
+      int count = instance.importMaps(List.of(new ImportedMap("Test Map.v0002.ufo", "0badcafe", new TaMapInfo("Test Map", "", 5, 4, "2, 3"))));
+
+      assertThat(count, is(1));
+      assertThat(existingMap.getVersions().size(), is(2));
+      assertThat(existingVersion.getFilename(), is("Test Map.ufo/Test Map/" + MapService.UNKNOWN_CRC));
+      assertThat(existingMap.getVersions().get(1).getVersion(), is(2));
+      assertThat(existingMap.getVersions().get(1).getFilename(), is("Test Map.v0002.ufo/Test Map/" + MapService.UNKNOWN_CRC));
+    }
+  }
+
+  private static MapHead head(int id, Integer authorId, Integer latestVersion) {
+    return new MapHead() {
+      @Override
+      public int getId() {
+        return id;
+      }
+
+      @Override
+      public Integer getAuthorId() {
+        return authorId;
+      }
+
+      @Override
+      public Integer getLatestVersion() {
+        return latestVersion;
+      }
+    };
+  }
+
+  private static MapVersionFileName fileName(String archiveName, String crc) {
+    return new MapVersionFileName() {
+      @Override
+      public String getArchiveName() {
+        return archiveName;
+      }
+
+      @Override
+      public String getCrc() {
+        return crc;
+      }
+    };
   }
 }
@@ -0,0 +1,81 @@
+package com.faforever.api.map;
+
+import com.faforever.api.config.FafApiProperties;
+import com.faforever.api.data.domain.MapVersion;
+import com.faforever.api.data.domain.Mod;
+import com.faforever.api.data.listeners.EntityChangedEvent;
+import com.faforever.api.data.listeners.EntityChangedEvent.ChangeType;
+import com.faforever.api.map.MapRepository.MapHead;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.util.Optional;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.assertThat;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+public class MapSummaryCacheTest {
+
+  private MapSummaryCache instance;
+
+  @Mock
+  private MapRepository mapRepository;
+
+  @BeforeEach
+  public void setUp() {
+    instance = new MapSummaryCache(new FafApiProperties(), mapRepository);
+  }
+
+  @Test
+  public void summaryIsLoadedOnce() {
+    when(mapRepository.findHeadByDisplayName("Map1")).thenReturn(Optional.of(head(1, 5, 2)));
+
+    MapSummary expected = new MapSummary(1, 5, 2);
+    assertThat(instance.find("Map1"), is(Optional.of(expected)));
+    assertThat(instance.find("Map1"), is(Optional.of(expected)));
+
+    instance.onEntityChanged(new EntityChangedEvent(this, Mod.class, 1, ChangeType.UPDATED));
+    assertThat(instance.find("Map1"), is(Optional.of(expected)));
+
+    verify(mapRepository, times(1)).findHeadByDisplayName("Map1");
+  }
+
+  @Test
+  public void absenceIsCachedUntilMapVersionChanges() {
+    when(mapRepository.findHeadByDisplayName("Map1"))
+      .thenReturn(Optional.empty())
+      .thenReturn(Optional.of(head(1, 5, null)));
+
+    assertThat(instance.find("Map1"), is(Optional.empty()));
+    assertThat(instance.find("Map1"), is(Optional.empty()));
+
+    instance.onEntityChanged(new EntityChangedEvent(this, MapVersion.class, 10, ChangeType.CREATED));
+    assertThat(instance.find("Map1"), is(Optional.of(new MapSummary(1, 5, 0))));
+  }
+
+  private static MapHead head(int id, Integer authorId, Integer latestVersion) {
+    return new MapHead() {
+      @Override
+      public int getId() {
+        return id;
+      }
+
+      @Override
+      public Integer getAuthorId() {
+        return authorId;
+      }
+
+      @Override
+      public Integer getLatestVersion() {
+        return latestVersion;
+      }
+    };
+  }
+}
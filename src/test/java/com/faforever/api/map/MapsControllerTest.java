@@ -3,6 +3,7 @@ package com.faforever.api.map;
 import com.faforever.api.config.FafApiProperties;
 import com.faforever.api.config.TestWebSecurityConfig;
 import com.faforever.api.player.PlayerService;
+import com.faforever.api.upload.UploadSessionService;
 import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.google.common.io.ByteStreams;
@@ -43,6 +44,8 @@ public class MapsControllerTest {
   private PlayerService playerService;
   @MockBean
   private ObjectMapper objectMapper;
+  @MockBean
+  private UploadSessionService uploadSessionService;
 
   @Inject
   void init(MockMvc mvc) {
@@ -0,0 +1,29 @@
+package com.faforever.api.map;
+
+import com.faforever.api.config.FafApiProperties;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.CoreMatchers.not;
+import static org.hamcrest.CoreMatchers.sameInstance;
+import static org.junit.Assert.assertThat;
+
+public class ScenarioInfoCacheTest {
+
+  private ScenarioInfoCache instance;
+
+  @BeforeEach
+  public void setUp() {
+    instance = new ScenarioInfoCache(new FafApiProperties());
+  }
+
+  @Test
+  public void sameContentIsEvaluatedOnce() throws Exception {
+    MapLuaAccessor scenario = instance.get("ScenarioInfo = { name = 'Tropics' }");
+
+    assertThat(instance.get(new String("ScenarioInfo = { name = 'Tropics' }")), is(sameInstance(scenario)));
+    assertThat(instance.get("ScenarioInfo = { name = 'Coasts' }"), is(not(sameInstance(scenario))));
+    assertThat(scenario.getName().get(), is("Tropics"));
+  }
+}
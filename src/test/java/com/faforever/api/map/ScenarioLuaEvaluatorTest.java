@@ -0,0 +1,89 @@
+package com.faforever.api.map;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.luaj.vm2.LuaError;
+import org.luaj.vm2.LuaValue;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.assertThat;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+public class ScenarioLuaEvaluatorTest {
+
+  private ScenarioLuaEvaluator instance;
+
+  @BeforeEach
+  public void setUp() {
+    instance = new ScenarioLuaEvaluator(1);
+  }
+
+  @Test
+  public void evaluatesRootElement() throws Exception {
+    LuaValue scenarioInfo = instance.evaluate("ScenarioInfo = { name = string.upper('tropics'), size = { 512, 512 } }", "ScenarioInfo");
+
+    assertThat(scenarioInfo.get("name").tojstring(), is("TROPICS"));
+    assertThat(scenarioInfo.get("size").get(1).toint(), is(512));
+  }
+
+  @Test
+  public void variablesDontLeakIntoNextEvaluation() throws Exception {
+    instance.evaluate("ScenarioInfo = {}; leaked = 1; _G.leakedToo = 1", "ScenarioInfo");
+
+    LuaValue scenarioInfo = instance.evaluate("ScenarioInfo = { leaked = leaked, leakedToo = leakedToo }", "ScenarioInfo");
+
+    assertThat(scenarioInfo.get("leaked").isnil(), is(true));
+    assertThat(scenarioInfo.get("leakedToo").isnil(), is(true));
+  }
+
+  @Test
+  public void librariesAreReadOnly() throws Exception {
+    assertThrows(LuaError.class, () -> instance.evaluate("string.upper = nil", "ScenarioInfo"));
+    assertThrows(LuaError.class, () -> instance.evaluate("setmetatable(string, nil)", "ScenarioInfo"));
+
+    LuaValue scenarioInfo = instance.evaluate("ScenarioInfo = { name = string.upper('a') }", "ScenarioInfo");
+    assertThat(scenarioInfo.get("name").tojstring(), is("A"));
+  }
+
+  @Test
+  public void globalsCantBeReachedThroughEnvironmentMetatable() throws Exception {
+    assertThrows(LuaError.class, () -> instance.evaluate("getmetatable(_G).__index.leaked = 1", "ScenarioInfo"));
+    assertThrows(LuaError.class, () -> instance.evaluate("setmetatable(_G, nil)", "ScenarioInfo"));
+
+    LuaValue scenarioInfo = instance.evaluate("ScenarioInfo = { metatable = getmetatable(_G) }", "ScenarioInfo");
+    assertThat(scenarioInfo.get("metatable"), is(LuaValue.FALSE));
+  }
+
+  @Test
+  public void stringLibraryCantBeReachedThroughStringMetatable() throws Exception {
+    assertThrows(LuaError.class, () -> instance.evaluate("getmetatable('').__index.upper = nil", "ScenarioInfo"));
+
+    LuaValue scenarioInfo = instance.evaluate("ScenarioInfo = { name = ('a'):upper() }", "ScenarioInfo");
+    assertThat(scenarioInfo.get("name").tojstring(), is("A"));
+  }
+
+  @Test
+  public void endlessLoopIsAborted() throws Exception {
+    assertThrows(LuaError.class, () -> instance.evaluate("while true do end", "ScenarioInfo"));
+    assertThrows(LuaError.class, () -> instance.evaluate("local function f() return f() end f()", "ScenarioInfo"));
+
+    LuaValue scenarioInfo = instance.evaluate("ScenarioInfo = { name = 'tropics' }", "ScenarioInfo");
+    assertThat(scenarioInfo.get("name").tojstring(), is("tropics"));
+  }
+
+  @Test
+  public void hugeStringsAreNotBuilt() throws Exception {
+    assertThrows(LuaError.class, () -> instance.evaluate("string.rep('x', 2^30)", "ScenarioInfo"));
+    assertThrows(LuaError.class, () -> instance.evaluate("('x'):rep(2^30)", "ScenarioInfo"));
+    assertThrows(LuaError.class, () -> instance.evaluate("local s = string.rep('x', 2^19) table.concat({ s, s, s }, '')", "ScenarioInfo"));
+
+    LuaValue scenarioInfo = instance.evaluate("ScenarioInfo = { name = table.concat({ ('x'):rep(3), 'y' }, '-') }", "ScenarioInfo");
+    assertThat(scenarioInfo.get("name").tojstring(), is("xxx-y"));
+  }
+
+  @Test
+  public void filesCantBeAccessed() {
+    assertThrows(LuaError.class, () -> instance.evaluate("dofile('/etc/passwd')", "ScenarioInfo"));
+    assertThrows(LuaError.class, () -> instance.evaluate("io.open('/etc/passwd')", "ScenarioInfo"));
+  }
+}
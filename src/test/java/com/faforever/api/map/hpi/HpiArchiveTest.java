@@ -0,0 +1,188 @@
+package com.faforever.api.map.hpi;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.CoreMatchers.startsWith;
+import static org.junit.Assert.assertThat;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+/**
+ * The test archive is obfuscated. Its {@code .ota} file is compressed with zlib in encrypted chunks, its {@code .tnt}
+ * file with LZ77 in two chunks, and its {@code readme.txt} is stored uncompressed.
+ */
+public class HpiArchiveTest {
+
+  private HpiArchive instance;
+
+  @BeforeEach
+  public void setUp() throws Exception {
+    instance = HpiArchive.open(Paths.get(HpiArchiveTest.class.getResource("/maps/Test Map.ufo").toURI()));
+  }
+
+  @Test
+  public void entriesAreListed() {
+    List<String> paths = instance.getEntries().stream().map(HpiEntry::getPath).collect(Collectors.toList());
+
+    assertThat(paths, is(List.of("Maps/Test Map.ota", "Maps/Test Map.tnt", "readme.txt")));
+  }
+
+  @Test
+  public void entriesAreRead() throws Exception {
+    String readme = new String(instance.read(instance.findEntry("README.TXT").orElseThrow()), StandardCharsets.ISO_8859_1);
+    String ota = new String(instance.read(instance.findEntry("maps/test map.ota").orElseThrow()), StandardCharsets.ISO_8859_1);
+    byte[] tnt = instance.read(instance.findEntry("maps/test map.tnt").orElseThrow());
+
+    assertThat(readme, is("Uncompressed file\n"));
+    assertThat(ota, startsWith("[GlobalHeader]"));
+    assertThat(tnt.length, is(75656));
+    assertThat(ByteBuffer.wrap(tnt).order(ByteOrder.LITTLE_ENDIAN).getInt(4), is(160));
+    assertThat(tnt[tnt.length - 1], is((byte) 0));
+  }
+
+  @Test
+  public void streamDecompressesOnlyWhatIsRead() throws Exception {
+    try (InputStream inputStream = instance.openStream(instance.findEntry("maps/test map.tnt").orElseThrow())) {
+      assertThat(inputStream.readNBytes(4).length, is(4));
+      assertThat(inputStream.available(), is(65536 - 4));
+    }
+  }
+
+  @Test
+  public void mapsAreRead() throws Exception {
+    List<TaMapInfo> maps = TaMapReader.readMaps(instance);
+
+    assertThat(maps, is(List.of(new TaMapInfo("Test Map", "5 X 4 A map for testing", 5, 4, "2, 3"))));
+  }
+
+  @Test
+  public void directoryListedTwiceIsRejected(@TempDir Path tempDirectory) throws Exception {
+    ByteBuffer archive = archive(58);
+    putDirectory(archive, 20, 2, 28);
+    putEntry(archive, 28, 54, 46, true);
+    putEntry(archive, 37, 56, 46, true);
+    putDirectory(archive, 46, 0, 28);
+    putName(archive, 54, "a");
+    putName(archive, 56, "b");
+
+    assertThrows(HpiFormatException.class, () -> HpiArchive.open(write(tempDirectory, archive)));
+  }
+
+  @Test
+  public void tooManyEntriesAreRejected(@TempDir Path tempDirectory) throws Exception {
+    int entryCount = HpiArchive.MAX_ENTRY_COUNT + 1;
+    int fileOffset = 28 + entryCount * 9;
+    int nameOffset = fileOffset + 9;
+    ByteBuffer archive = archive(nameOffset + 2);
+    putDirectory(archive, 20, entryCount, 28);
+    for (int i = 0; i < entryCount; i++) {
+      putEntry(archive, 28 + i * 9, nameOffset, fileOffset, false);
+    }
+    putFile(archive, fileOffset, 20, 0, false);
+    putName(archive, nameOffset, "a");
+
+    assertThrows(HpiFormatException.class, () -> HpiArchive.open(write(tempDirectory, archive)));
+  }
+
+  @Test
+  public void hugeCompressedEntryIsRejected(@TempDir Path tempDirectory) throws Exception {
+    ByteBuffer archive = archive(48);
+    putDirectory(archive, 20, 1, 28);
+    putEntry(archive, 28, 46, 37, false);
+    putFile(archive, 37, 20, Integer.MAX_VALUE, true);
+    putName(archive, 46, "a");
+
+    HpiArchive hpiArchive = HpiArchive.open(write(tempDirectory, archive));
+
+    HpiEntry entry = hpiArchive.getEntries().get(0);
+    assertThrows(HpiFormatException.class, () -> hpiArchive.openStream(entry));
+  }
+
+  @Test
+  public void hugeOtaFileIsNotRead(@TempDir Path tempDirectory) throws Exception {
+    ByteBuffer archive = archive(74);
+    putDirectory(archive, 20, 1, 28);
+    putEntry(archive, 28, 63, 37, true);
+    putDirectory(archive, 37, 1, 45);
+    putEntry(archive, 45, 68, 54, false);
+    putFile(archive, 54, 20, TaMapReader.MAX_OTA_SIZE + 1, true);
+    putName(archive, 63, "maps");
+    putName(archive, 68, "x.ota");
+
+    HpiArchive hpiArchive = HpiArchive.open(write(tempDirectory, archive));
+
+    assertThrows(HpiFormatException.class, () -> TaMapReader.readMaps(hpiArchive));
+  }
+
+  @Test
+  public void hugeTntFileIsRejected(@TempDir Path tempDirectory) throws Exception {
+    ByteBuffer archive = archive(98);
+    putDirectory(archive, 20, 1, 28);
+    putEntry(archive, 28, 81, 37, true);
+    putDirectory(archive, 37, 2, 45);
+    putEntry(archive, 45, 86, 63, false);
+    putEntry(archive, 54, 92, 72, false);
+    putFile(archive, 63, 20, 10, true);
+    putFile(archive, 72, 20, TaMapReader.MAX_TNT_SIZE + 1, true);
+    putName(archive, 81, "maps");
+    putName(archive, 86, "x.ota");
+    putName(archive, 92, "x.tnt");
+
+    HpiArchive hpiArchive = HpiArchive.open(write(tempDirectory, archive));
+
+    assertThrows(HpiFormatException.class, () -> TaMapReader.readMaps(hpiArchive));
+  }
+
+  @Test
+  public void otherFileIsRejected(@TempDir Path tempDirectory) throws Exception {
+    Path file = Files.writeString(tempDirectory.resolve("map.ufo"), "This is not an HPI archive");
+
+    assertThrows(HpiFormatException.class, () -> HpiArchive.open(file));
+  }
+
+  /**
+   * @return an archive that isn't obfuscated, whose directory starts after the header and fills the rest of it
+   */
+  private static ByteBuffer archive(int size) {
+    return ByteBuffer.allocate(size).order(ByteOrder.LITTLE_ENDIAN)
+      .putInt(0, 0x49504148)
+      .putInt(4, 0x00010000)
+      .putInt(8, size)
+      .putInt(12, 0)
+      .putInt(16, 20);
+  }
+
+  private static void putDirectory(ByteBuffer archive, int offset, int entryCount, int entryListOffset) {
+    archive.putInt(offset, entryCount).putInt(offset + 4, entryListOffset);
+  }
+
+  private static void putEntry(ByteBuffer archive, int offset, int nameOffset, int dataOffset, boolean isDirectory) {
+    archive.putInt(offset, nameOffset).putInt(offset + 4, dataOffset).put(offset + 8, (byte) (isDirectory ? 1 : 0));
+  }
+
+  private static void putFile(ByteBuffer archive, int offset, int fileOffset, int size, boolean compressed) {
+    archive.putInt(offset, fileOffset).putInt(offset + 4, size).put(offset + 8, (byte) (compressed ? 1 : 0));
+  }
+
+  private static void putName(ByteBuffer archive, int offset, String name) {
+    byte[] bytes = name.getBytes(StandardCharsets.ISO_8859_1);
+    archive.put(offset, bytes);
+    archive.put(offset + bytes.length, (byte) 0);
+  }
+
+  private static Path write(Path directory, ByteBuffer archive) throws Exception {
+    return Files.write(directory.resolve("map.ufo"), archive.array());
+  }
+}
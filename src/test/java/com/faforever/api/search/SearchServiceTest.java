@@ -0,0 +1,113 @@
+package com.faforever.api.search;
+
+import com.faforever.api.config.FafApiProperties;
+import com.faforever.api.data.domain.Map;
+import com.faforever.api.data.domain.MapVersion;
+import com.faforever.api.data.domain.Mod;
+import com.faforever.api.data.listeners.EntityChangedEvent;
+import com.faforever.api.data.listeners.EntityChangedEvent.ChangeType;
+import com.faforever.api.map.MapRepository;
+import com.faforever.api.mod.ModRepository;
+import lombok.Value;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.assertThat;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+public class SearchServiceTest {
+
+  private static final Instant NOW = Instant.parse("2020-01-01T12:00:00Z");
+
+  private SearchService instance;
+
+  @Mock
+  private MapRepository mapRepository;
+  @Mock
+  private ModRepository modRepository;
+  @Mock
+  private Clock clock;
+
+  @BeforeEach
+  public void setUp() {
+    FafApiProperties properties = new FafApiProperties();
+    properties.getSearch().setFullRefreshInterval(Duration.ofHours(1));
+    instance = new SearchService(mapRepository, modRepository, properties, clock);
+
+    when(clock.instant()).thenReturn(NOW);
+    when(mapRepository.findSearchDocuments()).thenReturn(List.of(
+      new Document(1, "Beta Tropics", "Axle", null),
+      new Document(2, "Comet Catcher", "Noodle", null)
+    ));
+    when(modRepository.findSearchDocuments()).thenReturn(List.of(
+      new Document(1, "Tropical Units", "Axle", null)
+    ));
+  }
+
+  @Test
+  public void indicesAreLoadedOnFirstSearch() {
+    assertThat(ids(instance.searchMaps("tropics", 10)), is(List.of(1)));
+    assertThat(ids(instance.searchMods("tropical", 10)), is(List.of(1)));
+    assertThat(ids(instance.searchMaps("tropics", 10)), is(List.of(1)));
+
+    verify(mapRepository, times(1)).findSearchDocuments();
+  }
+
+  @Test
+  public void changedDocumentsAreReloaded() {
+    instance.refreshIndices();
+    instance.onEntityChanged(new EntityChangedEvent(this, Map.class, 1, ChangeType.DELETED));
+    instance.onEntityChanged(new EntityChangedEvent(this, MapVersion.class, 20, ChangeType.CREATED));
+    when(mapRepository.findIdsByVersionIds(Set.of(20))).thenReturn(List.of(2));
+    when(mapRepository.findSearchDocuments(Set.of(1, 2))).thenReturn(List.of(
+      new Document(2, "Comet Catcher Tropics", "Noodle", null)
+    ));
+
+    instance.refreshIndices();
+
+    assertThat(ids(instance.searchMaps("tropics", 10)), is(List.of(2)));
+    assertThat(ids(instance.searchMods("tropical", 10)), is(List.of(1)));
+    verify(mapRepository, times(1)).findSearchDocuments();
+  }
+
+  @Test
+  public void failedReloadIsRetried() {
+    instance.refreshIndices();
+    instance.onEntityChanged(new EntityChangedEvent(this, Mod.class, 1, ChangeType.DELETED));
+    when(modRepository.findSearchDocuments(Set.of(1)))
+      .thenThrow(new IllegalStateException("Connection lost"))
+      .thenReturn(List.of());
+
+    instance.refreshIndices();
+    assertThat(ids(instance.searchMods("tropical", 10)), is(List.of(1)));
+
+    instance.refreshIndices();
+    assertThat(instance.searchMods("tropical", 10), is(List.of()));
+  }
+
+  private static List<Integer> ids(List<SearchHit> hits) {
+    return hits.stream().map(SearchHit::getId).collect(Collectors.toList());
+  }
+
+  @Value
+  private static class Document implements SearchDocument {
+    int id;
+    String name;
+    String author;
+    String description;
+  }
+}
@@ -0,0 +1,72 @@
+package com.faforever.api.search;
+
+import lombok.Value;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.assertThat;
+
+public class TrigramIndexTest {
+
+  private TrigramIndex instance;
+
+  @BeforeEach
+  public void setUp() {
+    instance = new TrigramIndex();
+    instance.put(new Document(1, "Beta Tropics (Coasts)", "Axle", "Islands with shallow coasts"));
+    instance.put(new Document(2, "Tropics", "Noodle", null));
+    instance.put(new Document(3, "Comet Catcher", "Tropicsfan", "A classic"));
+    instance.put(new Document(4, "Lava Run", "Axle", "Tropical heat, not quite the tropics"));
+  }
+
+  @Test
+  public void trigramsArePaddedPerWord() {
+    assertThat(TrigramIndex.trigrams("Ça va!"), is(Set.of("  c", " ca", "ca ", "  v", " va", "va ")));
+  }
+
+  @Test
+  public void nameMatchesRankAboveAuthorMatches() {
+    // The description of map 4 alone doesn't reach the minimum score
+    assertThat(ids(instance.search("tropics", 10)), is(List.of(2, 1, 3)));
+    assertThat(instance.search("tropics", 10).get(0).getScore(), is(1.0));
+  }
+
+  @Test
+  public void typosStillMatch() {
+    assertThat(ids(instance.search("tropcs", 1)), is(List.of(2)));
+    assertThat(ids(instance.search("comit catcher", 10)), is(List.of(3)));
+  }
+
+  @Test
+  public void unrelatedQueryMatchesNothing() {
+    assertThat(instance.search("seton's clutch", 10), is(List.of()));
+    assertThat(instance.search(" ", 10), is(List.of()));
+  }
+
+  @Test
+  public void putReplacesAndRemoveRemoves() {
+    instance.put(new Document(2, "Seton's Clutch", "Noodle", null));
+    instance.remove(1);
+
+    assertThat(ids(instance.search("tropics", 10)), is(List.of(3)));
+    assertThat(ids(instance.search("setons clutch", 10)), is(List.of(2)));
+    assertThat(instance.size(), is(3));
+  }
+
+  private static List<Integer> ids(List<SearchHit> hits) {
+    return hits.stream().map(SearchHit::getId).collect(Collectors.toList());
+  }
+
+  @Value
+  static class Document implements SearchDocument {
+    int id;
+    String name;
+    String author;
+    String description;
+  }
+}
@@ -0,0 +1,109 @@
+package com.faforever.api.statistics;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.transaction.support.TransactionSynchronization;
+
+import java.util.Map;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+
+@ExtendWith(MockitoExtension.class)
+public class StatisticsCounterServiceTest {
+
+  @Mock
+  private StatisticsCounterRepository statisticsCounterRepository;
+
+  private StatisticsCounterService instance;
+
+  @BeforeEach
+  public void setUp() {
+    instance = new StatisticsCounterService(statisticsCounterRepository);
+  }
+
+  private static void commit(TransactionSynchronization synchronization) {
+    synchronization.beforeCompletion();
+    synchronization.afterCompletion(TransactionSynchronization.STATUS_COMMITTED);
+  }
+
+  @Test
+  public void countsAreAddedInOneBatchPerCounter() {
+    doAnswer(invocation -> {
+      commit(invocation.getArgument(2));
+      return null;
+    }).when(statisticsCounterRepository).add(any(), any(), any());
+    instance.increment(StatisticsCounter.MAP_VERSION_DOWNLOADS, 1);
+    instance.increment(StatisticsCounter.MAP_VERSION_DOWNLOADS, 1);
+    instance.increment(StatisticsCounter.MAP_VERSION_DOWNLOADS, 2);
+
+    instance.flush();
+    instance.flush();
+
+    verify(statisticsCounterRepository, times(1)).add(eq(StatisticsCounter.MAP_VERSION_DOWNLOADS), eq(Map.of(1, 2L, 2, 1L)), any());
+    verify(statisticsCounterRepository, never()).add(eq(StatisticsCounter.MOD_DOWNLOADS), any(), any());
+    assertThat(instance.getPendingCount(StatisticsCounter.MAP_VERSION_DOWNLOADS, 1), is(0L));
+  }
+
+  @Test
+  public void countsAreRetriedIfTheyCantBeAdded() {
+    instance.increment(StatisticsCounter.MOD_DOWNLOADS, 1);
+    doThrow(new RuntimeException("Database down")).doNothing()
+      .when(statisticsCounterRepository).add(eq(StatisticsCounter.MOD_DOWNLOADS), any(), any());
+
+    instance.flush();
+    assertThat(instance.getPendingCount(StatisticsCounter.MOD_DOWNLOADS, 1), is(1L));
+    instance.increment(StatisticsCounter.MOD_DOWNLOADS, 1);
+    instance.flush();
+
+    verify(statisticsCounterRepository, times(1)).add(eq(StatisticsCounter.MOD_DOWNLOADS), eq(Map.of(1, 2L)), any());
+  }
+
+  @Test
+  public void liveCountIncludesCountsBeingAdded() {
+    instance.increment(StatisticsCounter.MAP_VERSION_DOWNLOADS, 1);
+    long[] liveCountWhileAdding = new long[1];
+    doAnswer(invocation -> {
+      instance.increment(StatisticsCounter.MAP_VERSION_DOWNLOADS, 1);
+      liveCountWhileAdding[0] = instance.getLiveCount(StatisticsCounter.MAP_VERSION_DOWNLOADS, 1, 10);
+      commit(invocation.getArgument(2));
+      return null;
+    }).when(statisticsCounterRepository).add(eq(StatisticsCounter.MAP_VERSION_DOWNLOADS), any(), any());
+
+    instance.flush();
+
+    assertThat(liveCountWhileAdding[0], is(12L));
+    assertThat(instance.getLiveCount(StatisticsCounter.MAP_VERSION_DOWNLOADS, 1, 11), is(12L));
+  }
+
+  @Test
+  public void pendingCountIsNotReadWhileBatchCommits() throws Exception {
+    instance.increment(StatisticsCounter.MAP_VERSION_DOWNLOADS, 1);
+    long[] pendingCountWhileCommitting = new long[1];
+    doAnswer(invocation -> {
+      TransactionSynchronization synchronization = invocation.getArgument(2);
+      synchronization.beforeCompletion();
+      Thread reader = new Thread(() -> pendingCountWhileCommitting[0] = instance.getPendingCount(StatisticsCounter.MAP_VERSION_DOWNLOADS, 1));
+      reader.start();
+      reader.join(100);
+      assertThat(reader.isAlive(), is(true));
+      synchronization.afterCompletion(TransactionSynchronization.STATUS_COMMITTED);
+      reader.join();
+      return null;
+    }).when(statisticsCounterRepository).add(eq(StatisticsCounter.MAP_VERSION_DOWNLOADS), any(), any());
+
+    instance.flush();
+
+    assertThat(pendingCountWhileCommitting[0], is(0L));
+  }
+}
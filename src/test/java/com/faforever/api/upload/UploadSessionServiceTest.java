@@ -0,0 +1,189 @@
+package com.faforever.api.upload;
+
+import com.faforever.api.config.FafApiProperties;
+import com.faforever.api.data.domain.Player;
+import com.faforever.api.error.ApiException;
+import com.faforever.api.error.ConflictApiException;
+import com.faforever.api.error.ErrorCode;
+import com.faforever.api.error.NotFoundApiException;
+import com.google.common.hash.Hashing;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static com.faforever.api.error.ApiExceptionMatcher.hasErrorCode;
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.assertThat;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+public class UploadSessionServiceTest {
+
+  private static final byte[] FIRST_CHUNK = "first chunk, ".getBytes(StandardCharsets.UTF_8);
+  private static final byte[] SECOND_CHUNK = "second chunk".getBytes(StandardCharsets.UTF_8);
+  private static final long SIZE = FIRST_CHUNK.length + SECOND_CHUNK.length;
+
+  @TempDir
+  Path stagingDirectory;
+
+  private UploadSessionService instance;
+  private FafApiProperties fafApiProperties;
+  private Player player;
+
+  @BeforeEach
+  public void setUp() {
+    fafApiProperties = new FafApiProperties();
+    fafApiProperties.getUpload().setStagingDirectory(stagingDirectory);
+    instance = new UploadSessionService(fafApiProperties, Clock.fixed(Instant.parse("2021-01-01T00:00:00Z"), ZoneOffset.UTC));
+
+    player = new Player();
+    player.setId(1);
+  }
+
+  @Test
+  public void chunksAreAppendedAndProcessed() throws Exception {
+    UploadStatus status = instance.createSession(UploadType.MAP, "map.zip", SIZE, player);
+
+    status = instance.appendChunk(status.getId(), 0, sha256(FIRST_CHUNK), new ByteArrayInputStream(FIRST_CHUNK), player);
+    assertThat(status.getOffset(), is((long) FIRST_CHUNK.length));
+    status = instance.appendChunk(status.getId(), FIRST_CHUNK.length, sha256(SECOND_CHUNK), new ByteArrayInputStream(SECOND_CHUNK), player);
+    assertThat(status.getOffset(), is(SIZE));
+
+    List<String> processed = new ArrayList<>();
+    instance.complete(status.getId(), UploadType.MAP, player, stagingFile -> processed.add(Files.readString(stagingFile)));
+
+    assertThat(processed, is(List.of("first chunk, second chunk")));
+    assertThat(stagingDirectory.toFile().list().length, is(0));
+    String id = status.getId();
+    assertThrows(NotFoundApiException.class, () -> instance.getStatus(id, player));
+  }
+
+  @Test
+  public void chunkWithWrongOffsetIsRejected() throws Exception {
+    String id = instance.createSession(UploadType.MAP, "map.zip", SIZE, player).getId();
+
+    ApiException result = assertThrows(ApiException.class, () -> instance.appendChunk(id, 5, sha256(SECOND_CHUNK), new ByteArrayInputStream(SECOND_CHUNK), player));
+
+    assertThat(result, hasErrorCode(ErrorCode.UPLOAD_OFFSET_MISMATCH));
+  }
+
+  @Test
+  public void chunkWithWrongChecksumIsDiscarded() throws Exception {
+    String id = instance.createSession(UploadType.MAP, "map.zip", SIZE, player).getId();
+
+    ApiException result = assertThrows(ApiException.class, () -> instance.appendChunk(id, 0, sha256(SECOND_CHUNK), new ByteArrayInputStream(FIRST_CHUNK), player));
+
+    assertThat(result, hasErrorCode(ErrorCode.UPLOAD_CHECKSUM_MISMATCH));
+    assertThat(instance.getStatus(id, player).getOffset(), is(0L));
+    assertThat(Files.size(stagingDirectory.resolve(id + ".part")), is(0L));
+  }
+
+  @Test
+  public void incompleteUploadIsNotProcessed() throws Exception {
+    String id = instance.createSession(UploadType.MAP, "map.zip", SIZE, player).getId();
+    instance.appendChunk(id, 0, sha256(FIRST_CHUNK), new ByteArrayInputStream(FIRST_CHUNK), player);
+
+    ApiException result = assertThrows(ApiException.class, () -> instance.complete(id, UploadType.MAP, player, stagingFile -> {
+      throw new IllegalStateException("Must not be processed");
+    }));
+
+    assertThat(result, hasErrorCode(ErrorCode.UPLOAD_INCOMPLETE));
+  }
+
+  @Test
+  public void sessionOfOtherPlayerIsNotFound() throws Exception {
+    String id = instance.createSession(UploadType.MAP, "map.zip", SIZE, player).getId();
+    Player otherPlayer = new Player();
+    otherPlayer.setId(2);
+
+    assertThrows(NotFoundApiException.class, () -> instance.getStatus(id, otherPlayer));
+  }
+
+  @Test
+  public void invalidExtensionIsRejected() {
+    ApiException result = assertThrows(ApiException.class, () -> instance.createSession(UploadType.MOD, "mod.exe", SIZE, player));
+
+    assertThat(result, hasErrorCode(ErrorCode.UPLOAD_INVALID_FILE_EXTENSIONS));
+  }
+
+  @Test
+  public void expiredSessionIsDiscarded() throws Exception {
+    String id = instance.createSession(UploadType.MAP, "map.zip", SIZE, player).getId();
+    fafApiProperties.getUpload().setSessionExpiry(Duration.ofSeconds(-1));
+
+    instance.discardExpiredSessions();
+
+    assertThrows(NotFoundApiException.class, () -> instance.getStatus(id, player));
+    assertThat(stagingDirectory.toFile().list().length, is(0));
+  }
+
+  @Test
+  public void concurrentChunkIsRejectedWhileStatusIsServed() throws Exception {
+    String id = instance.createSession(UploadType.MAP, "map.zip", SIZE, player).getId();
+    CountDownLatch receiving = new CountDownLatch(1);
+    CountDownLatch release = new CountDownLatch(1);
+    InputStream slowInputStream = new InputStream() {
+      @Override
+      public int read() throws IOException {
+        receiving.countDown();
+        try {
+          release.await();
+        } catch (InterruptedException e) {
+          throw new InterruptedIOException();
+        }
+        return -1;
+      }
+    };
+    ExecutorService executor = Executors.newSingleThreadExecutor();
+    try {
+      Future<?> firstChunk = executor.submit(() -> instance.appendChunk(id, 0, sha256(new byte[0]), slowInputStream, player));
+      receiving.await();
+
+      assertThat(instance.getStatus(id, player).getOffset(), is(0L));
+      ApiException result = assertThrows(ConflictApiException.class, () -> instance.appendChunk(id, 0, sha256(FIRST_CHUNK), new ByteArrayInputStream(FIRST_CHUNK), player));
+      assertThat(result, hasErrorCode(ErrorCode.UPLOAD_BUSY));
+
+      release.countDown();
+      firstChunk.get();
+    } finally {
+      release.countDown();
+      executor.shutdown();
+    }
+    assertThat(instance.appendChunk(id, 0, sha256(FIRST_CHUNK), new ByteArrayInputStream(FIRST_CHUNK), player).getOffset(), is((long) FIRST_CHUNK.length));
+  }
+
+  @Test
+  public void sessionsPerPlayerAreLimited() throws Exception {
+    fafApiProperties.getUpload().setMaxSessionsPerPlayer(2);
+    instance.createSession(UploadType.MAP, "map.zip", SIZE, player);
+    instance.createSession(UploadType.MAP, "map.zip", SIZE, player);
+
+    ApiException result = assertThrows(ApiException.class, () -> instance.createSession(UploadType.MAP, "map.zip", SIZE, player));
+
+    assertThat(result, hasErrorCode(ErrorCode.UPLOAD_TOO_MANY_SESSIONS));
+    Player otherPlayer = new Player();
+    otherPlayer.setId(2);
+    instance.createSession(UploadType.MAP, "map.zip", SIZE, otherPlayer);
+  }
+
+  private static String sha256(byte[] bytes) {
+    return Hashing.sha256().hashBytes(bytes).toString();
+  }
+}